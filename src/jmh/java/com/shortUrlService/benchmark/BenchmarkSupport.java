@@ -0,0 +1,34 @@
+package com.shortUrlService.benchmark;
+
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.domain.service.NotificationService;
+
+import java.util.UUID;
+
+final class BenchmarkSupport {
+    /** Фиксированное зерно: одинаковые входные данные от запуска к запуску. */
+    static final long SEED = 0x5EEDL;
+
+    static final NotificationService SILENT_NOTIFICATIONS = new NotificationService() {
+        @Override
+        public void notifyLinkExpired(UUID userId, ShortUrl url) {
+        }
+
+        @Override
+        public void notifyLimitReached(UUID userId, ShortUrl url) {
+        }
+    };
+
+    private BenchmarkSupport() {
+    }
+
+    static ShortUrl link(UUID userId, String shortCode, int maxClicks, long expiresAtMillis) {
+        return ShortUrl.builder()
+                .userId(userId)
+                .originalUrl("https://example.com/path/" + shortCode)
+                .shortCode(shortCode)
+                .maxClicks(maxClicks)
+                .expiresAtMillis(expiresAtMillis)
+                .build();
+    }
+}
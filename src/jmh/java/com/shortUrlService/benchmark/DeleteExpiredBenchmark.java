@@ -0,0 +1,69 @@
+package com.shortUrlService.benchmark;
+
+import com.shortUrlService.infrastructure.persistence.InMemoryUrlRepository;
+import com.shortUrlService.infrastructure.shortening.Base62;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Один проход очистки по хранилищу из 1M/10M ссылок, 1% которых истек.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms12g", "-Xmx12g", "-XX:+UseParallelGC"})
+public class DeleteExpiredBenchmark {
+    private static final int USERS = 10_000;
+    private static final int EXPIRED_EVERY = 100;
+
+    @Param({"1000000", "10000000"})
+    public int entries;
+
+    private InMemoryUrlRepository repository;
+    private UUID[] users;
+    private long liveDeadline;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new InMemoryUrlRepository();
+        users = new UUID[USERS];
+        for (int i = 0; i < USERS; i++) {
+            users[i] = new UUID(BenchmarkSupport.SEED, i);
+        }
+        liveDeadline = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(365);
+        for (int i = 0; i < entries; i++) {
+            if (i % EXPIRED_EVERY != 0) {
+                repository.save(BenchmarkSupport.link(users[i % USERS], Base62.encode(i, 6), 100, liveDeadline));
+            }
+        }
+    }
+
+    /** Перед каждым замером возвращаем истекшую долю, удаленную прошлым проходом. */
+    @Setup(Level.Iteration)
+    public void addExpired() {
+        for (int i = 0; i < entries; i += EXPIRED_EVERY) {
+            repository.save(BenchmarkSupport.link(users[i % USERS], Base62.encode(i, 6), 100, 1));
+        }
+    }
+
+    @Benchmark
+    public InMemoryUrlRepository deleteExpired() {
+        repository.deleteExpired();
+        return repository;
+    }
+}
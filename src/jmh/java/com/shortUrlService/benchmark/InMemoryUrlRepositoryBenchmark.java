@@ -0,0 +1,67 @@
+package com.shortUrlService.benchmark;
+
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.infrastructure.persistence.InMemoryUrlRepository;
+import com.shortUrlService.infrastructure.shortening.Base62;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * save и findByUserId для пользователя, владеющего от 1 до 100 000 ссылок.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class InMemoryUrlRepositoryBenchmark {
+    @Param({"1", "100", "10000", "100000"})
+    public int linksPerUser;
+
+    private InMemoryUrlRepository repository;
+    private UUID userId;
+    private ShortUrl[] links;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new InMemoryUrlRepository();
+        userId = UUID.randomUUID();
+        links = new ShortUrl[linksPerUser];
+        long expiresAt = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(365);
+        for (int i = 0; i < linksPerUser; i++) {
+            links[i] = BenchmarkSupport.link(userId, Base62.encode(i, 6), 100, expiresAt);
+            repository.save(links[i]);
+        }
+        random = new SplittableRandom(BenchmarkSupport.SEED);
+    }
+
+    /** Повторное сохранение существующей ссылки - бывший O(n) путь каждого клика. */
+    @Benchmark
+    public void save() {
+        repository.save(links[random.nextInt(linksPerUser)]);
+    }
+
+    @Benchmark
+    public void findByUserId(Blackhole blackhole) {
+        for (ShortUrl url : repository.findByUserId(userId)) {
+            blackhole.consume(url);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.shortUrlService.benchmark;
+
+import com.shortUrlService.infrastructure.ratelimit.TokenBucketTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Цена проверки лимита на вызов. {@code keys} - число различных ключей: 1 000 помещаются
+ * в таблицу целиком, 10 000 000 в десять раз больше ее емкости, и почти каждый вызов
+ * ищет простаивающую корзину в окне и уходит в общую корзину переполнения. {@code contended} бьет 4 потоками в один ключ - худший
+ * случай для CAS. Сравнивать с {@code baseline} - генерацией ключа без проверки.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class RateLimiterBenchmark {
+    private static final int CAPACITY = 1 << 20;
+
+    @Param({"1000", "10000000"})
+    public int keys;
+
+    private TokenBucketTable table;
+
+    @State(Scope.Thread)
+    public static class Caller {
+        private final SplittableRandom random = new SplittableRandom(BenchmarkSupport.SEED);
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        table = new TokenBucketTable(CAPACITY, 1_000_000, TokenBucketTable.MAX_BURST, System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public long baseline(Caller caller) {
+        return caller.random.nextInt(keys) + 1L;
+    }
+
+    @Benchmark
+    public boolean tryAcquire(Caller caller) {
+        return table.tryAcquire(caller.random.nextInt(keys) + 1L, System.currentTimeMillis());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean contended() {
+        return table.tryAcquire(1, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,96 @@
+package com.shortUrlService.benchmark;
+
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.infrastructure.persistence.MappedRedirectIndex;
+import com.shortUrlService.infrastructure.shortening.Base62;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск цели перехода и запись ее в прямой буфер ответа: индекс в отображенном файле
+ * против ConcurrentHashMap с объектами ShortUrl. С -prof gc видно, что индекс не выделяет
+ * память на поиск, а путь через строку кодирует адрес в новый массив на каждый переход.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class RedirectIndexBenchmark {
+    private static final int LINKS = 1_000_000;
+
+    private final ConcurrentHashMap<String, ShortUrl> map = new ConcurrentHashMap<>();
+    private Path dir;
+    private MappedRedirectIndex index;
+    private String[] codes;
+
+    @State(Scope.Thread)
+    public static class Reader {
+        private final SplittableRandom random = new SplittableRandom(BenchmarkSupport.SEED);
+        private final MappedRedirectIndex.Entry entry = new MappedRedirectIndex.Entry();
+        private final ByteBuffer response = ByteBuffer.allocateDirect(4096);
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("redirect-index");
+        index = MappedRedirectIndex.open(dir.resolve("redirect.idx"), Clock.systemUTC());
+        UUID userId = UUID.randomUUID();
+        long expiresAt = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+        codes = new String[LINKS];
+        for (int i = 0; i < LINKS; i++) {
+            codes[i] = Base62.encode(i * 7_919L, 6);
+            ShortUrl url = BenchmarkSupport.link(userId, codes[i], Integer.MAX_VALUE, expiresAt);
+            map.put(codes[i], url);
+            index.put(url);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        index.close();
+        Files.deleteIfExists(dir.resolve("redirect.idx"));
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public int mappedIndex(Reader reader) {
+        ByteBuffer response = reader.response.clear();
+        if (index.find(codes[reader.random.nextInt(LINKS)], reader.entry)) {
+            reader.entry.copyTarget(response);
+        }
+        return response.position();
+    }
+
+    @Benchmark
+    public int heapMap(Reader reader) {
+        ByteBuffer response = reader.response.clear();
+        ShortUrl url = map.get(codes[reader.random.nextInt(LINKS)]);
+        if (url != null) {
+            response.put(url.getOriginalUrl().getBytes(StandardCharsets.US_ASCII));
+        }
+        return response.position();
+    }
+}
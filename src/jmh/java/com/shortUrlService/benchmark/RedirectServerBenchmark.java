@@ -0,0 +1,183 @@
+package com.shortUrlService.benchmark;
+
+import com.shortUrlService.application.UrlShrinkApplicationService;
+import com.shortUrlService.domain.service.ClickAnalytics;
+import com.shortUrlService.domain.service.UrlRepository;
+import com.shortUrlService.domain.service.UrlShrinkDomainService;
+import com.shortUrlService.infrastructure.http.RedirectEventLoopServer;
+import com.shortUrlService.infrastructure.http.RedirectHttpServer;
+import com.shortUrlService.infrastructure.persistence.InMemoryUrlRepository;
+import com.shortUrlService.infrastructure.persistence.MappedRedirectIndex;
+import com.shortUrlService.infrastructure.persistence.RedirectIndexingUrlRepository;
+import com.shortUrlService.infrastructure.shortening.ShortCodeGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Переход через фронт переходов по постоянному соединению: запрос - ответ 302 по
+ * localhost. Режим SampleTime дает распределение времени с p99; время включает путь
+ * клиента и ядра, поэтому это верхняя граница времени на стороне сервера.
+ * Параметр {@code index} включает копирование адреса из индекса переходов, {@code mode}
+ * выбирает фронт: виртуальный поток на соединение или циклы событий. {@code pipelined}
+ * шлет пачку из {@value #PIPELINE} запросов одной записью и ждет все ответы - так
+ * работает прокси, гоняющий переходы по немногим соединениям.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class RedirectServerBenchmark {
+    private static final int LINKS = 100_000;
+
+    private static final int PIPELINE = 16;
+
+    @Param({"false", "true"})
+    public boolean index;
+
+    @Param({"threads", "event-loop"})
+    public String mode;
+
+    private Path dir;
+    private MappedRedirectIndex redirectIndex;
+    private AutoCloseable server;
+    private InetSocketAddress address;
+    private ByteBuffer[] requests;
+
+    @State(Scope.Thread)
+    public static class Connection {
+        private final SplittableRandom random = new SplittableRandom(BenchmarkSupport.SEED);
+        private final ByteBuffer response = ByteBuffer.allocateDirect(4096 * PIPELINE);
+        private final ByteBuffer[] batch = new ByteBuffer[PIPELINE];
+        private SocketChannel channel;
+
+        @Setup(Level.Trial)
+        public void connect(RedirectServerBenchmark benchmark) throws IOException {
+            channel = SocketChannel.open(benchmark.address);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Clock clock = Clock.systemUTC();
+        UrlRepository repository = new InMemoryUrlRepository(clock);
+        if (index) {
+            dir = Files.createTempDirectory("redirect-server");
+            redirectIndex = MappedRedirectIndex.open(dir.resolve("redirect.idx"), clock);
+            repository = new RedirectIndexingUrlRepository(repository, redirectIndex);
+        }
+        UrlShrinkDomainService domainService = new UrlShrinkDomainService(repository,
+                new ShortCodeGenerator(ShortCodeGenerator.Mode.SEQUENCE, 6, BenchmarkSupport.SEED),
+                BenchmarkSupport.SILENT_NOTIFICATIONS, ClickAnalytics.NONE, clock);
+        UUID userId = UUID.randomUUID();
+        requests = new ByteBuffer[LINKS];
+        for (int i = 0; i < LINKS; i++) {
+            String shortUrl = domainService.createShortUrl(userId, "https://example.com/path/" + i, Integer.MAX_VALUE);
+            String request = "GET /" + shortUrl.substring(shortUrl.lastIndexOf('/') + 1)
+                    + " HTTP/1.1\r\nHost: bench\r\n\r\n";
+            byte[] bytes = request.getBytes(StandardCharsets.US_ASCII);
+            requests[i] = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        }
+        UrlShrinkApplicationService appService = new UrlShrinkApplicationService(domainService);
+        InetSocketAddress local = new InetSocketAddress("127.0.0.1", 0);
+        if (mode.equals("event-loop")) {
+            RedirectEventLoopServer loops = new RedirectEventLoopServer(appService, redirectIndex, local, 0).start();
+            server = loops;
+            address = loops.getAddress();
+        } else {
+            RedirectHttpServer threads = new RedirectHttpServer(appService, redirectIndex, local).start();
+            server = threads;
+            address = threads.getAddress();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        server.close();
+        if (redirectIndex != null) {
+            redirectIndex.close();
+            Files.deleteIfExists(dir.resolve("redirect.idx"));
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    @Benchmark
+    public int redirect(Connection connection) throws IOException {
+        ByteBuffer request = requests[connection.random.nextInt(LINKS)].duplicate();
+        while (request.hasRemaining()) {
+            connection.channel.write(request);
+        }
+        ByteBuffer response = connection.response.clear();
+        while (!endsWithBlankLine(response)) {
+            if (connection.channel.read(response) < 0) {
+                throw new IOException("Сервер закрыл соединение");
+            }
+        }
+        return response.position();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIPELINE)
+    public int pipelined(Connection connection) throws IOException {
+        ByteBuffer[] batch = connection.batch;
+        for (int i = 0; i < PIPELINE; i++) {
+            batch[i] = requests[connection.random.nextInt(LINKS)].duplicate();
+        }
+        while (batch[PIPELINE - 1].hasRemaining()) {
+            connection.channel.write(batch);
+        }
+        ByteBuffer response = connection.response.clear();
+        int responses = 0;
+        int scanned = 0;
+        while (responses < PIPELINE) {
+            if (connection.channel.read(response) < 0) {
+                throw new IOException("Сервер закрыл соединение");
+            }
+            for (; scanned + 4 <= response.position(); scanned++) {
+                if (response.get(scanned) == '\r' && response.get(scanned + 1) == '\n'
+                        && response.get(scanned + 2) == '\r' && response.get(scanned + 3) == '\n') {
+                    responses++;
+                }
+            }
+        }
+        return response.position();
+    }
+
+    private static boolean endsWithBlankLine(ByteBuffer response) {
+        int end = response.position();
+        return end >= 4 && response.get(end - 1) == '\n' && response.get(end - 2) == '\r'
+                && response.get(end - 3) == '\n' && response.get(end - 4) == '\r';
+    }
+}
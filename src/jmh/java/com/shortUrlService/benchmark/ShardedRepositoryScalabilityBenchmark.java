@@ -0,0 +1,126 @@
+package com.shortUrlService.benchmark;
+
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.domain.service.UrlRepository;
+import com.shortUrlService.infrastructure.persistence.InMemoryUrlRepository;
+import com.shortUrlService.infrastructure.persistence.ShardedUrlRepository;
+import com.shortUrlService.infrastructure.shortening.Base62;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Clock;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Смешанная нагрузка на хранилище (переходы и перезапись ссылок, одна запись на 16
+ * операций, очистка раз в 1024 операции) на 1-64 потоках. {@code shards = 1} - одно
+ * {@link InMemoryUrlRepository}, иначе {@link ShardedUrlRepository}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ShardedRepositoryScalabilityBenchmark {
+    private static final int LINKS = 200_000;
+    private static final int USERS = 1_000;
+
+    @Param({"1", "16", "64"})
+    public int shards;
+
+    private UrlRepository repository;
+    private ShortUrl[] links;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private final SplittableRandom random = new SplittableRandom(BenchmarkSupport.SEED);
+        private int operations;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Clock clock = Clock.systemUTC();
+        repository = shards == 1 ? new InMemoryUrlRepository(clock) : new ShardedUrlRepository(shards, clock);
+        UUID[] users = new UUID[USERS];
+        for (int i = 0; i < USERS; i++) {
+            users[i] = UUID.randomUUID();
+        }
+        links = new ShortUrl[LINKS];
+        long expiresAt = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(365);
+        for (int i = 0; i < LINKS; i++) {
+            links[i] = BenchmarkSupport.link(users[i % USERS], Base62.encode(i, 6), Integer.MAX_VALUE, expiresAt);
+            repository.save(links[i]);
+        }
+    }
+
+    private Object operation(Cursor cursor) {
+        ShortUrl link = links[cursor.random.nextInt(LINKS)];
+        int operation = ++cursor.operations;
+        if ((operation & 1023) == 0) {
+            repository.deleteExpired();
+        } else if ((operation & 15) == 0) {
+            repository.save(link);
+        } else {
+            ShortUrl found = repository.findByShortCode(link.getShortCode()).orElseThrow();
+            found.tryClaimClick();
+            repository.recordClick(found);
+        }
+        return link;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object mixed_1thread(Cursor cursor) {
+        return operation(cursor);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public Object mixed_2threads(Cursor cursor) {
+        return operation(cursor);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object mixed_4threads(Cursor cursor) {
+        return operation(cursor);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object mixed_8threads(Cursor cursor) {
+        return operation(cursor);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object mixed_16threads(Cursor cursor) {
+        return operation(cursor);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Object mixed_32threads(Cursor cursor) {
+        return operation(cursor);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Object mixed_64threads(Cursor cursor) {
+        return operation(cursor);
+    }
+}
@@ -0,0 +1,42 @@
+package com.shortUrlService.benchmark;
+
+import com.shortUrlService.infrastructure.shortening.ShortCodeGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShortCodeGeneratorBenchmark {
+    @Param({"SHA256", "RANDOM", "SEQUENCE"})
+    public ShortCodeGenerator.Mode mode;
+
+    private ShortCodeGenerator generator;
+    private UUID userId;
+
+    @Setup
+    public void setUp() {
+        generator = new ShortCodeGenerator(mode, 6);
+        userId = UUID.randomUUID();
+    }
+
+    @Benchmark
+    public String generateUniqueCode() {
+        return generator.generateUniqueCode("https://example.com/some/long/path?query=1", userId);
+    }
+}
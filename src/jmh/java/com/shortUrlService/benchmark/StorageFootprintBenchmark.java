@@ -0,0 +1,103 @@
+package com.shortUrlService.benchmark;
+
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.domain.service.UrlRepository;
+import com.shortUrlService.infrastructure.persistence.CompactUrlRepository;
+import com.shortUrlService.infrastructure.persistence.InMemoryUrlRepository;
+import com.shortUrlService.infrastructure.shortening.Base62;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сколько байт кучи занимает одна ссылка в каждом хранилище.
+ * Результат - вспомогательный счетчик bytesPerLink (время заполнения вторично).
+ * mvn -P benchmark test-compile exec:exec -Djmh.args="StorageFootprint"
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-XX:+UseParallelGC"})
+public class StorageFootprintBenchmark {
+    private static final int USERS = 10_000;
+    private static final String[] HOSTS = {
+            "https://github.com", "https://www.youtube.com", "https://example.com", "https://docs.oracle.com"
+    };
+
+    @State(Scope.Thread)
+    public static class Input {
+        @Param({"1000000"})
+        public int links;
+
+        @Param({"IN_MEMORY", "COMPACT"})
+        public String storage;
+
+        UUID[] users;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            users = new UUID[USERS];
+            for (int i = 0; i < USERS; i++) {
+                users[i] = UUID.randomUUID();
+            }
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public long bytesPerLink;
+    }
+
+    @Benchmark
+    public Object fill(Input input, Footprint footprint) {
+        long before = usedHeap();
+        Object store = fill(input);
+        long after = usedHeap();
+        footprint.bytesPerLink = (after - before) / input.links;
+        return store;
+    }
+
+    private static UrlRepository fill(Input input) {
+        UrlRepository repository = "COMPACT".equals(input.storage)
+                ? new CompactUrlRepository(6, Clock.systemUTC())
+                : new InMemoryUrlRepository();
+        for (int i = 0; i < input.links; i++) {
+            repository.saveIfAbsent(link(input, i));
+        }
+        return repository;
+    }
+
+    private static ShortUrl link(Input input, int i) {
+        return ShortUrl.builder()
+                .userId(input.users[i % USERS])
+                .originalUrl(HOSTS[i % HOSTS.length] + "/path/" + i)
+                .shortCode(Base62.encode(i * 7919L, 6))
+                .maxClicks(100)
+                .expiresAtMillis(System.currentTimeMillis() + 86_400_000L)
+                .build();
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,115 @@
+package com.shortUrlService.benchmark;
+
+import com.shortUrlService.domain.service.ClickAnalytics;
+import com.shortUrlService.domain.service.ServiceMetrics;
+import com.shortUrlService.domain.service.UrlShrinkDomainService;
+import com.shortUrlService.infrastructure.analytics.TimeBucketedClickAnalytics;
+import com.shortUrlService.infrastructure.metrics.MetricsRegistry;
+import com.shortUrlService.infrastructure.persistence.InMemoryUrlRepository;
+import com.shortUrlService.infrastructure.shortening.ShortCodeGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Clock;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Горячие пути доменного сервиса: создание ссылки и переход по ней на 1/4/16 потоках.
+ * Параметр {@code analytics} показывает цену записи перехода в аналитику,
+ * {@code metrics} - цену замеров длительности и счетчиков исходов.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class UrlShrinkDomainServiceBenchmark {
+    private static final int LINKS = 100_000;
+
+    @Param({"false", "true"})
+    public boolean analytics;
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private UrlShrinkDomainService service;
+    private UUID userId;
+    private String[] codes;
+    private TimeBucketedClickAnalytics clickAnalytics;
+    private MetricsRegistry registry;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private final SplittableRandom random = new SplittableRandom(BenchmarkSupport.SEED);
+
+        int next() {
+            return random.nextInt(LINKS);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Clock clock = Clock.systemUTC();
+        clickAnalytics = analytics ? new TimeBucketedClickAnalytics(clock, 24, 1024, 8192, 1) : null;
+        registry = metrics ? new MetricsRegistry(1_000) : null;
+        service = new UrlShrinkDomainService(new InMemoryUrlRepository(),
+                new ShortCodeGenerator(ShortCodeGenerator.Mode.SEQUENCE, 6, BenchmarkSupport.SEED),
+                BenchmarkSupport.SILENT_NOTIFICATIONS,
+                analytics ? clickAnalytics : ClickAnalytics.NONE,
+                metrics ? registry : ServiceMetrics.NONE, clock);
+        userId = UUID.randomUUID();
+        codes = new String[LINKS];
+        for (int i = 0; i < LINKS; i++) {
+            String shortUrl = service.createShortUrl(userId, "https://example.com/" + i, Integer.MAX_VALUE);
+            codes[i] = shortUrl.substring(shortUrl.lastIndexOf('/') + 1);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        if (clickAnalytics != null) {
+            clickAnalytics.close();
+        }
+        if (registry != null) {
+            registry.close();
+        }
+    }
+
+    @Benchmark
+    public String createShortUrl() {
+        return service.createShortUrl(userId, "https://example.com/new", 100);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String resolveUrl_1thread(Cursor cursor) {
+        return service.resolveUrl(codes[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String resolveUrl_4threads(Cursor cursor) {
+        return service.resolveUrl(codes[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String resolveUrl_16threads(Cursor cursor) {
+        return service.resolveUrl(codes[cursor.next()]);
+    }
+}
@@ -2,9 +2,19 @@ package com.shortUrlService;
 
 import com.shortUrlService.application.UrlShrinkApplicationService;
 import com.shortUrlService.config.AppConfig;
+import com.shortUrlService.infrastructure.export.LinkExporter;
+import com.shortUrlService.infrastructure.http.RedirectEventLoopServer;
+import com.shortUrlService.infrastructure.http.RedirectHttpServer;
+import com.shortUrlService.infrastructure.http.UrlShrinkHttpServer;
 
 import java.awt.Desktop;
+import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Scanner;
 import java.util.UUID;
 
@@ -16,8 +26,37 @@ public class UrlShrinkerApp {
         this.appService = AppConfig.createApplicationService();
     }
 
-    public static void main(String[] args) {
-        new UrlShrinkerApp().run();
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && "server".equalsIgnoreCase(args[0])) {
+            new UrlShrinkerApp().serve();
+        } else {
+            new UrlShrinkerApp().run();
+        }
+    }
+
+    private void serve() throws IOException, InterruptedException {
+        UrlShrinkHttpServer server = new UrlShrinkHttpServer(
+                appService, AppConfig.getServerAddress(), AppConfig.getDefaultMaxClicks(),
+                AppConfig.getMetrics(), AppConfig.createRateLimiter(),
+                AppConfig.getClusterNode(), AppConfig.getClusterSecret()).start();
+        System.out.println("HTTP-сервер запущен: http://" + AppConfig.getDomain());
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        InetSocketAddress redirectAddress = AppConfig.getRedirectServerAddress();
+        if (redirectAddress != null) {
+            if (AppConfig.isRedirectServerEventLoop()) {
+                RedirectEventLoopServer redirects = new RedirectEventLoopServer(appService,
+                        AppConfig.getRedirectIndex(), redirectAddress, AppConfig.getRedirectServerLoops()).start();
+                System.out.println("Фронт переходов запущен на циклах событий: " + redirects.getAddress()
+                        + (redirects.isReusePort() ? " (SO_REUSEPORT)" : ""));
+                Runtime.getRuntime().addShutdownHook(new Thread(redirects::close));
+            } else {
+                RedirectHttpServer redirects = new RedirectHttpServer(
+                        appService, AppConfig.getRedirectIndex(), redirectAddress).start();
+                System.out.println("Фронт переходов запущен: " + redirects.getAddress());
+                Runtime.getRuntime().addShutdownHook(new Thread(redirects::close));
+            }
+        }
+        Thread.currentThread().join();
     }
 
     private void run() {
@@ -73,10 +112,22 @@ public class UrlShrinkerApp {
                 handleDelete(parts, scanner);
                 yield false;
             }
+            case "export" -> {
+                handleExport(parts);
+                yield false;
+            }
             case "stats" -> {
                 handleStats();
                 yield false;
             }
+            case "clicks" -> {
+                handleClicks(parts);
+                yield false;
+            }
+            case "top" -> {
+                handleTop(parts);
+                yield false;
+            }
             default -> {
                 System.out.println("Неизвестная команда. 'help' для справки");
                 yield false;
@@ -100,7 +151,10 @@ public class UrlShrinkerApp {
             - edit CODE [LIMIT]       - изменить лимит кликов
             - extend CODE [DAYS]      - продлить срок жизни ссылки
             - delete CODE             - удалить ссылку
+            - export [FORMAT] [FILE]  - выгрузить мои ссылки (csv или jsonl, без FILE - на экран)
             - stats                   - статистика
+            - clicks CODE [HOURS]     - переходы по ссылке по часам (по умолчанию 24)
+            - top [HOURS] [COUNT]     - самые посещаемые ссылки за окно
             - help                    - справка
             - exit                    - выход""");
     }
@@ -250,6 +304,34 @@ public class UrlShrinkerApp {
         }
     }
 
+    private void handleExport(String[] parts) {
+        if (currentUser == null) {
+            System.out.println("Нет активного пользователя");
+            return;
+        }
+        LinkExporter.Format format;
+        try {
+            format = LinkExporter.Format.valueOf(parts.length > 1 ? parts[1].toUpperCase() : "CSV");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Формат: csv или jsonl");
+            return;
+        }
+        try {
+            if (parts.length > 2) {
+                try (FileChannel file = FileChannel.open(Path.of(parts[2]), StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    long count = appService.exportUserUrls(currentUser, format, file);
+                    System.out.println("Выгружено ссылок: " + count + " в " + parts[2]);
+                }
+            } else {
+                appService.exportUserUrls(currentUser, format, Channels.newChannel(System.out));
+                System.out.flush();
+            }
+        } catch (IOException e) {
+            System.out.println("Ошибка выгрузки: " + e.getMessage());
+        }
+    }
+
     private void handleStats() {
         if (currentUser == null) {
             System.out.println("Нет активного пользователя");
@@ -257,4 +339,40 @@ public class UrlShrinkerApp {
         }
         appService.printUserStats(currentUser);
     }
+
+    private void handleClicks(String[] parts) {
+        if (currentUser == null) {
+            System.out.println("Нет активного пользователя");
+            return;
+        }
+        if (parts.length < 2) {
+            System.out.println("Использование: clicks CODE [HOURS]");
+            return;
+        }
+        try {
+            int hours = parts.length > 2 ? Integer.parseInt(parts[2]) : 24;
+            appService.getClicksPerHour(currentUser, parts[1], hours).ifPresentOrElse(clicks -> {
+                for (int i = 0; i < clicks.length; i++) {
+                    System.out.printf("  -%d ч: %d%n", clicks.length - 1 - i, clicks[i]);
+                }
+            }, () -> System.out.println("Ссылка не найдена. Проверьте код и права доступа."));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Ошибка: " + e.getMessage());
+        }
+    }
+
+    private void handleTop(String[] parts) {
+        try {
+            int hours = parts.length > 1 ? Integer.parseInt(parts[1]) : 24;
+            int limit = parts.length > 2 ? Integer.parseInt(parts[2]) : 10;
+            var top = appService.getTopLinks(hours, limit);
+            if (top.isEmpty()) {
+                System.out.println("Переходов за это время не было");
+            }
+            top.forEach(link -> System.out.printf("  %s%s - %d%n",
+                    AppConfig.getBaseUrl(), link.shortCode(), link.clicks()));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Ошибка: " + e.getMessage());
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package com.shortUrlService.application;
+
+import com.shortUrlService.domain.model.LinkClicks;
+import com.shortUrlService.domain.model.ResolveResult;
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.domain.model.UserStats;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Операции над ссылкой по ее коду на узле, который эту ссылку хранит, и запросы
+ * к ссылкам, хранящимся на узле.
+ */
+public interface LinkNode {
+    ResolveResult resolve(String shortCode);
+
+    /** Исход перехода без засчитанного клика. */
+    ResolveResult peek(String shortCode);
+
+    boolean updateMaxClicks(UUID userId, String shortCode, int maxClicks);
+
+    boolean extendLifetime(UUID userId, String shortCode, int additionalDays);
+
+    boolean delete(UUID userId, String shortCode);
+
+    /**
+     * Принимает ссылки разделов, переданных этому узлу.
+     *
+     * @return коды ссылок, которые не приняты, потому что код уже занят другой ссылкой
+     */
+    List<String> importLinks(Collection<ShortUrl> links);
+
+    /** Сообщает узлу, что прежний владелец передал ему все ссылки этих разделов. */
+    void acceptPartitions(int[] partitions);
+
+    Optional<long[]> getClicksPerHour(UUID userId, String shortCode, int hours);
+
+    /** Ссылки пользователя, хранящиеся на узле. */
+    void forEachUserLink(UUID userId, Consumer<ShortUrl> action);
+
+    /** Сводка по ссылкам пользователя, хранящимся на узле. */
+    UserStats getUserStats(UUID userId);
+
+    /** Самые посещаемые ссылки узла. */
+    List<LinkClicks> getTopLinks(int hours, int limit);
+}
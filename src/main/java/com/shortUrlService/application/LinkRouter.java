@@ -0,0 +1,22 @@
+package com.shortUrlService.application;
+
+import java.util.List;
+
+/** Выбирает узел, которому принадлежит короткий код. */
+@FunctionalInterface
+public interface LinkRouter {
+    LinkNode route(String shortCode);
+
+    /**
+     * Узел для запроса, уже пересланного другим узлом: такой запрос выполняется здесь,
+     * кроме запросов к разделу, который этот узел как раз передает новому владельцу.
+     */
+    default LinkNode routeForwarded(String shortCode) {
+        return route(shortCode);
+    }
+
+    /** Остальные узлы кластера: запросы по пользователю и топ собираются со всех узлов. */
+    default List<LinkNode> remotes() {
+        return List.of();
+    }
+}
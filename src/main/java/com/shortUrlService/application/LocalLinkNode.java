@@ -0,0 +1,78 @@
+package com.shortUrlService.application;
+
+import com.shortUrlService.domain.model.LinkClicks;
+import com.shortUrlService.domain.model.ResolveResult;
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.domain.model.UserStats;
+import com.shortUrlService.domain.service.UrlShrinkDomainService;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/** Узел в этом процессе: операции выполняет доменный сервис напрямую. */
+public class LocalLinkNode implements LinkNode {
+    private final UrlShrinkDomainService domainService;
+
+    public LocalLinkNode(UrlShrinkDomainService domainService) {
+        this.domainService = domainService;
+    }
+
+    @Override
+    public ResolveResult resolve(String shortCode) {
+        return domainService.resolve(shortCode);
+    }
+
+    @Override
+    public ResolveResult peek(String shortCode) {
+        return domainService.peek(shortCode);
+    }
+
+    @Override
+    public boolean updateMaxClicks(UUID userId, String shortCode, int maxClicks) {
+        return domainService.updateUrlMaxClicks(userId, shortCode, maxClicks);
+    }
+
+    @Override
+    public boolean extendLifetime(UUID userId, String shortCode, int additionalDays) {
+        return domainService.extendUrlLifetime(userId, shortCode, additionalDays);
+    }
+
+    @Override
+    public boolean delete(UUID userId, String shortCode) {
+        return domainService.deleteUrl(userId, shortCode);
+    }
+
+    @Override
+    public List<String> importLinks(Collection<ShortUrl> links) {
+        return domainService.importLinks(links);
+    }
+
+    /** Разделами владеет узел кластера, а не доменный сервис. */
+    @Override
+    public void acceptPartitions(int[] partitions) {
+        throw new IllegalStateException("Узел вне кластера не принимает разделы");
+    }
+
+    @Override
+    public Optional<long[]> getClicksPerHour(UUID userId, String shortCode, int hours) {
+        return domainService.getClicksPerHour(userId, shortCode, hours);
+    }
+
+    @Override
+    public void forEachUserLink(UUID userId, Consumer<ShortUrl> action) {
+        domainService.forEachUserUrl(userId, action);
+    }
+
+    @Override
+    public UserStats getUserStats(UUID userId) {
+        return domainService.getUserStats(userId);
+    }
+
+    @Override
+    public List<LinkClicks> getTopLinks(int hours, int limit) {
+        return domainService.getTopLinks(hours, limit);
+    }
+}
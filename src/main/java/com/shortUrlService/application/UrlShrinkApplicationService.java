@@ -1,14 +1,56 @@
 package com.shortUrlService.application;
 
+import com.shortUrlService.domain.model.LinkClicks;
+import com.shortUrlService.domain.model.ResolveResult;
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.domain.model.ShortenResult;
+import com.shortUrlService.domain.model.UserStats;
 import com.shortUrlService.domain.service.UrlShrinkDomainService;
+import com.shortUrlService.infrastructure.export.LinkExporter;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
+/**
+ * Операции по коду ссылки идут через {@link LinkRouter}: в кластере запрос к чужому
+ * коду пересылается узлу-владельцу. Создание ссылок выполняется на этом узле, а ссылки
+ * пользователя лежат на всех узлах, где он их создавал, поэтому запросы по пользователю
+ * и топ ссылок собираются со всех узлов.
+ */
 public class UrlShrinkApplicationService {
     private final UrlShrinkDomainService domainService;
+    private final LinkRouter router;
 
     public UrlShrinkApplicationService(UrlShrinkDomainService domainService) {
         this.domainService = domainService;
+        LinkNode local = new LocalLinkNode(domainService);
+        this.router = shortCode -> local;
+    }
+
+    public UrlShrinkApplicationService(UrlShrinkDomainService domainService, LinkRouter router) {
+        this.domainService = domainService;
+        this.router = router;
+    }
+
+    /** Тот же сервис без повторной пересылки: для запросов, уже пересланных другим узлом. */
+    public UrlShrinkApplicationService local() {
+        return new UrlShrinkApplicationService(domainService, router::routeForwarded);
     }
 
     public UUID registerUser() {
@@ -19,27 +61,156 @@ public class UrlShrinkApplicationService {
         return domainService.createShortUrl(userId, originalUrl, maxClicks);
     }
 
+    public List<ShortenResult> shortenBatch(UUID userId, List<String> originalUrls, int maxClicks) {
+        return domainService.createShortUrls(userId, originalUrls, maxClicks);
+    }
+
+    /** Сокращает URL из потока (по одному в строке, пустые строки пропускаются) без чтения его целиком. */
+    public void shortenStream(UUID userId, InputStream input, int maxClicks,
+                              Consumer<ShortenResult> results) throws IOException {
+        shortenStream(userId, input, maxClicks, () -> true, results);
+    }
+
+    /**
+     * То же с допуском каждого URL перед созданием ссылки: на первом недопущенном URL
+     * пакет останавливается, этот URL получает ошибку, а остаток потока не читается.
+     */
+    public void shortenStream(UUID userId, InputStream input, int maxClicks, BooleanSupplier admit,
+                              Consumer<ShortenResult> results) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        AdmittedLines lines = new AdmittedLines(
+                reader.lines().map(String::trim).filter(line -> !line.isEmpty()).iterator(), admit);
+        try {
+            domainService.createShortUrls(userId, lines, maxClicks, results);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (lines.rejected != null) {
+            results.accept(ShortenResult.failed(lines.admitted, lines.rejected, "Превышен лимит запросов"));
+        }
+    }
+
     public String openShortUrl(String shortCode) {
-        return domainService.resolveUrl(shortCode);
+        return UrlShrinkDomainService.describe(resolveShortUrl(shortCode));
+    }
+
+    public ResolveResult resolveShortUrl(String shortCode) {
+        return router.route(shortCode).resolve(shortCode);
+    }
+
+    /** Переход без клика: ответ на HEAD. */
+    public ResolveResult peekShortUrl(String shortCode) {
+        return router.route(shortCode).peek(shortCode);
     }
 
     public void listUserUrls(UUID userId) {
-        domainService.printUserUrls(userId);
+        forEachUserUrl(userId, domainService::printUrl);
+    }
+
+    /** Обходит ссылки пользователя на этом узле и на остальных узлах кластера. */
+    public void forEachUserUrl(UUID userId, Consumer<ShortUrl> action) {
+        domainService.forEachUserUrl(userId, action);
+        for (LinkNode remote : router.remotes()) {
+            remote.forEachUserLink(userId, action);
+        }
+    }
+
+    public long exportUserUrls(UUID userId, LinkExporter.Format format, WritableByteChannel channel)
+            throws IOException {
+        return domainService.exportUrls(action -> forEachUserUrl(userId, action), format, channel);
     }
 
     public boolean updateUrlMaxClicks(UUID userId, String shortCode, int newMaxClicks) {
-        return domainService.updateUrlMaxClicks(userId, shortCode, newMaxClicks);
+        return router.route(shortCode).updateMaxClicks(userId, shortCode, newMaxClicks);
     }
 
     public boolean extendUrlLifetime(UUID userId, String shortCode, int additionalDays) {
-        return domainService.extendUrlLifetime(userId, shortCode, additionalDays);
+        return router.route(shortCode).extendLifetime(userId, shortCode, additionalDays);
+    }
+
+    /** Переходы считает узел-владелец ссылки, поэтому запрос идет к нему. */
+    public Optional<long[]> getClicksPerHour(UUID userId, String shortCode, int hours) {
+        return router.route(shortCode).getClicksPerHour(userId, shortCode, hours);
+    }
+
+    /** Топ каждого узла и слияние: переходы по коду, считавшиеся на разных узлах, складываются. */
+    public List<LinkClicks> getTopLinks(int hours, int limit) {
+        List<LinkClicks> top = domainService.getTopLinks(hours, limit);
+        List<LinkNode> remotes = router.remotes();
+        if (remotes.isEmpty()) {
+            return top;
+        }
+        Map<String, Long> merged = new HashMap<>();
+        top.forEach(link -> merged.merge(link.shortCode(), link.clicks(), Long::sum));
+        for (LinkNode remote : remotes) {
+            remote.getTopLinks(hours, limit).forEach(link -> merged.merge(link.shortCode(), link.clicks(), Long::sum));
+        }
+        return merged.entrySet().stream()
+                .map(entry -> new LinkClicks(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingLong(LinkClicks::clicks).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    public UserStats getUserStats(UUID userId) {
+        UserStats stats = domainService.getUserStats(userId);
+        for (LinkNode remote : router.remotes()) {
+            stats = stats.plus(remote.getUserStats(userId));
+        }
+        return stats;
     }
 
     public boolean deleteUrl(UUID userId, String shortCode) {
-        return domainService.deleteUrl(userId, shortCode);
+        return router.route(shortCode).delete(userId, shortCode);
+    }
+
+    public List<String> importLinks(Collection<ShortUrl> links) {
+        return domainService.importLinks(links);
     }
 
     public void printUserStats(UUID userId) {
-        domainService.printUserStats(userId);
+        domainService.printUserStats(userId, getUserStats(userId));
+    }
+
+    /** Строки пакета, каждая из которых допускается перед тем, как ее заберет создание ссылок. */
+    private static final class AdmittedLines implements Iterator<String> {
+        private final Iterator<String> lines;
+        private final BooleanSupplier admit;
+        private String next;
+        private String rejected;
+        private int admitted;
+
+        AdmittedLines(Iterator<String> lines, BooleanSupplier admit) {
+            this.lines = lines;
+            this.admit = admit;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            if (rejected != null || !lines.hasNext()) {
+                return false;
+            }
+            String line = lines.next();
+            if (admit.getAsBoolean()) {
+                next = line;
+                return true;
+            }
+            rejected = line;
+            return false;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String line = next;
+            next = null;
+            admitted++;
+            return line;
+        }
     }
 }
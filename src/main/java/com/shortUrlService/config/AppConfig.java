@@ -1,18 +1,48 @@
 package com.shortUrlService.config;
 
+import com.shortUrlService.domain.service.ClickAnalytics;
 import com.shortUrlService.domain.service.NotificationService;
+import com.shortUrlService.domain.service.UrlRepository;
+import com.shortUrlService.infrastructure.analytics.TimeBucketedClickAnalytics;
+import com.shortUrlService.infrastructure.cache.CachingUrlRepository;
+import com.shortUrlService.infrastructure.cluster.ClusterMember;
+import com.shortUrlService.infrastructure.cluster.ClusterNode;
+import com.shortUrlService.infrastructure.cluster.HashRing;
+import com.shortUrlService.infrastructure.http.HttpLinkNode;
+import com.shortUrlService.infrastructure.cache.HotLinkCache;
+import com.shortUrlService.infrastructure.metrics.MetricsRegistry;
+import com.shortUrlService.infrastructure.notification.AsyncNotificationService;
 import com.shortUrlService.infrastructure.notification.ConsoleNotificationService;
+import com.shortUrlService.infrastructure.persistence.CompactUrlRepository;
+import com.shortUrlService.infrastructure.persistence.DurableUrlRepository;
 import com.shortUrlService.infrastructure.persistence.InMemoryUrlRepository;
+import com.shortUrlService.infrastructure.persistence.MappedRedirectIndex;
+import com.shortUrlService.infrastructure.persistence.RedirectIndexingUrlRepository;
+import com.shortUrlService.infrastructure.persistence.ShardedUrlRepository;
+import com.shortUrlService.infrastructure.ratelimit.RateLimiter;
+import com.shortUrlService.infrastructure.shortening.SequenceMarkStore;
 import com.shortUrlService.infrastructure.shortening.ShortCodeGenerator;
+import com.shortUrlService.infrastructure.time.CachedClock;
+import com.shortUrlService.application.LocalLinkNode;
 import com.shortUrlService.application.UrlShrinkApplicationService;
 import com.shortUrlService.domain.service.UrlShrinkDomainService;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.List;
 import java.util.Properties;
 
 public class AppConfig {
+    private static final String SHORT_CODE_SECRET_ENV = "SHORT_CODE_SECRET";
+    private static final String CLUSTER_SECRET_ENV = "CLUSTER_SECRET";
     private static final Properties properties = new Properties();
+    private static MetricsRegistry metrics;
+    private static volatile MappedRedirectIndex redirectIndex;
+    private static volatile ClusterNode clusterNode;
 
     static {
         try (InputStream input = AppConfig.class.getClassLoader()
@@ -43,31 +73,345 @@ public class AppConfig {
         return Integer.parseInt(properties.getProperty("app.short-code-length"));
     }
 
+    public static long getCleanupIntervalMillis() {
+        return Long.parseLong(properties.getProperty("app.cleanup-interval-ms", "60000").trim());
+    }
+
+    public static long getClockTickMillis() {
+        return Long.parseLong(properties.getProperty("app.clock-tick-ms", "10").trim());
+    }
+
+    public static ShortCodeGenerator.Mode getShortCodeGeneratorMode() {
+        return ShortCodeGenerator.Mode.valueOf(
+                properties.getProperty("app.short-code-generator", "sequence").trim().toUpperCase());
+    }
+
+    /**
+     * Ключ перестановки кодов режима sequence. По ключу обращается перестановка и
+     * перечисляются все выданные коды, поэтому значения по умолчанию нет: ключ берется
+     * из переменной окружения {@value #SHORT_CODE_SECRET_ENV} (или app.short-code-secret
+     * вне репозитория), без него сервис не запускается.
+     */
+    public static long getShortCodeSecret() {
+        String secret = System.getenv(SHORT_CODE_SECRET_ENV);
+        if (secret == null || secret.isBlank()) {
+            secret = properties.getProperty("app.short-code-secret", "");
+        }
+        if (secret.isBlank()) {
+            throw new IllegalStateException("Не задан ключ кодов: переменная окружения " + SHORT_CODE_SECRET_ENV);
+        }
+        return Long.parseLong(secret.trim());
+    }
+
     public static String getDomain() {
         return properties.getProperty("app.domain");
     }
 
+    public static InetSocketAddress getServerAddress() {
+        String domain = getDomain().trim();
+        int colon = domain.lastIndexOf(':');
+        if (colon < 0) {
+            return new InetSocketAddress(domain, 80);
+        }
+        return new InetSocketAddress(domain.substring(0, colon), Integer.parseInt(domain.substring(colon + 1)));
+    }
+
+    /** Адрес фронта переходов с постоянными соединениями; пустое значение - фронт не запускается. */
+    public static InetSocketAddress getRedirectServerAddress() {
+        String address = properties.getProperty("app.redirect-server.address", "").trim();
+        if (address.isEmpty()) {
+            return null;
+        }
+        int colon = address.lastIndexOf(':');
+        return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    }
+
+    /** Фронт переходов на циклах событий вместо виртуального потока на соединение. */
+    public static boolean isRedirectServerEventLoop() {
+        String mode = properties.getProperty("app.redirect-server.mode", "threads").trim();
+        return switch (mode) {
+            case "threads" -> false;
+            case "event-loop" -> true;
+            default -> throw new IllegalArgumentException("Неизвестный режим фронта переходов: " + mode);
+        };
+    }
+
+    /** Число циклов событий фронта переходов; 0 - по числу ядер. */
+    public static int getRedirectServerLoops() {
+        return Integer.parseInt(properties.getProperty("app.redirect-server.loops", "0").trim());
+    }
+
+    /** Каталог журнала и снимков; пустое значение - хранение только в памяти. */
+    public static String getPersistenceDir() {
+        return properties.getProperty("app.persistence.dir", "").trim();
+    }
+
+    public static DurableUrlRepository.Settings getPersistenceSettings() {
+        return new DurableUrlRepository.Settings(
+                Integer.parseInt(properties.getProperty("app.persistence.segment-mb", "64").trim()) << 20,
+                Long.parseLong(properties.getProperty("app.persistence.fsync-interval-ms", "50").trim()),
+                Boolean.parseBoolean(properties.getProperty("app.persistence.sync-writes", "false").trim()),
+                Long.parseLong(properties.getProperty("app.persistence.click-flush-ms", "1000").trim()),
+                Long.parseLong(properties.getProperty("app.persistence.snapshot-interval-sec", "300").trim()) * 1000,
+                Integer.parseInt(properties.getProperty("app.persistence.load-parallelism",
+                        String.valueOf(Runtime.getRuntime().availableProcessors())).trim()));
+    }
+
+    /** Число разделов хранилища в памяти; 0 - по числу ядер, 1 - без разбиения. */
+    public static int getMemoryShards() {
+        int shards = Integer.parseInt(properties.getProperty("app.memory.shards", "1").trim());
+        return shards > 0 ? shards : Runtime.getRuntime().availableProcessors();
+    }
+
+    /** Хранить ссылки в памяти строками примитивных массивов вместо объектов (без app.persistence.dir). */
+    public static boolean isCompactMemory() {
+        return Boolean.parseBoolean(properties.getProperty("app.memory.compact", "false").trim());
+    }
+
+    /** Вести индекс переходов в отображенном файле рядом с журналом (нужен app.persistence.dir). */
+    public static boolean isRedirectIndexEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("app.redirect-index.enabled", "false").trim());
+    }
+
+    /** Индекс переходов, открытый при создании хранилища, или null. */
+    public static MappedRedirectIndex getRedirectIndex() {
+        return redirectIndex;
+    }
+
+    /** Емкость кеша горячих ссылок перед хранилищем; 0 - без кеша. */
+    public static int getCacheCapacity() {
+        return Integer.parseInt(properties.getProperty("app.cache.capacity", "0").trim());
+    }
+
+    /** Идентификатор этого узла кластера; пустое значение - один узел без разделения кодов. */
+    public static String getClusterNodeId() {
+        return properties.getProperty("app.cluster.node-id", "").trim();
+    }
+
+    /** Узлы кластера в виде {@code id=http://host:port,...}. */
+    public static List<ClusterMember> getClusterMembers() {
+        return ClusterMember.parseAll(properties.getProperty("app.cluster.members", ""));
+    }
+
+    /** Узел кластера, созданный вместе с сервисом, или null вне кластера. */
+    public static ClusterNode getClusterNode() {
+        return clusterNode;
+    }
+
+    /**
+     * Общий ключ узлов кластера: им подписаны пересылки и передача разделов. Берется из
+     * переменной окружения {@value #CLUSTER_SECRET_ENV} (или app.cluster.secret); узел
+     * кластера без ключа не запускается.
+     *
+     * @return null вне кластера
+     */
+    public static String getClusterSecret() {
+        if (getClusterNodeId().isEmpty()) {
+            return null;
+        }
+        String secret = System.getenv(CLUSTER_SECRET_ENV);
+        if (secret == null || secret.isBlank()) {
+            secret = properties.getProperty("app.cluster.secret", "");
+        }
+        if (secret.isBlank()) {
+            throw new IllegalStateException("Не задан ключ кластера: переменная окружения " + CLUSTER_SECRET_ENV);
+        }
+        return secret.trim();
+    }
+
+    /** Период, за который считаются квантили длительностей в /metrics. */
+    public static long getMetricsIntervalMillis() {
+        return Long.parseLong(properties.getProperty("app.metrics.interval-ms", "60000").trim());
+    }
+
+    /** Общий реестр метрик процесса; создается при первом обращении. */
+    public static synchronized MetricsRegistry getMetrics() {
+        if (metrics == null) {
+            metrics = new MetricsRegistry(getMetricsIntervalMillis());
+        }
+        return metrics;
+    }
+
+    private static UrlRepository withRedirectIndex(UrlRepository store, Clock clock) {
+        String dir = getPersistenceDir();
+        if (!isRedirectIndexEnabled() || dir.isEmpty()) {
+            return store;
+        }
+        try {
+            MappedRedirectIndex index = MappedRedirectIndex.open(Path.of(dir, "redirect.idx"), clock);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    index.close();
+                } catch (IOException e) {
+                    System.err.println("Не удалось закрыть индекс переходов: " + e.getMessage());
+                }
+            }));
+            redirectIndex = index;
+            return new RedirectIndexingUrlRepository(store, index).syncIfStale();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть индекс переходов в " + dir, e);
+        }
+    }
+
+    private static UrlRepository withCache(UrlRepository store, Clock clock) {
+        int cacheCapacity = getCacheCapacity();
+        return cacheCapacity > 0
+                ? new CachingUrlRepository(store, new HotLinkCache(cacheCapacity), clock)
+                : store;
+    }
+
+    private static UrlRepository createStore(Clock clock) {
+        String dir = getPersistenceDir();
+        if (dir.isEmpty()) {
+            if (isCompactMemory()) {
+                return new CompactUrlRepository(getShortCodeLength(), clock);
+            }
+            int shards = getMemoryShards();
+            return shards > 1 ? new ShardedUrlRepository(shards, clock) : new InMemoryUrlRepository(clock);
+        }
+        try {
+            DurableUrlRepository repository = DurableUrlRepository.open(Path.of(dir), clock, getPersistenceSettings());
+            reportStartup(repository);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    repository.close();
+                } catch (IOException e) {
+                    System.err.println("Не удалось закрыть журнал: " + e.getMessage());
+                }
+            }));
+            return repository;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось восстановить хранилище из " + dir, e);
+        }
+    }
+
+    private static void reportStartup(DurableUrlRepository repository) {
+        DurableUrlRepository.StartupMetrics metrics = repository.getStartupMetrics();
+        System.out.printf("Хранилище: %d ссылок из снимка (%d блоков), поиск по коду через %d мс%n",
+                metrics.snapshotLinks(), metrics.snapshotChunks(), metrics.primaryReadyMillis());
+        repository.whenFullyIndexed().thenAccept(indexed ->
+                System.out.printf("Хранилище: все индексы построены через %d мс%n", indexed.fullyIndexedMillis()));
+    }
+
+    /**
+     * Лимиты запросов HTTP-фронта или null, если они выключены. Простаивающие корзины
+     * освобождаются фоновым потоком с периодом очистки ссылок.
+     */
+    public static RateLimiter createRateLimiter() {
+        if (!Boolean.parseBoolean(properties.getProperty("app.rate-limit.enabled", "false").trim())) {
+            return null;
+        }
+        RateLimiter rateLimiter = new RateLimiter(new RateLimiter.Settings(
+                Integer.parseInt(properties.getProperty("app.rate-limit.capacity", "1048576").trim()),
+                Double.parseDouble(properties.getProperty("app.rate-limit.shorten-per-second", "5").trim()),
+                Integer.parseInt(properties.getProperty("app.rate-limit.shorten-burst", "20").trim()),
+                Double.parseDouble(properties.getProperty("app.rate-limit.redirect-per-second", "100").trim()),
+                Integer.parseInt(properties.getProperty("app.rate-limit.redirect-burst", "200").trim())),
+                Clock.systemUTC());
+        getMetrics().registerGauge("shortlink_rate_limited_total",
+                "Запросы, отклоненные лимитами", rateLimiter::getRejectedCount);
+        long intervalMillis = getCleanupIntervalMillis();
+        Thread evictionThread = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(intervalMillis);
+                    rateLimiter.evictIdle();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }, "rate-limit-eviction");
+        evictionThread.setDaemon(true);
+        evictionThread.start();
+        return rateLimiter;
+    }
+
     public static NotificationService createNotificationService() {
-        return new ConsoleNotificationService();
+        var notificationService = new AsyncNotificationService(
+                new ConsoleNotificationService(),
+                Integer.parseInt(properties.getProperty("app.notification.queue-capacity", "10000").trim()),
+                Integer.parseInt(properties.getProperty("app.notification.batch-size", "256").trim()),
+                Long.parseLong(properties.getProperty("app.notification.idle-ms", "10").trim()),
+                AsyncNotificationService.OverflowPolicy.valueOf(properties
+                        .getProperty("app.notification.overflow-policy", "drop_newest").trim().toUpperCase()));
+        getMetrics().registerGauge("shortlink_notification_queue_depth",
+                "Уведомления в очереди на отправку", notificationService::getQueueDepth);
+        getMetrics().registerGauge("shortlink_notification_dropped_total",
+                "Уведомления, отброшенные при переполнении очереди", notificationService::getDroppedCount);
+        return notificationService;
+    }
+
+    public static ClickAnalytics createClickAnalytics(Clock clock) {
+        if (!Boolean.parseBoolean(properties.getProperty("app.analytics.enabled", "true").trim())) {
+            return ClickAnalytics.NONE;
+        }
+        return new TimeBucketedClickAnalytics(clock,
+                Integer.parseInt(properties.getProperty("app.analytics.retention-hours", "24").trim()),
+                Integer.parseInt(properties.getProperty("app.analytics.top-capacity", "1024").trim()),
+                Integer.parseInt(properties.getProperty("app.analytics.buffer-capacity", "8192").trim()),
+                Long.parseLong(properties.getProperty("app.analytics.idle-ms", "10").trim()));
     }
 
     public static UrlShrinkApplicationService createApplicationService() {
-        var repository = new InMemoryUrlRepository();
+        var clock = new CachedClock(getClockTickMillis()).start();
+        String nodeId = getClusterNodeId();
+        if (!nodeId.isEmpty()) {
+            return createClusterApplicationService(nodeId, clock);
+        }
+        var store = createStore(clock);
+        var repository = withCache(withRedirectIndex(store, clock), clock);
         var codeGenerator = new ShortCodeGenerator();
+        SequenceMarkStore marks = store instanceof SequenceMarkStore durable ? durable : SequenceMarkStore.NONE;
+        // Обход ссылок нужен только данным, записанным до появления границы, и только однажды
+        codeGenerator.restoreSequence(marks,
+                () -> store.forEach(url -> codeGenerator.markUsed(url.getShortCode())));
         var notificationService = createNotificationService();
-        var domainService = new UrlShrinkDomainService(repository, codeGenerator, notificationService);
+        var clickAnalytics = createClickAnalytics(clock);
+        var domainService = new UrlShrinkDomainService(
+                repository, codeGenerator, notificationService, clickAnalytics, getMetrics(), clock);
 
         startCleanupThread(repository);
 
         return new UrlShrinkApplicationService(domainService);
     }
 
-    private static void startCleanupThread(InMemoryUrlRepository repository) {
+    /**
+     * Узел кластера: хранилище в памяти, в части которого раскладываются разделы кодов, генератор кодов
+     * в разделах узла и пересылка чужих кодов по HTTP.
+     */
+    private static UrlShrinkApplicationService createClusterApplicationService(String nodeId, Clock clock) {
+        // Узел не из списка - новый: разделов у него нет, пока ему не пришлют новый состав
+        var ring = new HashRing(getClusterMembers());
+        var store = ClusterNode.newStore(clock);
+        var repository = withCache(store, clock);
+        var codeGenerator = new ShortCodeGenerator(getShortCodeGeneratorMode(), getShortCodeLength(),
+                ShortCodeGenerator.secretFor(getShortCodeGeneratorMode()), true);
+        var domainService = new UrlShrinkDomainService(repository, codeGenerator,
+                createNotificationService(), createClickAnalytics(clock), getMetrics(), clock);
+        var node = new ClusterNode(nodeId, ring, new LocalLinkNode(domainService), codeGenerator, store, repository);
+        for (ClusterMember member : ring.getMembers()) {
+            if (!member.id().equals(nodeId)) {
+                node.connect(member.id(), new HttpLinkNode(member.address(), nodeId, getClusterSecret()));
+            }
+        }
+        clusterNode = node;
+
+        startCleanupThread(repository);
+
+        return new UrlShrinkApplicationService(domainService, node);
+    }
+
+    private static void startCleanupThread(UrlRepository repository) {
+        long intervalMillis = getCleanupIntervalMillis();
+        MetricsRegistry registry = getMetrics();
         Thread cleanupThread = new Thread(() -> {
             while (true) {
                 try {
-                    Thread.sleep(60000);
+                    Thread.sleep(intervalMillis);
+                    long started = System.nanoTime();
                     repository.deleteExpired();
+                    registry.recordCleanupSweep(System.nanoTime() - started);
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                     break;
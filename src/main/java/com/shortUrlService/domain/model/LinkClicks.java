@@ -0,0 +1,5 @@
+package com.shortUrlService.domain.model;
+
+/** Число переходов по ссылке за окно запроса. */
+public record LinkClicks(String shortCode, long clicks) {
+}
@@ -0,0 +1,33 @@
+package com.shortUrlService.domain.model;
+
+/**
+ * Итог перехода по коду. {@code url} есть только у результата, полученного на узле,
+ * где хранится ссылка; ответ другого узла несет лишь статус и адрес перехода.
+ */
+public record ResolveResult(Status status, ShortUrl url, String targetUrl) {
+    public enum Status {
+        REDIRECT,
+        NOT_FOUND,
+        EXPIRED,
+        LIMIT_REACHED
+    }
+
+    public static final ResolveResult NOT_FOUND = new ResolveResult(Status.NOT_FOUND, null, null);
+
+    public ResolveResult(Status status, ShortUrl url) {
+        this(status, url, url != null ? url.getOriginalUrl() : null);
+    }
+
+    public static ResolveResult redirect(ShortUrl url) {
+        return new ResolveResult(Status.REDIRECT, url);
+    }
+
+    /** Результат, пересланный с узла-владельца ссылки. */
+    public static ResolveResult remote(Status status, String targetUrl) {
+        return new ResolveResult(status, null, targetUrl);
+    }
+
+    public boolean isRedirect() {
+        return status == Status.REDIRECT;
+    }
+}
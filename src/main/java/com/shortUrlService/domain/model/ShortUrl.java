@@ -1,53 +1,202 @@
 package com.shortUrlService.domain.model;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Objects;
 import java.util.UUID;
 
 public class ShortUrl {
+    public static final int EVENT_EXPIRED = 1;
+    public static final int EVENT_LIMIT_REACHED = 1 << 1;
+
+    private static final int CLICKS_DIRTY = 1 << 8;
+    private static final int COUNTED_EXHAUSTED = 1 << 9;
+
+    private static final long COUNT_MASK = 0xFFFF_FFFFL;
+
+    private static final VarHandle CLICKS;
+    private static final VarHandle EXPIRES_AT;
+    private static final VarHandle FLAGS;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            CLICKS = lookup.findVarHandle(ShortUrl.class, "clicks", long.class);
+            EXPIRES_AT = lookup.findVarHandle(ShortUrl.class, "expiresAtMillis", long.class);
+            FLAGS = lookup.findVarHandle(ShortUrl.class, "flags", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private final UUID id;
     private final UUID userId;
     private final String originalUrl;
     private final String shortCode;
-    private int clickCount;
-    private final int maxClicks;
-    private final LocalDateTime createdAt;
-    private final LocalDateTime expiresAt;
-    private boolean active;
+    // Лимит в старших 32 битах, счетчик в младших: клик и смена лимита - один CAS
+    private volatile long clicks;
+    private final long createdAtMillis;
+    private volatile long expiresAtMillis;
+    private volatile int flags;
 
     private ShortUrl(Builder builder) {
         this.id = builder.id;
         this.userId = builder.userId;
         this.originalUrl = builder.originalUrl;
         this.shortCode = builder.shortCode;
-        this.clickCount = builder.clickCount;
-        this.maxClicks = builder.maxClicks;
-        this.createdAt = builder.createdAt;
-        this.expiresAt = builder.expiresAt;
-        this.active = builder.active;
-
-        checkExpiration();
+        this.clicks = pack(builder.maxClicks, builder.clickCount);
+        this.createdAtMillis = builder.createdAtMillis;
+        this.expiresAtMillis = builder.expiresAtMillis;
     }
 
     public static Builder builder() {
         return new Builder();
     }
 
-    public void incrementClick() {
-        if (isActive()) {
-            clickCount++;
+    public void incrementClick(long nowMillis) {
+        if (!isExpiredByTime(nowMillis)) {
+            tryClaimClick();
         }
     }
 
-    private void checkExpiration() {
-        boolean notExpiredByTime = LocalDateTime.now().isBefore(expiresAt);
-        boolean notExpiredByClicks = clickCount < maxClicks;
-        this.active = notExpiredByTime && notExpiredByClicks;
+    /**
+     * Атомарно занимает один переход: единственный CAS по счетчику либо
+     * засчитывает клик, либо отказывает, если лимит уже исчерпан.
+     *
+     * @return номер засчитанного клика (1..maxClicks) или -1, если лимит достигнут
+     */
+    public int tryClaimClick() {
+        long current;
+        do {
+            current = clicks;
+            if (count(current) >= limit(current)) {
+                return -1;
+            }
+        } while (!CLICKS.weakCompareAndSet(this, current, current + 1));
+        return count(current) + 1;
+    }
+
+    /**
+     * Меняет лимит кликов на месте, не теряя параллельные клики. Если ссылка снова
+     * может принимать клики, уведомление о лимите будет отправлено заново.
+     */
+    public void changeMaxClicks(int maxClicks) {
+        long current;
+        long updated;
+        do {
+            current = clicks;
+            updated = pack(maxClicks, count(current));
+        } while (!CLICKS.weakCompareAndSet(this, current, updated));
+        if (count(updated) < maxClicks) {
+            clearFlag(EVENT_LIMIT_REACHED);
+        }
+    }
+
+    /** Атомарно сдвигает срок жизни; параллельные продления складываются. */
+    public void extendExpiry(long additionalMillis) {
+        EXPIRES_AT.getAndAdd(this, additionalMillis);
+        clearFlag(EVENT_EXPIRED);
+    }
+
+    /**
+     * Отмечает, что уведомление о событии уже отправлено.
+     *
+     * @return true только для первого вызова с данным событием
+     */
+    public boolean markNotified(int event) {
+        return setFlag(event);
+    }
+
+    public void clearNotified(int event) {
+        clearFlag(event);
+    }
+
+    /** @return true, если счетчик кликов только что стал "грязным" и его надо сохранить */
+    public boolean markClicksDirty() {
+        return (flags & CLICKS_DIRTY) == 0 && setFlag(CLICKS_DIRTY);
+    }
+
+    public void clearClicksDirty() {
+        clearFlag(CLICKS_DIRTY);
+    }
+
+    /** Ссылка учтена в статистике как исчерпавшая лимит; true только при первом учете. */
+    public boolean markCountedExhausted() {
+        return setFlag(COUNTED_EXHAUSTED);
     }
 
-    public boolean isActive() {
-        checkExpiration();
-        return active;
+    /** @return true, если ссылка была учтена как исчерпавшая лимит */
+    public boolean clearCountedExhausted() {
+        return (flags & COUNTED_EXHAUSTED) != 0 && clearFlagIfSet(COUNTED_EXHAUSTED);
+    }
+
+    /**
+     * Поднимает счетчик до {@code observed}, если он меньше (восстановление из журнала).
+     *
+     * @return на сколько вырос счетчик
+     */
+    public int observeClicks(int observed) {
+        long current;
+        do {
+            current = clicks;
+            if (count(current) >= observed) {
+                return 0;
+            }
+        } while (!CLICKS.weakCompareAndSet(this, current, pack(limit(current), observed)));
+        return observed - count(current);
+    }
+
+    private static long pack(int maxClicks, int clickCount) {
+        return ((long) maxClicks << 32) | (clickCount & COUNT_MASK);
+    }
+
+    private static int count(long clicks) {
+        return (int) clicks;
+    }
+
+    private static int limit(long clicks) {
+        return (int) (clicks >>> 32);
+    }
+
+    private boolean setFlag(int flag) {
+        int current;
+        do {
+            current = flags;
+            if ((current & flag) != 0) {
+                return false;
+            }
+        } while (!FLAGS.weakCompareAndSet(this, current, current | flag));
+        return true;
+    }
+
+    private boolean clearFlagIfSet(int flag) {
+        int current;
+        do {
+            current = flags;
+            if ((current & flag) == 0) {
+                return false;
+            }
+        } while (!FLAGS.weakCompareAndSet(this, current, current & ~flag));
+        return true;
+    }
+
+    private void clearFlag(int flag) {
+        int current;
+        do {
+            current = flags;
+        } while (!FLAGS.weakCompareAndSet(this, current, current & ~flag));
+    }
+
+    public boolean isExpiredByTime(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+
+    public boolean isActive(long nowMillis) {
+        long current = clicks;
+        return nowMillis < expiresAtMillis && count(current) < limit(current);
     }
 
     public boolean belongsToUser(UUID userId) {
@@ -58,9 +207,14 @@ public class ShortUrl {
     public UUID getUserId() { return userId; }
     public String getOriginalUrl() { return originalUrl; }
     public String getShortCode() { return shortCode; }
-    public int getClickCount() { return clickCount; }
-    public int getMaxClicks() { return maxClicks; }
-    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public int getClickCount() { return count(clicks); }
+    public int getMaxClicks() { return limit(clicks); }
+    public long getExpiresAtMillis() { return expiresAtMillis; }
+    public long getCreatedAtMillis() { return createdAtMillis; }
+
+    public LocalDateTime getExpiresAt() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(expiresAtMillis), ZoneId.systemDefault());
+    }
 
     @Override
     public boolean equals(Object o) {
@@ -77,8 +231,8 @@ public class ShortUrl {
 
     @Override
     public String toString() {
-        return String.format("ShortUrl{code=%s, clicks=%d/%d, expires=%s, active=%s}",
-                shortCode, clickCount, maxClicks, expiresAt, active);
+        return String.format("ShortUrl{code=%s, clicks=%d/%d, expires=%s}",
+                shortCode, getClickCount(), getMaxClicks(), getExpiresAt());
     }
 
     public static class Builder {
@@ -88,17 +242,21 @@ public class ShortUrl {
         String shortCode;
         int clickCount = 0;
         int maxClicks;
-        LocalDateTime createdAt = LocalDateTime.now();
-        LocalDateTime expiresAt;
-        boolean active = true;
+        long createdAtMillis = System.currentTimeMillis();
+        long expiresAtMillis;
 
         public Builder userId(UUID userId) { this.userId = userId; return this; }
         public Builder originalUrl(String originalUrl) { this.originalUrl = originalUrl; return this; }
         public Builder shortCode(String shortCode) { this.shortCode = shortCode; return this; }
         public Builder maxClicks(int maxClicks) { this.maxClicks = maxClicks; return this; }
-        public Builder expiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; return this; }
+        public Builder expiresAtMillis(long expiresAtMillis) { this.expiresAtMillis = expiresAtMillis; return this; }
+        public Builder createdAtMillis(long createdAtMillis) { this.createdAtMillis = createdAtMillis; return this; }
         public Builder clickCount(int clickCount) { this.clickCount = clickCount; return this; }
-        public Builder active(boolean active) { this.active = active; return this; }
+
+        public Builder expiresAt(LocalDateTime expiresAt) {
+            this.expiresAtMillis = expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            return this;
+        }
         public ShortUrl build() { return new ShortUrl(this); }
     }
 }
\ No newline at end of file
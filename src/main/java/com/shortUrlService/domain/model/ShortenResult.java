@@ -0,0 +1,16 @@
+package com.shortUrlService.domain.model;
+
+/** Итог сокращения одного URL из пакета: короткая ссылка или причина отказа. */
+public record ShortenResult(int index, String originalUrl, String shortUrl, String error) {
+    public static ShortenResult ok(int index, String originalUrl, String shortUrl) {
+        return new ShortenResult(index, originalUrl, shortUrl, null);
+    }
+
+    public static ShortenResult failed(int index, String originalUrl, String error) {
+        return new ShortenResult(index, originalUrl, null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
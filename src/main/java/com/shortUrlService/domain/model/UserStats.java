@@ -0,0 +1,15 @@
+package com.shortUrlService.domain.model;
+
+/** Сводка по ссылкам пользователя; {@code inactive} - ссылки, исчерпавшие лимит кликов. */
+public record UserStats(long links, long active, long inactive, long totalClicks) {
+    public static final UserStats EMPTY = new UserStats(0, 0, 0, 0);
+
+    public UserStats plus(UserStats other) {
+        return new UserStats(links + other.links, active + other.active,
+                inactive + other.inactive, totalClicks + other.totalClicks);
+    }
+
+    public double averageClicks() {
+        return links == 0 ? 0 : (double) totalClicks / links;
+    }
+}
@@ -0,0 +1,41 @@
+package com.shortUrlService.domain.service;
+
+import com.shortUrlService.domain.model.LinkClicks;
+
+import java.util.List;
+
+public interface ClickAnalytics {
+    /** Аналитика выключена: переходы не записываются, запросы возвращают нули. */
+    ClickAnalytics NONE = new ClickAnalytics() {
+        @Override
+        public void recordClick(String shortCode, long nowMillis) {
+        }
+
+        @Override
+        public long[] getClicksPerMinute(String shortCode, int minutes) {
+            return new long[Math.max(0, minutes)];
+        }
+
+        @Override
+        public long[] getClicksPerHour(String shortCode, int hours) {
+            return new long[Math.max(0, hours)];
+        }
+
+        @Override
+        public List<LinkClicks> getTopLinks(int hours, int limit) {
+            return List.of();
+        }
+    };
+
+    /** Вызывается в пути перехода и не должна блокироваться. */
+    void recordClick(String shortCode, long nowMillis);
+
+    /** @return переходы по минутам, от самой старой к текущей */
+    long[] getClicksPerMinute(String shortCode, int minutes);
+
+    /** @return переходы по часам, от самого старого к текущему */
+    long[] getClicksPerHour(String shortCode, int hours);
+
+    /** @return самые посещаемые ссылки за последние {@code hours} часов, по убыванию */
+    List<LinkClicks> getTopLinks(int hours, int limit);
+}
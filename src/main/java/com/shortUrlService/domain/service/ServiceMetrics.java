@@ -0,0 +1,34 @@
+package com.shortUrlService.domain.service;
+
+import com.shortUrlService.domain.model.ResolveResult;
+
+public interface ServiceMetrics {
+    enum Operation {
+        CREATE,
+        RESOLVE,
+        EDIT,
+        DELETE
+    }
+
+    /** Метрики выключены. */
+    ServiceMetrics NONE = new ServiceMetrics() {
+        @Override
+        public void recordLatency(Operation operation, long nanos) {
+        }
+
+        @Override
+        public void recordResolve(ResolveResult.Status status) {
+        }
+
+        @Override
+        public void recordCodeCollision() {
+        }
+    };
+
+    void recordLatency(Operation operation, long nanos);
+
+    void recordResolve(ResolveResult.Status status);
+
+    /** Сгенерированный код оказался занят, и ссылка получила другой код. */
+    void recordCodeCollision();
+}
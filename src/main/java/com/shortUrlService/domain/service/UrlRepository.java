@@ -0,0 +1,58 @@
+package com.shortUrlService.domain.service;
+
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.domain.model.UserStats;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+public interface UrlRepository {
+    void save(ShortUrl shortUrl);
+
+    /** @return false, если код уже занят */
+    boolean saveIfAbsent(ShortUrl shortUrl);
+
+    /**
+     * Пакетная вставка с той же семантикой, что у {@link #saveIfAbsent(ShortUrl)}.
+     *
+     * @return для каждой ссылки - сохранена ли она (false - код занят)
+     */
+    boolean[] saveAllIfAbsent(List<ShortUrl> shortUrls);
+
+    Optional<ShortUrl> findByShortCode(String shortCode);
+
+    Collection<ShortUrl> findByUserId(UUID userId);
+
+    UserStats getUserStats(UUID userId);
+
+    /** Переход по ссылке засчитан в ее счетчике. */
+    void recordClick(ShortUrl shortUrl);
+
+    /**
+     * Лимит или срок ссылки изменены на месте; экземпляр тот же.
+     *
+     * @return false, если ссылку уже удалили или заменили и правка не сохранена
+     */
+    boolean update(ShortUrl shortUrl);
+
+    /** Ссылка исчерпала лимит кликов. */
+    void markInactive(ShortUrl shortUrl);
+
+    default void deleteExpired() {
+        deleteExpired(shortUrl -> {
+        });
+    }
+
+    /**
+     * Удаляет истекшие ссылки и сообщает о каждой удаленной, чтобы обертки над хранилищем
+     * убрали ее из своих структур. Обработчик может вызываться из нескольких потоков.
+     */
+    void deleteExpired(Consumer<ShortUrl> reclaimed);
+
+    boolean removeByShortCode(String shortCode);
+
+    void forEach(Consumer<ShortUrl> action);
+}
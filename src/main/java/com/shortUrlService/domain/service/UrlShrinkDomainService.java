@@ -1,30 +1,86 @@
 package com.shortUrlService.domain.service;
 
+import com.shortUrlService.domain.model.LinkClicks;
+import com.shortUrlService.domain.model.ResolveResult;
 import com.shortUrlService.domain.model.ShortUrl;
-import com.shortUrlService.infrastructure.persistence.InMemoryUrlRepository;
+import com.shortUrlService.domain.model.ShortenResult;
+import com.shortUrlService.domain.model.UserStats;
+import com.shortUrlService.infrastructure.export.LinkExporter;
 import com.shortUrlService.infrastructure.shortening.ShortCodeGenerator;
 import com.shortUrlService.config.AppConfig;
 
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 public class UrlShrinkDomainService {
-    private final InMemoryUrlRepository repository;
+    private static final String UNAVAILABLE_MESSAGE =
+            "Ссылка недоступна (истек срок или превышено количество кликов)";
+    private static final int MAX_CODE_ATTEMPTS = 16;
+    private static final int BATCH_CHUNK_SIZE = 1024;
+
+    private final UrlRepository repository;
     private final ShortCodeGenerator generator;
     private final NotificationService notificationService;
+    private final ClickAnalytics clickAnalytics;
+    private final ServiceMetrics metrics;
+    private final Clock clock;
 
-    public UrlShrinkDomainService(InMemoryUrlRepository repository,
+    public UrlShrinkDomainService(UrlRepository repository,
                                   ShortCodeGenerator generator,
                                   NotificationService notificationService) {
+        this(repository, generator, notificationService, Clock.systemUTC());
+    }
+
+    public UrlShrinkDomainService(UrlRepository repository,
+                                  ShortCodeGenerator generator,
+                                  NotificationService notificationService,
+                                  Clock clock) {
+        this(repository, generator, notificationService, ClickAnalytics.NONE, clock);
+    }
+
+    public UrlShrinkDomainService(UrlRepository repository,
+                                  ShortCodeGenerator generator,
+                                  NotificationService notificationService,
+                                  ClickAnalytics clickAnalytics,
+                                  Clock clock) {
+        this(repository, generator, notificationService, clickAnalytics, ServiceMetrics.NONE, clock);
+    }
+
+    public UrlShrinkDomainService(UrlRepository repository,
+                                  ShortCodeGenerator generator,
+                                  NotificationService notificationService,
+                                  ClickAnalytics clickAnalytics,
+                                  ServiceMetrics metrics,
+                                  Clock clock) {
         this.repository = repository;
         this.generator = generator;
         this.notificationService = notificationService;
+        this.clickAnalytics = clickAnalytics;
+        this.metrics = metrics;
+        this.clock = clock;
     }
 
     public String createShortUrl(UUID userId, String originalUrl, int maxClicks) {
+        long started = System.nanoTime();
+        try {
+            return create(userId, originalUrl, maxClicks);
+        } finally {
+            metrics.recordLatency(ServiceMetrics.Operation.CREATE, System.nanoTime() - started);
+        }
+    }
+
+    private String create(UUID userId, String originalUrl, int maxClicks) {
         // Валидация URL
         if (!isValidUrl(originalUrl)) {
             throw new IllegalArgumentException("Некорректный URL: " + originalUrl);
@@ -35,22 +91,106 @@ public class UrlShrinkDomainService {
             throw new IllegalArgumentException("Лимит кликов должен быть положительным числом");
         }
 
-        String shortCode = generator.generateUniqueCode(originalUrl, userId);
+        long now = clock.millis();
+        long expiresAt = now + TimeUnit.DAYS.toMillis(AppConfig.getDefaultTtlDays());
+        for (int attempt = 0; attempt < MAX_CODE_ATTEMPTS; attempt++) {
+            String shortCode = generator.generateUniqueCode(originalUrl, userId);
+            ShortUrl shortUrl = ShortUrl.builder()
+                    .userId(userId)
+                    .originalUrl(originalUrl)
+                    .shortCode(shortCode)
+                    .maxClicks(maxClicks)
+                    .createdAtMillis(now)
+                    .expiresAtMillis(expiresAt)
+                    .build();
+
+            if (repository.saveIfAbsent(shortUrl)) {
+                return AppConfig.getBaseUrl() + shortCode;
+            }
+            metrics.recordCodeCollision();
+        }
+        throw new IllegalStateException("Не удалось подобрать свободный короткий код");
+    }
+
+    public List<ShortenResult> createShortUrls(UUID userId, List<String> originalUrls, int maxClicks) {
+        List<ShortenResult> results = new ArrayList<>(originalUrls.size());
+        createShortUrls(userId, originalUrls.iterator(), maxClicks, results::add);
+        return results;
+    }
 
-        while (repository.findByShortCode(shortCode).isPresent()) {
-            shortCode = generator.generateUniqueCode(originalUrl + System.nanoTime(), userId);
+    /**
+     * Сокращает поток URL, держа в памяти не больше одного блока: блок проверяется
+     * параллельно, получает коды одним резервированием и вставляется в индексы пакетом.
+     * Результаты отдаются в {@code results} в порядке входа.
+     */
+    public void createShortUrls(UUID userId, Iterator<String> originalUrls, int maxClicks,
+                                Consumer<ShortenResult> results) {
+        if (maxClicks <= 0) {
+            throw new IllegalArgumentException("Лимит кликов должен быть положительным числом");
+        }
+        List<String> chunk = new ArrayList<>(BATCH_CHUNK_SIZE);
+        int offset = 0;
+        while (originalUrls.hasNext()) {
+            chunk.add(originalUrls.next());
+            if (chunk.size() == BATCH_CHUNK_SIZE) {
+                createChunk(userId, chunk, offset, maxClicks, results);
+                offset += chunk.size();
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            createChunk(userId, chunk, offset, maxClicks, results);
         }
+    }
 
-        ShortUrl shortUrl = ShortUrl.builder()
-                .userId(userId)
-                .originalUrl(originalUrl)
-                .shortCode(shortCode)
-                .maxClicks(maxClicks)
-                .expiresAt(LocalDateTime.now().plus(AppConfig.getDefaultTtlDays(), ChronoUnit.DAYS))
-                .build();
+    private void createChunk(UUID userId, List<String> chunk, int offset, int maxClicks,
+                             Consumer<ShortenResult> results) {
+        boolean[] valid = new boolean[chunk.size()];
+        IntStream.range(0, chunk.size()).parallel().forEach(i -> valid[i] = isValidUrl(chunk.get(i)));
 
-        repository.save(shortUrl);
-        return AppConfig.getBaseUrl() + shortCode;
+        List<String> accepted = new ArrayList<>(chunk.size());
+        for (int i = 0; i < valid.length; i++) {
+            if (valid[i]) {
+                accepted.add(chunk.get(i));
+            }
+        }
+        String[] codes = generator.generateCodes(accepted, userId);
+        long now = clock.millis();
+        long expiresAt = now + TimeUnit.DAYS.toMillis(AppConfig.getDefaultTtlDays());
+        List<ShortUrl> links = new ArrayList<>(accepted.size());
+        for (int i = 0; i < codes.length; i++) {
+            links.add(ShortUrl.builder()
+                    .userId(userId)
+                    .originalUrl(accepted.get(i))
+                    .shortCode(codes[i])
+                    .maxClicks(maxClicks)
+                    .createdAtMillis(now)
+                    .expiresAtMillis(expiresAt)
+                    .build());
+        }
+        boolean[] saved = repository.saveAllIfAbsent(links);
+
+        int link = 0;
+        for (int i = 0; i < valid.length; i++) {
+            String originalUrl = chunk.get(i);
+            if (!valid[i]) {
+                results.accept(ShortenResult.failed(offset + i, originalUrl, "Некорректный URL: " + originalUrl));
+                continue;
+            }
+            if (saved[link]) {
+                results.accept(ShortenResult.ok(offset + i, originalUrl, AppConfig.getBaseUrl() + codes[link]));
+            } else {
+                // Коллизия кода: этот URL идет обычным путем с повторными попытками
+                metrics.recordCodeCollision();
+                try {
+                    results.accept(ShortenResult.ok(offset + i, originalUrl,
+                            createShortUrl(userId, originalUrl, maxClicks)));
+                } catch (IllegalStateException e) {
+                    results.accept(ShortenResult.failed(offset + i, originalUrl, e.getMessage()));
+                }
+            }
+            link++;
+        }
     }
 
     private boolean isValidUrl(String url) {
@@ -63,41 +203,123 @@ public class UrlShrinkDomainService {
     }
 
     public String resolveUrl(String shortCode) {
-        return repository.findByShortCode(shortCode)
-                .map(url -> {
-                    if (url.isActive()) {
-                        url.incrementClick();
-                        repository.save(url);
-
-                        if (url.getClickCount() >= url.getMaxClicks()) {
-                            notificationService.notifyLimitReached(url.getUserId(), url);
-                        }
-
-                        return url.getOriginalUrl();
-                    } else {
-                        if (LocalDateTime.now().isAfter(url.getExpiresAt())) {
-                            notificationService.notifyLinkExpired(url.getUserId(), url);
-                        } else if (url.getClickCount() >= url.getMaxClicks()) {
-                            notificationService.notifyLimitReached(url.getUserId(), url);
-                        }
-                        return "Ссылка недоступна (истек срок или превышено количество кликов)";
-                    }
-                })
-                .orElse("Ссылка не найдена");
+        return describe(resolve(shortCode));
+    }
+
+    /** Текст результата перехода для консоли: исходный URL или причина отказа. */
+    public static String describe(ResolveResult result) {
+        return switch (result.status()) {
+            case REDIRECT -> result.targetUrl();
+            case NOT_FOUND -> "Ссылка не найдена";
+            case EXPIRED, LIMIT_REACHED -> UNAVAILABLE_MESSAGE;
+        };
+    }
+
+    public ResolveResult resolve(String shortCode) {
+        long started = System.nanoTime();
+        ResolveResult result = resolveCode(shortCode);
+        metrics.recordLatency(ServiceMetrics.Operation.RESOLVE, System.nanoTime() - started);
+        metrics.recordResolve(result.status());
+        return result;
+    }
+
+    /** Исход перехода без клика и уведомлений: для HEAD, которым ссылки проверяют, а не открывают. */
+    public ResolveResult peek(String shortCode) {
+        ShortUrl url = repository.findByShortCode(shortCode).orElse(null);
+        if (url == null) {
+            return ResolveResult.NOT_FOUND;
+        }
+        if (url.isExpiredByTime(clock.millis())) {
+            return new ResolveResult(ResolveResult.Status.EXPIRED, url);
+        }
+        if (url.getClickCount() >= url.getMaxClicks()) {
+            return new ResolveResult(ResolveResult.Status.LIMIT_REACHED, url);
+        }
+        return ResolveResult.redirect(url);
+    }
+
+    private ResolveResult resolveCode(String shortCode) {
+        ShortUrl url = repository.findByShortCode(shortCode).orElse(null);
+        if (url == null) {
+            return ResolveResult.NOT_FOUND;
+        }
+
+        long now = clock.millis();
+        if (url.isExpiredByTime(now)) {
+            notificationService.notifyLinkExpired(url.getUserId(), url);
+            return new ResolveResult(ResolveResult.Status.EXPIRED, url);
+        }
+
+        int claimed = url.tryClaimClick();
+        if (claimed < 0) {
+            notificationService.notifyLimitReached(url.getUserId(), url);
+            return new ResolveResult(ResolveResult.Status.LIMIT_REACHED, url);
+        }
+
+        repository.recordClick(url);
+        clickAnalytics.recordClick(url.getShortCode(), now);
+        if (claimed == url.getMaxClicks()) {
+            repository.markInactive(url);
+            notificationService.notifyLimitReached(url.getUserId(), url);
+        }
+        return ResolveResult.redirect(url);
     }
 
     public void printUserUrls(UUID userId) {
-        repository.findByUserId(userId).forEach(url ->
-                System.out.printf("Короткая: %s -> %s (кликов: %d/%d, активна: %s)%n",
-                        AppConfig.getBaseUrl() + url.getShortCode(),
-                        url.getOriginalUrl(),
-                        url.getClickCount(),
-                        url.getMaxClicks(),
-                        url.isActive() ? "да" : "нет")
-        );
+        repository.findByUserId(userId).forEach(this::printUrl);
+    }
+
+    public void printUrl(ShortUrl url) {
+        System.out.printf("Короткая: %s -> %s (кликов: %d/%d, активна: %s)%n",
+                AppConfig.getBaseUrl() + url.getShortCode(),
+                url.getOriginalUrl(),
+                url.getClickCount(),
+                url.getMaxClicks(),
+                url.isActive(clock.millis()) ? "да" : "нет");
+    }
+
+    /** Обходит ссылки пользователя, хранящиеся здесь, без копирования. */
+    public void forEachUserUrl(UUID userId, Consumer<ShortUrl> action) {
+        repository.findByUserId(userId).forEach(action);
+    }
+
+    /**
+     * Выгружает ссылки пользователя потоком в канал, обходя индекс без копирования.
+     *
+     * @return число выгруженных ссылок
+     */
+    public long exportUserUrls(UUID userId, LinkExporter.Format format, WritableByteChannel channel)
+            throws IOException {
+        return exportUrls(action -> forEachUserUrl(userId, action), format, channel);
+    }
+
+    /**
+     * Выгружает потоком ссылки, которые {@code source} передает выгрузке.
+     *
+     * @return число выгруженных ссылок
+     */
+    public long exportUrls(Consumer<Consumer<ShortUrl>> source, LinkExporter.Format format,
+                           WritableByteChannel channel) throws IOException {
+        LinkExporter exporter = new LinkExporter(format, AppConfig.getBaseUrl(), channel, clock.millis());
+        try {
+            source.accept(exporter);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        exporter.flush();
+        return exporter.getWrittenCount();
     }
 
     public boolean updateUrlMaxClicks(UUID userId, String shortCode, int newMaxClicks) {
+        long started = System.nanoTime();
+        try {
+            return updateMaxClicks(userId, shortCode, newMaxClicks);
+        } finally {
+            metrics.recordLatency(ServiceMetrics.Operation.EDIT, System.nanoTime() - started);
+        }
+    }
+
+    private boolean updateMaxClicks(UUID userId, String shortCode, int newMaxClicks) {
         if (newMaxClicks <= 0) {
             throw new IllegalArgumentException("Лимит кликов должен быть положительным числом");
         }
@@ -105,22 +327,22 @@ public class UrlShrinkDomainService {
         return repository.findByShortCode(shortCode)
                 .filter(url -> url.belongsToUser(userId))
                 .map(url -> {
-                    ShortUrl updatedUrl = ShortUrl.builder()
-                            .userId(url.getUserId())
-                            .originalUrl(url.getOriginalUrl())
-                            .shortCode(url.getShortCode())
-                            .maxClicks(newMaxClicks)
-                            .expiresAt(url.getExpiresAt())
-                            .clickCount(url.getClickCount())
-                            .active(url.isActive())
-                            .build();
-                    repository.save(updatedUrl);
-                    return true;
+                    url.changeMaxClicks(newMaxClicks);
+                    return repository.update(url);
                 })
                 .orElse(false);
     }
 
     public boolean extendUrlLifetime(UUID userId, String shortCode, int additionalDays) {
+        long started = System.nanoTime();
+        try {
+            return extendLifetime(userId, shortCode, additionalDays);
+        } finally {
+            metrics.recordLatency(ServiceMetrics.Operation.EDIT, System.nanoTime() - started);
+        }
+    }
+
+    private boolean extendLifetime(UUID userId, String shortCode, int additionalDays) {
         if (additionalDays <= 0) {
             throw new IllegalArgumentException("Количество дней должно быть положительным числом");
         }
@@ -128,56 +350,88 @@ public class UrlShrinkDomainService {
         return repository.findByShortCode(shortCode)
                 .filter(url -> url.belongsToUser(userId))
                 .map(url -> {
-                    ShortUrl updatedUrl = ShortUrl.builder()
-                            .userId(url.getUserId())
-                            .originalUrl(url.getOriginalUrl())
-                            .shortCode(url.getShortCode())
-                            .maxClicks(url.getMaxClicks())
-                            .expiresAt(url.getExpiresAt().plusDays(additionalDays))
-                            .clickCount(url.getClickCount())
-                            .active(url.isActive())
-                            .build();
-                    repository.save(updatedUrl);
-                    return true;
+                    url.extendExpiry(TimeUnit.DAYS.toMillis(additionalDays));
+                    return repository.update(url);
                 })
                 .orElse(false);
     }
 
-    public boolean deleteUrl(UUID userId, String shortCode) {
-        Optional<ShortUrl> urlOpt = repository.findByShortCode(shortCode);
+    /** @return переходы по часам, если ссылка существует и принадлежит пользователю */
+    public Optional<long[]> getClicksPerHour(UUID userId, String shortCode, int hours) {
+        if (hours <= 0) {
+            throw new IllegalArgumentException("Количество часов должно быть положительным числом");
+        }
+        return repository.findByShortCode(shortCode)
+                .filter(url -> url.belongsToUser(userId))
+                .map(url -> clickAnalytics.getClicksPerHour(shortCode, hours));
+    }
 
-        if (urlOpt.isPresent() && urlOpt.get().belongsToUser(userId)) {
-            return repository.removeByShortCode(shortCode);
+    public List<LinkClicks> getTopLinks(int hours, int limit) {
+        if (hours <= 0 || limit <= 0) {
+            throw new IllegalArgumentException("Окно и размер топа должны быть положительными");
         }
-        return false;
+        return clickAnalytics.getTopLinks(hours, limit);
     }
 
-    public void printUserStats(UUID userId) {
-        List<ShortUrl> userUrls = repository.findByUserId(userId);
-        if (userUrls.isEmpty()) {
-            System.out.println("У вас нет активных ссылок");
-            return;
+    /**
+     * Принимает ссылки, переданные другим узлом при перебалансировке: ссылки сохраняются
+     * как есть, а их коды больше не будут выданы этим узлом. Занятый код не перезаписывается;
+     * повторная передача той же ссылки принимается, а чужая ссылка под занятым кодом - нет.
+     *
+     * @return коды отклоненных ссылок: отправитель должен оставить их у себя
+     */
+    public List<String> importLinks(Collection<ShortUrl> links) {
+        List<String> rejected = new ArrayList<>();
+        for (ShortUrl link : links) {
+            if (!repository.saveIfAbsent(link) && !isSameLink(link)) {
+                rejected.add(link.getShortCode());
+            }
+            generator.markUsed(link.getShortCode());
         }
+        return rejected;
+    }
 
-        int activeCount = 0;
-        int expiredCount = 0;
-        int totalClicks = 0;
+    private boolean isSameLink(ShortUrl link) {
+        return repository.findByShortCode(link.getShortCode())
+                .filter(existing -> existing.getUserId().equals(link.getUserId())
+                        && existing.getOriginalUrl().equals(link.getOriginalUrl())
+                        && existing.getCreatedAtMillis() == link.getCreatedAtMillis())
+                .isPresent();
+    }
 
-        for (ShortUrl url : userUrls) {
-            if (url.isActive()) {
-                activeCount++;
-            } else {
-                expiredCount++;
+    public boolean deleteUrl(UUID userId, String shortCode) {
+        long started = System.nanoTime();
+        try {
+            Optional<ShortUrl> urlOpt = repository.findByShortCode(shortCode);
+
+            if (urlOpt.isPresent() && urlOpt.get().belongsToUser(userId)) {
+                return repository.removeByShortCode(shortCode);
             }
-            totalClicks += url.getClickCount();
+            return false;
+        } finally {
+            metrics.recordLatency(ServiceMetrics.Operation.DELETE, System.nanoTime() - started);
+        }
+    }
+
+    public UserStats getUserStats(UUID userId) {
+        return repository.getUserStats(userId);
+    }
+
+    public void printUserStats(UUID userId) {
+        printUserStats(userId, getUserStats(userId));
+    }
+
+    public void printUserStats(UUID userId, UserStats stats) {
+        if (stats.links() == 0) {
+            System.out.println("У вас нет активных ссылок");
+            return;
         }
 
         System.out.println("Статистика пользователя " + userId + ":");
-        System.out.println("  Всего ссылок: " + userUrls.size());
-        System.out.println("  Активных: " + activeCount);
-        System.out.println("  Истекших: " + expiredCount);
-        System.out.println("  Всего кликов: " + totalClicks);
-        System.out.println("  Среднее кликов на ссылку: " +
-                (userUrls.size() > 0 ? totalClicks / userUrls.size() : 0));
+        System.out.println("  Всего ссылок: " + stats.links());
+        System.out.println("  Активных: " + stats.active());
+        System.out.println("  Истекших: " + stats.inactive());
+        System.out.println("  Всего кликов: " + stats.totalClicks());
+        System.out.printf("  Среднее кликов на ссылку: %.2f%n", stats.averageClicks());
     }
 }
\ No newline at end of file
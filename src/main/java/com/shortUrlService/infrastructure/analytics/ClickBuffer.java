@@ -0,0 +1,96 @@
+package com.shortUrlService.infrastructure.analytics;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Набор кольцевых буферов переходов, по одному на полосу: поток пишет в полосу по
+ * своему идентификатору, так что производители редко сталкиваются на одном счетчике.
+ * Запись - один CAS и две записи в массивы, без блокировок и выделения памяти.
+ * Читатель один; при переполнении полосы событие отбрасывается.
+ */
+final class ClickBuffer {
+    interface Sink {
+        void accept(String shortCode, long millis);
+    }
+
+    private static final VarHandle CODES = MethodHandles.arrayElementVarHandle(String[].class);
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    ClickBuffer(int stripeCount, int stripeCapacity) {
+        int count = Integer.highestOneBit(Math.max(1, stripeCount - 1) << 1);
+        int capacity = Integer.highestOneBit(Math.max(2, stripeCapacity - 1) << 1);
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(capacity);
+        }
+        this.stripeMask = count - 1;
+    }
+
+    /** @return false, если полоса заполнена и событие отброшено */
+    boolean offer(String shortCode, long millis) {
+        long id = Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (id >>> 32) & stripeMask].offer(shortCode, millis);
+    }
+
+    /** Вызывается только из одного потока-читателя. */
+    int drain(Sink sink) {
+        int drained = 0;
+        for (Stripe stripe : stripes) {
+            drained += stripe.drain(sink);
+        }
+        return drained;
+    }
+
+    private static final class Stripe {
+        private final String[] codes;
+        private final long[] times;
+        private final int mask;
+        private final AtomicLong tail = new AtomicLong();
+        private volatile long head;
+
+        Stripe(int capacity) {
+            this.codes = new String[capacity];
+            this.times = new long[capacity];
+            this.mask = capacity - 1;
+        }
+
+        boolean offer(String shortCode, long millis) {
+            long slot;
+            do {
+                slot = tail.get();
+                if (slot - head >= codes.length) {
+                    return false;
+                }
+            } while (!tail.compareAndSet(slot, slot + 1));
+            int index = (int) slot & mask;
+            times[index] = millis;
+            // Публикация кода открывает слот читателю вместе со временем
+            CODES.setRelease(codes, index, shortCode);
+            return true;
+        }
+
+        int drain(Sink sink) {
+            long position = head;
+            int drained = 0;
+            while (true) {
+                int index = (int) position & mask;
+                String shortCode = (String) CODES.getAcquire(codes, index);
+                if (shortCode == null) {
+                    break;
+                }
+                long millis = times[index];
+                codes[index] = null;
+                position++;
+                drained++;
+                sink.accept(shortCode, millis);
+            }
+            // Запись head освобождает прочитанные слоты для производителей
+            head = position;
+            return drained;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.shortUrlService.infrastructure.analytics;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Переходы по одной ссылке в минутных и часовых корзинах. Каждая корзина - один long:
+ * номер минуты или часа от эпохи в старших 32 битах и счетчик в младших, поэтому
+ * корзина старого периода распознается и обнуляется при повторном использовании.
+ * Пишет только поток агрегации; читатели видят корзины без блокировок.
+ */
+final class ClickSeries {
+    static final int MINUTE_BUCKETS = 60;
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final long MILLIS_PER_MINUTE = 60_000;
+
+    private final long[] minutes = new long[MINUTE_BUCKETS];
+    private final long[] hours;
+    private volatile int lastHour;
+
+    ClickSeries(int retentionHours) {
+        this.hours = new long[retentionHours];
+    }
+
+    static int minuteOf(long millis) {
+        return (int) (millis / MILLIS_PER_MINUTE);
+    }
+
+    static int hourOf(long millis) {
+        return minuteOf(millis) / 60;
+    }
+
+    void add(long millis) {
+        int minute = minuteOf(millis);
+        int hour = minute / 60;
+        bump(minutes, minute);
+        bump(hours, hour);
+        if (hour > lastHour) {
+            lastHour = hour;
+        }
+    }
+
+    int getLastHour() {
+        return lastHour;
+    }
+
+    long[] perMinute(int currentMinute, int count) {
+        return counts(minutes, currentMinute, count);
+    }
+
+    long[] perHour(int currentHour, int count) {
+        return counts(hours, currentHour, count);
+    }
+
+    long totalForHours(int currentHour, int count) {
+        long total = 0;
+        for (long clicks : perHour(currentHour, count)) {
+            total += clicks;
+        }
+        return total;
+    }
+
+    private static void bump(long[] ring, int period) {
+        int index = Math.floorMod(period, ring.length);
+        long slot = (long) SLOTS.getOpaque(ring, index);
+        int slotPeriod = (int) (slot >>> 32);
+        if (slotPeriod == period) {
+            SLOTS.setRelease(ring, index, slot + 1);
+        } else if (slotPeriod < period) {
+            SLOTS.setRelease(ring, index, ((long) period << 32) | 1);
+        }
+        // Событие старше корзины пришло после ее переиспользования: оно вне окна
+    }
+
+    private static long[] counts(long[] ring, int currentPeriod, int count) {
+        long[] result = new long[Math.max(0, count)];
+        for (int i = 0; i < result.length && i < ring.length; i++) {
+            int period = currentPeriod - i;
+            long slot = (long) SLOTS.getAcquire(ring, Math.floorMod(period, ring.length));
+            if ((int) (slot >>> 32) == period) {
+                result[result.length - 1 - i] = slot & 0xFFFFFFFFL;
+            }
+        }
+        return result;
+    }
+}
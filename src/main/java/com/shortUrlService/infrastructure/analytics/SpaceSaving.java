@@ -0,0 +1,100 @@
+package com.shortUrlService.infrastructure.analytics;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Алгоритм Space-Saving для поиска самых частых ключей в фиксированной памяти: при
+ * переполнении ключ с наименьшим счетчиком уступает место новому, который наследует
+ * его счетчик. Любой ключ с частотой выше {@code N / capacity} гарантированно остается
+ * в сводке. Минимум ищется через двоичную кучу.
+ * <p>
+ * Не потокобезопасен; синхронизацию обеспечивает владелец.
+ */
+final class SpaceSaving {
+    private static final class Counter {
+        String key;
+        int count;
+        int index;
+    }
+
+    private final Counter[] heap;
+    private final Map<String, Counter> counters;
+    private int size;
+
+    SpaceSaving(int capacity) {
+        this.heap = new Counter[capacity];
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    void offer(String key) {
+        Counter counter = counters.get(key);
+        if (counter == null && size < heap.length) {
+            counter = new Counter();
+            counter.key = key;
+            counter.count = 1;
+            counters.put(key, counter);
+            heap[size] = counter;
+            siftUp(size++);
+            return;
+        }
+        if (counter == null) {
+            counter = heap[0];
+            counters.remove(counter.key);
+            counter.key = key;
+            counters.put(key, counter);
+        }
+        counter.count++;
+        siftDown(counter.index);
+    }
+
+    void forEach(ObjIntConsumer<String> action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(heap[i].key, heap[i].count);
+        }
+    }
+
+    void clear() {
+        counters.clear();
+        Arrays.fill(heap, 0, size, null);
+        size = 0;
+    }
+
+    private void siftUp(int index) {
+        Counter counter = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent].count <= counter.count) {
+                break;
+            }
+            heap[index] = heap[parent];
+            heap[index].index = index;
+            index = parent;
+        }
+        heap[index] = counter;
+        counter.index = index;
+    }
+
+    private void siftDown(int index) {
+        Counter counter = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+                child++;
+            }
+            if (heap[child].count >= counter.count) {
+                break;
+            }
+            heap[index] = heap[child];
+            heap[index].index = index;
+            index = child;
+        }
+        heap[index] = counter;
+        counter.index = index;
+    }
+}
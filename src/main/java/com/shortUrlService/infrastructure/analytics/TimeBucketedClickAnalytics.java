@@ -0,0 +1,191 @@
+package com.shortUrlService.infrastructure.analytics;
+
+import com.shortUrlService.domain.model.LinkClicks;
+import com.shortUrlService.domain.service.ClickAnalytics;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Аналитика переходов во времени. Путь перехода только кладет код и время в
+ * {@link ClickBuffer}; отдельный поток разбирает буфер, раскладывает переходы по
+ * минутным и часовым корзинам ссылок ({@link ClickSeries}) и ведет по сводке
+ * {@link SpaceSaving} на каждый час для поиска самых посещаемых ссылок.
+ * <p>
+ * Ряды ссылок без переходов за время хранения удаляются при смене часа. Если буфер
+ * переполнен, переход не попадает в аналитику (счетчик кликов ссылки от этого не зависит).
+ */
+public class TimeBucketedClickAnalytics implements ClickAnalytics, AutoCloseable {
+    private static final class HourSummary {
+        final SpaceSaving sketch;
+        int hour = Integer.MIN_VALUE;
+
+        HourSummary(int capacity) {
+            this.sketch = new SpaceSaving(capacity);
+        }
+    }
+
+    private final Clock clock;
+    private final int retentionHours;
+    private final ClickBuffer buffer;
+    private final ConcurrentHashMap<String, ClickSeries> series = new ConcurrentHashMap<>();
+    private final HourSummary[] summaries;
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final LongAdder dropped = new LongAdder();
+    private final long idleParkNanos;
+    private final Thread aggregator;
+    private final ClickBuffer.Sink sink = this::aggregate;
+    private int evictedHour = Integer.MIN_VALUE;
+    private volatile boolean running = true;
+
+    public TimeBucketedClickAnalytics(Clock clock, int retentionHours, int topCapacity,
+                                      int bufferCapacity, long idleParkMillis) {
+        if (retentionHours <= 0 || topCapacity <= 0 || bufferCapacity <= 0) {
+            throw new IllegalArgumentException("Параметры аналитики должны быть положительными");
+        }
+        this.clock = clock;
+        this.retentionHours = retentionHours;
+        this.buffer = new ClickBuffer(Runtime.getRuntime().availableProcessors(), bufferCapacity);
+        this.summaries = new HourSummary[retentionHours];
+        for (int i = 0; i < retentionHours; i++) {
+            summaries[i] = new HourSummary(topCapacity);
+        }
+        this.idleParkNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, idleParkMillis));
+        this.aggregator = new Thread(this::aggregateLoop, "click-analytics");
+        this.aggregator.setDaemon(true);
+        this.aggregator.start();
+    }
+
+    @Override
+    public void recordClick(String shortCode, long nowMillis) {
+        if (!buffer.offer(shortCode, nowMillis)) {
+            dropped.increment();
+        }
+    }
+
+    @Override
+    public long[] getClicksPerMinute(String shortCode, int minutes) {
+        ClickSeries clicks = series.get(shortCode);
+        int count = Math.min(minutes, ClickSeries.MINUTE_BUCKETS);
+        return clicks == null
+                ? new long[Math.max(0, count)]
+                : clicks.perMinute(ClickSeries.minuteOf(clock.millis()), count);
+    }
+
+    @Override
+    public long[] getClicksPerHour(String shortCode, int hours) {
+        ClickSeries clicks = series.get(shortCode);
+        int count = Math.min(hours, retentionHours);
+        return clicks == null
+                ? new long[Math.max(0, count)]
+                : clicks.perHour(ClickSeries.hourOf(clock.millis()), count);
+    }
+
+    /**
+     * Кандидаты берутся из часовых сводок окна, а их число переходов - из рядов ссылок,
+     * поэтому порядок кандидатов точный, а приблизителен только их отбор.
+     */
+    @Override
+    public List<LinkClicks> getTopLinks(int hours, int limit) {
+        int window = Math.min(hours, retentionHours);
+        int currentHour = ClickSeries.hourOf(clock.millis());
+        Set<String> candidates = new HashSet<>();
+        for (HourSummary summary : summaries) {
+            synchronized (summary) {
+                if (summary.hour > currentHour - window && summary.hour <= currentHour) {
+                    summary.sketch.forEach((shortCode, clicks) -> candidates.add(shortCode));
+                }
+            }
+        }
+
+        List<LinkClicks> top = new ArrayList<>(candidates.size());
+        for (String shortCode : candidates) {
+            ClickSeries clicks = series.get(shortCode);
+            if (clicks != null) {
+                long total = clicks.totalForHours(currentHour, window);
+                if (total > 0) {
+                    top.add(new LinkClicks(shortCode, total));
+                }
+            }
+        }
+        top.sort(Comparator.comparingLong(LinkClicks::clicks).reversed()
+                .thenComparing(LinkClicks::shortCode));
+        return top.size() > limit ? List.copyOf(top.subList(0, Math.max(0, limit))) : top;
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public int getTrackedLinkCount() {
+        return series.size();
+    }
+
+    /** Разбирает накопленные переходы в вызывающем потоке. */
+    public void drain() {
+        drainLock.lock();
+        try {
+            buffer.drain(sink);
+            evictStale(ClickSeries.hourOf(clock.millis()));
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    /** Останавливает поток агрегации, разобрав уже записанные переходы. */
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(aggregator);
+        aggregator.join();
+        drain();
+    }
+
+    private void aggregateLoop() {
+        while (running) {
+            int drained;
+            drainLock.lock();
+            try {
+                drained = buffer.drain(sink);
+                evictStale(ClickSeries.hourOf(clock.millis()));
+            } finally {
+                drainLock.unlock();
+            }
+            if (drained == 0) {
+                LockSupport.parkNanos(this, idleParkNanos);
+            }
+        }
+    }
+
+    private void aggregate(String shortCode, long millis) {
+        series.computeIfAbsent(shortCode, code -> new ClickSeries(retentionHours)).add(millis);
+        int hour = ClickSeries.hourOf(millis);
+        HourSummary summary = summaries[Math.floorMod(hour, summaries.length)];
+        synchronized (summary) {
+            if (summary.hour < hour) {
+                summary.sketch.clear();
+                summary.hour = hour;
+            }
+            if (summary.hour == hour) {
+                summary.sketch.offer(shortCode);
+            }
+        }
+    }
+
+    private void evictStale(int currentHour) {
+        if (currentHour == evictedHour) {
+            return;
+        }
+        evictedHour = currentHour;
+        series.values().removeIf(clicks -> clicks.getLastHour() <= currentHour - retentionHours);
+    }
+}
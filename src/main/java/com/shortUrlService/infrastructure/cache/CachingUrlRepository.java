@@ -0,0 +1,129 @@
+package com.shortUrlService.infrastructure.cache;
+
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.domain.model.UserStats;
+import com.shortUrlService.domain.service.UrlRepository;
+
+import java.time.Clock;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Сквозной кеш поиска по коду перед любым {@link UrlRepository}. В кеше лежит сам
+ * экземпляр {@link ShortUrl}: он и есть набор полей для редиректа вместе со счетчиком
+ * кликов, поэтому клики через кеш попадают в ту же ссылку, что и в хранилище.
+ * Изменения и удаления через этот репозиторий снимают код из кеша.
+ */
+public class CachingUrlRepository implements UrlRepository {
+    private final UrlRepository delegate;
+    private final HotLinkCache cache;
+    private final Clock clock;
+
+    public CachingUrlRepository(UrlRepository delegate, HotLinkCache cache, Clock clock) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.clock = clock;
+    }
+
+    @Override
+    public Optional<ShortUrl> findByShortCode(String shortCode) {
+        ShortUrl cached = cache.get(shortCode);
+        if (cached != null) {
+            if (cached.isActive(clock.millis())) {
+                return Optional.of(cached);
+            }
+            // Неактивную ссылку фоновая очистка могла уже удалить из хранилища
+            Optional<ShortUrl> stored = delegate.findByShortCode(shortCode);
+            if (stored.orElse(null) != cached) {
+                cache.invalidate(shortCode);
+            }
+            return stored;
+        }
+
+        long stamp = cache.stamp();
+        Optional<ShortUrl> loaded = delegate.findByShortCode(shortCode);
+        loaded.ifPresent(url -> cache.putIfNotInvalidated(shortCode, url, stamp));
+        return loaded;
+    }
+
+    @Override
+    public void save(ShortUrl shortUrl) {
+        delegate.save(shortUrl);
+        cache.invalidate(shortUrl.getShortCode());
+    }
+
+    @Override
+    public boolean saveIfAbsent(ShortUrl shortUrl) {
+        if (!delegate.saveIfAbsent(shortUrl)) {
+            return false;
+        }
+        // Код мог остаться в кеше от ссылки, которую уже удалила очистка
+        cache.invalidate(shortUrl.getShortCode());
+        return true;
+    }
+
+    @Override
+    public boolean[] saveAllIfAbsent(List<ShortUrl> shortUrls) {
+        boolean[] saved = delegate.saveAllIfAbsent(shortUrls);
+        for (int i = 0; i < saved.length; i++) {
+            if (saved[i]) {
+                cache.invalidate(shortUrls.get(i).getShortCode());
+            }
+        }
+        return saved;
+    }
+
+    @Override
+    public boolean update(ShortUrl shortUrl) {
+        boolean updated = delegate.update(shortUrl);
+        cache.invalidate(shortUrl.getShortCode());
+        return updated;
+    }
+
+    @Override
+    public boolean removeByShortCode(String shortCode) {
+        boolean removed = delegate.removeByShortCode(shortCode);
+        cache.invalidate(shortCode);
+        return removed;
+    }
+
+    @Override
+    public Collection<ShortUrl> findByUserId(UUID userId) {
+        return delegate.findByUserId(userId);
+    }
+
+    @Override
+    public UserStats getUserStats(UUID userId) {
+        return delegate.getUserStats(userId);
+    }
+
+    @Override
+    public void recordClick(ShortUrl shortUrl) {
+        delegate.recordClick(shortUrl);
+    }
+
+    @Override
+    public void markInactive(ShortUrl shortUrl) {
+        delegate.markInactive(shortUrl);
+    }
+
+    @Override
+    public void deleteExpired(Consumer<ShortUrl> reclaimed) {
+        delegate.deleteExpired(shortUrl -> {
+            cache.invalidate(shortUrl.getShortCode());
+            reclaimed.accept(shortUrl);
+        });
+    }
+
+    @Override
+    public void forEach(Consumer<ShortUrl> action) {
+        delegate.forEach(action);
+    }
+
+    public HotLinkCache getCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,90 @@
+package com.shortUrlService.infrastructure.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-Min sketch с 4-битными счетчиками (по 16 в одном long) для оценки частоты
+ * обращений. Когда число инкрементов достигает {@code 10 * capacity}, все счетчики
+ * делятся пополам, так что старая популярность со временем забывается.
+ * <p>
+ * Счетчик увеличивается одним CAS над его словом, так что насыщенный счетчик никогда
+ * не переносит единицу в соседний. Деление пополам и счетчик инкрементов не
+ * синхронизированы: гонка может потерять отдельный инкремент, что для оценки
+ * популярности не важно.
+ */
+final class FrequencySketch {
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int DEPTH = 4;
+
+    private final AtomicLongArray table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int capacity) {
+        int size = Integer.highestOneBit(Math.max(16, capacity - 1) << 1);
+        this.table = new AtomicLongArray(size);
+        this.tableMask = size - 1;
+        this.sampleSize = 10 * Math.max(capacity, 1);
+    }
+
+    void increment(Object key) {
+        long hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < DEPTH; i++) {
+            long h = rehash(hash, i);
+            int index = (int) h & tableMask;
+            int offset = (int) ((h >>> 40) & 15) << 2;
+            if (tryIncrement(index, offset)) {
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    int frequency(Object key) {
+        long hash = spread(key.hashCode());
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            long h = rehash(hash, i);
+            int offset = (int) ((h >>> 40) & 15) << 2;
+            frequency = Math.min(frequency, (int) ((table.get((int) h & tableMask) >>> offset) & 15));
+        }
+        return frequency;
+    }
+
+    /** @return false, если счетчик уже насыщен */
+    private boolean tryIncrement(int index, int offset) {
+        long mask = 0xFL << offset;
+        while (true) {
+            long word = table.get(index);
+            if ((word & mask) == mask) {
+                return false;
+            }
+            if (table.compareAndSet(index, word, word + (1L << offset))) {
+                return true;
+            }
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length(); i++) {
+            table.set(i, (table.get(i) >>> 1) & RESET_MASK);
+        }
+        additions /= 2;
+    }
+
+    private static long spread(int hashCode) {
+        long h = hashCode * 0x9e3779b97f4a7c15L;
+        return h ^ (h >>> 29);
+    }
+
+    private static long rehash(long hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        return h + (h >>> 32);
+    }
+}
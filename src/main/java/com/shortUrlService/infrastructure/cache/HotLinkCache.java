@@ -0,0 +1,162 @@
+package com.shortUrlService.infrastructure.cache;
+
+import com.shortUrlService.domain.model.ShortUrl;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ограниченный кеш ссылок по коду в духе W-TinyLFU. Новые ссылки попадают в маленькое
+ * окно (FIFO в порядке вставки, 1% емкости); вытесненная из окна ссылка проходит в основную область,
+ * только если по {@link FrequencySketch} она популярнее жертвы, выбранной среди
+ * нескольких случайных ссылок основной области. Так разовые обращения не вымывают
+ * горячие ссылки.
+ * <p>
+ * Попадание - одно чтение из ConcurrentHashMap без блокировок. Вставка и инвалидация
+ * идут под общей блокировкой, их мало по сравнению с попаданиями.
+ */
+public class HotLinkCache {
+    private static final int EVICTION_SAMPLE = 8;
+
+    private final int windowCapacity;
+    private final int mainCapacity;
+    private final ConcurrentHashMap<String, ShortUrl> entries;
+    private final FrequencySketch sketch;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashSet<String> window = new LinkedHashSet<>();
+    private final String[] main;
+    private final Map<String, Integer> mainSlots = new HashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicLong invalidations = new AtomicLong();
+    private int mainSize;
+
+    public HotLinkCache(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Емкость кеша должна быть не меньше 2");
+        }
+        this.windowCapacity = Math.max(1, capacity / 100);
+        this.mainCapacity = capacity - windowCapacity;
+        this.entries = new ConcurrentHashMap<>(capacity * 4 / 3 + 1);
+        this.sketch = new FrequencySketch(capacity);
+        this.main = new String[mainCapacity];
+    }
+
+    /** @return закешированная ссылка или null; обращение учитывается в частоте кода */
+    public ShortUrl get(String shortCode) {
+        ShortUrl url = entries.get(shortCode);
+        sketch.increment(shortCode);
+        if (url != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return url;
+    }
+
+    /** Метка для {@link #putIfNotInvalidated}: берется до чтения из хранилища. */
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * Кладет загруженную ссылку, если с момента {@code stamp} не было инвалидаций:
+     * иначе загрузка могла прочитать уже измененную или удаленную ссылку.
+     */
+    public void putIfNotInvalidated(String shortCode, ShortUrl url, long stamp) {
+        lock.lock();
+        try {
+            if (invalidations.get() != stamp) {
+                return;
+            }
+            if (entries.put(shortCode, url) != null) {
+                return;
+            }
+            window.add(shortCode);
+            if (window.size() > windowCapacity) {
+                admit(window.removeFirst());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(String shortCode) {
+        // Счетчик растет всегда: параллельная загрузка этого кода не должна положить старую версию
+        invalidations.incrementAndGet();
+        if (!entries.containsKey(shortCode)) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (entries.remove(shortCode) == null) {
+                return;
+            }
+            Integer slot = mainSlots.remove(shortCode);
+            if (slot != null) {
+                // Переносим последнюю ссылку в освободившийся слот
+                String last = main[--mainSize];
+                main[mainSize] = null;
+                if (slot < mainSize) {
+                    main[slot] = last;
+                    mainSlots.put(last, slot);
+                }
+            } else {
+                window.remove(shortCode);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    private void admit(String candidate) {
+        if (mainSize < mainCapacity) {
+            main[mainSize] = candidate;
+            mainSlots.put(candidate, mainSize++);
+            return;
+        }
+        int victimSlot = sampleVictim();
+        String victim = main[victimSlot];
+        if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+            entries.remove(victim);
+            mainSlots.remove(victim);
+            main[victimSlot] = candidate;
+            mainSlots.put(candidate, victimSlot);
+        } else {
+            entries.remove(candidate);
+        }
+    }
+
+    private int sampleVictim() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int victim = random.nextInt(mainSize);
+        int victimFrequency = sketch.frequency(main[victim]);
+        for (int i = 1; i < EVICTION_SAMPLE; i++) {
+            int slot = random.nextInt(mainSize);
+            int frequency = sketch.frequency(main[slot]);
+            if (frequency < victimFrequency) {
+                victim = slot;
+                victimFrequency = frequency;
+            }
+        }
+        return victim;
+    }
+}
@@ -0,0 +1,21 @@
+package com.shortUrlService.infrastructure.cluster;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Узел кластера; {@code address} - базовый адрес его HTTP-фронта, null для узлов в одном процессе. */
+public record ClusterMember(String id, URI address) {
+
+    /** Разбирает список узлов вида {@code id=http://host:port}, разделенных запятыми или строками. */
+    public static List<ClusterMember> parseAll(String members) {
+        List<ClusterMember> parsed = new ArrayList<>();
+        for (String entry : members.split("[,\\n]")) {
+            int eq = entry.indexOf('=');
+            if (eq > 0) {
+                parsed.add(new ClusterMember(entry.substring(0, eq).trim(), URI.create(entry.substring(eq + 1).trim())));
+            }
+        }
+        return parsed;
+    }
+}
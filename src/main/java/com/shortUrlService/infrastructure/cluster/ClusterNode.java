@@ -0,0 +1,395 @@
+package com.shortUrlService.infrastructure.cluster;
+
+import com.shortUrlService.application.LinkNode;
+import com.shortUrlService.application.LinkRouter;
+import com.shortUrlService.domain.model.LinkClicks;
+import com.shortUrlService.domain.model.ResolveResult;
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.domain.model.UserStats;
+import com.shortUrlService.domain.service.UrlRepository;
+import com.shortUrlService.infrastructure.persistence.ShardedUrlRepository;
+import com.shortUrlService.infrastructure.shortening.CodePartitions;
+import com.shortUrlService.infrastructure.shortening.ShortCodeGenerator;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Узел кластера: по кольцу {@link HashRing} решает, какой узел владеет кодом, и отдает
+ * для него локальный или удаленный {@link LinkNode}. Маршрут находится за один шаг,
+ * потому что раздел записан в самом коде.
+ * <p>
+ * Разделы кодов раскладываются по {@value #STORE_SHARDS} частям хранилища узла
+ * ({@link #newStore}), поэтому при перебалансировке узел обходит только части с уходящими
+ * разделами, а сводки по пользователю и очистка не проходят по тысячам разделов.
+ * <p>
+ * Операции над локальными ссылками учитываются по разделам. Уходящий раздел сначала
+ * закрывается: новые операции над ним получают {@link IllegalStateException} (ответ 503),
+ * начатые дорабатывают, и только потом его ссылки передаются. После передачи операции
+ * над разделом уходят новому владельцу, так что ни одна запись не теряется в промежутке
+ * между передачей и переключением кольца.
+ * <p>
+ * Полученный раздел новый владелец не обслуживает сам, пока прежний не сообщит
+ * ({@link #acceptPartitions}), что передал все его ссылки: до этого запросы к разделу
+ * уходят прежнему владельцу, а коды в разделе не выдаются, чтобы два узла не выдали
+ * один код. Узел, которого нет в начальном кольце, подключается к кластеру без разделов
+ * и получает их перебалансировкой.
+ */
+public class ClusterNode implements LinkRouter {
+    /** Раздел закрыт на время передачи. */
+    private static final String FENCED = "";
+    /** Счетчики разделов разнесены по строкам кеша, чтобы соседние разделы не мешали друг другу. */
+    private static final int IN_FLIGHT_STRIDE = 16;
+    /** Частей хранилища узла: хватает для параллельной очистки и пакетов при любом числе разделов. */
+    public static final int STORE_SHARDS = 64;
+
+    private final String selfId;
+    private final LinkNode local;
+    private final ShortCodeGenerator generator;
+    private final ShardedUrlRepository store;
+    private final UrlRepository repository;
+    private final Map<String, LinkNode> peers = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<String> handoff = new AtomicReferenceArray<>(CodePartitions.COUNT);
+    /** Прежний владелец полученного раздела, пока тот не передал все ссылки. */
+    private final AtomicReferenceArray<String> incoming = new AtomicReferenceArray<>(CodePartitions.COUNT);
+    /** Разделы, переданные раньше, чем сюда пришло кольцо, в котором они принадлежат узлу. */
+    private final BitSet arrived = new BitSet(CodePartitions.COUNT);
+    private final Object partitionLock = new Object();
+    private final AtomicIntegerArray inFlight = new AtomicIntegerArray(CodePartitions.COUNT * IN_FLIGHT_STRIDE);
+    private final LinkNode owned = new GuardedLocalNode(true);
+    private final LinkNode forwarded = new GuardedLocalNode(false);
+    private volatile HashRing ring;
+    /** Кольцо, по которому генератору назначены разделы; защищено {@link #partitionLock}. */
+    private HashRing assigned;
+
+    /**
+     * @param store      хранилище узла, созданное {@link #newStore}
+     * @param repository то же хранилище с кешем и прочими обертками, через которое идут удаления
+     */
+    public ClusterNode(String selfId, HashRing ring, LinkNode local, ShortCodeGenerator generator,
+                       ShardedUrlRepository store, UrlRepository repository) {
+        if (store.getShardCount() != STORE_SHARDS) {
+            throw new IllegalArgumentException("Хранилище узла должно быть создано ClusterNode.newStore");
+        }
+        this.selfId = selfId;
+        this.local = local;
+        this.generator = generator;
+        this.store = store;
+        this.repository = repository;
+        this.ring = ring;
+        synchronized (partitionLock) {
+            assignPartitions(ring);
+        }
+    }
+
+    /** Хранилище узла: раздел кода целиком лежит в одной из {@value #STORE_SHARDS} частей. */
+    public static ShardedUrlRepository newStore(Clock clock) {
+        return new ShardedUrlRepository(STORE_SHARDS, shortCode -> shardOf(CodePartitions.of(shortCode)), clock);
+    }
+
+    public void connect(String memberId, LinkNode peer) {
+        peers.put(memberId, peer);
+    }
+
+    public boolean isConnected(String memberId) {
+        return peers.containsKey(memberId);
+    }
+
+    /** Коды узлов, с которыми нет связи, не обслуживаются: их ссылки лежат не здесь. */
+    @Override
+    public LinkNode route(String shortCode) {
+        String owner = ring.ownerOfCode(shortCode);
+        return owner.equals(selfId) ? owned : peer(owner);
+    }
+
+    @Override
+    public LinkNode routeForwarded(String shortCode) {
+        return forwarded;
+    }
+
+    /** Этот узел для других узлов того же процесса: как для запросов, пересланных по HTTP. */
+    public LinkNode asPeer() {
+        return forwarded;
+    }
+
+    @Override
+    public List<LinkNode> remotes() {
+        List<LinkNode> remotes = new ArrayList<>();
+        for (ClusterMember member : ring.getMembers()) {
+            if (!member.id().equals(selfId)) {
+                remotes.add(peer(member.id()));
+            }
+        }
+        return remotes;
+    }
+
+    public HashRing getRing() {
+        return ring;
+    }
+
+    public String getSelfId() {
+        return selfId;
+    }
+
+    /**
+     * Переходит на новое кольцо: перестает выдавать коды в уходящих разделах и передает
+     * их новым владельцам по частям хранилища. Уходящие разделы части закрываются,
+     * начатые операции над ними дорабатывают, ссылки передаются, после чего операции над
+     * этими разделами пересылаются новым владельцам, а ссылки удаляются у себя. Ссылки,
+     * созданные кодом, выданным до смены разделов генератора, догоняются повторным обходом,
+     * и только после него новый владелец узнает, что раздел передан. Получаемые разделы
+     * до такого сообщения обслуживает прежний владелец. Узлы переводятся на новое кольцо
+     * в любом порядке.
+     * Ссылки, которые новый владелец отклонил, потому что их код у него уже занят, остаются
+     * у этого узла и попадают в отчет.
+     */
+    public synchronized Rebalance rebalance(HashRing next) {
+        HashRing current = ring;
+        for (ClusterMember member : next.getMembers()) {
+            if (!member.id().equals(selfId) && !peers.containsKey(member.id())) {
+                throw new IllegalStateException("Нет связи с узлом " + member.id());
+            }
+        }
+        synchronized (partitionLock) {
+            for (int partition = 0; partition < CodePartitions.COUNT; partition++) {
+                String previous = current.ownerOf(partition);
+                if (!previous.equals(selfId) && next.ownerOf(partition).equals(selfId)) {
+                    if (arrived.get(partition)) {
+                        arrived.clear(partition);
+                    } else {
+                        incoming.set(partition, previous);
+                    }
+                }
+            }
+            assignPartitions(next);
+        }
+
+        int moved = 0;
+        Set<String> conflicts = new LinkedHashSet<>();
+        for (int shard = 0; shard < STORE_SHARDS; shard++) {
+            List<Integer> leaving = new ArrayList<>();
+            for (int partition = shard; partition < CodePartitions.COUNT; partition += STORE_SHARDS) {
+                if (current.ownerOf(partition).equals(selfId) && !next.ownerOf(partition).equals(selfId)) {
+                    leaving.add(partition);
+                }
+            }
+            if (leaving.isEmpty()) {
+                continue;
+            }
+            leaving.forEach(partition -> handoff.set(partition, FENCED));
+            try {
+                leaving.forEach(this::awaitInFlight);
+                moved += transfer(shard, current, next, conflicts);
+            } catch (RuntimeException e) {
+                // Передача не удалась: разделы остаются у этого узла, повтор передаст их заново
+                leaving.forEach(partition -> handoff.set(partition, null));
+                throw e;
+            }
+            leaving.forEach(partition -> handoff.set(partition, next.ownerOf(partition)));
+            moved += transfer(shard, current, next, conflicts);
+            Map<String, List<Integer>> byOwner = new HashMap<>();
+            leaving.forEach(partition -> byOwner.computeIfAbsent(next.ownerOf(partition), id -> new ArrayList<>())
+                    .add(partition));
+            byOwner.forEach((owner, partitions) -> peers.get(owner)
+                    .acceptPartitions(partitions.stream().mapToInt(Integer::intValue).toArray()));
+        }
+
+        ring = next;
+        // Кольцо записано раньше: операция, не увидевшая передачу, увидит новое кольцо
+        for (int partition = 0; partition < CodePartitions.COUNT; partition++) {
+            handoff.set(partition, null);
+        }
+        for (String code : conflicts) {
+            System.err.println("Код " + code + " занят у нового владельца, ссылка оставлена на узле " + selfId);
+        }
+        return new Rebalance(moved, List.copyOf(conflicts));
+    }
+
+    /**
+     * Передает новым владельцам ссылки уходящих разделов части хранилища за один ее обход.
+     * Удаляются только принятые ссылки, коды отклоненных добавляются в {@code conflicts}.
+     */
+    private int transfer(int shard, HashRing current, HashRing next, Set<String> conflicts) {
+        Map<String, List<ShortUrl>> byOwner = new HashMap<>();
+        store.forEachInShard(shard, link -> {
+            int partition = CodePartitions.of(link.getShortCode());
+            String owner = next.ownerOf(partition);
+            if (current.ownerOf(partition).equals(selfId) && !owner.equals(selfId)) {
+                byOwner.computeIfAbsent(owner, id -> new ArrayList<>()).add(link);
+            }
+        });
+        int moved = 0;
+        for (Map.Entry<String, List<ShortUrl>> entry : byOwner.entrySet()) {
+            Set<String> rejected = new HashSet<>(peers.get(entry.getKey()).importLinks(entry.getValue()));
+            for (ShortUrl link : entry.getValue()) {
+                if (!rejected.contains(link.getShortCode())) {
+                    repository.removeByShortCode(link.getShortCode());
+                    moved++;
+                }
+            }
+            conflicts.addAll(rejected);
+        }
+        return moved;
+    }
+
+    /**
+     * Прежний владелец передал все ссылки этих разделов: узел начинает обслуживать их сам
+     * и выдавать в них коды. Сообщение, пришедшее раньше нового кольца, запоминается.
+     */
+    public void acceptPartitions(int[] partitions) {
+        synchronized (partitionLock) {
+            for (int partition : partitions) {
+                if (incoming.get(partition) != null) {
+                    incoming.set(partition, null);
+                } else if (!assigned.ownerOf(partition).equals(selfId)) {
+                    arrived.set(partition);
+                }
+            }
+            assignPartitions(assigned);
+        }
+    }
+
+    /** Генератор выдает коды в разделах кольца, которые уже целиком у этого узла. */
+    private void assignPartitions(HashRing target) {
+        assigned = target;
+        generator.assignPartitions(IntStream.of(target.partitionsOf(selfId))
+                .filter(partition -> incoming.get(partition) == null)
+                .toArray());
+    }
+
+    private static int shardOf(int partition) {
+        return partition % STORE_SHARDS;
+    }
+
+    private void awaitInFlight(int partition) {
+        while (inFlight.get(partition * IN_FLIGHT_STRIDE) != 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private LinkNode peer(String memberId) {
+        if (FENCED.equals(memberId)) {
+            throw new IllegalStateException("Раздел передается другому узлу, повторите запрос");
+        }
+        LinkNode peer = peers.get(memberId);
+        if (peer == null) {
+            throw new IllegalStateException("Нет связи с узлом " + memberId);
+        }
+        return peer;
+    }
+
+    /**
+     * Выполняет операцию над ссылкой этого узла, учитывая ее в счетчике раздела. Если
+     * раздел уже передан, операция уходит новому владельцу.
+     *
+     * @param followRing для непересланных запросов: сверить владельца с текущим кольцом
+     */
+    private <T> T onLocal(String shortCode, boolean followRing, Function<LinkNode, T> operation) {
+        int partition = CodePartitions.of(shortCode);
+        int counter = partition * IN_FLIGHT_STRIDE;
+        String owner;
+        inFlight.incrementAndGet(counter);
+        try {
+            owner = handoff.get(partition);
+            if (owner == null) {
+                // Пересланный запрос прежний владелец уже не обслуживает: ссылки переданы сюда
+                String previous = incoming.get(partition);
+                owner = !followRing ? selfId : previous != null ? previous : ring.ownerOf(partition);
+            }
+            if (owner.equals(selfId)) {
+                return operation.apply(local);
+            }
+        } finally {
+            inFlight.decrementAndGet(counter);
+        }
+        return operation.apply(peer(owner));
+    }
+
+    /**
+     * Итог перебалансировки.
+     *
+     * @param moved     число переданных ссылок
+     * @param conflicts коды ссылок, оставшихся у узла, потому что новый владелец уже занял их код
+     */
+    public record Rebalance(int moved, List<String> conflicts) {
+    }
+
+    private final class GuardedLocalNode implements LinkNode {
+        private final boolean followRing;
+
+        GuardedLocalNode(boolean followRing) {
+            this.followRing = followRing;
+        }
+
+        @Override
+        public ResolveResult resolve(String shortCode) {
+            return onLocal(shortCode, followRing, node -> node.resolve(shortCode));
+        }
+
+        @Override
+        public ResolveResult peek(String shortCode) {
+            return onLocal(shortCode, followRing, node -> node.peek(shortCode));
+        }
+
+        @Override
+        public boolean updateMaxClicks(UUID userId, String shortCode, int maxClicks) {
+            return onLocal(shortCode, followRing, node -> node.updateMaxClicks(userId, shortCode, maxClicks));
+        }
+
+        @Override
+        public boolean extendLifetime(UUID userId, String shortCode, int additionalDays) {
+            return onLocal(shortCode, followRing, node -> node.extendLifetime(userId, shortCode, additionalDays));
+        }
+
+        @Override
+        public boolean delete(UUID userId, String shortCode) {
+            return onLocal(shortCode, followRing, node -> node.delete(userId, shortCode));
+        }
+
+        @Override
+        public List<String> importLinks(Collection<ShortUrl> links) {
+            return local.importLinks(links);
+        }
+
+        @Override
+        public void acceptPartitions(int[] partitions) {
+            ClusterNode.this.acceptPartitions(partitions);
+        }
+
+        @Override
+        public Optional<long[]> getClicksPerHour(UUID userId, String shortCode, int hours) {
+            return onLocal(shortCode, followRing, node -> node.getClicksPerHour(userId, shortCode, hours));
+        }
+
+        @Override
+        public void forEachUserLink(UUID userId, Consumer<ShortUrl> action) {
+            local.forEachUserLink(userId, action);
+        }
+
+        @Override
+        public UserStats getUserStats(UUID userId) {
+            return local.getUserStats(userId);
+        }
+
+        @Override
+        public List<LinkClicks> getTopLinks(int hours, int limit) {
+            return local.getTopLinks(hours, limit);
+        }
+    }
+}
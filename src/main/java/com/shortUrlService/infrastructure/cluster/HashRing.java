@@ -0,0 +1,90 @@
+package com.shortUrlService.infrastructure.cluster;
+
+import com.shortUrlService.infrastructure.shortening.CodePartitions;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+/**
+ * Неизменяемое кольцо согласованного хеширования над разделами кодов
+ * ({@link CodePartitions}). Каждый узел занимает {@link #VIRTUAL_NODES} точек кольца;
+ * раздел принадлежит первой точке по часовой стрелке от своего хеша. При добавлении
+ * или удалении узла меняют владельца только разделы соседних с ним дуг.
+ */
+public final class HashRing {
+    public static final int VIRTUAL_NODES = 128;
+
+    private final List<ClusterMember> members;
+    private final String[] owners = new String[CodePartitions.COUNT];
+
+    public HashRing(Collection<ClusterMember> members) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("В кластере должен быть хотя бы один узел");
+        }
+        this.members = List.copyOf(members);
+        TreeMap<Long, String> ring = new TreeMap<>();
+        for (ClusterMember member : this.members) {
+            long seed = hash(member.id());
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                ring.put(mix(seed + i * 0x9E3779B97F4A7C15L), member.id());
+            }
+        }
+        for (int partition = 0; partition < owners.length; partition++) {
+            Map.Entry<Long, String> point = ring.ceilingEntry(mix(partition * 0xC2B2AE3D27D4EB4FL + 1));
+            owners[partition] = (point != null ? point : ring.firstEntry()).getValue();
+        }
+    }
+
+    public String ownerOf(int partition) {
+        return owners[partition];
+    }
+
+    public String ownerOfCode(String shortCode) {
+        return owners[CodePartitions.of(shortCode)];
+    }
+
+    public int[] partitionsOf(String memberId) {
+        return IntStream.range(0, owners.length).filter(p -> owners[p].equals(memberId)).toArray();
+    }
+
+    public List<ClusterMember> getMembers() {
+        return members;
+    }
+
+    public Optional<ClusterMember> member(String memberId) {
+        return members.stream().filter(member -> member.id().equals(memberId)).findFirst();
+    }
+
+    public HashRing with(ClusterMember member) {
+        List<ClusterMember> next = new ArrayList<>(members);
+        next.removeIf(existing -> existing.id().equals(member.id()));
+        next.add(member);
+        return new HashRing(next);
+    }
+
+    public HashRing without(String memberId) {
+        List<ClusterMember> next = new ArrayList<>(members);
+        next.removeIf(existing -> existing.id().equals(memberId));
+        return new HashRing(next);
+    }
+
+    private static long hash(String id) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : id.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
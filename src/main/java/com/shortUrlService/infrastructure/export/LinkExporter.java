@@ -0,0 +1,210 @@
+package com.shortUrlService.infrastructure.export;
+
+import com.shortUrlService.domain.model.ShortUrl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.function.Consumer;
+
+/**
+ * Пишет ссылки в CSV или JSON Lines прямо в байтовый буфер канала: без промежуточных
+ * строк на каждую ссылку, без String.format и без списков. Буфер сбрасывается в канал
+ * по заполнении, так что память не зависит от числа ссылок.
+ */
+public class LinkExporter implements Consumer<ShortUrl> {
+    public enum Format {
+        CSV("text/csv; charset=utf-8"),
+        JSONL("application/x-ndjson; charset=utf-8");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+    }
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final String CSV_HEADER = "short_url,original_url,clicks,max_clicks,expires_at_millis,active\n";
+
+    private final Format format;
+    private final String baseUrl;
+    private final WritableByteChannel channel;
+    private final long nowMillis;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private final byte[] digits = new byte[20];
+    private long written;
+
+    public LinkExporter(Format format, String baseUrl, WritableByteChannel channel, long nowMillis) {
+        this.format = format;
+        this.baseUrl = baseUrl;
+        this.channel = channel;
+        this.nowMillis = nowMillis;
+        if (format == Format.CSV) {
+            putText(CSV_HEADER);
+        }
+    }
+
+    /** Дописывает ссылку; ошибка канала приходит как {@link UncheckedIOException}. */
+    @Override
+    public void accept(ShortUrl url) {
+        if (format == Format.CSV) {
+            putText(baseUrl);
+            putText(url.getShortCode());
+            putByte(',');
+            putCsvField(url.getOriginalUrl());
+            putByte(',');
+            putLong(url.getClickCount());
+            putByte(',');
+            putLong(url.getMaxClicks());
+            putByte(',');
+            putLong(url.getExpiresAtMillis());
+            putByte(',');
+            putText(url.isActive(nowMillis) ? "true" : "false");
+        } else {
+            putText("{\"shortUrl\":\"");
+            putJsonString(baseUrl);
+            putJsonString(url.getShortCode());
+            putText("\",\"originalUrl\":\"");
+            putJsonString(url.getOriginalUrl());
+            putText("\",\"clicks\":");
+            putLong(url.getClickCount());
+            putText(",\"maxClicks\":");
+            putLong(url.getMaxClicks());
+            putText(",\"expiresAt\":");
+            putLong(url.getExpiresAtMillis());
+            putText(",\"active\":");
+            putText(url.isActive(nowMillis) ? "true}" : "false}");
+        }
+        putByte('\n');
+        written++;
+    }
+
+    /** Сбрасывает остаток буфера в канал; канал не закрывается. */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public long getWrittenCount() {
+        return written;
+    }
+
+    private void putCsvField(String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            putText(value);
+            return;
+        }
+        putByte('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                putByte('"');
+            }
+            putChar(value, i);
+            if (Character.isHighSurrogate(c)) {
+                i++;
+            }
+        }
+        putByte('"');
+    }
+
+    private void putJsonString(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                putByte('\\');
+                putByte(c);
+            } else if (c < 0x20) {
+                putText("\\u00");
+                putByte(Character.forDigit(c >> 4, 16));
+                putByte(Character.forDigit(c & 15, 16));
+            } else {
+                putChar(value, i);
+                if (Character.isHighSurrogate(c)) {
+                    i++;
+                }
+            }
+        }
+    }
+
+    private void putText(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            putChar(value, i);
+            if (Character.isHighSurrogate(value.charAt(i))) {
+                i++;
+            }
+        }
+    }
+
+    /** Кодирует символ в UTF-8; суррогатная пара занимает две позиции строки. */
+    private void putChar(String value, int index) {
+        char c = value.charAt(index);
+        if (c < 0x80) {
+            putByte(c);
+            return;
+        }
+        ensure(4);
+        if (c < 0x800) {
+            buffer.put((byte) (0xC0 | (c >> 6)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isHighSurrogate(c) && index + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(index + 1))) {
+            int codePoint = Character.toCodePoint(c, value.charAt(index + 1));
+            buffer.put((byte) (0xF0 | (codePoint >> 18)));
+            buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+            buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+        } else if (Character.isSurrogate(c)) {
+            buffer.put((byte) '?');
+        } else {
+            buffer.put((byte) (0xE0 | (c >> 12)));
+            buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        }
+    }
+
+    private void putLong(long value) {
+        if (value < 0) {
+            putByte('-');
+            value = -value;
+        }
+        int length = 0;
+        do {
+            digits[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        ensure(length);
+        while (length > 0) {
+            buffer.put(digits[--length]);
+        }
+    }
+
+    private void putByte(int value) {
+        ensure(1);
+        buffer.put((byte) value);
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
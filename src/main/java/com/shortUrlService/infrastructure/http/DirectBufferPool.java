@@ -0,0 +1,57 @@
+package com.shortUrlService.infrastructure.http;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Пул прямых буферов одного размера без блокировок: буфер лежит в ячейке массива,
+ * взятие и возврат - CAS по ячейке. Поиск начинается с ячейки потока, чтобы потоки
+ * не сталкивались на одних и тех же ячейках. Пустой пул выдает новый буфер, а
+ * лишний возвращенный буфер просто остается сборщику мусора.
+ */
+final class DirectBufferPool {
+    private final AtomicReferenceArray<ByteBuffer> slots;
+    private final int mask;
+    private final int bufferBytes;
+
+    DirectBufferPool(int capacity, int bufferBytes) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.bufferBytes = bufferBytes;
+    }
+
+    ByteBuffer acquire() {
+        int start = probe();
+        for (int i = 0; i <= mask; i++) {
+            int index = (start + i) & mask;
+            ByteBuffer buffer = slots.getPlain(index);
+            if (buffer != null && slots.compareAndSet(index, buffer, null)) {
+                return buffer.clear();
+            }
+        }
+        return ByteBuffer.allocateDirect(bufferBytes);
+    }
+
+    void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect() || buffer.capacity() != bufferBytes) {
+            return;
+        }
+        int start = probe();
+        for (int i = 0; i <= mask; i++) {
+            int index = (start + i) & mask;
+            if (slots.getPlain(index) == null && slots.compareAndSet(index, null, buffer)) {
+                return;
+            }
+        }
+    }
+
+    int getBufferBytes() {
+        return bufferBytes;
+    }
+
+    private static int probe() {
+        long id = Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L;
+        return (int) (id >>> 32);
+    }
+}
@@ -0,0 +1,242 @@
+package com.shortUrlService.infrastructure.http;
+
+import com.shortUrlService.application.LinkNode;
+import com.shortUrlService.domain.model.LinkClicks;
+import com.shortUrlService.domain.model.ResolveResult;
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.domain.model.UserStats;
+import com.shortUrlService.infrastructure.persistence.LinkCodec;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Узел кластера за HTTP: пересылает операцию по коду узлу-владельцу один раз. Запрос
+ * несет общий ключ кластера в {@link UrlShrinkHttpServer#CLUSTER_SECRET_HEADER}, и
+ * принимающий узел выполняет его у себя, не пересылая дальше. Запросы по пользователю
+ * и топ ссылок возвращают только то, что хранит этот узел.
+ */
+public class HttpLinkNode implements LinkNode {
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final URI baseUri;
+    private final String selfId;
+    private final String clusterSecret;
+    private final HttpClient client;
+
+    public HttpLinkNode(URI baseUri, String selfId, String clusterSecret) {
+        this.baseUri = baseUri;
+        this.selfId = selfId;
+        this.clusterSecret = clusterSecret;
+        this.client = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(TIMEOUT)
+                .build();
+    }
+
+    @Override
+    public ResolveResult resolve(String shortCode) {
+        return redirectOutcome(send(request("/" + shortCode).GET()));
+    }
+
+    /** HEAD владельцу: он отвечает как на переход, но клик не засчитывает. */
+    @Override
+    public ResolveResult peek(String shortCode) {
+        return redirectOutcome(send(request("/" + shortCode).HEAD()));
+    }
+
+    @Override
+    public boolean updateMaxClicks(UUID userId, String shortCode, int maxClicks) {
+        return modified(send(userRequest(userId, "/api/links/" + shortCode + "?maxClicks=" + maxClicks)
+                .method("PATCH", HttpRequest.BodyPublishers.noBody())));
+    }
+
+    @Override
+    public boolean extendLifetime(UUID userId, String shortCode, int additionalDays) {
+        return modified(send(userRequest(userId, "/api/links/" + shortCode + "?extendDays=" + additionalDays)
+                .method("PATCH", HttpRequest.BodyPublishers.noBody())));
+    }
+
+    @Override
+    public boolean delete(UUID userId, String shortCode) {
+        return modified(send(userRequest(userId, "/api/links/" + shortCode).DELETE()));
+    }
+
+    /**
+     * Ссылки уходят одним телом: длина записи и запись {@link LinkCodec} для каждой. Узел
+     * отвечает отклоненными кодами по одному в строке.
+     */
+    @Override
+    public List<String> importLinks(Collection<ShortUrl> links) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (ShortUrl link : links) {
+            ByteBuffer record = LinkCodec.encode(link);
+            body.writeBytes(ByteBuffer.allocate(4).putInt(record.remaining()).array());
+            body.write(record.array(), record.arrayOffset() + record.position(), record.remaining());
+        }
+        HttpResponse<String> response = send(request(UrlShrinkHttpServer.INTERNAL_LINKS_PATH)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray())),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        if (response.statusCode() != 200) {
+            throw unexpected(response);
+        }
+        return response.body().lines().toList();
+    }
+
+    @Override
+    public void acceptPartitions(int[] partitions) {
+        String body = Arrays.stream(partitions).mapToObj(Integer::toString).collect(Collectors.joining(","));
+        HttpResponse<Void> response = send(request(UrlShrinkHttpServer.INTERNAL_PARTITIONS_PATH)
+                .POST(HttpRequest.BodyPublishers.ofString(body)));
+        if (response.statusCode() != 204) {
+            throw unexpected(response);
+        }
+    }
+
+    @Override
+    public Optional<long[]> getClicksPerHour(UUID userId, String shortCode, int hours) {
+        HttpResponse<String> response = send(userRequest(userId,
+                UrlShrinkHttpServer.INTERNAL_CLICKS_PATH + shortCode + "?hours=" + hours).GET(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        return switch (response.statusCode()) {
+            case 200 -> Optional.of(response.body().isEmpty()
+                    ? new long[0]
+                    : Arrays.stream(response.body().split(" ")).mapToLong(Long::parseLong).toArray());
+            case 404 -> Optional.empty();
+            case 400 -> throw new IllegalArgumentException(response.body());
+            default -> throw unexpected(response);
+        };
+    }
+
+    /** Записи {@link LinkCodec} читаются по мере прихода, без буферизации всего ответа. */
+    @Override
+    public void forEachUserLink(UUID userId, Consumer<ShortUrl> action) {
+        HttpResponse<InputStream> response = send(request(
+                UrlShrinkHttpServer.INTERNAL_USERS_PATH + userId + "/links").GET(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(response.body()))) {
+            if (response.statusCode() != 200) {
+                throw unexpected(response);
+            }
+            int length;
+            while ((length = readLength(in)) >= 0) {
+                byte[] record = new byte[length];
+                in.readFully(record);
+                action.accept(LinkCodec.decode(ByteBuffer.wrap(record)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Узел " + baseUri + " оборвал ответ", e);
+        }
+    }
+
+    @Override
+    public UserStats getUserStats(UUID userId) {
+        HttpResponse<String> response = send(request(
+                UrlShrinkHttpServer.INTERNAL_USERS_PATH + userId + "/stats").GET(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        if (response.statusCode() != 200) {
+            throw unexpected(response);
+        }
+        String[] fields = response.body().split(" ");
+        return new UserStats(Long.parseLong(fields[0]), Long.parseLong(fields[1]),
+                Long.parseLong(fields[2]), Long.parseLong(fields[3]));
+    }
+
+    @Override
+    public List<LinkClicks> getTopLinks(int hours, int limit) {
+        HttpResponse<String> response = send(request(
+                UrlShrinkHttpServer.INTERNAL_TOP_PATH + "?hours=" + hours + "&limit=" + limit).GET(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        if (response.statusCode() != 200) {
+            throw unexpected(response);
+        }
+        return response.body().lines()
+                .map(line -> line.split(" "))
+                .map(fields -> new LinkClicks(fields[0], Long.parseLong(fields[1])))
+                .toList();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(TIMEOUT)
+                .header(UrlShrinkHttpServer.FORWARDED_HEADER, selfId)
+                .header(UrlShrinkHttpServer.CLUSTER_SECRET_HEADER, clusterSecret);
+    }
+
+    private HttpRequest.Builder userRequest(UUID userId, String path) {
+        return request(path).header(UrlShrinkHttpServer.USER_HEADER, userId.toString());
+    }
+
+    private HttpResponse<Void> send(HttpRequest.Builder request) {
+        return send(request, HttpResponse.BodyHandlers.discarding());
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest.Builder request, HttpResponse.BodyHandler<T> body) {
+        try {
+            return client.send(request.build(), body);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Узел " + baseUri + " недоступен", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Пересылка на " + baseUri + " прервана", e);
+        }
+    }
+
+    private static int readLength(DataInputStream in) throws IOException {
+        try {
+            return in.readInt();
+        } catch (EOFException e) {
+            return -1;
+        }
+    }
+
+    private static ResolveResult redirectOutcome(HttpResponse<Void> response) {
+        return switch (response.statusCode()) {
+            case 302 -> ResolveResult.remote(ResolveResult.Status.REDIRECT,
+                    response.headers().firstValue("Location").orElseThrow());
+            case 404 -> ResolveResult.NOT_FOUND;
+            case 410 -> ResolveResult.remote(ResolveResult.Status.EXPIRED, null);
+            case 429 -> throw throttled();
+            default -> throw unexpected(response);
+        };
+    }
+
+    private static boolean modified(HttpResponse<Void> response) {
+        return switch (response.statusCode()) {
+            case 204 -> true;
+            case 404 -> false;
+            case 400 -> throw new IllegalArgumentException("Узел-владелец отклонил запрос");
+            case 429 -> throw throttled();
+            default -> throw unexpected(response);
+        };
+    }
+
+    /** Узел-владелец ограничил запросы: для клиента это временная недоступность, а не ошибка. */
+    private static IllegalStateException throttled() {
+        return new IllegalStateException("Узел-владелец ограничил запросы, повторите позже");
+    }
+
+    private static IllegalStateException unexpected(HttpResponse<?> response) {
+        return new IllegalStateException("Неожиданный ответ узла: " + response.statusCode()
+                + " на " + response.request().uri());
+    }
+}
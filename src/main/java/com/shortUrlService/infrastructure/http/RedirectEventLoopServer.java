@@ -0,0 +1,317 @@
+package com.shortUrlService.infrastructure.http;
+
+import com.shortUrlService.application.UrlShrinkApplicationService;
+import com.shortUrlService.infrastructure.persistence.MappedRedirectIndex;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Фронт переходов на циклах событий: по циклу на ядро, у каждого свой {@link Selector}.
+ * Где доступен SO_REUSEPORT, каждый цикл слушает свой сокет на общем адресе и ядро
+ * само распределяет соединения; иначе соединения принимает первый цикл и раздает
+ * остальным по кругу.
+ * <p>
+ * Соединения постоянные. Запросы, пришедшие конвейером, разбираются из буфера пачкой
+ * до {@value #PIPELINE_DEPTH} штук, и ответы на всю пачку уходят одной сборной записью.
+ * Пока ответ не записан целиком, соединение не читается - клиент, не забирающий ответы,
+ * не заставит сервер копить их в памяти.
+ * <p>
+ * Переход выполняется в потоке цикла. На узле кластера переход по чужому коду
+ * пересылается по сети и держит цикл на время пересылки, поэтому там лучше режим
+ * {@link RedirectHttpServer}.
+ */
+public class RedirectEventLoopServer implements AutoCloseable {
+    private static final int PIPELINE_DEPTH = 16;
+    private static final int POOLED_BUFFERS = 4096;
+
+    private final RedirectResponder responder;
+    private final DirectBufferPool pool = new DirectBufferPool(POOLED_BUFFERS, RedirectRequestParser.MAX_HEAD_BYTES);
+    private final Loop[] loops;
+    private final boolean reusePort;
+    private final InetSocketAddress address;
+    private volatile boolean running = true;
+
+    /**
+     * @param index индекс переходов или null
+     * @param loops число циклов; 0 - по числу ядер
+     */
+    public RedirectEventLoopServer(UrlShrinkApplicationService appService, MappedRedirectIndex index,
+                                   InetSocketAddress address, int loops) throws IOException {
+        this.responder = new RedirectResponder(appService, index, pool);
+        int count = loops > 0 ? loops : Runtime.getRuntime().availableProcessors();
+        this.loops = new Loop[count];
+
+        ServerSocketChannel first = ServerSocketChannel.open();
+        this.reusePort = first.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        if (reusePort) {
+            first.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+        }
+        first.bind(address, 1024);
+        this.address = (InetSocketAddress) first.getLocalAddress();
+        for (int i = 0; i < count; i++) {
+            ServerSocketChannel listener = i == 0 ? first : reusePort ? listen(this.address) : null;
+            this.loops[i] = new Loop(i, listener);
+        }
+    }
+
+    public RedirectEventLoopServer start() {
+        for (Loop loop : loops) {
+            loop.thread.start();
+        }
+        return this;
+    }
+
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    /** @return true, если соединения распределяет ядро через SO_REUSEPORT */
+    public boolean isReusePort() {
+        return reusePort;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        for (Loop loop : loops) {
+            loop.selector.wakeup();
+        }
+        for (Loop loop : loops) {
+            try {
+                loop.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static ServerSocketChannel listen(InetSocketAddress address) throws IOException {
+        ServerSocketChannel listener = ServerSocketChannel.open();
+        listener.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+        listener.bind(address, 1024);
+        return listener;
+    }
+
+    /** Состояние соединения: буфер запроса, разбор и ответы текущей пачки. */
+    private final class Connection {
+        final SocketChannel channel;
+        final ByteBuffer in = pool.acquire();
+        final RedirectRequestParser parser = new RedirectRequestParser();
+        final RedirectResponder.Response[] responses = new RedirectResponder.Response[PIPELINE_DEPTH];
+        final ByteBuffer[] gathered = new ByteBuffer[PIPELINE_DEPTH * 4];
+        SelectionKey key;
+        int pending;
+        int parts;
+        boolean closeAfterFlush;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        RedirectResponder.Response next() {
+            RedirectResponder.Response response = responses[pending];
+            if (response == null) {
+                response = responses[pending] = responder.newResponse();
+            }
+            pending++;
+            return response;
+        }
+
+        void close() {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Соединение уже закрыто
+            }
+            for (RedirectResponder.Response response : responses) {
+                if (response != null) {
+                    response.release();
+                }
+            }
+            pool.release(in);
+        }
+    }
+
+    private final class Loop implements Runnable {
+        final Selector selector;
+        final ServerSocketChannel listener;
+        final Queue<SocketChannel> handoff = new ConcurrentLinkedQueue<>();
+        final Thread thread;
+        int nextLoop;
+
+        Loop(int id, ServerSocketChannel listener) throws IOException {
+            this.selector = Selector.open();
+            this.listener = listener;
+            if (listener != null) {
+                listener.configureBlocking(false);
+                listener.register(selector, SelectionKey.OP_ACCEPT);
+            }
+            this.thread = new Thread(this, "redirect-loop-" + id);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    registerHandedOff();
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else if (key.isWritable()) {
+                            onWritable((Connection) key.attachment());
+                        } else if (key.isReadable()) {
+                            onReadable((Connection) key.attachment());
+                        }
+                    }
+                    selector.selectedKeys().clear();
+                }
+            } catch (IOException e) {
+                System.err.println("Цикл переходов остановлен: " + e.getMessage());
+            } finally {
+                shutdown();
+            }
+        }
+
+        private void accept() throws IOException {
+            SocketChannel channel;
+            while ((channel = listener.accept()) != null) {
+                if (reusePort || loops.length == 1) {
+                    register(channel);
+                } else {
+                    Loop target = loops[nextLoop++ % loops.length];
+                    if (target == this) {
+                        register(channel);
+                    } else {
+                        target.handoff.add(channel);
+                        target.selector.wakeup();
+                    }
+                }
+            }
+        }
+
+        private void registerHandedOff() throws IOException {
+            SocketChannel channel;
+            while ((channel = handoff.poll()) != null) {
+                register(channel);
+            }
+        }
+
+        private void register(SocketChannel channel) throws IOException {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        }
+
+        private void onReadable(Connection connection) {
+            try {
+                if (connection.channel.read(connection.in) < 0) {
+                    connection.close();
+                    return;
+                }
+                serveBuffered(connection);
+            } catch (IOException e) {
+                connection.close();
+            }
+        }
+
+        private void onWritable(Connection connection) {
+            try {
+                if (flush(connection)) {
+                    serveBuffered(connection);
+                }
+            } catch (IOException e) {
+                connection.close();
+            }
+        }
+
+        /** Отвечает на все полные запросы в буфере; буфер остается в режиме записи. */
+        private void serveBuffered(Connection connection) throws IOException {
+            ByteBuffer in = connection.in;
+            while (!connection.closeAfterFlush) {
+                in.flip();
+                while (connection.pending < PIPELINE_DEPTH && !connection.closeAfterFlush) {
+                    RedirectRequestParser.Result result = connection.parser.parse(in);
+                    if (result == RedirectRequestParser.Result.INCOMPLETE) {
+                        break;
+                    }
+                    RedirectResponder.Response response = connection.next();
+                    if (result == RedirectRequestParser.Result.BAD_REQUEST) {
+                        responder.badRequest(response);
+                    } else {
+                        responder.respond(connection.parser, response);
+                    }
+                    connection.closeAfterFlush = response.isClose();
+                }
+                boolean full = connection.pending == PIPELINE_DEPTH;
+                in.compact();
+                if (connection.pending == 0 || !flush(connection) || !full) {
+                    return;
+                }
+                // Пачка записана, а в буфере еще могут быть запросы
+            }
+        }
+
+        /** @return true, если все ответы пачки записаны и соединение открыто */
+        private boolean flush(Connection connection) throws IOException {
+            if (connection.parts == 0) {
+                for (int i = 0; i < connection.pending; i++) {
+                    connection.parts = connection.responses[i].gather(connection.gathered, connection.parts);
+                }
+            }
+            connection.channel.write(connection.gathered, 0, connection.parts);
+            if (connection.gathered[connection.parts - 1].hasRemaining()) {
+                connection.key.interestOps(SelectionKey.OP_WRITE);
+                return false;
+            }
+            connection.pending = 0;
+            connection.parts = 0;
+            if (connection.closeAfterFlush) {
+                connection.close();
+                return false;
+            }
+            connection.key.interestOps(SelectionKey.OP_READ);
+            return true;
+        }
+
+        private void shutdown() {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection connection) {
+                    connection.close();
+                }
+            }
+            SocketChannel channel;
+            while ((channel = handoff.poll()) != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Соединение уже закрыто
+                }
+            }
+            try {
+                if (listener != null) {
+                    listener.close();
+                }
+                selector.close();
+            } catch (IOException ignored) {
+                // Останавливаемся в любом случае
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.shortUrlService.infrastructure.http;
+
+import com.shortUrlService.application.UrlShrinkApplicationService;
+import com.shortUrlService.infrastructure.persistence.MappedRedirectIndex;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Отдельный HTTP/1.1-фронт только для переходов {@code GET|HEAD /{code}} с постоянными
+ * соединениями: каждое соединение - виртуальный поток с буфером запроса из пула,
+ * запросы разбираются прямо в буфере, ответ собирается {@link RedirectResponder}
+ * и пишется сборной записью. Запросы, пришедшие конвейером, обрабатываются по порядку.
+ * API управления ссылками остается на {@link UrlShrinkHttpServer}.
+ */
+public class RedirectHttpServer implements AutoCloseable {
+    private static final int POOLED_BUFFERS = 1024;
+
+    private final ServerSocketChannel serverChannel;
+    private final RedirectResponder responder;
+    private final DirectBufferPool pool = new DirectBufferPool(POOLED_BUFFERS, RedirectRequestParser.MAX_HEAD_BYTES);
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+
+    /** @param index индекс переходов или null */
+    public RedirectHttpServer(UrlShrinkApplicationService appService, MappedRedirectIndex index,
+                              InetSocketAddress address) throws IOException {
+        this.responder = new RedirectResponder(appService, index, pool);
+        this.serverChannel = ServerSocketChannel.open().bind(address, 1024);
+        this.acceptor = new Thread(this::acceptLoop, "redirect-acceptor");
+        acceptor.setDaemon(true);
+    }
+
+    public RedirectHttpServer start() {
+        acceptor.start();
+        return this;
+    }
+
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) serverChannel.getLocalAddress();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            serverChannel.close();
+        } catch (IOException ignored) {
+            // Закрываем в любом случае
+        }
+        for (SocketChannel connection : connections) {
+            closeQuietly(connection);
+        }
+    }
+
+    private void acceptLoop() {
+        while (serverChannel.isOpen()) {
+            try {
+                SocketChannel connection = serverChannel.accept();
+                connections.add(connection);
+                Thread.ofVirtual().name("redirect-connection").start(() -> serve(connection));
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                System.err.println("Ошибка приема соединения: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(SocketChannel connection) {
+        ByteBuffer in = pool.acquire();
+        RedirectRequestParser parser = new RedirectRequestParser();
+        RedirectResponder.Response response = responder.newResponse();
+        try {
+            connection.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            while (connection.read(in) >= 0) {
+                in.flip();
+                if (!serveBuffered(connection, in, parser, response)) {
+                    return;
+                }
+                in.compact();
+            }
+        } catch (IOException e) {
+            // Клиент оборвал соединение
+        } finally {
+            response.release();
+            pool.release(in);
+            connections.remove(connection);
+            closeQuietly(connection);
+        }
+    }
+
+    /** @return false, если соединение нужно закрыть */
+    private boolean serveBuffered(SocketChannel connection, ByteBuffer in, RedirectRequestParser parser,
+                                  RedirectResponder.Response response) throws IOException {
+        while (true) {
+            switch (parser.parse(in)) {
+                case INCOMPLETE -> {
+                    return true;
+                }
+                case BAD_REQUEST -> responder.badRequest(response);
+                case REQUEST -> responder.respond(parser, response);
+            }
+            while (response.hasRemaining()) {
+                response.writeTo(connection);
+            }
+            if (response.isClose()) {
+                return false;
+            }
+        }
+    }
+
+    private static void closeQuietly(SocketChannel connection) {
+        try {
+            connection.close();
+        } catch (IOException ignored) {
+            // Соединение уже закрыто
+        }
+    }
+}
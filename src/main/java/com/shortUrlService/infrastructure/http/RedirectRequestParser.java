@@ -0,0 +1,186 @@
+package com.shortUrlService.infrastructure.http;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Разбор запросов на переход прямо в буфере соединения. Разбор инкрементальный:
+ * уже просмотренные в поисках конца заголовков байты повторно не читаются, а запросы,
+ * пришедшие подряд в одном буфере (конвейер), разбираются по одному за вызов.
+ * Заголовки не превращаются в строки и не копируются; единственный объект на
+ * запрос - строка кода.
+ * <p>
+ * Тело запроса не поддерживается: запрос с Content-Length больше нуля или
+ * Transfer-Encoding считается ошибочным.
+ */
+final class RedirectRequestParser {
+    enum Result {
+        INCOMPLETE,
+        REQUEST,
+        BAD_REQUEST
+    }
+
+    static final int MAX_HEAD_BYTES = 8 * 1024;
+    private static final int MAX_CODE_BYTES = 64;
+
+    private static final byte[] GET = ascii("GET");
+    private static final byte[] HEAD = ascii("HEAD");
+    private static final byte[] HTTP_1_0 = ascii("HTTP/1.0");
+    private static final byte[] HTTP_1_1 = ascii("HTTP/1.1");
+    private static final byte[] CONNECTION = ascii("connection:");
+    private static final byte[] CONTENT_LENGTH = ascii("content-length:");
+    private static final byte[] TRANSFER_ENCODING = ascii("transfer-encoding:");
+    private static final byte[] CLOSE = ascii("close");
+    private static final byte[] KEEP_ALIVE = ascii("keep-alive");
+
+    private final byte[] codeBytes = new byte[MAX_CODE_BYTES];
+    private int scanned;
+    private boolean readMethod;
+    private boolean head;
+    private boolean keepAlive;
+    private String shortCode;
+
+    /**
+     * Разбирает очередной запрос, начиная с позиции буфера. При {@link Result#REQUEST}
+     * позиция переходит на начало следующего запроса.
+     */
+    Result parse(ByteBuffer in) {
+        int start = in.position();
+        int limit = in.limit();
+        int end = -1;
+        for (int i = Math.max(start + 3, start + scanned); i < limit; i++) {
+            if (in.get(i) == '\n' && in.get(i - 1) == '\r' && in.get(i - 2) == '\n' && in.get(i - 3) == '\r') {
+                end = i + 1;
+                break;
+            }
+        }
+        if (end < 0) {
+            scanned = limit - start;
+            return scanned >= MAX_HEAD_BYTES ? Result.BAD_REQUEST : Result.INCOMPLETE;
+        }
+        scanned = 0;
+        if (end - start > MAX_HEAD_BYTES) {
+            return Result.BAD_REQUEST;
+        }
+
+        // Строка запроса: МЕТОД SP ЦЕЛЬ SP ВЕРСИЯ CRLF
+        int lineEnd = indexOf(in, start, end, '\r');
+        int methodEnd = indexOf(in, start, lineEnd, ' ');
+        int targetEnd = methodEnd < 0 ? -1 : indexOf(in, methodEnd + 1, lineEnd, ' ');
+        if (targetEnd < 0) {
+            return Result.BAD_REQUEST;
+        }
+        head = matches(in, start, methodEnd, HEAD);
+        readMethod = head || matches(in, start, methodEnd, GET);
+        if (matches(in, targetEnd + 1, lineEnd, HTTP_1_1)) {
+            keepAlive = true;
+        } else if (matches(in, targetEnd + 1, lineEnd, HTTP_1_0)) {
+            keepAlive = false;
+        } else {
+            return Result.BAD_REQUEST;
+        }
+        shortCode = code(in, methodEnd + 1, targetEnd);
+
+        int line = lineEnd + 2;
+        while (line < end - 2) {
+            int next = indexOf(in, line, end, '\r');
+            if (startsWithIgnoreCase(in, line, next, CONNECTION)) {
+                if (containsIgnoreCase(in, line + CONNECTION.length, next, CLOSE)) {
+                    keepAlive = false;
+                } else if (containsIgnoreCase(in, line + CONNECTION.length, next, KEEP_ALIVE)) {
+                    keepAlive = true;
+                }
+            } else if (startsWithIgnoreCase(in, line, next, TRANSFER_ENCODING)
+                    || startsWithIgnoreCase(in, line, next, CONTENT_LENGTH)
+                    && hasNonZeroDigit(in, line + CONTENT_LENGTH.length, next)) {
+                return Result.BAD_REQUEST;
+            }
+            line = next + 2;
+        }
+        in.position(end);
+        return Result.REQUEST;
+    }
+
+    /** GET или HEAD; на остальные методы отвечают 405. */
+    boolean isReadMethod() {
+        return readMethod;
+    }
+
+    /** HEAD: ответ как на переход, но без засчитанного клика. */
+    boolean isHead() {
+        return head;
+    }
+
+    boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    /** @return код из пути без строки запроса или null, если путь не вида /{code} */
+    String getShortCode() {
+        return shortCode;
+    }
+
+    private String code(ByteBuffer in, int from, int to) {
+        int query = indexOf(in, from, to, '?');
+        int end = query < 0 ? to : query;
+        int length = end - from - 1;
+        if (in.get(from) != '/' || length <= 0 || length > MAX_CODE_BYTES || indexOf(in, from + 1, end, '/') >= 0) {
+            return null;
+        }
+        in.get(from + 1, codeBytes, 0, length);
+        return new String(codeBytes, 0, length, StandardCharsets.ISO_8859_1);
+    }
+
+    private static int indexOf(ByteBuffer in, int from, int to, char c) {
+        for (int i = from; i < to; i++) {
+            if (in.get(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matches(ByteBuffer in, int from, int to, byte[] expected) {
+        return to - from == expected.length && startsWithIgnoreCase(in, from, to, expected);
+    }
+
+    /** {@code expected} - в нижнем регистре; регистр букв входа не важен. */
+    private static boolean startsWithIgnoreCase(ByteBuffer in, int from, int to, byte[] expected) {
+        if (to - from < expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (lower(in.get(from + i)) != lower(expected[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsIgnoreCase(ByteBuffer in, int from, int to, byte[] expected) {
+        for (int i = from; i + expected.length <= to; i++) {
+            if (startsWithIgnoreCase(in, i, to, expected)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasNonZeroDigit(ByteBuffer in, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = in.get(i);
+            if (b > '0' && b <= '9') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int lower(byte b) {
+        return b >= 'A' && b <= 'Z' ? b | 0x20 : b;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,189 @@
+package com.shortUrlService.infrastructure.http;
+
+import com.shortUrlService.application.UrlShrinkApplicationService;
+import com.shortUrlService.domain.model.ResolveResult;
+import com.shortUrlService.infrastructure.persistence.MappedRedirectIndex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Собирает ответы на переходы из заранее закодированных кусков: строка статуса и
+ * заголовки лежат в прямых буферах только для чтения, адрес копируется байтами из
+ * {@link MappedRedirectIndex} (или кодируется посимвольно из адреса ссылки) в буфер
+ * из пула. Ответ уходит одной сборной записью {@link GatheringByteChannel#write(ByteBuffer[])}
+ * без промежуточных строк и StringBuilder.
+ * <p>
+ * С индексом код ищется один раз: истекшая или исчерпанная по индексу ссылка получает 410
+ * без обращения к хранилищу, а хранилище засчитывает клик и окончательно решает исход
+ * только для ссылок, которые по индексу еще перенаправляют. Промах индекса не означает
+ * 404: код может принадлежать другому узлу, поэтому переход идет через сервис.
+ */
+final class RedirectResponder {
+    private static final ByteBuffer FOUND = slice("HTTP/1.1 302 Found\r\nLocation: ");
+    private static final ByteBuffer FOUND_HEADERS = slice("\r\nContent-Length: 0\r\n");
+    private static final ByteBuffer NOT_FOUND = slice("HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\n");
+    private static final ByteBuffer GONE = slice("HTTP/1.1 410 Gone\r\nContent-Length: 0\r\n");
+    private static final ByteBuffer METHOD_NOT_ALLOWED =
+            slice("HTTP/1.1 405 Method Not Allowed\r\nAllow: GET, HEAD\r\nContent-Length: 0\r\n");
+    private static final ByteBuffer BAD_REQUEST = slice("HTTP/1.1 400 Bad Request\r\nContent-Length: 0\r\n");
+    private static final ByteBuffer UNAVAILABLE =
+            slice("HTTP/1.1 503 Service Unavailable\r\nRetry-After: 1\r\nContent-Length: 0\r\n");
+    private static final ByteBuffer END = slice("\r\n");
+    private static final ByteBuffer END_CLOSE = slice("Connection: close\r\n\r\n");
+
+    private final UrlShrinkApplicationService appService;
+    private final MappedRedirectIndex index;
+    private final DirectBufferPool pool;
+
+    /** @param index индекс переходов или null - тогда адрес берется из результата перехода */
+    RedirectResponder(UrlShrinkApplicationService appService, MappedRedirectIndex index, DirectBufferPool pool) {
+        this.appService = appService;
+        this.index = index;
+        this.pool = pool;
+    }
+
+    /**
+     * Ответ одного соединения: свои копии позиций общих кусков и буфер адреса из пула.
+     * Переиспользуется для всех запросов соединения.
+     */
+    final class Response {
+        private final ByteBuffer found = FOUND.duplicate();
+        private final ByteBuffer foundHeaders = FOUND_HEADERS.duplicate();
+        private final ByteBuffer notFound = NOT_FOUND.duplicate();
+        private final ByteBuffer gone = GONE.duplicate();
+        private final ByteBuffer methodNotAllowed = METHOD_NOT_ALLOWED.duplicate();
+        private final ByteBuffer badRequest = BAD_REQUEST.duplicate();
+        private final ByteBuffer unavailable = UNAVAILABLE.duplicate();
+        private final ByteBuffer end = END.duplicate();
+        private final ByteBuffer endClose = END_CLOSE.duplicate();
+        private final ByteBuffer[] parts = new ByteBuffer[4];
+        private final MappedRedirectIndex.Entry entry = new MappedRedirectIndex.Entry();
+        private ByteBuffer location;
+        private int count;
+        private boolean close;
+
+        /** Закрыть соединение после этого ответа. */
+        boolean isClose() {
+            return close;
+        }
+
+        boolean hasRemaining() {
+            return parts[count - 1].hasRemaining();
+        }
+
+        /** Дописывает части ответа в {@code dst} для общей записи нескольких ответов. */
+        int gather(ByteBuffer[] dst, int offset) {
+            System.arraycopy(parts, 0, dst, offset, count);
+            return offset + count;
+        }
+
+        /** Пишет, сколько примет канал; у неблокирующего канала может остаться хвост. */
+        long writeTo(GatheringByteChannel channel) throws IOException {
+            return channel.write(parts, 0, count);
+        }
+
+        /** Возвращает буфер адреса в пул; вызывается при закрытии соединения. */
+        void release() {
+            pool.release(location);
+            location = null;
+        }
+
+        private ByteBuffer location(int bytes) {
+            if (bytes > pool.getBufferBytes()) {
+                // Очень длинный адрес: разовый буфер вместо буфера из пула
+                return ByteBuffer.allocate(bytes);
+            }
+            if (location == null) {
+                location = pool.acquire();
+            }
+            return location.clear();
+        }
+
+        private void set(ByteBuffer status, boolean closeAfter) {
+            count = 0;
+            parts[count++] = status.clear();
+            finish(closeAfter);
+        }
+
+        private void setFound(ByteBuffer target, boolean closeAfter) {
+            count = 0;
+            parts[count++] = found.clear();
+            parts[count++] = target;
+            parts[count++] = foundHeaders.clear();
+            finish(closeAfter);
+        }
+
+        private void finish(boolean closeAfter) {
+            close = closeAfter;
+            parts[count++] = closeAfter ? endClose.clear() : end.clear();
+        }
+    }
+
+    Response newResponse() {
+        return new Response();
+    }
+
+    /** Выполняет переход по разобранному запросу и готовит ответ в {@code out}. */
+    void respond(RedirectRequestParser request, Response out) {
+        boolean close = !request.isKeepAlive();
+        if (!request.isReadMethod()) {
+            out.set(out.methodNotAllowed, close);
+            return;
+        }
+        String shortCode = request.getShortCode();
+        if (shortCode == null) {
+            out.set(out.notFound, close);
+            return;
+        }
+
+        boolean indexed = index != null && index.find(shortCode, out.entry);
+        if (indexed && index.statusOf(out.entry) != ResolveResult.Status.REDIRECT) {
+            out.set(out.gone, close);
+            return;
+        }
+        ResolveResult result;
+        try {
+            result = request.isHead()
+                    ? appService.peekShortUrl(shortCode)
+                    : appService.resolveShortUrl(shortCode);
+        } catch (IllegalStateException | UncheckedIOException e) {
+            // Раздел передается другому узлу или узел-владелец недоступен
+            out.set(out.unavailable, close);
+            return;
+        }
+        switch (result.status()) {
+            case REDIRECT -> out.setFound(target(indexed, result, out), close);
+            case NOT_FOUND -> out.set(out.notFound, close);
+            case EXPIRED, LIMIT_REACHED -> out.set(out.gone, close);
+        }
+    }
+
+    void badRequest(Response out) {
+        out.set(out.badRequest, true);
+    }
+
+    private ByteBuffer target(boolean indexed, ResolveResult result, Response out) {
+        // Ссылка этого узла: байты адреса уже найдены в индексе
+        if (indexed && result.url() != null) {
+            ByteBuffer target = out.location(out.entry.targetLength());
+            out.entry.copyTarget(target);
+            return target.flip();
+        }
+        String url = result.targetUrl();
+        ByteBuffer target = out.location(0);
+        if (!MappedRedirectIndex.encodeTarget(url, target)) {
+            target = out.location(url.length() * 9 + 12);
+            MappedRedirectIndex.encodeTarget(url, target);
+        }
+        return target.flip();
+    }
+
+    private static ByteBuffer slice(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        return ByteBuffer.allocateDirect(bytes.length).put(bytes).flip().asReadOnlyBuffer();
+    }
+}
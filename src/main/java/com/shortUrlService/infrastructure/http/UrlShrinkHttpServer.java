@@ -0,0 +1,675 @@
+package com.shortUrlService.infrastructure.http;
+
+import com.shortUrlService.application.UrlShrinkApplicationService;
+import com.shortUrlService.domain.model.LinkClicks;
+import com.shortUrlService.domain.model.ResolveResult;
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.domain.model.UserStats;
+import com.shortUrlService.infrastructure.cluster.ClusterMember;
+import com.shortUrlService.infrastructure.cluster.ClusterNode;
+import com.shortUrlService.infrastructure.cluster.HashRing;
+import com.shortUrlService.infrastructure.export.LinkExporter;
+import com.shortUrlService.infrastructure.metrics.MetricsRegistry;
+import com.shortUrlService.infrastructure.persistence.LinkCodec;
+import com.shortUrlService.infrastructure.ratelimit.RateLimiter;
+import com.shortUrlService.infrastructure.shortening.CodePartitions;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+
+/**
+ * HTTP-фронт сервиса на com.sun.net.httpserver, каждый запрос - в своем виртуальном потоке.
+ * <pre>
+ * GET    /{code}                          302 на исходный URL, 404 или 410
+ * POST   /api/users                       новый идентификатор пользователя
+ * POST   /api/links?maxClicks=N           тело - URL, заголовок X-User-Id; 201 и короткая ссылка
+ * GET    /api/links?format=csv|jsonl      выгрузка ссылок пользователя потоком
+ * POST   /api/links/batch?maxClicks=N     тело - URL по одному в строке; в ответе по строке
+ *                                         на каждый URL: короткая ссылка или "ERROR причина"
+ * PATCH  /api/links/{code}?maxClicks=N    изменить лимит кликов
+ * PATCH  /api/links/{code}?extendDays=N   продлить срок жизни
+ * DELETE /api/links/{code}                удалить ссылку
+ * POST   /internal/links                  прием ссылок разделов от другого узла кластера; в ответе
+ *                                         коды, уже занятые другими ссылками, по одному в строке
+ * PUT    /internal/ring                   новый состав кластера (id=http://host:port по строке);
+ *                                         узел передает уходящие разделы, в ответе - число
+ *                                         переданных ссылок и "CONFLICT код" на каждую оставленную
+ * POST   /internal/partitions             разделы через запятую, ссылки которых прежний владелец
+ *                                         уже передал: узел начинает обслуживать их сам
+ * GET    /internal/users/{id}/links       ссылки пользователя на этом узле, записи {@link LinkCodec}
+ * GET    /internal/users/{id}/stats       сводка по ним: "ссылки активные неактивные клики"
+ * GET    /internal/clicks/{code}?hours=N  клики по часам через пробел, заголовок X-User-Id
+ * GET    /internal/top?hours=N&amp;limit=M    популярные ссылки узла: "код клики" по строке
+ * GET    /metrics                         метрики в текстовом формате Prometheus
+ * </pre>
+ * Пути /internal есть только на узле кластера и отвечают только другим узлам: запрос
+ * узла несет общий ключ кластера в заголовке {@value #CLUSTER_SECRET_HEADER}. Запросы
+ * узлов уже пересланы и выполняются здесь без повторной пересылки; заголовок
+ * {@value #FORWARDED_HEADER} без верного ключа ничего не меняет.
+ * <p>
+ * С {@link RateLimiter} переходы и создание ссылок сверх лимита получают 429.
+ * Пакет ссылок расходует по токену на каждый URL: на исчерпанном лимите пакет
+ * останавливается строкой ошибки. Запросы других узлов кластера под лимиты клиентов
+ * не попадают - их лимитирует узел, к которому пришел клиент.
+ */
+public class UrlShrinkHttpServer implements AutoCloseable {
+    static final String USER_HEADER = "X-User-Id";
+    static final String FORWARDED_HEADER = "X-Forwarded-By-Node";
+    static final String CLUSTER_SECRET_HEADER = "X-Cluster-Secret";
+    static final String INTERNAL_PATH = "/internal";
+    static final String INTERNAL_LINKS_PATH = INTERNAL_PATH + "/links";
+    static final String INTERNAL_RING_PATH = INTERNAL_PATH + "/ring";
+    static final String INTERNAL_PARTITIONS_PATH = INTERNAL_PATH + "/partitions";
+    static final String INTERNAL_USERS_PATH = INTERNAL_PATH + "/users/";
+    static final String INTERNAL_CLICKS_PATH = INTERNAL_PATH + "/clicks/";
+    static final String INTERNAL_TOP_PATH = INTERNAL_PATH + "/top";
+    private static final String LINKS_PATH = "/api/links";
+    private static final String USERS_PATH = "/api/users";
+    private static final String BATCH_CODE = "batch";
+    private static final String METRICS_PATH = "/metrics";
+    private static final String METRICS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    /** Запись ссылки: URL не длиннее тела запроса и поля фиксированной длины. */
+    private static final int MAX_IMPORT_RECORD_BYTES = MAX_BODY_BYTES + 1024;
+    private static final int IMPORT_CHUNK_SIZE = 1024;
+
+    private final UrlShrinkApplicationService appService;
+    private final UrlShrinkApplicationService localService;
+    private final int defaultMaxClicks;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final MetricsRegistry metrics;
+    private final RateLimiter rateLimiter;
+    private final ClusterNode cluster;
+    private final byte[] clusterSecret;
+
+    public UrlShrinkHttpServer(UrlShrinkApplicationService appService, InetSocketAddress address,
+                               int defaultMaxClicks) throws IOException {
+        this(appService, address, defaultMaxClicks, null);
+    }
+
+    /** @param metrics реестр для GET /metrics; null - без этого пути */
+    public UrlShrinkHttpServer(UrlShrinkApplicationService appService, InetSocketAddress address,
+                               int defaultMaxClicks, MetricsRegistry metrics) throws IOException {
+        this(appService, address, defaultMaxClicks, metrics, null);
+    }
+
+    /** @param rateLimiter лимиты запросов; null - без лимитов */
+    public UrlShrinkHttpServer(UrlShrinkApplicationService appService, InetSocketAddress address,
+                               int defaultMaxClicks, MetricsRegistry metrics,
+                               RateLimiter rateLimiter) throws IOException {
+        this(appService, address, defaultMaxClicks, metrics, rateLimiter, null, null);
+    }
+
+    /**
+     * @param cluster       узел кластера, который обслуживает {@code appService}; null - не узел кластера
+     * @param clusterSecret общий ключ узлов кластера; null - без путей /internal
+     */
+    public UrlShrinkHttpServer(UrlShrinkApplicationService appService, InetSocketAddress address,
+                               int defaultMaxClicks, MetricsRegistry metrics, RateLimiter rateLimiter,
+                               ClusterNode cluster, String clusterSecret) throws IOException {
+        this.appService = appService;
+        this.metrics = metrics;
+        this.rateLimiter = rateLimiter;
+        this.cluster = cluster;
+        this.clusterSecret = clusterSecret == null ? null : clusterSecret.getBytes(StandardCharsets.UTF_8);
+        this.localService = appService.local();
+        this.defaultMaxClicks = defaultMaxClicks;
+        this.server = HttpServer.create(address, 1024);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::handleRedirect);
+        server.createContext(LINKS_PATH, this::handleLinks);
+        server.createContext(USERS_PATH, this::handleUsers);
+        if (clusterSecret != null) {
+            server.createContext(INTERNAL_PATH, this::handleInternal);
+        }
+        if (metrics != null) {
+            server.createContext(METRICS_PATH, this::handleMetrics);
+        }
+    }
+
+    public UrlShrinkHttpServer start() {
+        server.start();
+        return this;
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void handleRedirect(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            String shortCode = exchange.getRequestURI().getRawPath().substring(1);
+            if (shortCode.isEmpty() || shortCode.indexOf('/') >= 0) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            if (isLimited(exchange) && !rateLimiter.tryRedirect(clientOf(exchange))) {
+                sendTooManyRequests(exchange);
+                return;
+            }
+
+            ResolveResult result;
+            try {
+                // HEAD проверяет ссылку, не открывая ее: клик не засчитывается
+                UrlShrinkApplicationService service = serviceFor(exchange);
+                result = "HEAD".equals(exchange.getRequestMethod())
+                        ? service.peekShortUrl(shortCode)
+                        : service.resolveShortUrl(shortCode);
+            } catch (IllegalStateException | UncheckedIOException e) {
+                // Раздел передается другому узлу или узел-владелец недоступен
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            switch (result.status()) {
+                case REDIRECT -> {
+                    exchange.getResponseHeaders().set("Location", result.targetUrl());
+                    exchange.sendResponseHeaders(302, -1);
+                }
+                case NOT_FOUND -> exchange.sendResponseHeaders(404, -1);
+                case EXPIRED, LIMIT_REACHED -> exchange.sendResponseHeaders(410, -1);
+            }
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] bytes = metrics.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", METRICS_CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private void handleUsers(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            sendText(exchange, 201, appService.registerUser().toString());
+        }
+    }
+
+    private void handleLinks(HttpExchange exchange) throws IOException {
+        try {
+            routeLinks(exchange);
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException тоже сюда
+            abortIfStreaming(exchange, e);
+            sendText(exchange, 400, e.getMessage());
+        } catch (IllegalStateException | UncheckedIOException e) {
+            // Пространство кодов исчерпано, узел кластера недоступен или ответил неожиданно
+            abortIfStreaming(exchange, e);
+            sendText(exchange, 503, e.getMessage());
+        }
+        exchange.close();
+    }
+
+    /**
+     * Ответ уже идет потоком с кодом 200, и статус не поменять. Исключение из обработчика
+     * закрывает соединение без завершающего блока, так что клиент видит оборванный ответ,
+     * а не полный с недостающими ссылками.
+     */
+    private static void abortIfStreaming(HttpExchange exchange, RuntimeException failure) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            throw new IOException("Ответ прерван: " + failure.getMessage(), failure);
+        }
+    }
+
+    private void routeLinks(HttpExchange exchange) throws IOException {
+        UUID userId = parseUser(exchange);
+        if (userId == null) {
+            sendText(exchange, 401, "Нужен заголовок " + USER_HEADER);
+            return;
+        }
+        String path = exchange.getRequestURI().getRawPath();
+        String shortCode = path.length() > LINKS_PATH.length() + 1
+                ? path.substring(LINKS_PATH.length() + 1)
+                : null;
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        UrlShrinkApplicationService service = serviceFor(exchange);
+
+        switch (exchange.getRequestMethod()) {
+            case "GET" -> {
+                if (shortCode != null) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+                LinkExporter.Format format = LinkExporter.Format.valueOf(
+                        query.getOrDefault("format", "jsonl").toUpperCase());
+                exchange.getResponseHeaders().set("Content-Type", format.getContentType());
+                exchange.sendResponseHeaders(200, 0);
+                // Поток закрывается только после полной выгрузки: закрытие дописывает завершающий блок
+                WritableByteChannel out = Channels.newChannel(exchange.getResponseBody());
+                appService.exportUserUrls(userId, format, out);
+                out.close();
+            }
+            case "POST" -> {
+                if (BATCH_CODE.equals(shortCode)) {
+                    shortenBatch(exchange, userId, query);
+                    return;
+                }
+                if (shortCode != null) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+                if (isLimited(exchange) && !rateLimiter.tryShorten(userId, clientOf(exchange))) {
+                    sendTooManyRequests(exchange);
+                    return;
+                }
+                String url = readBody(exchange).trim();
+                int maxClicks = parseMaxClicks(query);
+                String shortUrl = appService.shortenUrl(userId, url, maxClicks);
+                exchange.getResponseHeaders().set("Location", shortUrl);
+                sendText(exchange, 201, shortUrl);
+            }
+            case "PATCH" -> {
+                boolean updated = true;
+                if (shortCode == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+                if (!query.containsKey("maxClicks") && !query.containsKey("extendDays")) {
+                    throw new IllegalArgumentException("Нужен параметр maxClicks или extendDays");
+                }
+                // Оба параметра проверяются до правки, чтобы ошибка во втором не оставила первый примененным
+                Integer maxClicks = query.containsKey("maxClicks")
+                        ? positive(query.get("maxClicks"), "Лимит кликов должен быть положительным числом")
+                        : null;
+                Integer extendDays = query.containsKey("extendDays")
+                        ? positive(query.get("extendDays"), "Количество дней должно быть положительным числом")
+                        : null;
+                if (maxClicks != null) {
+                    updated = service.updateUrlMaxClicks(userId, shortCode, maxClicks);
+                }
+                if (updated && extendDays != null) {
+                    updated = service.extendUrlLifetime(userId, shortCode, extendDays);
+                }
+                exchange.sendResponseHeaders(updated ? 204 : 404, -1);
+            }
+            case "DELETE" -> {
+                boolean deleted = shortCode != null && service.deleteUrl(userId, shortCode);
+                exchange.sendResponseHeaders(deleted ? 204 : 404, -1);
+            }
+            default -> exchange.sendResponseHeaders(405, -1);
+        }
+    }
+
+    /**
+     * Тело читается потоком и ответ пишется по мере готовности блоков, без буферизации всего пакета.
+     * Каждый URL расходует токен до создания ссылки; если лимит исчерпан уже на первом, ответ - 429.
+     */
+    private void shortenBatch(HttpExchange exchange, UUID userId, Map<String, String> query) throws IOException {
+        int maxClicks = parseMaxClicks(query);
+        if (maxClicks <= 0) {
+            throw new IllegalArgumentException("Лимит кликов должен быть положительным числом");
+        }
+        InetAddress client = clientOf(exchange);
+        BooleanSupplier admit = isLimited(exchange)
+                ? () -> rateLimiter.tryShorten(userId, client)
+                : () -> true;
+        if (!admit.getAsBoolean()) {
+            sendTooManyRequests(exchange);
+            return;
+        }
+        // Токен первого URL уже взят выше
+        boolean[] first = {true};
+        BooleanSupplier perUrl = () -> {
+            if (first[0]) {
+                first[0] = false;
+                return true;
+            }
+            return admit.getAsBoolean();
+        };
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        Writer out = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8);
+        try (InputStream body = exchange.getRequestBody()) {
+            IOException[] failure = new IOException[1];
+            appService.shortenStream(userId, body, maxClicks, perUrl, result -> {
+                if (failure[0] != null) {
+                    return;
+                }
+                try {
+                    out.write(result.isSuccess() ? result.shortUrl() : "ERROR " + result.error());
+                    out.write('\n');
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+        // Завершающий блок - только за полным ответом, см. abortIfStreaming
+        out.close();
+    }
+
+    /**
+     * Пути других узлов кластера. Запросы выполняются только над ссылками этого узла:
+     * сводки по всему кластеру собирает узел, к которому пришел клиент.
+     */
+    private void handleInternal(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!isPeer(exchange)) {
+                exchange.sendResponseHeaders(403, -1);
+                return;
+            }
+            try {
+                routeInternal(exchange);
+            } catch (IllegalArgumentException e) {
+                sendText(exchange, 400, e.getMessage());
+            } catch (IllegalStateException | UncheckedIOException e) {
+                sendText(exchange, 503, e.getMessage());
+            }
+        }
+    }
+
+    private void routeInternal(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getRawPath();
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        if (path.equals(INTERNAL_LINKS_PATH)) {
+            if (!"POST".equals(method)) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            handleImport(exchange);
+        } else if (path.equals(INTERNAL_RING_PATH) && cluster != null) {
+            if (!"PUT".equals(method)) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            handleRing(exchange);
+        } else if (path.equals(INTERNAL_PARTITIONS_PATH) && cluster != null) {
+            if (!"POST".equals(method)) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            handlePartitions(exchange);
+        } else if (!"GET".equals(method)) {
+            exchange.sendResponseHeaders(405, -1);
+        } else if (path.startsWith(INTERNAL_USERS_PATH) && path.endsWith("/links")) {
+            handleUserLinks(exchange, UUID.fromString(
+                    path.substring(INTERNAL_USERS_PATH.length(), path.length() - "/links".length())));
+        } else if (path.startsWith(INTERNAL_USERS_PATH) && path.endsWith("/stats")) {
+            handleUserStats(exchange, UUID.fromString(
+                    path.substring(INTERNAL_USERS_PATH.length(), path.length() - "/stats".length())));
+        } else if (path.startsWith(INTERNAL_CLICKS_PATH)) {
+            handleClicks(exchange, path.substring(INTERNAL_CLICKS_PATH.length()), query);
+        } else if (path.equals(INTERNAL_TOP_PATH)) {
+            handleTop(exchange, query);
+        } else {
+            exchange.sendResponseHeaders(404, -1);
+        }
+    }
+
+    /**
+     * Тело - записи {@link LinkCodec}, каждой предшествует ее длина. Ссылки принимаются
+     * частями по мере чтения, поэтому память не зависит от размера тела. В ответе по строке
+     * на каждый отклоненный код.
+     */
+    private void handleImport(HttpExchange exchange) throws IOException {
+        List<ShortUrl> links = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        StringJoiner rejected = new StringJoiner("\n");
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(exchange.getRequestBody()))) {
+            int length;
+            while ((length = readLength(in)) >= 0) {
+                if (length > MAX_IMPORT_RECORD_BYTES) {
+                    sendText(exchange, 400, "Слишком длинная запись ссылки: " + length);
+                    return;
+                }
+                byte[] record = new byte[length];
+                in.readFully(record);
+                links.add(LinkCodec.decode(ByteBuffer.wrap(record)));
+                if (links.size() == IMPORT_CHUNK_SIZE) {
+                    localService.importLinks(links).forEach(rejected::add);
+                    links.clear();
+                }
+            }
+        } catch (EOFException | BufferUnderflowException | IllegalArgumentException e) {
+            sendText(exchange, 400, "Поврежденная запись ссылки");
+            return;
+        }
+        localService.importLinks(links).forEach(rejected::add);
+        sendText(exchange, 200, rejected.toString());
+    }
+
+    /**
+     * Переводит узел на новый состав кластера. Запрос отправляется каждому узлу; новые
+     * узлы подключаются по адресам из тела.
+     */
+    private void handleRing(HttpExchange exchange) throws IOException {
+        HashRing next = new HashRing(ClusterMember.parseAll(readBody(exchange)));
+        String secret = new String(clusterSecret, StandardCharsets.UTF_8);
+        for (ClusterMember member : next.getMembers()) {
+            if (!member.id().equals(cluster.getSelfId()) && !cluster.isConnected(member.id())) {
+                cluster.connect(member.id(), new HttpLinkNode(member.address(), cluster.getSelfId(), secret));
+            }
+        }
+        ClusterNode.Rebalance result = cluster.rebalance(next);
+        StringJoiner body = new StringJoiner("\n");
+        body.add(Integer.toString(result.moved()));
+        result.conflicts().forEach(code -> body.add("CONFLICT " + code));
+        sendText(exchange, 200, body.toString());
+    }
+
+    /** Тело - номера разделов через запятую, все ссылки которых прежний владелец уже передал. */
+    private void handlePartitions(HttpExchange exchange) throws IOException {
+        String body = readBody(exchange).trim();
+        int[] partitions = body.isEmpty() ? new int[0]
+                : Arrays.stream(body.split(",")).mapToInt(Integer::parseInt).toArray();
+        for (int partition : partitions) {
+            if (partition < 0 || partition >= CodePartitions.COUNT) {
+                throw new IllegalArgumentException("Нет раздела " + partition);
+            }
+        }
+        cluster.acceptPartitions(partitions);
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    /** Ссылки пользователя на этом узле уходят потоком в том же виде, что и при передаче разделов. */
+    private void handleUserLinks(HttpExchange exchange, UUID userId) throws IOException {
+        exchange.sendResponseHeaders(200, 0);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(exchange.getResponseBody()))) {
+            IOException[] failure = new IOException[1];
+            localService.forEachUserUrl(userId, link -> {
+                if (failure[0] != null) {
+                    return;
+                }
+                ByteBuffer record = LinkCodec.encode(link);
+                try {
+                    out.writeInt(record.remaining());
+                    out.write(record.array(), record.arrayOffset() + record.position(), record.remaining());
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+    }
+
+    private void handleUserStats(HttpExchange exchange, UUID userId) throws IOException {
+        UserStats stats = localService.getUserStats(userId);
+        sendText(exchange, 200, stats.links() + " " + stats.active() + " " + stats.inactive()
+                + " " + stats.totalClicks());
+    }
+
+    private void handleClicks(HttpExchange exchange, String shortCode, Map<String, String> query)
+            throws IOException {
+        UUID userId = parseUser(exchange);
+        if (userId == null) {
+            sendText(exchange, 401, "Нужен заголовок " + USER_HEADER);
+            return;
+        }
+        Optional<long[]> clicks = localService.getClicksPerHour(userId, shortCode,
+                Integer.parseInt(query.getOrDefault("hours", "24")));
+        if (clicks.isEmpty()) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        StringJoiner body = new StringJoiner(" ");
+        for (long count : clicks.get()) {
+            body.add(Long.toString(count));
+        }
+        sendText(exchange, 200, body.toString());
+    }
+
+    private void handleTop(HttpExchange exchange, Map<String, String> query) throws IOException {
+        List<LinkClicks> top = localService.getTopLinks(Integer.parseInt(query.getOrDefault("hours", "24")),
+                Integer.parseInt(query.getOrDefault("limit", "10")));
+        StringBuilder body = new StringBuilder();
+        for (LinkClicks link : top) {
+            body.append(link.shortCode()).append(' ').append(link.clicks()).append('\n');
+        }
+        sendText(exchange, 200, body.toString());
+    }
+
+    private static int readLength(DataInputStream in) throws IOException {
+        try {
+            return in.readInt();
+        } catch (EOFException e) {
+            return -1;
+        }
+    }
+
+    /** Лимиты клиентов действуют на запросы клиентов, но не других узлов кластера. */
+    private boolean isLimited(HttpExchange exchange) {
+        return rateLimiter != null && !isPeer(exchange);
+    }
+
+    private UrlShrinkApplicationService serviceFor(HttpExchange exchange) {
+        return isPeer(exchange) ? localService : appService;
+    }
+
+    /** Запрос от другого узла кластера: ключ сравнивается за постоянное время. */
+    private boolean isPeer(HttpExchange exchange) {
+        if (clusterSecret == null) {
+            return false;
+        }
+        String presented = exchange.getRequestHeaders().getFirst(CLUSTER_SECRET_HEADER);
+        return presented != null
+                && MessageDigest.isEqual(clusterSecret, presented.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int positive(String value, String message) {
+        int parsed = Integer.parseInt(value);
+        if (parsed <= 0) {
+            throw new IllegalArgumentException(message);
+        }
+        return parsed;
+    }
+
+    private int parseMaxClicks(Map<String, String> query) {
+        return query.containsKey("maxClicks") ? Integer.parseInt(query.get("maxClicks")) : defaultMaxClicks;
+    }
+
+    private static UUID parseUser(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst(USER_HEADER);
+        if (header == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(header.trim());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            byte[] bytes = body.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("Слишком большое тело запроса");
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static InetAddress clientOf(HttpExchange exchange) {
+        return exchange.getRemoteAddress().getAddress();
+    }
+
+    private static void sendTooManyRequests(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        exchange.sendResponseHeaders(429, -1);
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] bytes = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.shortUrlService.infrastructure.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Гистограмма длительностей в наносекундах с логарифмически-линейными корзинами, как в
+ * HdrHistogram: каждая степень двойки делится на {@value #SUB_BUCKETS} равных корзин,
+ * поэтому относительная ошибка значения не больше 1/32. Значения выше ~36 минут
+ * попадают в последнюю корзину.
+ * <p>
+ * Запись - два атомарных сложения в полосе потока; полосы сводятся только при снимке.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_SHIFT = 35;
+    static final int BUCKETS = (MAX_SHIFT + 2) * SUB_BUCKETS;
+    private static final int SUM_SLOT = BUCKETS;
+
+    private final AtomicLongArray[] stripes;
+    private final int stripeMask;
+
+    public LatencyHistogram() {
+        int count = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+        this.stripes = new AtomicLongArray[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new AtomicLongArray(BUCKETS + 1);
+        }
+        this.stripeMask = count - 1;
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        long id = Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L;
+        AtomicLongArray stripe = stripes[(int) (id >>> 32) & stripeMask];
+        stripe.getAndIncrement(bucketOf(value));
+        stripe.getAndAdd(SUM_SLOT, value);
+    }
+
+    /** Накопленные с создания значения; интервал получается вычитанием снимков. */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long sum = 0;
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += stripe.get(i);
+            }
+            sum += stripe.get(SUM_SLOT);
+        }
+        return new Snapshot(counts, sum);
+    }
+
+    static int bucketOf(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        if (shift > MAX_SHIFT) {
+            return BUCKETS - 1;
+        }
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /** Середина диапазона значений корзины. */
+    static long valueOf(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) / 2;
+    }
+
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long sum;
+        private final long count;
+
+        Snapshot(long[] counts, long sum) {
+            this.counts = counts;
+            this.sum = sum;
+            long total = 0;
+            for (long bucket : counts) {
+                total += bucket;
+            }
+            this.count = total;
+        }
+
+        public static Snapshot empty() {
+            return new Snapshot(new long[BUCKETS], 0);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSumNanos() {
+            return sum;
+        }
+
+        /** @return значение квантиля в наносекундах или 0 для пустого снимка */
+        public long valueAtQuantile(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return valueOf(i);
+                }
+            }
+            return valueOf(counts.length - 1);
+        }
+
+        public Snapshot minus(Snapshot earlier) {
+            long[] delta = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                delta[i] = counts[i] - earlier.counts[i];
+            }
+            return new Snapshot(delta, sum - earlier.sum);
+        }
+    }
+}
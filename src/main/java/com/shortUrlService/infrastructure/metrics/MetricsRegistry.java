@@ -0,0 +1,173 @@
+package com.shortUrlService.infrastructure.metrics;
+
+import com.shortUrlService.domain.model.ResolveResult;
+import com.shortUrlService.domain.service.ServiceMetrics;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Метрики сервиса: гистограммы длительностей операций и очистки, счетчики исходов
+ * переходов и коллизий кодов, а также произвольные показатели (глубина очереди
+ * уведомлений и т.п.). Раз в интервал берется снимок гистограмм; квантили в выгрузке
+ * считаются по последнему интервалу, а счетчики и суммы накоплены с запуска.
+ * Выгрузка - текстовый формат Prometheus.
+ */
+public class MetricsRegistry implements ServiceMetrics, AutoCloseable {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String CLEANUP = "cleanup";
+
+    private record Gauge(String name, String help, LongSupplier value) {
+    }
+
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final LatencyHistogram cleanup = new LatencyHistogram();
+    private final LongAdder[] resolveOutcomes = new LongAdder[ResolveResult.Status.values().length];
+    private final LongAdder collisions = new LongAdder();
+    private final List<Gauge> gauges = new ArrayList<>();
+    private final Map<String, LatencyHistogram.Snapshot> totals = new HashMap<>();
+    private volatile Map<String, LatencyHistogram.Snapshot> lastInterval = Map.of();
+    private final ScheduledExecutorService rotation;
+
+    /** @param intervalMillis период снимков для квантилей; 0 - только по {@link #rotate()} */
+    public MetricsRegistry(long intervalMillis) {
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+        }
+        for (int i = 0; i < resolveOutcomes.length; i++) {
+            resolveOutcomes[i] = new LongAdder();
+        }
+        if (intervalMillis > 0) {
+            rotation = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "metrics-rotation");
+                thread.setDaemon(true);
+                return thread;
+            });
+            rotation.scheduleAtFixedRate(this::rotate, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            rotation = null;
+        }
+    }
+
+    @Override
+    public void recordLatency(Operation operation, long nanos) {
+        latencies.get(operation).record(nanos);
+    }
+
+    @Override
+    public void recordResolve(ResolveResult.Status status) {
+        resolveOutcomes[status.ordinal()].increment();
+    }
+
+    @Override
+    public void recordCodeCollision() {
+        collisions.increment();
+    }
+
+    public void recordCleanupSweep(long nanos) {
+        cleanup.record(nanos);
+    }
+
+    public synchronized void registerGauge(String name, String help, LongSupplier value) {
+        gauges.add(new Gauge(name, help, value));
+    }
+
+    public long getResolveCount(ResolveResult.Status status) {
+        return resolveOutcomes[status.ordinal()].sum();
+    }
+
+    public long getCodeCollisionCount() {
+        return collisions.sum();
+    }
+
+    /** Закрывает интервал: квантили выгрузки будут считаться по записям с прошлого вызова. */
+    public synchronized void rotate() {
+        Map<String, LatencyHistogram.Snapshot> interval = new HashMap<>();
+        forEachHistogram((name, histogram) -> {
+            LatencyHistogram.Snapshot total = histogram.snapshot();
+            interval.put(name, total.minus(totals.getOrDefault(name, LatencyHistogram.Snapshot.empty())));
+            totals.put(name, total);
+        });
+        lastInterval = interval;
+    }
+
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        Map<String, LatencyHistogram.Snapshot> interval = lastInterval;
+
+        header(out, "shortlink_operation_duration_seconds",
+                "Длительность операций доменного сервиса; квантили за последний интервал", "summary");
+        forEachHistogram((name, histogram) -> {
+            if (!name.equals(CLEANUP)) {
+                summary(out, "shortlink_operation_duration_seconds", "{operation=\"" + name + "\"",
+                        histogram.snapshot(), interval.get(name));
+            }
+        });
+        header(out, "shortlink_cleanup_duration_seconds", "Длительность прохода очистки", "summary");
+        summary(out, "shortlink_cleanup_duration_seconds", "{", cleanup.snapshot(), interval.get(CLEANUP));
+
+        header(out, "shortlink_resolve_total", "Переходы по исходу", "counter");
+        for (ResolveResult.Status status : ResolveResult.Status.values()) {
+            out.append("shortlink_resolve_total{outcome=\"").append(status.name().toLowerCase(Locale.ROOT))
+                    .append("\"} ").append(resolveOutcomes[status.ordinal()].sum()).append('\n');
+        }
+        header(out, "shortlink_code_collisions_total", "Занятые коды, потребовавшие повторной попытки", "counter");
+        out.append("shortlink_code_collisions_total ").append(collisions.sum()).append('\n');
+
+        List<Gauge> registered;
+        synchronized (this) {
+            registered = List.copyOf(gauges);
+        }
+        for (Gauge gauge : registered) {
+            header(out, gauge.name(), gauge.help(), "gauge");
+            out.append(gauge.name()).append(' ').append(gauge.value().getAsLong()).append('\n');
+        }
+        return out.toString();
+    }
+
+    @Override
+    public void close() {
+        if (rotation != null) {
+            rotation.shutdownNow();
+        }
+    }
+
+    private void forEachHistogram(BiConsumer<String, LatencyHistogram> action) {
+        latencies.forEach((operation, histogram) ->
+                action.accept(operation.name().toLowerCase(Locale.ROOT), histogram));
+        action.accept(CLEANUP, cleanup);
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /** {@code labels} - открытый набор меток: "{" или "{a=\"b\"". */
+    private static void summary(StringBuilder out, String name, String labels,
+                                LatencyHistogram.Snapshot total, LatencyHistogram.Snapshot interval) {
+        String separator = labels.length() > 1 ? "," : "";
+        for (double quantile : QUANTILES) {
+            long nanos = interval != null ? interval.valueAtQuantile(quantile) : 0;
+            out.append(name).append(labels).append(separator).append("quantile=\"").append(quantile)
+                    .append("\"} ").append(seconds(nanos)).append('\n');
+        }
+        String closed = labels.length() > 1 ? labels + "}" : "";
+        out.append(name).append("_sum").append(closed).append(' ').append(seconds(total.getSumNanos())).append('\n');
+        out.append(name).append("_count").append(closed).append(' ').append(total.getCount()).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+}
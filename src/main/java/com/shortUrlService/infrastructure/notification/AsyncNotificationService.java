@@ -0,0 +1,163 @@
+package com.shortUrlService.infrastructure.notification;
+
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.domain.service.NotificationService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Неблокирующая обертка над медленным получателем уведомлений. Вызовы из пути
+ * перехода только кладут событие в ограниченную очередь; отдельный поток
+ * забирает события пачками и передает их получателю. На каждое событие ссылки
+ * уходит не больше одного уведомления.
+ */
+public class AsyncNotificationService implements NotificationService, AutoCloseable {
+    public enum OverflowPolicy {
+        /** Отбросить новое событие. */
+        DROP_NEWEST,
+        /** Вытеснить самое старое событие из очереди. */
+        DROP_OLDEST,
+        /** Доставить событие синхронно в вызывающем потоке. */
+        CALLER_RUNS
+    }
+
+    private record Notification(int event, UUID userId, ShortUrl url) {
+    }
+
+    private final NotificationService delegate;
+    private final int capacity;
+    private final int batchSize;
+    private final long idleParkNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final Queue<Notification> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    public AsyncNotificationService(NotificationService delegate, int capacity, int batchSize,
+                                    long idleParkMillis, OverflowPolicy overflowPolicy) {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Размер очереди и пачки должен быть положительным");
+        }
+        this.delegate = delegate;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.idleParkNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, idleParkMillis));
+        this.overflowPolicy = overflowPolicy;
+        this.dispatcher = new Thread(this::dispatchLoop, "notification-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    @Override
+    public void notifyLinkExpired(UUID userId, ShortUrl url) {
+        submit(ShortUrl.EVENT_EXPIRED, userId, url);
+    }
+
+    @Override
+    public void notifyLimitReached(UUID userId, ShortUrl url) {
+        submit(ShortUrl.EVENT_LIMIT_REACHED, userId, url);
+    }
+
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /** Останавливает диспетчер, предварительно доставив все накопленные события. */
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(dispatcher);
+        dispatcher.join();
+    }
+
+    private void submit(int event, UUID userId, ShortUrl url) {
+        if (!url.markNotified(event)) {
+            return;
+        }
+        Notification notification = new Notification(event, userId, url);
+        if (reserveSlot()) {
+            queue.add(notification);
+            return;
+        }
+        switch (overflowPolicy) {
+            case DROP_NEWEST -> {
+                dropped.increment();
+                // Следующий переход по ссылке сможет поставить событие заново
+                url.clearNotified(event);
+            }
+            case DROP_OLDEST -> {
+                Notification evicted = queue.poll();
+                if (evicted != null) {
+                    dropped.increment();
+                    evicted.url().clearNotified(evicted.event());
+                    queue.add(notification);
+                } else if (reserveSlot()) {
+                    queue.add(notification);
+                } else {
+                    dropped.increment();
+                    url.clearNotified(event);
+                }
+            }
+            case CALLER_RUNS -> deliver(notification);
+        }
+    }
+
+    private boolean reserveSlot() {
+        int current;
+        do {
+            current = queued.get();
+            if (current >= capacity) {
+                return false;
+            }
+        } while (!queued.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void dispatchLoop() {
+        List<Notification> batch = new ArrayList<>(batchSize);
+        while (true) {
+            Notification notification;
+            while (batch.size() < batchSize && (notification = queue.poll()) != null) {
+                batch.add(notification);
+            }
+            if (batch.isEmpty()) {
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(this, idleParkNanos);
+                continue;
+            }
+            queued.addAndGet(-batch.size());
+            for (Notification item : batch) {
+                deliver(item);
+            }
+            batch.clear();
+        }
+    }
+
+    private void deliver(Notification notification) {
+        try {
+            if (notification.event() == ShortUrl.EVENT_EXPIRED) {
+                delegate.notifyLinkExpired(notification.userId(), notification.url());
+            } else {
+                delegate.notifyLimitReached(notification.userId(), notification.url());
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Ошибка доставки уведомления: " + e.getMessage());
+        }
+    }
+}
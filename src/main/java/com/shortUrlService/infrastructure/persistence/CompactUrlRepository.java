@@ -0,0 +1,742 @@
+package com.shortUrlService.infrastructure.persistence;
+
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.domain.model.UserStats;
+import com.shortUrlService.domain.service.UrlRepository;
+import com.shortUrlService.infrastructure.shortening.Base62;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Компактное хранилище ссылок для десятков миллионов записей. Вместо объектов каждая
+ * ссылка - строка в наборе примитивных массивов: код хранится как long (base62), владелец -
+ * номер в словаре пользователей, URL - номер общего префикса (схема и хост) плюс байты хвоста.
+ * Поиск по коду - открытая адресация, ссылки пользователя связаны двусвязным списком
+ * по номерам строк.
+ * <p>
+ * Объект {@link ShortUrl} собирается из строки только на время работы с ним. Пока на него
+ * есть ссылки, поиск по коду возвращает тот же экземпляр, поэтому клики и правки лимита
+ * идут CAS по одному объекту, а {@link #recordClick}, {@link #update} и {@link #markInactive}
+ * переписывают его состояние в строку. Сохраненный экземпляр только копируется в строку:
+ * править ссылку нужно через экземпляр из {@link #findByShortCode}. Флаги отправленных
+ * уведомлений живут в экземпляре: после сборки мусора уведомление об истекшей ссылке
+ * может повториться до ближайшей очистки.
+ * <p>
+ * Словари пользователей и префиксов считают ссылки и освобождают номера, хвосты URL
+ * освобождаются вместе со строкой. Очистка берет из корзин сроков только строки с
+ * наступившим сроком и удаляет их короткими пакетами под блокировкой записи.
+ */
+public class CompactUrlRepository implements UrlRepository {
+    private static final long EMPTY = 0;
+    private static final long TOMBSTONE = -1;
+    private static final int NONE = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int STRIPES = 64;
+    private static final int BATCH_SIZE = 1024;
+    private static final long EXPIRY_RESOLUTION_MILLIS = 1000;
+
+    private final int codeLength;
+    private final Clock clock;
+    private final StampedLock lock = new StampedLock();
+    /** Запись состояния экземпляра в строку и сборка экземпляра из строки не перемежаются. */
+    private final Object[] stripes = new Object[STRIPES];
+
+    // Хеш-таблица: код + 1 -> номер строки
+    private long[] tableKeys = new long[INITIAL_CAPACITY * 2];
+    private int[] tableRows = new int[INITIAL_CAPACITY * 2];
+    private int tableUsed;
+
+    // Строки; у свободной строки код EMPTY
+    private long[] codes = new long[INITIAL_CAPACITY];
+    private int[] users = new int[INITIAL_CAPACITY];
+    private int[] clicks = new int[INITIAL_CAPACITY];
+    private int[] maxClicks = new int[INITIAL_CAPACITY];
+    private long[] expiresAt = new long[INITIAL_CAPACITY];
+    private long[] createdAt = new long[INITIAL_CAPACITY];
+    private int[] prefixes = new int[INITIAL_CAPACITY];
+    private byte[][] tails = new byte[INITIAL_CAPACITY][];
+    private int[] nextInUser = new int[INITIAL_CAPACITY];
+    private int[] prevInUser = new int[INITIAL_CAPACITY];
+    private int rowCount;
+    private final IntList freeRows = new IntList();
+    private int size;
+
+    // Словарь пользователей: номер освобождается с последней ссылкой пользователя
+    private final Map<UUID, Integer> userIds = new HashMap<>();
+    private long[] userMsb = new long[16];
+    private long[] userLsb = new long[16];
+    private int[] userHead = new int[16];
+    private int userSlots;
+    private final IntList freeUsers = new IntList();
+
+    // Словарь префиксов URL со счетчиком ссылок на каждый префикс
+    private final Map<String, Integer> prefixIds = new HashMap<>();
+    private String[] prefixList = new String[16];
+    private int[] prefixRefs = new int[16];
+    private int prefixSlots;
+    private final IntList freePrefixes = new IntList();
+
+    // Экземпляры, которые сейчас кто-то держит
+    private final ConcurrentHashMap<String, LiveRef> live = new ConcurrentHashMap<>();
+    private final ReferenceQueue<ShortUrl> collected = new ReferenceQueue<>();
+
+    // Корзины сроков: номера строк; защищены монитором expiry
+    private final TreeMap<Long, IntList> expiry = new TreeMap<>();
+    private final IntList due = new IntList();
+
+    public CompactUrlRepository(int codeLength, Clock clock) {
+        if (codeLength < 1 || codeLength > Base62.MAX_LONG_LENGTH) {
+            throw new IllegalArgumentException("Длина кода должна быть от 1 до " + Base62.MAX_LONG_LENGTH);
+        }
+        this.codeLength = codeLength;
+        this.clock = clock;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    @Override
+    public void save(ShortUrl shortUrl) {
+        long key = requireKey(shortUrl.getShortCode());
+        long stamp = lock.writeLock();
+        try {
+            int slot = findSlot(key);
+            if (slot != NONE) {
+                removeAt(slot);
+            }
+            insert(key, shortUrl);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        expungeCollected();
+    }
+
+    @Override
+    public boolean saveIfAbsent(ShortUrl shortUrl) {
+        long key = requireKey(shortUrl.getShortCode());
+        long stamp = lock.writeLock();
+        try {
+            if (findSlot(key) != NONE) {
+                return false;
+            }
+            insert(key, shortUrl);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        expungeCollected();
+        return true;
+    }
+
+    /** Весь пакет вставляется под одной блокировкой записи. */
+    @Override
+    public boolean[] saveAllIfAbsent(List<ShortUrl> shortUrls) {
+        long[] keys = new long[shortUrls.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = requireKey(shortUrls.get(i).getShortCode());
+        }
+        boolean[] saved = new boolean[keys.length];
+        long stamp = lock.writeLock();
+        try {
+            for (int i = 0; i < keys.length; i++) {
+                if (findSlot(keys[i]) == NONE) {
+                    insert(keys[i], shortUrls.get(i));
+                    saved[i] = true;
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        expungeCollected();
+        return saved;
+    }
+
+    /** Экземпляр, который уже кто-то держит, возвращается без блокировок. */
+    @Override
+    public Optional<ShortUrl> findByShortCode(String shortCode) {
+        LiveRef ref = live.get(shortCode);
+        ShortUrl held = ref == null ? null : ref.get();
+        if (held != null) {
+            return Optional.of(held);
+        }
+        long key = keyOf(shortCode);
+        if (key < 0) {
+            return Optional.empty();
+        }
+        expungeCollected();
+        long stamp = lock.readLock();
+        try {
+            int row = findRow(key);
+            return row == NONE ? Optional.empty() : Optional.of(liveInstance(shortCode, row));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Снимок ссылок пользователя. Ссылки, которых сейчас никто не держит, собираются
+     * отдельными копиями: править их через {@link #update} нельзя.
+     */
+    @Override
+    public Collection<ShortUrl> findByUserId(UUID userId) {
+        List<ShortUrl> links = new ArrayList<>();
+        long stamp = lock.readLock();
+        try {
+            Integer user = userIds.get(userId);
+            if (user != null) {
+                for (int row = userHead[user]; row != NONE; row = nextInUser[row]) {
+                    links.add(heldOrCopy(row));
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return Collections.unmodifiableList(links);
+    }
+
+    /** Сводка по строкам пользователя: обход его списка без сборки объектов. */
+    @Override
+    public UserStats getUserStats(UUID userId) {
+        long stamp = lock.readLock();
+        try {
+            Integer user = userIds.get(userId);
+            if (user == null) {
+                return UserStats.EMPTY;
+            }
+            long total = 0;
+            long inactive = 0;
+            long totalClicks = 0;
+            for (int row = userHead[user]; row != NONE; row = nextInUser[row]) {
+                synchronized (stripe(row)) {
+                    total++;
+                    totalClicks += clicks[row];
+                    if (clicks[row] >= maxClicks[row]) {
+                        inactive++;
+                    }
+                }
+            }
+            return new UserStats(total, total - inactive, inactive, totalClicks);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void recordClick(ShortUrl shortUrl) {
+        long stamp = lock.readLock();
+        try {
+            writeBack(shortUrl);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Принимает правку только для экземпляра, который хранилище отдало и который еще
+     * соответствует строке; старая запись в корзине сроков проверится и пропустится.
+     */
+    @Override
+    public boolean update(ShortUrl shortUrl) {
+        long stamp = lock.readLock();
+        try {
+            int row = writeBack(shortUrl);
+            if (row == NONE) {
+                return false;
+            }
+            schedule(row, reclaimDeadline(shortUrl));
+            return true;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void markInactive(ShortUrl shortUrl) {
+        long stamp = lock.readLock();
+        try {
+            int row = writeBack(shortUrl);
+            if (row != NONE) {
+                synchronized (expiry) {
+                    due.add(row);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Проверяет только строки из наступивших корзин сроков и удаляет их пакетами по
+     * {@value #BATCH_SIZE}, отпуская блокировку между пакетами. Номер строки в корзине
+     * мог перейти к другой ссылке, поэтому каждая строка сверяется с текущим состоянием.
+     */
+    @Override
+    public void deleteExpired(Consumer<ShortUrl> reclaimed) {
+        long now = clock.millis();
+        IntList candidates = new IntList();
+        synchronized (expiry) {
+            candidates.addAll(due);
+            due.clear();
+            Map.Entry<Long, IntList> bucket;
+            while ((bucket = expiry.firstEntry()) != null && bucket.getKey() <= now) {
+                candidates.addAll(bucket.getValue());
+                expiry.pollFirstEntry();
+            }
+        }
+        for (int from = 0; from < candidates.size(); from += BATCH_SIZE) {
+            List<ShortUrl> removed = new ArrayList<>();
+            long stamp = lock.writeLock();
+            try {
+                for (int i = from; i < Math.min(from + BATCH_SIZE, candidates.size()); i++) {
+                    int row = candidates.get(i);
+                    if (row >= rowCount || codes[row] == EMPTY) {
+                        continue;
+                    }
+                    ShortUrl url = heldOrCopy(row);
+                    if (!url.isActive(now)) {
+                        removeAt(findSlot(codes[row]));
+                        removed.add(url);
+                    }
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            removed.forEach(reclaimed);
+        }
+        expungeCollected();
+    }
+
+    @Override
+    public boolean removeByShortCode(String shortCode) {
+        long key = keyOf(shortCode);
+        if (key < 0) {
+            return false;
+        }
+        long stamp = lock.writeLock();
+        try {
+            int slot = findSlot(key);
+            if (slot == NONE) {
+                return false;
+            }
+            removeAt(slot);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Обход пакетами: блокировка чтения держится, пока собирается пакет, а не пока
+     * работает {@code action}, поэтому обход слабо согласован с параллельными изменениями.
+     */
+    @Override
+    public void forEach(Consumer<ShortUrl> action) {
+        List<ShortUrl> batch = new ArrayList<>(BATCH_SIZE);
+        int row = 0;
+        while (true) {
+            long stamp = lock.readLock();
+            try {
+                for (; row < rowCount && batch.size() < BATCH_SIZE; row++) {
+                    if (codes[row] != EMPTY) {
+                        batch.add(heldOrCopy(row));
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            batch.forEach(action);
+            batch.clear();
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    int userDictionarySize() {
+        long stamp = lock.readLock();
+        try {
+            return userIds.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    int prefixDictionarySize() {
+        long stamp = lock.readLock();
+        try {
+            return prefixIds.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private long keyOf(String shortCode) {
+        if (shortCode.length() != codeLength) {
+            return -1;
+        }
+        long value = Base62.decode(shortCode);
+        return value < 0 ? -1 : value + 1;
+    }
+
+    private long requireKey(String shortCode) {
+        long key = keyOf(shortCode);
+        if (key < 0) {
+            throw new IllegalArgumentException("Код не поддерживается компактным хранилищем: " + shortCode);
+        }
+        return key;
+    }
+
+    /** Вызывается под блокировкой записи; переданный экземпляр копируется в строку и дальше не нужен. */
+    private void insert(long key, ShortUrl url) {
+        if ((tableUsed + 1) * 10L > tableKeys.length * 7L) {
+            // Много надгробий при малом числе живых ключей - перестраиваем без роста
+            rehash((size + 1) * 10L > tableKeys.length * 4L ? tableKeys.length * 2 : tableKeys.length);
+        }
+        int row = allocateRow();
+        codes[row] = key;
+        clicks[row] = url.getClickCount();
+        maxClicks[row] = url.getMaxClicks();
+        expiresAt[row] = url.getExpiresAtMillis();
+        createdAt[row] = url.getCreatedAtMillis();
+        storeUrl(row, url.getOriginalUrl());
+        linkToUser(row, url.getUserId());
+
+        int mask = tableKeys.length - 1;
+        int slot = (int) mix(key) & mask;
+        while (tableKeys[slot] != EMPTY && tableKeys[slot] != TOMBSTONE) {
+            slot = (slot + 1) & mask;
+        }
+        if (tableKeys[slot] == EMPTY) {
+            tableUsed++;
+        }
+        tableKeys[slot] = key;
+        tableRows[slot] = row;
+        size++;
+        schedule(row, reclaimDeadline(url));
+    }
+
+    /** Вызывается под блокировкой записи: освобождает строку, ее хвост URL и номера в словарях. */
+    private void removeAt(int slot) {
+        int row = tableRows[slot];
+        tableKeys[slot] = TOMBSTONE;
+        size--;
+        live.remove(Base62.encode(codes[row] - 1, codeLength));
+        unlinkFromUser(row);
+        releasePrefix(prefixes[row]);
+        tails[row] = null;
+        codes[row] = EMPTY;
+        freeRows.add(row);
+    }
+
+    private int findRow(long key) {
+        int slot = findSlot(key);
+        return slot == NONE ? NONE : tableRows[slot];
+    }
+
+    private int findSlot(long key) {
+        int mask = tableKeys.length - 1;
+        int slot = (int) mix(key) & mask;
+        long current;
+        while ((current = tableKeys[slot]) != EMPTY) {
+            if (current == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NONE;
+    }
+
+    private void rehash(int newLength) {
+        long[] oldKeys = tableKeys;
+        int[] oldRows = tableRows;
+        tableKeys = new long[newLength];
+        tableRows = new int[newLength];
+        tableUsed = 0;
+        int mask = newLength - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key == EMPTY || key == TOMBSTONE) {
+                continue;
+            }
+            int slot = (int) mix(key) & mask;
+            while (tableKeys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            tableKeys[slot] = key;
+            tableRows[slot] = oldRows[i];
+            tableUsed++;
+        }
+    }
+
+    private int allocateRow() {
+        if (freeRows.size() > 0) {
+            return freeRows.removeLast();
+        }
+        if (rowCount == codes.length) {
+            int capacity = codes.length * 2;
+            codes = Arrays.copyOf(codes, capacity);
+            users = Arrays.copyOf(users, capacity);
+            clicks = Arrays.copyOf(clicks, capacity);
+            maxClicks = Arrays.copyOf(maxClicks, capacity);
+            expiresAt = Arrays.copyOf(expiresAt, capacity);
+            createdAt = Arrays.copyOf(createdAt, capacity);
+            prefixes = Arrays.copyOf(prefixes, capacity);
+            tails = Arrays.copyOf(tails, capacity);
+            nextInUser = Arrays.copyOf(nextInUser, capacity);
+            prevInUser = Arrays.copyOf(prevInUser, capacity);
+        }
+        return rowCount++;
+    }
+
+    /**
+     * Вызывается под блокировкой чтения: переписывает клики, лимит и срок экземпляра в его
+     * строку, если экземпляр все еще текущий для кода. Состояние читается под замком
+     * полосы, поэтому последняя запись несет все правки, сделанные до нее.
+     *
+     * @return номер строки или {@link #NONE}, если ссылку удалили или заменили
+     */
+    private int writeBack(ShortUrl url) {
+        long key = keyOf(url.getShortCode());
+        LiveRef ref = live.get(url.getShortCode());
+        if (key < 0 || ref == null || ref.get() != url) {
+            return NONE;
+        }
+        int row = findRow(key);
+        if (row == NONE) {
+            return NONE;
+        }
+        synchronized (stripe(row)) {
+            clicks[row] = url.getClickCount();
+            maxClicks[row] = url.getMaxClicks();
+            expiresAt[row] = url.getExpiresAtMillis();
+        }
+        return row;
+    }
+
+    /** Вызывается под блокировкой: текущий экземпляр кода или новый, который станет текущим. */
+    private ShortUrl liveInstance(String shortCode, int row) {
+        ShortUrl[] instance = new ShortUrl[1];
+        live.compute(shortCode, (code, ref) -> {
+            instance[0] = ref == null ? null : ref.get();
+            if (instance[0] != null) {
+                return ref;
+            }
+            instance[0] = materialize(row);
+            return new LiveRef(instance[0], code, collected);
+        });
+        return instance[0];
+    }
+
+    /** Вызывается под блокировкой: текущий экземпляр, если его кто-то держит, иначе копия строки. */
+    private ShortUrl heldOrCopy(int row) {
+        LiveRef ref = live.get(Base62.encode(codes[row] - 1, codeLength));
+        ShortUrl held = ref == null ? null : ref.get();
+        return held != null ? held : materialize(row);
+    }
+
+    private ShortUrl materialize(int row) {
+        int user = users[row];
+        synchronized (stripe(row)) {
+            return ShortUrl.builder()
+                    .userId(new UUID(userMsb[user], userLsb[user]))
+                    .originalUrl(loadUrl(row))
+                    .shortCode(Base62.encode(codes[row] - 1, codeLength))
+                    .clickCount(clicks[row])
+                    .maxClicks(maxClicks[row])
+                    .expiresAtMillis(expiresAt[row])
+                    .createdAtMillis(createdAt[row])
+                    .build();
+        }
+    }
+
+    /** Убирает записи экземпляров, которые уже собраны сборщиком мусора. */
+    private void expungeCollected() {
+        LiveRef ref;
+        while ((ref = (LiveRef) collected.poll()) != null) {
+            live.remove(ref.shortCode, ref);
+        }
+    }
+
+    private void schedule(int row, long deadlineMillis) {
+        long bucket = Math.ceilDiv(Math.max(deadlineMillis, 0), EXPIRY_RESOLUTION_MILLIS) * EXPIRY_RESOLUTION_MILLIS;
+        synchronized (expiry) {
+            expiry.computeIfAbsent(bucket, key -> new IntList()).add(row);
+        }
+    }
+
+    private void linkToUser(int row, UUID userId) {
+        Integer existing = userIds.get(userId);
+        int user;
+        if (existing == null) {
+            if (freeUsers.size() > 0) {
+                user = freeUsers.removeLast();
+            } else {
+                user = userSlots++;
+                if (user == userMsb.length) {
+                    userMsb = Arrays.copyOf(userMsb, user * 2);
+                    userLsb = Arrays.copyOf(userLsb, user * 2);
+                    userHead = Arrays.copyOf(userHead, user * 2);
+                }
+            }
+            userMsb[user] = userId.getMostSignificantBits();
+            userLsb[user] = userId.getLeastSignificantBits();
+            userHead[user] = NONE;
+            userIds.put(userId, user);
+        } else {
+            user = existing;
+        }
+        users[row] = user;
+        prevInUser[row] = NONE;
+        nextInUser[row] = userHead[user];
+        if (userHead[user] != NONE) {
+            prevInUser[userHead[user]] = row;
+        }
+        userHead[user] = row;
+    }
+
+    private void unlinkFromUser(int row) {
+        int user = users[row];
+        int prev = prevInUser[row];
+        int next = nextInUser[row];
+        if (prev != NONE) {
+            nextInUser[prev] = next;
+        } else {
+            userHead[user] = next;
+        }
+        if (next != NONE) {
+            prevInUser[next] = prev;
+        }
+        if (userHead[user] == NONE) {
+            userIds.remove(new UUID(userMsb[user], userLsb[user]));
+            freeUsers.add(user);
+        }
+    }
+
+    private void storeUrl(int row, String url) {
+        int authorityEnd = authorityEnd(url);
+        String prefix = url.substring(0, authorityEnd);
+        Integer prefixId = prefixIds.get(prefix);
+        if (prefixId == null) {
+            if (freePrefixes.size() > 0) {
+                prefixId = freePrefixes.removeLast();
+            } else {
+                prefixId = prefixSlots++;
+                if (prefixId == prefixList.length) {
+                    prefixList = Arrays.copyOf(prefixList, prefixId * 2);
+                    prefixRefs = Arrays.copyOf(prefixRefs, prefixId * 2);
+                }
+            }
+            prefixList[prefixId] = prefix;
+            prefixIds.put(prefix, prefixId);
+        }
+        prefixRefs[prefixId]++;
+        prefixes[row] = prefixId;
+        tails[row] = url.substring(authorityEnd).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void releasePrefix(int prefixId) {
+        if (--prefixRefs[prefixId] == 0) {
+            prefixIds.remove(prefixList[prefixId]);
+            prefixList[prefixId] = null;
+            freePrefixes.add(prefixId);
+        }
+    }
+
+    private String loadUrl(int row) {
+        return prefixList[prefixes[row]] + new String(tails[row], StandardCharsets.UTF_8);
+    }
+
+    private Object stripe(int row) {
+        return stripes[row & (STRIPES - 1)];
+    }
+
+    private static long reclaimDeadline(ShortUrl shortUrl) {
+        if (shortUrl.getClickCount() >= shortUrl.getMaxClicks()) {
+            return 0;
+        }
+        return shortUrl.getExpiresAtMillis();
+    }
+
+    private static int authorityEnd(String url) {
+        int scheme = url.indexOf("://");
+        if (scheme < 0) {
+            return 0;
+        }
+        int slash = url.indexOf('/', scheme + 3);
+        return slash < 0 ? url.length() : slash;
+    }
+
+    private static long mix(long key) {
+        key = (key ^ (key >>> 33)) * 0xFF51AFD7ED558CCDL;
+        return key ^ (key >>> 33);
+    }
+
+    /** Экземпляр, выданный хранилищем; пока он достижим, поиск по коду возвращает его же. */
+    private static final class LiveRef extends WeakReference<ShortUrl> {
+        final String shortCode;
+
+        LiveRef(ShortUrl url, String shortCode, ReferenceQueue<ShortUrl> queue) {
+            super(url, queue);
+            this.shortCode = shortCode;
+        }
+    }
+
+    /** Растущий массив номеров строк. */
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(IntList other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int removeLast() {
+            return values[--size];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
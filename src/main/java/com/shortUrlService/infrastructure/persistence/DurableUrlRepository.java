@@ -0,0 +1,483 @@
+package com.shortUrlService.infrastructure.persistence;
+
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.infrastructure.shortening.SequenceMarkStore;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Хранилище в памяти, переживающее перезапуск: каждое изменение пишется в {@link WriteAheadLog},
+ * а периодический снимок позволяет отбросить старые сегменты журнала.
+ * <p>
+ * Клики не пишутся по одному: переход лишь помечает ссылку, а фоновый сброс пишет
+ * текущее значение счетчика. При восстановлении счетчик только растет, поэтому
+ * повторное проигрывание записей безопасно.
+ * <p>
+ * Здесь же хранится граница выданных номеров кодов: запись {@link WriteAheadLog#SEQUENCE}
+ * сбрасывается на диск сразу, а после снимка повторяется в первом оставшемся сегменте.
+ */
+public class DurableUrlRepository extends InMemoryUrlRepository implements AutoCloseable, SequenceMarkStore {
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final int SNAPSHOT_END = -1;
+    private static final int SNAPSHOT_CHUNK_LINKS = 4096;
+    private static final int CHUNK_HEADER_BYTES = 8;
+
+    /**
+     * @param segmentBytes           размер сегмента журнала
+     * @param fsyncIntervalMillis    период фонового fsync, если запись не синхронная
+     * @param syncWrites             fsync перед возвратом из каждого изменения
+     * @param clickFlushMillis       период сброса счетчиков кликов в журнал
+     * @param snapshotIntervalMillis период снимков, 0 - только вручную
+     * @param loadParallelism        число потоков разбора снимка при старте
+     */
+    public record Settings(int segmentBytes, long fsyncIntervalMillis, boolean syncWrites,
+                           long clickFlushMillis, long snapshotIntervalMillis, int loadParallelism) {
+        public static Settings defaults() {
+            return new Settings(64 << 20, 50, false, 1000, TimeUnit.MINUTES.toMillis(5),
+                    Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    /**
+     * Время старта: через {@code primaryReadyMillis} после открытия работает поиск по коду,
+     * через {@code fullyIndexedMillis} (-1, пока идет построение) - все индексы.
+     */
+    public record StartupMetrics(int snapshotLinks, int snapshotChunks, long primaryReadyMillis,
+                                 long fullyIndexedMillis) {
+    }
+
+    private final Path directory;
+    private final Settings settings;
+    private final Queue<ShortUrl> dirtyClicks = new ConcurrentLinkedQueue<>();
+    private final Object snapshotLock = new Object();
+    private final Object markLock = new Object();
+    private volatile WriteAheadLog log;
+    private ScheduledExecutorService scheduler;
+    private volatile StartupMetrics startupMetrics;
+    private CompletableFuture<StartupMetrics> fullyIndexed;
+    private volatile long sequenceMark;
+
+    private DurableUrlRepository(Path directory, Clock clock, Settings settings) {
+        super(clock);
+        this.directory = directory;
+        this.settings = settings;
+    }
+
+    /**
+     * Восстанавливает состояние из последнего снимка и хвоста журнала и открывает новый сегмент.
+     * Снимок разбирается параллельно по блокам; метод возвращается, как только готов индекс
+     * по коду, а индексы по пользователю и срокам достраиваются в фоне.
+     */
+    public static DurableUrlRepository open(Path directory, Clock clock, Settings settings) throws IOException {
+        long started = System.nanoTime();
+        Files.createDirectories(directory);
+        DurableUrlRepository repository = new DurableUrlRepository(directory, clock, settings);
+        long firstSegment = repository.recover(started);
+        repository.log = new WriteAheadLog(directory, settings.segmentBytes(), firstSegment);
+        repository.startBackgroundTasks();
+        return repository;
+    }
+
+    public StartupMetrics getStartupMetrics() {
+        return startupMetrics;
+    }
+
+    public CompletionStage<StartupMetrics> whenFullyIndexed() {
+        return fullyIndexed;
+    }
+
+    @Override
+    public void save(ShortUrl shortUrl) {
+        super.save(shortUrl);
+        append(WriteAheadLog.UPSERT, LinkCodec.encode(shortUrl));
+    }
+
+    @Override
+    public boolean saveIfAbsent(ShortUrl shortUrl) {
+        if (!super.saveIfAbsent(shortUrl)) {
+            return false;
+        }
+        append(WriteAheadLog.UPSERT, LinkCodec.encode(shortUrl));
+        return true;
+    }
+
+    @Override
+    public boolean[] saveAllIfAbsent(List<ShortUrl> shortUrls) {
+        boolean[] saved = super.saveAllIfAbsent(shortUrls);
+        WriteAheadLog current = log;
+        if (current != null) {
+            for (int i = 0; i < saved.length; i++) {
+                if (saved[i]) {
+                    current.append(WriteAheadLog.UPSERT, LinkCodec.encode(shortUrls.get(i)));
+                }
+            }
+            // Один fsync на весь пакет
+            if (settings.syncWrites()) {
+                current.force();
+            }
+        }
+        return saved;
+    }
+
+    @Override
+    public boolean removeByShortCode(String shortCode) {
+        if (!super.removeByShortCode(shortCode)) {
+            return false;
+        }
+        append(WriteAheadLog.DELETE, LinkCodec.encodeCode(shortCode));
+        return true;
+    }
+
+    @Override
+    public void recordClick(ShortUrl shortUrl) {
+        super.recordClick(shortUrl);
+        if (shortUrl.markClicksDirty()) {
+            dirtyClicks.add(shortUrl);
+        }
+    }
+
+    /** Запись идет под блокировкой ключа, поэтому не может встать после записи об удалении. */
+    @Override
+    protected void onUpdated(ShortUrl shortUrl) {
+        append(WriteAheadLog.UPSERT, LinkCodec.encode(shortUrl));
+    }
+
+    @Override
+    protected void onReclaimed(ShortUrl shortUrl) {
+        append(WriteAheadLog.DELETE, LinkCodec.encodeCode(shortUrl.getShortCode()));
+    }
+
+    @Override
+    public long loadSequenceMark() {
+        return sequenceMark;
+    }
+
+    @Override
+    public void storeSequenceMark(long mark) {
+        // Граница ставится до записи: снимок, прочитавший старую, видит эту запись в новом сегменте
+        synchronized (markLock) {
+            if (mark <= sequenceMark) {
+                return;
+            }
+            sequenceMark = mark;
+            log.append(WriteAheadLog.SEQUENCE, encodeMark(mark));
+            log.force();
+        }
+    }
+
+    /** Пишет в журнал накопленные счетчики кликов. */
+    public void flushClicks() {
+        ShortUrl url;
+        while ((url = dirtyClicks.poll()) != null) {
+            // Сначала снимаем флаг: клик после этого места снова поставит ссылку в очередь
+            url.clearClicksDirty();
+            if (findByShortCode(url.getShortCode()).orElse(null) == url) {
+                append(WriteAheadLog.CLICKS, LinkCodec.encodeClicks(url.getShortCode(), url.getClickCount()));
+            }
+        }
+    }
+
+    /**
+     * Пишет нечеткий снимок: журнал переключается на новый сегмент, после чего
+     * ссылки обходятся без остановки записи. Все, что изменилось во время обхода,
+     * есть в новом сегменте и будет проиграно поверх снимка.
+     */
+    public void snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            flushClicks();
+            long firstSegment = log.roll();
+            if (sequenceMark > 0) {
+                // Старые сегменты с границей будут удалены: повторяем ее в новом
+                log.append(WriteAheadLog.SEQUENCE, encodeMark(sequenceMark));
+            }
+            Path tmp = directory.resolve(SNAPSHOT_PREFIX + "tmp");
+            try (FileOutputStream file = new FileOutputStream(tmp.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+                SnapshotChunkWriter chunks = new SnapshotChunkWriter(out);
+                forEach(chunks);
+                chunks.finish();
+                out.flush();
+                file.getFD().sync();
+            }
+            Files.move(tmp, snapshotPath(firstSegment), StandardCopyOption.ATOMIC_MOVE);
+            log.force();
+            // Переименование должно дойти до диска раньше удалений, иначе после сбоя
+            // не останется ни нового снимка, ни старых сегментов
+            forceDirectory(directory);
+
+            for (long existing : snapshots()) {
+                if (existing < firstSegment) {
+                    Files.deleteIfExists(snapshotPath(existing));
+                }
+            }
+            log.deleteSegmentsBefore(firstSegment);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        flushClicks();
+        log.close();
+    }
+
+    private void append(byte type, ByteBuffer payload) {
+        WriteAheadLog current = log;
+        if (current == null) {
+            // Восстановление: записи уже лежат в журнале
+            return;
+        }
+        current.append(type, payload);
+        if (settings.syncWrites()) {
+            current.force();
+        }
+    }
+
+    private long recover(long startedNanos) throws IOException {
+        List<Long> snapshots = snapshots();
+        long fromSegment = 0;
+        int[] loaded = {0, 0};
+        if (!snapshots.isEmpty()) {
+            fromSegment = snapshots.get(snapshots.size() - 1);
+            loaded = loadSnapshot(snapshotPath(fromSegment));
+        }
+        // Журнал проигрывается обычными save/remove параллельно с построением индексов
+        CompletableFuture<Void> indexes = rebuildSecondaryIndexes(ForkJoinPool.commonPool());
+        long lastSegment = WriteAheadLog.replay(directory, fromSegment, this::applyRecord);
+
+        int links = loaded[0];
+        int chunks = loaded[1];
+        long primaryReady = elapsedMillis(startedNanos);
+        startupMetrics = new StartupMetrics(links, chunks, primaryReady, -1);
+        fullyIndexed = indexes.thenApply(ignored -> startupMetrics =
+                new StartupMetrics(links, chunks, primaryReady, elapsedMillis(startedNanos)));
+        return lastSegment + 1;
+    }
+
+    private void applyRecord(byte type, ByteBuffer payload) {
+        switch (type) {
+            case WriteAheadLog.UPSERT -> save(LinkCodec.decode(payload));
+            case WriteAheadLog.DELETE -> removeByShortCode(LinkCodec.decodeCode(payload));
+            case WriteAheadLog.SEQUENCE -> sequenceMark = Math.max(sequenceMark, payload.getLong());
+            case WriteAheadLog.CLICKS -> {
+                String shortCode = LinkCodec.decodeCode(payload);
+                int clicks = payload.getInt();
+                findByShortCode(shortCode).ifPresent(url -> observeClicks(url, clicks));
+            }
+            default -> throw new IllegalStateException("Неизвестный тип записи журнала: " + type);
+        }
+    }
+
+    /**
+     * Снимок - последовательность блоков [число ссылок][длина][ссылки][CRC32C] с маркером конца.
+     * Заголовки читаются подряд, сами блоки разбираются на ForkJoinPool позиционным чтением.
+     *
+     * @return число ссылок и число блоков
+     */
+    private int[] loadSnapshot(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            List<long[]> chunks = new ArrayList<>();
+            long position = 0;
+            ByteBuffer header = ByteBuffer.allocate(CHUNK_HEADER_BYTES);
+            while (true) {
+                header.clear();
+                readFully(channel, header, position);
+                int count = header.getInt(0);
+                if (count == SNAPSHOT_END) {
+                    break;
+                }
+                int length = header.getInt(4);
+                chunks.add(new long[]{position + CHUNK_HEADER_BYTES, length, count});
+                position += CHUNK_HEADER_BYTES + length + 4L;
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(Math.max(1, settings.loadParallelism()));
+            try {
+                List<Callable<Integer>> tasks = new ArrayList<>(chunks.size());
+                for (long[] chunk : chunks) {
+                    tasks.add(() -> loadChunk(channel, path, chunk[0], (int) chunk[1]));
+                }
+                int links = 0;
+                for (Future<Integer> result : pool.invokeAll(tasks)) {
+                    links += result.get();
+                }
+                return new int[]{links, chunks.size()};
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Загрузка снимка прервана");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException io) {
+                    throw io;
+                }
+                throw new IllegalStateException("Не удалось разобрать снимок " + path, e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private int loadChunk(FileChannel channel, Path path, long offset, int length) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(length + 4);
+        readFully(channel, data, offset);
+        CRC32C crc = new CRC32C();
+        crc.update(data.array(), 0, length);
+        if ((int) crc.getValue() != data.getInt(length)) {
+            throw new IOException("Снимок поврежден: " + path);
+        }
+        data.limit(length);
+        int links = 0;
+        while (data.hasRemaining()) {
+            int recordLength = data.getInt();
+            ByteBuffer record = data.slice(data.position(), recordLength);
+            data.position(data.position() + recordLength);
+            putPrimary(LinkCodec.decode(record));
+            links++;
+        }
+        return links;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Снимок оборван");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static void forceDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private static ByteBuffer encodeMark(long mark) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(mark).flip();
+    }
+
+    private static long elapsedMillis(long startedNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+    }
+
+    private void startBackgroundTasks() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "url-repository-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!settings.syncWrites() && settings.fsyncIntervalMillis() > 0) {
+            schedule(log::force, settings.fsyncIntervalMillis());
+        }
+        if (settings.clickFlushMillis() > 0) {
+            schedule(this::flushClicks, settings.clickFlushMillis());
+        }
+        if (settings.snapshotIntervalMillis() > 0) {
+            schedule(() -> {
+                try {
+                    snapshot();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, settings.snapshotIntervalMillis());
+        }
+    }
+
+    private void schedule(Runnable task, long periodMillis) {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // Иначе планировщик молча отменит задачу
+                System.err.println("Ошибка фоновой записи журнала: " + e.getMessage());
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private List<Long> snapshots() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX))
+                    .map(name -> Long.parseLong(
+                            name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path snapshotPath(long firstSegment) {
+        return directory.resolve(String.format("%s%016d%s", SNAPSHOT_PREFIX, firstSegment, SNAPSHOT_SUFFIX));
+    }
+
+    /** Копит ссылки в блок и пишет его вместе с контрольной суммой. */
+    private static final class SnapshotChunkWriter implements Consumer<ShortUrl> {
+        private final DataOutputStream out;
+        private final CRC32C crc = new CRC32C();
+        private ByteBuffer chunk = ByteBuffer.allocate(1 << 16);
+        private int count;
+        private IOException failure;
+
+        SnapshotChunkWriter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void accept(ShortUrl url) {
+            if (failure != null) {
+                return;
+            }
+            ByteBuffer record = LinkCodec.encode(url);
+            if (chunk.remaining() < 4 + record.remaining()) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(chunk.capacity() * 2, chunk.position() + 4 + record.remaining()));
+                chunk = larger.put(chunk.flip());
+            }
+            chunk.putInt(record.remaining()).put(record);
+            if (++count == SNAPSHOT_CHUNK_LINKS) {
+                flushChunk();
+            }
+        }
+
+        void finish() throws IOException {
+            if (count > 0) {
+                flushChunk();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            // Маркер конца занимает целый заголовок блока
+            out.writeInt(SNAPSHOT_END);
+            out.writeInt(0);
+        }
+
+        private void flushChunk() {
+            try {
+                crc.reset();
+                crc.update(chunk.array(), 0, chunk.position());
+                out.writeInt(count);
+                out.writeInt(chunk.position());
+                out.write(chunk.array(), 0, chunk.position());
+                out.writeInt((int) crc.getValue());
+            } catch (IOException e) {
+                failure = e;
+            }
+            chunk.clear();
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.shortUrlService.infrastructure.persistence;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * Индекс сроков жизни: коды разложены по корзинам с шагом {@code resolutionMillis},
+ * поэтому очистка просматривает только корзины, чей срок уже наступил.
+ */
+public class ExpiryIndex {
+    private final long resolutionMillis;
+    private final ConcurrentSkipListMap<Long, Set<String>> buckets = new ConcurrentSkipListMap<>();
+    private final Queue<String> due = new ConcurrentLinkedQueue<>();
+
+    public ExpiryIndex(long resolutionMillis) {
+        if (resolutionMillis <= 0) {
+            throw new IllegalArgumentException("Шаг корзин должен быть положительным");
+        }
+        this.resolutionMillis = resolutionMillis;
+    }
+
+    public void schedule(String shortCode, long deadlineMillis) {
+        long key = bucketKey(deadlineMillis);
+        Set<String> bucket = buckets.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet());
+        bucket.add(shortCode);
+        // Корзину могли забрать на очистку до нашей вставки - тогда код проверится в следующий раз
+        if (buckets.get(key) != bucket) {
+            due.add(shortCode);
+        }
+    }
+
+    /** Кладет пакет кодов с одним сроком в корзину за один поиск. */
+    public void scheduleAll(Collection<String> shortCodes, long deadlineMillis) {
+        long key = bucketKey(deadlineMillis);
+        Set<String> bucket = buckets.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet());
+        bucket.addAll(shortCodes);
+        if (buckets.get(key) != bucket) {
+            due.addAll(shortCodes);
+        }
+    }
+
+    /** Ставит код в очередь на ближайшую очистку независимо от срока жизни. */
+    public void scheduleNow(String shortCode) {
+        due.add(shortCode);
+    }
+
+    public void unschedule(String shortCode, long deadlineMillis) {
+        Set<String> bucket = buckets.get(bucketKey(deadlineMillis));
+        if (bucket != null) {
+            bucket.remove(shortCode);
+        }
+    }
+
+    public void reschedule(String shortCode, long oldDeadlineMillis, long newDeadlineMillis) {
+        if (bucketKey(oldDeadlineMillis) != bucketKey(newDeadlineMillis)) {
+            unschedule(shortCode, oldDeadlineMillis);
+            schedule(shortCode, newDeadlineMillis);
+        }
+    }
+
+    /**
+     * Передает в {@code action} коды, чей срок наступил к {@code nowMillis}.
+     * Код может прийти повторно, поэтому обработчик обязан проверять фактическое состояние ссылки.
+     */
+    public void drainDue(long nowMillis, Consumer<String> action) {
+        String shortCode;
+        while ((shortCode = due.poll()) != null) {
+            action.accept(shortCode);
+        }
+
+        Map.Entry<Long, Set<String>> bucket;
+        while ((bucket = buckets.firstEntry()) != null && bucket.getKey() <= nowMillis) {
+            if (buckets.remove(bucket.getKey(), bucket.getValue())) {
+                bucket.getValue().forEach(action);
+            }
+        }
+    }
+
+    public long getResolutionMillis() {
+        return resolutionMillis;
+    }
+
+    private long bucketKey(long deadlineMillis) {
+        return Math.ceilDiv(Math.max(deadlineMillis, 0), resolutionMillis) * resolutionMillis;
+    }
+}
@@ -1,48 +1,292 @@
 package com.shortUrlService.infrastructure.persistence;
 
 import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.domain.model.UserStats;
+import com.shortUrlService.domain.service.UrlRepository;
 
+import java.time.Clock;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
-public class InMemoryUrlRepository {
-    private final Map<String, ShortUrl> byShortCode = new ConcurrentHashMap<>();
-    private final Map<UUID, List<ShortUrl>> byUserId = new ConcurrentHashMap<>();
+public class InMemoryUrlRepository implements UrlRepository {
+    private static final long DEFAULT_EXPIRY_RESOLUTION_MILLIS = 1000;
+    private static final long REBUILD_PARALLELISM_THRESHOLD = 10_000;
 
+    private final ConcurrentHashMap<String, ShortUrl> byShortCode = new ConcurrentHashMap<>();
+    private final Map<UUID, UserLinks> byUserId = new ConcurrentHashMap<>();
+    private final ExpiryIndex expiryIndex;
+    private final Clock clock;
+    private volatile CompletableFuture<Void> secondaryIndexes = CompletableFuture.completedFuture(null);
+
+    public InMemoryUrlRepository() {
+        this(Clock.systemUTC());
+    }
+
+    public InMemoryUrlRepository(Clock clock) {
+        this(new ExpiryIndex(DEFAULT_EXPIRY_RESOLUTION_MILLIS), clock);
+    }
+
+    public InMemoryUrlRepository(ExpiryIndex expiryIndex, Clock clock) {
+        this.expiryIndex = expiryIndex;
+        this.clock = clock;
+    }
+
+    @Override
     public void save(ShortUrl shortUrl) {
-        byShortCode.put(shortUrl.getShortCode(), shortUrl);
+        ShortUrl previous = byShortCode.put(shortUrl.getShortCode(), shortUrl);
+        if (previous != null) {
+            expiryIndex.unschedule(previous.getShortCode(), reclaimDeadline(previous));
+            if (!previous.getUserId().equals(shortUrl.getUserId())) {
+                removeFromUserIndex(previous);
+            }
+        }
+        addToUserIndex(shortUrl);
+        expiryIndex.schedule(shortUrl.getShortCode(), reclaimDeadline(shortUrl));
+    }
 
-        List<ShortUrl> userUrls = byUserId.computeIfAbsent(
-                shortUrl.getUserId(),
-                k -> new ArrayList<>()
-        );
+    /**
+     * Атомарно резервирует код: запись появляется в индексах, только если код свободен.
+     *
+     * @return false, если код уже занят
+     */
+    @Override
+    public boolean saveIfAbsent(ShortUrl shortUrl) {
+        if (byShortCode.putIfAbsent(shortUrl.getShortCode(), shortUrl) != null) {
+            return false;
+        }
+        addToUserIndex(shortUrl);
+        expiryIndex.schedule(shortUrl.getShortCode(), reclaimDeadline(shortUrl));
+        return true;
+    }
 
-        userUrls.removeIf(url -> url.getShortCode().equals(shortUrl.getShortCode()));
-        userUrls.add(shortUrl);
+    /**
+     * Коды занимаются по одному, а индекс пользователя и индекс сроков обновляются
+     * одной операцией на пользователя и на корзину срока.
+     */
+    @Override
+    public boolean[] saveAllIfAbsent(List<ShortUrl> shortUrls) {
+        boolean[] saved = new boolean[shortUrls.size()];
+        Map<UUID, List<ShortUrl>> byUser = new HashMap<>();
+        Map<Long, List<String>> byDeadline = new HashMap<>();
+        for (int i = 0; i < saved.length; i++) {
+            ShortUrl shortUrl = shortUrls.get(i);
+            if (byShortCode.putIfAbsent(shortUrl.getShortCode(), shortUrl) == null) {
+                saved[i] = true;
+                byUser.computeIfAbsent(shortUrl.getUserId(), id -> new ArrayList<>()).add(shortUrl);
+                byDeadline.computeIfAbsent(reclaimDeadline(shortUrl), d -> new ArrayList<>())
+                        .add(shortUrl.getShortCode());
+            }
+        }
+        byUser.forEach(this::addAllToUserIndex);
+        byDeadline.forEach((deadline, codes) -> expiryIndex.scheduleAll(codes, deadline));
+        return saved;
     }
 
+    @Override
     public Optional<ShortUrl> findByShortCode(String shortCode) {
         return Optional.ofNullable(byShortCode.get(shortCode));
     }
 
-    public List<ShortUrl> findByUserId(UUID userId) {
-        return new ArrayList<>(byUserId.getOrDefault(userId, Collections.emptyList()));
+    /**
+     * Возвращает неизменяемое представление ссылок пользователя без копирования;
+     * итерация слабо согласована с параллельными изменениями.
+     */
+    @Override
+    public Collection<ShortUrl> findByUserId(UUID userId) {
+        awaitSecondaryIndexes();
+        UserLinks userLinks = byUserId.get(userId);
+        return userLinks == null
+                ? Collections.emptyList()
+                : Collections.unmodifiableCollection(userLinks.links.values());
+    }
+
+    /** Статистика из агрегатов пользователя, без обхода его ссылок. */
+    @Override
+    public UserStats getUserStats(UUID userId) {
+        awaitSecondaryIndexes();
+        UserLinks userLinks = byUserId.get(userId);
+        return userLinks == null ? UserStats.EMPTY : userLinks.stats();
+    }
+
+    @Override
+    public void recordClick(ShortUrl shortUrl) {
+        UserLinks userLinks = indexedLinks(shortUrl);
+        if (userLinks != null) {
+            userLinks.addClicks(1);
+        }
+    }
+
+    /** Поднимает счетчик кликов до восстановленного значения вместе с агрегатами. */
+    protected void observeClicks(ShortUrl shortUrl, int clicks) {
+        int delta = shortUrl.observeClicks(clicks);
+        UserLinks userLinks = indexedLinks(shortUrl);
+        if (delta > 0 && userLinks != null) {
+            userLinks.addClicks(delta);
+            userLinks.refreshExhausted(shortUrl);
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<ShortUrl> action) {
+        byShortCode.values().forEach(action);
+    }
+
+    /**
+     * Старая запись в индексе сроков остается: при ее наступлении очистка увидит,
+     * что ссылка активна, и перенесет ее на новый срок.
+     */
+    @Override
+    public boolean update(ShortUrl shortUrl) {
+        // Проверка и onUpdated идут под блокировкой ключа: параллельное удаление либо
+        // уже убрало ссылку, либо выполнится целиком после правки
+        boolean[] current = new boolean[1];
+        byShortCode.computeIfPresent(shortUrl.getShortCode(), (code, existing) -> {
+            if (existing == shortUrl) {
+                current[0] = true;
+                onUpdated(shortUrl);
+            }
+            return existing;
+        });
+        if (!current[0]) {
+            return false;
+        }
+        expiryIndex.schedule(shortUrl.getShortCode(), reclaimDeadline(shortUrl));
+        UserLinks userLinks = indexedLinks(shortUrl);
+        if (userLinks != null) {
+            userLinks.refreshExhausted(shortUrl);
+        }
+        return true;
+    }
+
+    /** Ссылка исчерпала лимит кликов: она будет удалена при ближайшей очистке. */
+    @Override
+    public void markInactive(ShortUrl shortUrl) {
+        expiryIndex.scheduleNow(shortUrl.getShortCode());
+        UserLinks userLinks = indexedLinks(shortUrl);
+        if (userLinks != null) {
+            userLinks.refreshExhausted(shortUrl);
+        }
     }
 
-    public void deleteExpired() {
-        byShortCode.values().removeIf(url -> !url.isActive());
-        byUserId.values().forEach(list -> list.removeIf(url -> !url.isActive()));
+    /** Удаляет истекшие ссылки за время, пропорциональное их числу, а не размеру хранилища. */
+    @Override
+    public void deleteExpired(Consumer<ShortUrl> reclaimed) {
+        if (!secondaryIndexes.isDone()) {
+            // Индекс сроков еще строится после загрузки
+            return;
+        }
+        long now = clock.millis();
+        expiryIndex.drainDue(now, shortCode -> {
+            ShortUrl url = byShortCode.get(shortCode);
+            if (url == null) {
+                return;
+            }
+            if (!url.isActive(now)) {
+                if (byShortCode.remove(shortCode, url)) {
+                    removeFromUserIndex(url);
+                    onReclaimed(url);
+                    reclaimed.accept(url);
+                }
+            } else {
+                // Лимит подняли или срок продлили после постановки в очередь
+                expiryIndex.schedule(shortCode,
+                        Math.max(reclaimDeadline(url), now + expiryIndex.getResolutionMillis()));
+            }
+        });
     }
 
+    @Override
     public boolean removeByShortCode(String shortCode) {
         ShortUrl removed = byShortCode.remove(shortCode);
         if (removed != null) {
-            List<ShortUrl> userUrls = byUserId.get(removed.getUserId());
-            if (userUrls != null) {
-                userUrls.removeIf(url -> url.getShortCode().equals(shortCode));
-            }
+            removeFromUserIndex(removed);
+            expiryIndex.unschedule(shortCode, reclaimDeadline(removed));
             return true;
         }
         return false;
     }
-}
\ No newline at end of file
+
+    private void addAllToUserIndex(UUID userId, List<ShortUrl> shortUrls) {
+        byUserId.compute(userId, (id, userLinks) -> {
+            UserLinks links = userLinks != null ? userLinks : new UserLinks();
+            for (ShortUrl shortUrl : shortUrls) {
+                if (byShortCode.get(shortUrl.getShortCode()) == shortUrl) {
+                    links.add(shortUrl);
+                }
+            }
+            return links.isEmpty() ? userLinks : links;
+        });
+    }
+
+    /**
+     * Загрузка с диска: ссылка попадает только в индекс по коду, остальные индексы
+     * достраивает {@link #rebuildSecondaryIndexes(Executor)}.
+     */
+    protected void putPrimary(ShortUrl shortUrl) {
+        byShortCode.put(shortUrl.getShortCode(), shortUrl);
+    }
+
+    /**
+     * Достраивает индекс по пользователю и индекс сроков для ссылок, загруженных через
+     * {@link #putPrimary(ShortUrl)}. Поиск по коду работает сразу, а
+     * {@link #findByUserId(UUID)} дождется окончания построения.
+     */
+    protected CompletableFuture<Void> rebuildSecondaryIndexes(Executor executor) {
+        CompletableFuture<Void> rebuild = CompletableFuture.runAsync(() ->
+                byShortCode.forEachValue(REBUILD_PARALLELISM_THRESHOLD, shortUrl -> {
+                    addToUserIndex(shortUrl);
+                    expiryIndex.schedule(shortUrl.getShortCode(), reclaimDeadline(shortUrl));
+                }), executor);
+        secondaryIndexes = rebuild;
+        return rebuild;
+    }
+
+    private void awaitSecondaryIndexes() {
+        CompletableFuture<Void> pending = secondaryIndexes;
+        if (!pending.isDone()) {
+            pending.join();
+        }
+    }
+
+    private void addToUserIndex(ShortUrl shortUrl) {
+        byUserId.compute(shortUrl.getUserId(), (userId, userLinks) -> {
+            // Ссылку могли удалить между вставкой в основной индекс и этим местом
+            if (byShortCode.get(shortUrl.getShortCode()) != shortUrl) {
+                return userLinks;
+            }
+            UserLinks links = userLinks != null ? userLinks : new UserLinks();
+            links.add(shortUrl);
+            return links;
+        });
+    }
+
+    private UserLinks indexedLinks(ShortUrl shortUrl) {
+        UserLinks userLinks = byUserId.get(shortUrl.getUserId());
+        return userLinks != null && userLinks.contains(shortUrl) ? userLinks : null;
+    }
+
+    /** Вызывается при правке ссылки, пока она гарантированно есть в хранилище. */
+    protected void onUpdated(ShortUrl shortUrl) {
+    }
+
+    /** Вызывается после удаления истекшей ссылки фоновой очисткой. */
+    protected void onReclaimed(ShortUrl shortUrl) {
+    }
+
+    private static long reclaimDeadline(ShortUrl shortUrl) {
+        if (shortUrl.getClickCount() >= shortUrl.getMaxClicks()) {
+            return 0;
+        }
+        return shortUrl.getExpiresAtMillis();
+    }
+
+    private void removeFromUserIndex(ShortUrl shortUrl) {
+        byUserId.computeIfPresent(shortUrl.getUserId(), (userId, userLinks) -> {
+            userLinks.remove(shortUrl);
+            return userLinks.isEmpty() ? null : userLinks;
+        });
+    }
+}
@@ -0,0 +1,67 @@
+package com.shortUrlService.infrastructure.persistence;
+
+import com.shortUrlService.domain.model.ShortUrl;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Двоичный формат ссылки для журнала, снимков и передачи разделов между узлами:
+ * код, владелец (два long), URL, клики, лимит, создание, истечение.
+ */
+public final class LinkCodec {
+    private LinkCodec() {
+    }
+
+    public static ByteBuffer encode(ShortUrl url) {
+        byte[] code = url.getShortCode().getBytes(StandardCharsets.UTF_8);
+        byte[] target = url.getOriginalUrl().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(2 + code.length + 16 + 4 + target.length + 4 + 4 + 8 + 8);
+        buffer.putShort((short) code.length).put(code);
+        buffer.putLong(url.getUserId().getMostSignificantBits());
+        buffer.putLong(url.getUserId().getLeastSignificantBits());
+        buffer.putInt(target.length).put(target);
+        buffer.putInt(url.getClickCount());
+        buffer.putInt(url.getMaxClicks());
+        buffer.putLong(url.getCreatedAtMillis());
+        buffer.putLong(url.getExpiresAtMillis());
+        return buffer.flip();
+    }
+
+    public static ShortUrl decode(ByteBuffer buffer) {
+        String code = readString(buffer, buffer.getShort());
+        UUID userId = new UUID(buffer.getLong(), buffer.getLong());
+        String target = readString(buffer, buffer.getInt());
+        return ShortUrl.builder()
+                .shortCode(code)
+                .userId(userId)
+                .originalUrl(target)
+                .clickCount(buffer.getInt())
+                .maxClicks(buffer.getInt())
+                .createdAtMillis(buffer.getLong())
+                .expiresAtMillis(buffer.getLong())
+                .build();
+    }
+
+    static ByteBuffer encodeCode(String shortCode) {
+        byte[] code = shortCode.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(2 + code.length).putShort((short) code.length).put(code).flip();
+    }
+
+    static ByteBuffer encodeClicks(String shortCode, int clicks) {
+        byte[] code = shortCode.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(2 + code.length + 4)
+                .putShort((short) code.length).put(code).putInt(clicks).flip();
+    }
+
+    static String decodeCode(ByteBuffer buffer) {
+        return readString(buffer, buffer.getShort());
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
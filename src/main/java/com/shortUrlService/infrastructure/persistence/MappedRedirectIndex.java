@@ -0,0 +1,620 @@
+package com.shortUrlService.infrastructure.persistence;
+
+import com.shortUrlService.domain.model.ResolveResult;
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.infrastructure.shortening.Base62;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.Arrays;
+
+/**
+ * Индекс переходов вне кучи: код -> (адрес перехода, срок, лимит, клики) в одном файле,
+ * отображенном в память. Файл: [заголовок][таблица с открытой адресацией][арена адресов].
+ * Ключ таблицы - числовое значение кода в base62 (для кода из 6 символов это 36 бит)
+ * с длиной кода в старших битах. Адрес хранится в арене один раз, уже в ASCII
+ * с percent-кодированием, и готов к записи в заголовок Location без преобразования в строку.
+ * <p>
+ * Чтение идет без блокировок и без выделения памяти: поля ячейки публикуются до ключа,
+ * а арена только дописывается. Запись - под монитором индекса; освобожденные ячейки
+ * не переиспользуются до перестроения, поэтому читатель не увидит поля чужого кода.
+ * При заполнении таблица и арена переписываются в новый файл без удаленных и отживших
+ * ссылок, и файл подменяется атомарным переименованием.
+ * <p>
+ * После {@link #close()} файл помечен как согласованный и открывается повторно
+ * отображением, без чтения содержимого. Если процесс завершился аварийно,
+ * {@link #wasCleanlyClosed()} вернет false, и индекс нужно заполнить из хранилища заново.
+ */
+public class MappedRedirectIndex implements AutoCloseable {
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final VarHandle INTS =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    private static final int MAGIC = 0x52444958;
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 64;
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_CAPACITY = 8;
+    private static final int H_CLEAN = 12;
+    private static final int H_SIZE = 16;
+    private static final int H_USED = 20;
+    private static final int H_ARENA_END = 24;
+
+    private static final int SLOT_BYTES = 32;
+    private static final int S_KEY = 0;
+    private static final int S_TARGET = 8;
+    private static final int S_EXPIRES = 16;
+    private static final int S_MAX_CLICKS = 24;
+    private static final int S_CLICKS = 28;
+
+    private static final long EMPTY = 0;
+    private static final long TOMBSTONE = -1;
+    private static final int MIN_CAPACITY = 1024;
+    // Заголовок и таблица отображаются одним буфером, а он не больше 2 ГБ
+    private static final int MAX_CAPACITY = 1 << 25;
+
+    private static final int ARENA_CHUNK_BITS = 26;
+    private static final long ARENA_CHUNK_BYTES = 1L << ARENA_CHUNK_BITS;
+    private static final int LENGTH_BITS = 24;
+    private static final int MAX_TARGET_BYTES = (1 << LENGTH_BITS) - 1;
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    /** Отображение файла одного поколения: таблица и дописываемые блоки арены. */
+    private static final class Table {
+        final FileChannel channel;
+        final MappedByteBuffer slots;
+        final int mask;
+        final long arenaBase;
+        volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+
+        Table(FileChannel channel, MappedByteBuffer slots, int capacity) {
+            this.channel = channel;
+            this.slots = slots;
+            this.mask = capacity - 1;
+            this.arenaBase = HEADER_BYTES + (long) capacity * SLOT_BYTES;
+        }
+
+        int capacity() {
+            return mask + 1;
+        }
+
+        MappedByteBuffer chunk(int index) {
+            MappedByteBuffer[] current = chunks;
+            if (index < current.length) {
+                return current[index];
+            }
+            try {
+                MappedByteBuffer[] grown = Arrays.copyOf(current, index + 1);
+                for (int i = current.length; i <= index; i++) {
+                    grown[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                            arenaBase + i * ARENA_CHUNK_BYTES, ARENA_CHUNK_BYTES);
+                }
+                chunks = grown;
+                return grown[index];
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Запись индекса, скопированная при поиске. Экземпляр переиспользуется между
+     * поисками одного потока, поэтому чтение не выделяет память.
+     */
+    public static final class Entry {
+        private Table table;
+        private long target;
+        private long expiresAtMillis;
+        private int maxClicks;
+        private int clicks;
+
+        /** Исход перехода по данным индекса; клик при этом не засчитывается. */
+        public ResolveResult.Status status(long nowMillis) {
+            if (nowMillis >= expiresAtMillis) {
+                return ResolveResult.Status.EXPIRED;
+            }
+            return clicks >= maxClicks ? ResolveResult.Status.LIMIT_REACHED : ResolveResult.Status.REDIRECT;
+        }
+
+        public int targetLength() {
+            return (int) (target & MAX_TARGET_BYTES);
+        }
+
+        /** Копирует байты адреса в {@code dst} с его текущей позиции. */
+        public void copyTarget(ByteBuffer dst) {
+            long offset = target >>> LENGTH_BITS;
+            int length = targetLength();
+            MappedByteBuffer chunk = table.chunk((int) (offset >>> ARENA_CHUNK_BITS));
+            dst.put(dst.position(), chunk, (int) (offset & (ARENA_CHUNK_BYTES - 1)), length);
+            dst.position(dst.position() + length);
+        }
+
+        public String target() {
+            ByteBuffer bytes = ByteBuffer.allocate(targetLength());
+            copyTarget(bytes);
+            return new String(bytes.array(), StandardCharsets.US_ASCII);
+        }
+
+        public long getExpiresAtMillis() {
+            return expiresAtMillis;
+        }
+
+        public int getMaxClicks() {
+            return maxClicks;
+        }
+
+        public int getClickCount() {
+            return clicks;
+        }
+    }
+
+    private final Path file;
+    private final Clock clock;
+    private final boolean cleanlyClosed;
+    private volatile Table table;
+    private int size;
+    private int used;
+    private long arenaEnd;
+    private byte[] encoded = new byte[256];
+
+    private MappedRedirectIndex(Path file, Clock clock, Table table, boolean cleanlyClosed) {
+        this.file = file;
+        this.clock = clock;
+        this.table = table;
+        this.cleanlyClosed = cleanlyClosed;
+        this.size = (int) INTS.get(table.slots, H_SIZE);
+        this.used = (int) INTS.get(table.slots, H_USED);
+        this.arenaEnd = (long) LONGS.get(table.slots, H_ARENA_END);
+    }
+
+    /**
+     * Открывает индекс или создает пустой. Файл другой версии или с другим порядком
+     * байтов заменяется пустым индексом, и {@link #wasCleanlyClosed()} вернет false.
+     */
+    public static MappedRedirectIndex open(Path file, Clock clock) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        if (Files.exists(file)) {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Table existing = mapExisting(channel);
+            if (existing != null) {
+                boolean clean = (int) INTS.get(existing.slots, H_CLEAN) == 1;
+                INTS.setVolatile(existing.slots, H_CLEAN, 0);
+                existing.slots.force();
+                return new MappedRedirectIndex(file, clock, existing, clean);
+            }
+            channel.close();
+        }
+        Path created = file.resolveSibling(file.getFileName() + ".tmp");
+        createFile(created, MIN_CAPACITY).channel.close();
+        Files.move(created, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Table fresh = mapExisting(FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        return new MappedRedirectIndex(file, clock, fresh, false);
+    }
+
+    /** @return true, если файл был закрыт через {@link #close()} и отражает хранилище */
+    public boolean wasCleanlyClosed() {
+        return cleanlyClosed;
+    }
+
+    /** Исход перехода по записи на текущий момент; клик при этом не засчитывается. */
+    public ResolveResult.Status statusOf(Entry entry) {
+        return entry.status(clock.millis());
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Ищет код без блокировок и без выделения памяти.
+     *
+     * @return false, если кода нет в индексе; иначе поля записаны в {@code entry}
+     */
+    public boolean find(CharSequence shortCode, Entry entry) {
+        long key = keyOf(shortCode);
+        if (key == EMPTY) {
+            return false;
+        }
+        Table current = table;
+        MappedByteBuffer slots = current.slots;
+        int slot = hash(key) & current.mask;
+        while (true) {
+            int base = slotOffset(slot);
+            long stored = (long) LONGS.getAcquire(slots, base + S_KEY);
+            if (stored == EMPTY) {
+                return false;
+            }
+            if (stored == key) {
+                entry.table = current;
+                entry.target = (long) LONGS.getAcquire(slots, base + S_TARGET);
+                entry.expiresAtMillis = (long) LONGS.getOpaque(slots, base + S_EXPIRES);
+                entry.maxClicks = (int) INTS.getOpaque(slots, base + S_MAX_CLICKS);
+                entry.clicks = (int) INTS.getOpaque(slots, base + S_CLICKS);
+                return true;
+            }
+            slot = (slot + 1) & current.mask;
+        }
+    }
+
+    /** Добавляет ссылку или заменяет запись с тем же кодом. */
+    public synchronized void put(ShortUrl url) {
+        long key = keyOf(url.getShortCode());
+        if (key == EMPTY) {
+            // Код не из base62 длиной до 10 символов - переход пойдет через хранилище
+            return;
+        }
+        ensureCapacity();
+        int length = encodeTarget(url.getOriginalUrl());
+        if (length > MAX_TARGET_BYTES) {
+            return;
+        }
+        long target = appendTarget(length);
+
+        Table current = table;
+        MappedByteBuffer slots = current.slots;
+        int slot = hash(key) & current.mask;
+        boolean exists = false;
+        while (true) {
+            long stored = (long) LONGS.get(slots, slotOffset(slot) + S_KEY);
+            if (stored == key) {
+                exists = true;
+                break;
+            }
+            if (stored == EMPTY) {
+                break;
+            }
+            slot = (slot + 1) & current.mask;
+        }
+        int base = slotOffset(slot);
+        LONGS.setOpaque(slots, base + S_EXPIRES, url.getExpiresAtMillis());
+        INTS.setOpaque(slots, base + S_MAX_CLICKS, url.getMaxClicks());
+        INTS.setOpaque(slots, base + S_CLICKS, url.getClickCount());
+        LONGS.setRelease(slots, base + S_TARGET, target);
+        if (!exists) {
+            LONGS.setRelease(slots, base + S_KEY, key);
+            size++;
+            used++;
+            writeCounters(current);
+        }
+    }
+
+    /** Переносит в индекс лимит, срок и клики ссылки, измененной на месте. */
+    public synchronized void refresh(ShortUrl url) {
+        Table current = table;
+        int base = locate(current, keyOf(url.getShortCode()));
+        if (base < 0) {
+            return;
+        }
+        LONGS.setOpaque(current.slots, base + S_EXPIRES, url.getExpiresAtMillis());
+        INTS.setOpaque(current.slots, base + S_MAX_CLICKS, url.getMaxClicks());
+        raiseClicks(current.slots, base, url.getClickCount());
+    }
+
+    /**
+     * Поднимает счетчик кликов до {@code clicks} без блокировки. Клик, записанный
+     * во время перестроения, может не попасть в новый файл; следующий клик его догонит.
+     */
+    public void observeClicks(CharSequence shortCode, int clicks) {
+        Table current = table;
+        int base = locate(current, keyOf(shortCode));
+        if (base >= 0) {
+            raiseClicks(current.slots, base, clicks);
+        }
+    }
+
+    public synchronized boolean remove(CharSequence shortCode) {
+        Table current = table;
+        int base = locate(current, keyOf(shortCode));
+        if (base < 0) {
+            return false;
+        }
+        LONGS.setRelease(current.slots, base + S_KEY, TOMBSTONE);
+        size--;
+        writeCounters(current);
+        return true;
+    }
+
+    /** Удаляет все записи; используется перед заполнением индекса из хранилища. */
+    public synchronized void clear() {
+        rebuild(false);
+    }
+
+    /** Сбрасывает отображение на диск. */
+    public synchronized void force() {
+        table.slots.force();
+        for (MappedByteBuffer chunk : table.chunks) {
+            chunk.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        Table current = table;
+        writeCounters(current);
+        force();
+        INTS.setVolatile(current.slots, H_CLEAN, 1);
+        current.slots.force();
+        current.channel.close();
+    }
+
+    private void ensureCapacity() {
+        Table current = table;
+        if ((used + 1) * 4L <= current.capacity() * 3L) {
+            return;
+        }
+        rebuild(true);
+    }
+
+    /**
+     * Переписывает живые записи в новый файл. Вместимость выбирается так, чтобы таблица
+     * была заполнена не больше чем наполовину; отжившие ссылки в новый файл не попадают.
+     */
+    private void rebuild(boolean keepEntries) {
+        Table current = table;
+        long now = clock.millis();
+        Entry entry = new Entry();
+        int live = 0;
+        if (keepEntries) {
+            for (int slot = 0; slot < current.capacity(); slot++) {
+                if (readLive(current, slot, now, entry) != EMPTY) {
+                    live++;
+                }
+            }
+        }
+        int capacity = MIN_CAPACITY;
+        while (capacity < live * 2L) {
+            capacity <<= 1;
+        }
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalStateException("Индекс переходов переполнен: " + live + " записей");
+        }
+
+        Path next = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Table rebuilt = createFile(next, capacity);
+            int copied = 0;
+            long copiedArena = 0;
+            ByteBuffer scratch = ByteBuffer.wrap(encoded);
+            if (keepEntries) {
+                for (int slot = 0; slot < current.capacity(); slot++) {
+                    long key = readLive(current, slot, now, entry);
+                    if (key == EMPTY) {
+                        continue;
+                    }
+                    int length = entry.targetLength();
+                    if (scratch.capacity() < length) {
+                        encoded = new byte[Integer.highestOneBit(length) << 1];
+                        scratch = ByteBuffer.wrap(encoded);
+                    }
+                    scratch.clear();
+                    entry.copyTarget(scratch);
+                    long offset = placeTarget(rebuilt, copiedArena, length);
+                    copiedArena = offset + length;
+
+                    int target = hash(key) & rebuilt.mask;
+                    while ((long) LONGS.get(rebuilt.slots, slotOffset(target) + S_KEY) != EMPTY) {
+                        target = (target + 1) & rebuilt.mask;
+                    }
+                    int base = slotOffset(target);
+                    LONGS.set(rebuilt.slots, base + S_KEY, key);
+                    LONGS.set(rebuilt.slots, base + S_TARGET, offset << LENGTH_BITS | length);
+                    LONGS.set(rebuilt.slots, base + S_EXPIRES, entry.expiresAtMillis);
+                    INTS.set(rebuilt.slots, base + S_MAX_CLICKS, entry.maxClicks);
+                    INTS.set(rebuilt.slots, base + S_CLICKS, entry.clicks);
+                    copied++;
+                }
+            }
+            size = copied;
+            used = copied;
+            arenaEnd = copiedArena;
+            writeCounters(rebuilt);
+            rebuilt.slots.force();
+            for (MappedByteBuffer chunk : rebuilt.chunks) {
+                chunk.force();
+            }
+            Files.move(next, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            table = rebuilt;
+            // Отображение старого файла остается действительным для читателей, взявших его раньше
+            current.channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось перестроить индекс переходов " + file, e);
+        }
+    }
+
+    /** @return ключ записи, если ячейка занята ссылкой, которая еще может перенаправлять */
+    private static long readLive(Table table, int slot, long now, Entry entry) {
+        int base = slotOffset(slot);
+        long key = (long) LONGS.get(table.slots, base + S_KEY);
+        if (key == EMPTY || key == TOMBSTONE) {
+            return EMPTY;
+        }
+        entry.table = table;
+        entry.target = (long) LONGS.get(table.slots, base + S_TARGET);
+        entry.expiresAtMillis = (long) LONGS.get(table.slots, base + S_EXPIRES);
+        entry.maxClicks = (int) INTS.get(table.slots, base + S_MAX_CLICKS);
+        entry.clicks = (int) INTS.get(table.slots, base + S_CLICKS);
+        return entry.status(now) == ResolveResult.Status.REDIRECT ? key : EMPTY;
+    }
+
+    private long appendTarget(int length) {
+        Table current = table;
+        long offset = placeTarget(current, arenaEnd, length);
+        arenaEnd = offset + length;
+        writeCounters(current);
+        return offset << LENGTH_BITS | length;
+    }
+
+    /** Пишет {@link #encoded} в арену с позиции {@code from}; адрес не пересекает границу блока. */
+    private long placeTarget(Table target, long from, int length) {
+        long offset = from;
+        if ((offset & (ARENA_CHUNK_BYTES - 1)) + length > ARENA_CHUNK_BYTES) {
+            offset = (offset | (ARENA_CHUNK_BYTES - 1)) + 1;
+        }
+        MappedByteBuffer chunk = target.chunk((int) (offset >>> ARENA_CHUNK_BITS));
+        chunk.put((int) (offset & (ARENA_CHUNK_BYTES - 1)), encoded, 0, length);
+        return offset;
+    }
+
+    /** Кодирует адрес в {@link #encoded}; @return длина в байтах */
+    private int encodeTarget(String url) {
+        // Худший случай - 9 байт на символ (%XX на каждый байт UTF-8)
+        if (encoded.length < url.length() * 9) {
+            encoded = new byte[url.length() * 9];
+        }
+        ByteBuffer dst = ByteBuffer.wrap(encoded);
+        encodeTarget(url, dst);
+        return dst.position();
+    }
+
+    /**
+     * Записывает адрес в виде для заголовка Location: печатные ASCII-символы как есть,
+     * остальное - percent-кодированием байтов UTF-8.
+     *
+     * @return false, если адрес не поместился; позиция {@code dst} тогда не определена
+     */
+    public static boolean encodeTarget(CharSequence url, ByteBuffer dst) {
+        for (int i = 0; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (dst.remaining() < 12) {
+                return false;
+            }
+            if (c > 0x20 && c < 0x7F) {
+                dst.put((byte) c);
+                continue;
+            }
+            int codePoint = c;
+            if (Character.isHighSurrogate(c) && i + 1 < url.length()
+                    && Character.isLowSurrogate(url.charAt(i + 1))) {
+                codePoint = Character.toCodePoint(c, url.charAt(++i));
+            } else if (Character.isSurrogate(c)) {
+                codePoint = '?';
+            }
+            if (codePoint < 0x80) {
+                percent(dst, codePoint);
+            } else if (codePoint < 0x800) {
+                percent(dst, 0xC0 | (codePoint >> 6));
+                percent(dst, 0x80 | (codePoint & 0x3F));
+            } else if (codePoint < 0x10000) {
+                percent(dst, 0xE0 | (codePoint >> 12));
+                percent(dst, 0x80 | ((codePoint >> 6) & 0x3F));
+                percent(dst, 0x80 | (codePoint & 0x3F));
+            } else {
+                percent(dst, 0xF0 | (codePoint >> 18));
+                percent(dst, 0x80 | ((codePoint >> 12) & 0x3F));
+                percent(dst, 0x80 | ((codePoint >> 6) & 0x3F));
+                percent(dst, 0x80 | (codePoint & 0x3F));
+            }
+        }
+        return true;
+    }
+
+    private static void percent(ByteBuffer dst, int value) {
+        dst.put((byte) '%').put(HEX[value >> 4]).put(HEX[value & 15]);
+    }
+
+    private static void raiseClicks(MappedByteBuffer slots, int base, int clicks) {
+        int current;
+        do {
+            current = (int) INTS.getOpaque(slots, base + S_CLICKS);
+            if (current >= clicks) {
+                return;
+            }
+        } while (!INTS.weakCompareAndSet(slots, base + S_CLICKS, current, clicks));
+    }
+
+    /** @return смещение ячейки с ключом или -1 */
+    private static int locate(Table table, long key) {
+        if (key == EMPTY) {
+            return -1;
+        }
+        int slot = hash(key) & table.mask;
+        while (true) {
+            int base = slotOffset(slot);
+            long stored = (long) LONGS.getAcquire(table.slots, base + S_KEY);
+            if (stored == key) {
+                return base;
+            }
+            if (stored == EMPTY) {
+                return -1;
+            }
+            slot = (slot + 1) & table.mask;
+        }
+    }
+
+    private void writeCounters(Table target) {
+        INTS.set(target.slots, H_SIZE, size);
+        INTS.set(target.slots, H_USED, used);
+        LONGS.set(target.slots, H_ARENA_END, arenaEnd);
+    }
+
+    private static Table createFile(Path path, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer slots = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                HEADER_BYTES + (long) capacity * SLOT_BYTES);
+        INTS.set(slots, H_MAGIC, MAGIC);
+        INTS.set(slots, H_VERSION, VERSION);
+        INTS.set(slots, H_CAPACITY, capacity);
+        return new Table(channel, slots, capacity);
+    }
+
+    /** @return отображение файла или null, если это не индекс этой версии */
+    private static Table mapExisting(FileChannel channel) throws IOException {
+        if (channel.size() < HEADER_BYTES) {
+            return null;
+        }
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+        int capacity = (int) INTS.get(header, H_CAPACITY);
+        if ((int) INTS.get(header, H_MAGIC) != MAGIC || (int) INTS.get(header, H_VERSION) != VERSION
+                || Integer.bitCount(capacity) != 1 || capacity > MAX_CAPACITY
+                || channel.size() < HEADER_BYTES + (long) capacity * SLOT_BYTES) {
+            return null;
+        }
+        MappedByteBuffer slots = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                HEADER_BYTES + (long) capacity * SLOT_BYTES);
+        Table table = new Table(channel, slots, capacity);
+        long arenaEnd = (long) LONGS.get(slots, H_ARENA_END);
+        if (arenaEnd > 0) {
+            table.chunk((int) ((arenaEnd - 1) >>> ARENA_CHUNK_BITS));
+        }
+        return table;
+    }
+
+    /**
+     * Длина кода в старших 4 битах отличает "abc" от "aabc" и не дает ключу совпасть
+     * с {@link #EMPTY} или {@link #TOMBSTONE}; 62^10 укладывается в младшие 60 бит.
+     *
+     * @return ключ или {@link #EMPTY}, если код не из base62 длиной до 10 символов
+     */
+    private static long keyOf(CharSequence shortCode) {
+        long value = Base62.decode(shortCode);
+        return value < 0 ? EMPTY : (long) shortCode.length() << 60 | value;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+}
@@ -0,0 +1,123 @@
+package com.shortUrlService.infrastructure.persistence;
+
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.domain.model.UserStats;
+import com.shortUrlService.domain.service.UrlRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Сквозная запись в {@link MappedRedirectIndex} перед любым {@link UrlRepository}.
+ * Хранилище остается источником истины для лимитов, журнала и уведомлений, а индекс
+ * повторяет данные перехода каждой ссылки, чтобы ответ на переход можно было собрать
+ * без обращения к {@link ShortUrl}. Ссылки, удаленные фоновой очисткой, удаляются и из
+ * индекса.
+ */
+public class RedirectIndexingUrlRepository implements UrlRepository {
+    private final UrlRepository delegate;
+    private final MappedRedirectIndex index;
+
+    public RedirectIndexingUrlRepository(UrlRepository delegate, MappedRedirectIndex index) {
+        this.delegate = delegate;
+        this.index = index;
+    }
+
+    /** Заполняет индекс из хранилища, если файл индекса не был закрыт штатно. */
+    public RedirectIndexingUrlRepository syncIfStale() {
+        if (!index.wasCleanlyClosed()) {
+            index.clear();
+            delegate.forEach(index::put);
+        }
+        return this;
+    }
+
+    @Override
+    public void save(ShortUrl shortUrl) {
+        delegate.save(shortUrl);
+        index.put(shortUrl);
+    }
+
+    @Override
+    public boolean saveIfAbsent(ShortUrl shortUrl) {
+        if (!delegate.saveIfAbsent(shortUrl)) {
+            return false;
+        }
+        index.put(shortUrl);
+        return true;
+    }
+
+    @Override
+    public boolean[] saveAllIfAbsent(List<ShortUrl> shortUrls) {
+        boolean[] saved = delegate.saveAllIfAbsent(shortUrls);
+        for (int i = 0; i < saved.length; i++) {
+            if (saved[i]) {
+                index.put(shortUrls.get(i));
+            }
+        }
+        return saved;
+    }
+
+    @Override
+    public Optional<ShortUrl> findByShortCode(String shortCode) {
+        return delegate.findByShortCode(shortCode);
+    }
+
+    @Override
+    public Collection<ShortUrl> findByUserId(UUID userId) {
+        return delegate.findByUserId(userId);
+    }
+
+    @Override
+    public UserStats getUserStats(UUID userId) {
+        return delegate.getUserStats(userId);
+    }
+
+    @Override
+    public void recordClick(ShortUrl shortUrl) {
+        delegate.recordClick(shortUrl);
+        index.observeClicks(shortUrl.getShortCode(), shortUrl.getClickCount());
+    }
+
+    @Override
+    public boolean update(ShortUrl shortUrl) {
+        if (!delegate.update(shortUrl)) {
+            return false;
+        }
+        index.refresh(shortUrl);
+        return true;
+    }
+
+    @Override
+    public void markInactive(ShortUrl shortUrl) {
+        delegate.markInactive(shortUrl);
+        index.refresh(shortUrl);
+    }
+
+    @Override
+    public void deleteExpired(Consumer<ShortUrl> reclaimed) {
+        delegate.deleteExpired(shortUrl -> {
+            index.remove(shortUrl.getShortCode());
+            reclaimed.accept(shortUrl);
+        });
+    }
+
+    @Override
+    public boolean removeByShortCode(String shortCode) {
+        boolean removed = delegate.removeByShortCode(shortCode);
+        index.remove(shortCode);
+        return removed;
+    }
+
+    @Override
+    public void forEach(Consumer<ShortUrl> action) {
+        delegate.forEach(action);
+    }
+
+    public MappedRedirectIndex getIndex() {
+        return index;
+    }
+}
@@ -0,0 +1,239 @@
+package com.shortUrlService.infrastructure.persistence;
+
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.domain.model.UserStats;
+import com.shortUrlService.domain.service.UrlRepository;
+
+import java.time.Clock;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Хранилище в памяти, разбитое на независимые разделы по хешу короткого кода. У каждого
+ * раздела свои индексы и свой индекс сроков, поэтому очистка и пакетные операции идут
+ * по разделам параллельно и не задерживают переходы по ссылкам других разделов.
+ * Ссылки одного пользователя лежат в разных разделах; запросы по пользователю
+ * собирают их без копирования.
+ */
+public class ShardedUrlRepository implements UrlRepository {
+    private static final long EXPIRY_RESOLUTION_MILLIS = 1000;
+
+    private final InMemoryUrlRepository[] shards;
+    private final ToIntFunction<String> shardOf;
+
+    /** @param shardCount число разделов; округляется вверх до степени двойки */
+    public ShardedUrlRepository(int shardCount, Clock clock) {
+        this(roundUpToPowerOfTwo(shardCount), null, clock);
+    }
+
+    /**
+     * Разделы с явным правилом выбора: {@code shardOf} возвращает номер раздела
+     * от 0 до {@code shardCount - 1} по короткому коду.
+     */
+    public ShardedUrlRepository(int shardCount, ToIntFunction<String> shardOf, Clock clock) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Число разделов должно быть положительным");
+        }
+        this.shards = new InMemoryUrlRepository[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new InMemoryUrlRepository(new ExpiryIndex(EXPIRY_RESOLUTION_MILLIS), clock);
+        }
+        int mask = shardCount - 1;
+        this.shardOf = shardOf != null ? shardOf : shortCode -> {
+            int hash = shortCode.hashCode();
+            // Старшие биты хеша перемешиваются с младшими, как в HashMap
+            return (hash ^ (hash >>> 16)) & mask;
+        };
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public void save(ShortUrl shortUrl) {
+        shardFor(shortUrl.getShortCode()).save(shortUrl);
+    }
+
+    @Override
+    public boolean saveIfAbsent(ShortUrl shortUrl) {
+        return shardFor(shortUrl.getShortCode()).saveIfAbsent(shortUrl);
+    }
+
+    /** Пакет раскладывается по разделам, и разделы сохраняют свои части параллельно. */
+    @Override
+    public boolean[] saveAllIfAbsent(List<ShortUrl> shortUrls) {
+        List<List<ShortUrl>> parts = new ArrayList<>(shards.length);
+        List<int[]> positions = new ArrayList<>(shards.length);
+        int[] sizes = new int[shards.length];
+        for (ShortUrl shortUrl : shortUrls) {
+            sizes[shardIndex(shortUrl.getShortCode())]++;
+        }
+        for (int size : sizes) {
+            parts.add(new ArrayList<>(size));
+            positions.add(new int[size]);
+        }
+        for (int i = 0; i < shortUrls.size(); i++) {
+            int shard = shardIndex(shortUrls.get(i).getShortCode());
+            positions.get(shard)[parts.get(shard).size()] = i;
+            parts.get(shard).add(shortUrls.get(i));
+        }
+
+        boolean[] saved = new boolean[shortUrls.size()];
+        IntStream.range(0, shards.length).parallel().forEach(index -> {
+            List<ShortUrl> part = parts.get(index);
+            if (part.isEmpty()) {
+                return;
+            }
+            boolean[] partSaved = shards[index].saveAllIfAbsent(part);
+            int[] partPositions = positions.get(index);
+            for (int i = 0; i < partSaved.length; i++) {
+                saved[partPositions[i]] = partSaved[i];
+            }
+        });
+        return saved;
+    }
+
+    @Override
+    public Optional<ShortUrl> findByShortCode(String shortCode) {
+        return shardFor(shortCode).findByShortCode(shortCode);
+    }
+
+    /** Живое неизменяемое представление, сцепляющее ссылки пользователя из всех разделов. */
+    @Override
+    public Collection<ShortUrl> findByUserId(UUID userId) {
+        List<Collection<ShortUrl>> parts = new ArrayList<>(shards.length);
+        for (InMemoryUrlRepository shard : shards) {
+            Collection<ShortUrl> part = shard.findByUserId(userId);
+            if (!part.isEmpty()) {
+                parts.add(part);
+            }
+        }
+        return switch (parts.size()) {
+            case 0 -> Collections.emptyList();
+            case 1 -> parts.get(0);
+            default -> new Concatenation(parts);
+        };
+    }
+
+    @Override
+    public UserStats getUserStats(UUID userId) {
+        long links = 0;
+        long active = 0;
+        long inactive = 0;
+        long clicks = 0;
+        for (InMemoryUrlRepository shard : shards) {
+            UserStats stats = shard.getUserStats(userId);
+            links += stats.links();
+            active += stats.active();
+            inactive += stats.inactive();
+            clicks += stats.totalClicks();
+        }
+        return links == 0 ? UserStats.EMPTY : new UserStats(links, active, inactive, clicks);
+    }
+
+    @Override
+    public void recordClick(ShortUrl shortUrl) {
+        shardFor(shortUrl.getShortCode()).recordClick(shortUrl);
+    }
+
+    @Override
+    public boolean update(ShortUrl shortUrl) {
+        return shardFor(shortUrl.getShortCode()).update(shortUrl);
+    }
+
+    @Override
+    public void markInactive(ShortUrl shortUrl) {
+        shardFor(shortUrl.getShortCode()).markInactive(shortUrl);
+    }
+
+    /** Разделы очищаются параллельно, каждый - только свои наступившие сроки. */
+    @Override
+    public void deleteExpired(Consumer<ShortUrl> reclaimed) {
+        Arrays.stream(shards).parallel().forEach(shard -> shard.deleteExpired(reclaimed));
+    }
+
+    @Override
+    public boolean removeByShortCode(String shortCode) {
+        return shardFor(shortCode).removeByShortCode(shortCode);
+    }
+
+    /** Обходит ссылки одного раздела, не затрагивая остальные. */
+    public void forEachInShard(int shard, Consumer<ShortUrl> action) {
+        shards[shard].forEach(action);
+    }
+
+    @Override
+    public void forEach(Consumer<ShortUrl> action) {
+        for (InMemoryUrlRepository shard : shards) {
+            shard.forEach(action);
+        }
+    }
+
+    private InMemoryUrlRepository shardFor(String shortCode) {
+        return shards[shardIndex(shortCode)];
+    }
+
+    private int shardIndex(String shortCode) {
+        return shardOf.applyAsInt(shortCode);
+    }
+
+    private static int roundUpToPowerOfTwo(int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Число разделов должно быть положительным");
+        }
+        return shardCount == 1 ? 1 : Integer.highestOneBit(shardCount - 1) << 1;
+    }
+
+    private static final class Concatenation extends AbstractCollection<ShortUrl> {
+        private final List<Collection<ShortUrl>> parts;
+
+        Concatenation(List<Collection<ShortUrl>> parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public Iterator<ShortUrl> iterator() {
+            return new Iterator<>() {
+                private int part;
+                private Iterator<ShortUrl> current = Collections.emptyIterator();
+
+                @Override
+                public boolean hasNext() {
+                    while (!current.hasNext() && part < parts.size()) {
+                        current = parts.get(part++).iterator();
+                    }
+                    return current.hasNext();
+                }
+
+                @Override
+                public ShortUrl next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return current.next();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (Collection<ShortUrl> part : parts) {
+                size += part.size();
+            }
+            return size;
+        }
+    }
+}
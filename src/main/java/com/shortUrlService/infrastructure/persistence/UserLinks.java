@@ -0,0 +1,77 @@
+package com.shortUrlService.infrastructure.persistence;
+
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.domain.model.UserStats;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ссылки одного пользователя и агрегаты по ним. Агрегаты обновляются по событиям
+ * (создание, клик, исчерпание лимита, удаление), поэтому статистика не требует обхода.
+ * Клик, совпавший по времени с вставкой или удалением той же ссылки, может быть
+ * учтен в сумме кликов дважды или ни разу.
+ */
+final class UserLinks {
+    final ConcurrentHashMap<String, ShortUrl> links = new ConcurrentHashMap<>();
+    private final LongAdder clicks = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    /** Вызывается под блокировкой записи пользователя в индексе. */
+    void add(ShortUrl url) {
+        ShortUrl previous = links.put(url.getShortCode(), url);
+        if (previous == url) {
+            return;
+        }
+        if (previous != null) {
+            forget(previous);
+        }
+        clicks.add(url.getClickCount());
+        refreshExhausted(url);
+    }
+
+    /** Вызывается под блокировкой записи пользователя в индексе. */
+    boolean remove(ShortUrl url) {
+        if (!links.remove(url.getShortCode(), url)) {
+            return false;
+        }
+        forget(url);
+        return true;
+    }
+
+    boolean contains(ShortUrl url) {
+        return links.get(url.getShortCode()) == url;
+    }
+
+    void addClicks(long delta) {
+        clicks.add(delta);
+    }
+
+    /** Сверяет учет исчерпанных ссылок с текущим лимитом; повторный вызов ничего не меняет. */
+    void refreshExhausted(ShortUrl url) {
+        if (url.getClickCount() >= url.getMaxClicks()) {
+            if (url.markCountedExhausted()) {
+                exhausted.increment();
+            }
+        } else if (url.clearCountedExhausted()) {
+            exhausted.decrement();
+        }
+    }
+
+    boolean isEmpty() {
+        return links.isEmpty();
+    }
+
+    UserStats stats() {
+        long total = links.size();
+        long inactive = Math.min(total, Math.max(0, exhausted.sum()));
+        return new UserStats(total, total - inactive, inactive, Math.max(0, clicks.sum()));
+    }
+
+    private void forget(ShortUrl url) {
+        clicks.add(-url.getClickCount());
+        if (url.clearCountedExhausted()) {
+            exhausted.decrement();
+        }
+    }
+}
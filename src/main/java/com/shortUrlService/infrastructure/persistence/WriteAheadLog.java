@@ -0,0 +1,191 @@
+package com.shortUrlService.infrastructure.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал упреждающей записи из отображенных в память сегментов фиксированного размера.
+ * Запись: [длина полезной нагрузки][тип][нагрузка][CRC32C типа и нагрузки]; нулевая
+ * длина означает конец сегмента. Добавление только копирует байты в отображение,
+ * а сброс на диск ({@link #force()}) выполняется пачками - групповой коммит.
+ */
+public class WriteAheadLog implements AutoCloseable {
+    public static final byte UPSERT = 1;
+    public static final byte DELETE = 2;
+    public static final byte CLICKS = 3;
+    public static final byte SEQUENCE = 4;
+
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+    private static final int HEADER_BYTES = 5;
+    private static final int TRAILER_BYTES = 4;
+
+    @FunctionalInterface
+    public interface RecordHandler {
+        void accept(byte type, ByteBuffer payload);
+    }
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final CRC32C crc = new CRC32C();
+    private final Object forceLock = new Object();
+
+    private long segment;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long appendedPosition;
+    private long durablePosition;
+
+    public WriteAheadLog(Path directory, int segmentBytes, long firstSegment) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        openSegment(firstSegment);
+    }
+
+    /**
+     * Добавляет запись в журнал.
+     *
+     * @return позиция конца записи в журнале
+     */
+    public synchronized long append(byte type, ByteBuffer payload) {
+        int length = payload.remaining();
+        int recordBytes = HEADER_BYTES + length + TRAILER_BYTES;
+        if (recordBytes + HEADER_BYTES > segmentBytes) {
+            throw new IllegalArgumentException("Запись больше сегмента журнала");
+        }
+        if (buffer.remaining() < recordBytes + HEADER_BYTES) {
+            rollUnderLock();
+        }
+
+        crc.reset();
+        crc.update(type);
+        crc.update(payload.duplicate());
+        buffer.putInt(length).put(type).put(payload).putInt((int) crc.getValue());
+        appendedPosition = position(segment, buffer.position());
+        return appendedPosition;
+    }
+
+    /**
+     * Сбрасывает на диск все добавленные записи. Параллельные вызовы выстраиваются
+     * в очередь, и если предыдущий сброс уже покрыл их записи, повторного fsync нет.
+     */
+    public void force() {
+        synchronized (forceLock) {
+            MappedByteBuffer current;
+            long position;
+            synchronized (this) {
+                current = buffer;
+                position = appendedPosition;
+            }
+            if (position <= durablePosition) {
+                return;
+            }
+            current.force();
+            durablePosition = position;
+        }
+    }
+
+    /** Начинает новый сегмент и возвращает его номер: все прежние записи лежат в меньших сегментах. */
+    public synchronized long roll() {
+        rollUnderLock();
+        return segment;
+    }
+
+    public void deleteSegmentsBefore(long firstKept) throws IOException {
+        for (long existing : segments(directory)) {
+            if (existing < firstKept) {
+                Files.deleteIfExists(segmentPath(directory, existing));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        synchronized (this) {
+            channel.close();
+        }
+    }
+
+    /** Проигрывает записи сегментов начиная с {@code fromSegment}; оборванный хвост игнорируется. */
+    public static long replay(Path directory, long fromSegment, RecordHandler handler) throws IOException {
+        long lastSegment = fromSegment - 1;
+        CRC32C checksum = new CRC32C();
+        for (long existing : segments(directory)) {
+            if (existing < fromSegment) {
+                continue;
+            }
+            lastSegment = existing;
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(segmentPath(directory, existing)));
+            while (data.remaining() >= HEADER_BYTES) {
+                int length = data.getInt();
+                if (length <= 0 || length + 1 + TRAILER_BYTES > data.remaining()) {
+                    break;
+                }
+                byte type = data.get();
+                ByteBuffer payload = data.slice(data.position(), length);
+                data.position(data.position() + length);
+                checksum.reset();
+                checksum.update(type);
+                checksum.update(payload.duplicate());
+                if ((int) checksum.getValue() != data.getInt()) {
+                    break;
+                }
+                handler.accept(type, payload);
+            }
+        }
+        return lastSegment;
+    }
+
+    public static List<Long> segments(Path directory) throws IOException {
+        List<Long> result = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return result;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())))
+                    .sorted()
+                    .forEach(result::add);
+        }
+        return result;
+    }
+
+    private void rollUnderLock() {
+        try {
+            buffer.force();
+            channel.close();
+            openSegment(segment + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть новый сегмент журнала", e);
+        }
+    }
+
+    private void openSegment(long index) throws IOException {
+        segment = index;
+        channel = FileChannel.open(segmentPath(directory, index),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        appendedPosition = position(index, 0);
+    }
+
+    private static long position(long segment, int offset) {
+        return (segment << 32) | offset;
+    }
+
+    private static Path segmentPath(Path directory, long index) {
+        return directory.resolve(String.format("%s%016d%s", PREFIX, index, SUFFIX));
+    }
+}
@@ -0,0 +1,97 @@
+package com.shortUrlService.infrastructure.ratelimit;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Лимиты запросов: создание ссылок - по пользователю и по клиенту, переходы - по клиенту.
+ * Клиент - адрес, с которого пришел запрос. У каждого лимита своя {@link TokenBucketTable},
+ * так что память ограничена емкостью таблиц при любом числе пользователей и адресов.
+ */
+public class RateLimiter {
+    /**
+     * @param capacity          число корзин в каждой таблице
+     * @param shortenPerSecond  скорость создания ссылок для пользователя и для клиента
+     * @param redirectPerSecond скорость переходов для клиента
+     */
+    public record Settings(int capacity, double shortenPerSecond, int shortenBurst,
+                           double redirectPerSecond, int redirectBurst) {
+    }
+
+    private final Clock clock;
+    private final TokenBucketTable shortenByUser;
+    private final TokenBucketTable shortenByClient;
+    private final TokenBucketTable redirectByClient;
+    private final LongAdder rejected = new LongAdder();
+
+    public RateLimiter(Settings settings, Clock clock) {
+        this.clock = clock;
+        long now = clock.millis();
+        this.shortenByUser = new TokenBucketTable(
+                settings.capacity(), settings.shortenPerSecond(), settings.shortenBurst(), now);
+        this.shortenByClient = new TokenBucketTable(
+                settings.capacity(), settings.shortenPerSecond(), settings.shortenBurst(), now);
+        this.redirectByClient = new TokenBucketTable(
+                settings.capacity(), settings.redirectPerSecond(), settings.redirectBurst(), now);
+    }
+
+    /**
+     * Создание ссылок проходит оба лимита: пользователя и адреса, так что перебор
+     * идентификаторов с одного адреса лимит не обходит. Адрес проверяется первым:
+     * исчерпавший лимит адрес не тратит токены пользователя, чей идентификатор
+     * подставил. Отказ по пользователю возвращает токен адреса, и соседи по адресу
+     * от него не страдают.
+     */
+    public boolean tryShorten(UUID userId, InetAddress client) {
+        long now = clock.millis();
+        long clientKey = key(client);
+        if (!shortenByClient.tryAcquire(clientKey, now)) {
+            return count(false);
+        }
+        if (!shortenByUser.tryAcquire(key(userId), now)) {
+            shortenByClient.release(clientKey);
+            return count(false);
+        }
+        return true;
+    }
+
+    public boolean tryRedirect(InetAddress client) {
+        return count(redirectByClient.tryAcquire(key(client), clock.millis()));
+    }
+
+    /** Освобождает слоты простаивающих корзин; вызывается периодически. */
+    public int evictIdle() {
+        long now = clock.millis();
+        return shortenByUser.evictIdle(now) + shortenByClient.evictIdle(now) + redirectByClient.evictIdle(now);
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    static long key(UUID userId) {
+        long key = userId.getMostSignificantBits() ^ Long.rotateLeft(userId.getLeastSignificantBits(), 32);
+        return key == 0 ? 1 : key;
+    }
+
+    static long key(InetAddress client) {
+        byte[] address = client.getAddress();
+        if (address.length == 4) {
+            // Старший бит отделяет IPv4 от IPv6 и не дает ключу 0.0.0.0 стать нулем
+            return 1L << 32 | ByteBuffer.wrap(address).getInt() & 0xffffffffL;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(address);
+        long key = bytes.getLong() * 0x9e3779b97f4a7c15L ^ bytes.getLong();
+        return key == 0 ? 1 : key;
+    }
+
+    private boolean count(boolean allowed) {
+        if (!allowed) {
+            rejected.increment();
+        }
+        return allowed;
+    }
+}
@@ -0,0 +1,211 @@
+package com.shortUrlService.infrastructure.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Таблица корзин токенов фиксированного размера без блокировок. Слот - два long подряд
+ * в одном {@link AtomicLongArray}: ключ и состояние корзины, упакованное в одно число
+ * (время последнего пополнения в мс и токены в 1/{@value #SCALE} долях), поэтому
+ * проверка лимита - одно чтение и один CAS, без объектов на ключ.
+ * <p>
+ * Ключ ищется в окне из {@value #PROBES} соседних слотов. Если в окне нет ни ключа, ни
+ * свободного слота, ключ занимает слот простаивающей корзины: она уже полна, и ее потеря
+ * ничего не меняет. Если простаивающих в окне нет, ключ получает общую корзину
+ * переполнения. Так память не зависит от числа ключей, а наплыв новых ключей не
+ * вытесняет занятые корзины и не получает по полной корзине на каждый ключ.
+ * <p>
+ * Лимит приблизительный: при вытеснении записи, которой в тот же момент пользуется
+ * другой поток, или при редком совпадении 64-битных ключей корзина может обнулиться
+ * или стать общей. Для защиты от перегрузки этого достаточно.
+ */
+public final class TokenBucketTable {
+    static final int SCALE = 1024;
+    static final int PROBES = 8;
+    private static final int TOKEN_BITS = 24;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    /** Наибольший запас корзины, который помещается в упакованное состояние. */
+    public static final int MAX_BURST = (int) (TOKEN_MASK / SCALE);
+
+    private static final int MAX_CAPACITY = 1 << 28;
+    private static final long EMPTY = 0;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final long burstUnits;
+    private final double unitsPerMilli;
+    private final long fullRefillMillis;
+    private final long epochMillis;
+
+    /**
+     * @param capacity          число корзин, округляется вверх до степени двойки
+     * @param permitsPerSecond  скорость пополнения
+     * @param burst             запас корзины - сколько запросов проходит подряд
+     * @param nowMillis         текущее время; от него отсчитываются времена в состояниях
+     */
+    public TokenBucketTable(int capacity, double permitsPerSecond, int burst, long nowMillis) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY || permitsPerSecond <= 0
+                || burst <= 0 || burst > MAX_BURST) {
+            throw new IllegalArgumentException("Неверные параметры лимита: емкость " + capacity
+                    + ", скорость " + permitsPerSecond + ", запас " + burst);
+        }
+        int slotsCount = Math.max(PROBES, Integer.highestOneBit(Math.max(1, capacity - 1)) << 1);
+        // Последняя пара - корзина переполнения, она не занимается ключами
+        this.slots = new AtomicLongArray(slotsCount * 2 + 2);
+        this.mask = slotsCount - 1;
+        this.burstUnits = (long) burst * SCALE;
+        this.unitsPerMilli = permitsPerSecond * SCALE / 1000;
+        this.fullRefillMillis = (long) Math.ceil(burstUnits / unitsPerMilli);
+        // Время в состоянии всегда больше нуля: нулевое состояние - новая полная корзина
+        this.epochMillis = nowMillis - 1;
+    }
+
+    /** Число корзин в таблице. */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Забирает токен из корзины ключа.
+     *
+     * @param key любое число, кроме 0; см. {@link RateLimiter} о ключах
+     * @return false, если токенов нет
+     */
+    public boolean tryAcquire(long key, long nowMillis) {
+        long now = nowMillis - epochMillis;
+        while (true) {
+            int index = find(key, now);
+            if (index < 0) {
+                continue;
+            }
+            int state = index + 1;
+            long current = slots.get(state);
+            long time = current == 0 ? now : current >>> TOKEN_BITS;
+            long tokens = current == 0 ? burstUnits : current & TOKEN_MASK;
+            long added = now > time ? (long) ((now - time) * unitsPerMilli) : 0;
+            if (added > 0) {
+                tokens = Math.min(burstUnits, tokens + added);
+                time = now;
+            }
+            if (tokens < SCALE) {
+                return false;
+            }
+            if (slots.compareAndSet(state, current, time << TOKEN_BITS | tokens - SCALE)) {
+                return true;
+            }
+            // Корзину изменил другой поток: пересчитываем с новым состоянием
+        }
+    }
+
+    /**
+     * Возвращает токен, взятый {@link #tryAcquire}, когда запрос отклонил другой лимит.
+     * Если корзину ключа уже вытеснили, возвращать некуда: новая корзина и так полна.
+     */
+    public void release(long key) {
+        int home = (int) mix(key) & mask;
+        for (int probe = 0; probe < PROBES; probe++) {
+            int index = ((home + probe) & mask) * 2;
+            if (slots.get(index) == key) {
+                refill(index + 1);
+                return;
+            }
+        }
+        // Ключ без слота брал токен из корзины переполнения
+        refill((mask + 1) * 2 + 1);
+    }
+
+    private void refill(int state) {
+        while (true) {
+            long current = slots.get(state);
+            if (current == 0 || (current & TOKEN_MASK) + SCALE > burstUnits) {
+                return;
+            }
+            if (slots.compareAndSet(state, current, current + SCALE)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Освобождает слоты простаивающих корзин - тех, что за время простоя пополнились
+     * до полного запаса.
+     *
+     * @return число освобожденных слотов
+     */
+    public int evictIdle(long nowMillis) {
+        long now = nowMillis - epochMillis;
+        int evicted = 0;
+        for (int slot = 0; slot <= mask; slot++) {
+            int index = slot * 2;
+            long key = slots.get(index);
+            if (key != EMPTY && isIdle(slots.get(index + 1), now) && slots.compareAndSet(index, key, EMPTY)) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /** Число занятых слотов; считается проходом по таблице. */
+    public int size() {
+        int size = 0;
+        for (int slot = 0; slot <= mask; slot++) {
+            if (slots.get(slot * 2) != EMPTY) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return индекс ключа в массиве, индекс корзины переполнения или -1, если слот
+     *         перехватил другой поток
+     */
+    private int find(long key, long now) {
+        int home = (int) mix(key) & mask;
+        int free = -1;
+        int idle = -1;
+        for (int probe = 0; probe < PROBES; probe++) {
+            int index = ((home + probe) & mask) * 2;
+            long slotKey = slots.get(index);
+            if (slotKey == key) {
+                return index;
+            }
+            if (slotKey == EMPTY) {
+                if (free < 0) {
+                    free = index;
+                }
+                continue;
+            }
+            if (idle < 0 && isIdle(slots.get(index + 1), now)) {
+                idle = index;
+            }
+        }
+        // Слоты освобождаются по одному, поэтому ключ ищется по всему окну, а не до первой дыры
+        if (free >= 0) {
+            return claim(free, EMPTY, key);
+        }
+        if (idle >= 0) {
+            long victim = slots.get(idle);
+            return victim == key ? idle : claim(idle, victim, key);
+        }
+        return (mask + 1) * 2;
+    }
+
+    private int claim(int index, long expected, long key) {
+        if (!slots.compareAndSet(index, expected, key)) {
+            return -1;
+        }
+        slots.set(index + 1, 0);
+        return index;
+    }
+
+    private boolean isIdle(long state, long now) {
+        return state == 0 || now - (state >>> TOKEN_BITS) >= fullRefillMillis;
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+}
@@ -0,0 +1,71 @@
+package com.shortUrlService.infrastructure.shortening;
+
+public final class Base62 {
+    public static final String ALPHABET =
+            "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    public static final int RADIX = ALPHABET.length();
+
+    /** Наибольшая длина кода, пространство которой помещается в положительный long. */
+    public static final int MAX_LONG_LENGTH = 10;
+
+    private static final char[] DIGITS = ALPHABET.toCharArray();
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        java.util.Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < DIGITS.length; i++) {
+            VALUES[DIGITS[i]] = (byte) i;
+        }
+    }
+
+    private Base62() {
+    }
+
+    public static char digit(int value) {
+        return DIGITS[value];
+    }
+
+    /** Количество различных кодов длины {@code length}: 62^length. */
+    public static long capacity(int length) {
+        if (length < 1 || length > MAX_LONG_LENGTH) {
+            throw new IllegalArgumentException("Длина кода должна быть от 1 до " + MAX_LONG_LENGTH);
+        }
+        long result = 1;
+        for (int i = 0; i < length; i++) {
+            result *= RADIX;
+        }
+        return result;
+    }
+
+    /** Записывает {@code value} ровно {@code length} символами (старшие разряды слева). */
+    public static void encode(long value, char[] dst, int offset, int length) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            dst[i] = DIGITS[(int) (value % RADIX)];
+            value /= RADIX;
+        }
+    }
+
+    public static String encode(long value, int length) {
+        char[] buffer = new char[length];
+        encode(value, buffer, 0, length);
+        return new String(buffer);
+    }
+
+    /** @return числовое значение кода или -1, если код не является base62 длиной до 10 символов */
+    public static long decode(CharSequence code) {
+        int length = code.length();
+        if (length == 0 || length > MAX_LONG_LENGTH) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = code.charAt(i);
+            int digit = c < VALUES.length ? VALUES[c] : -1;
+            if (digit < 0) {
+                return -1;
+            }
+            value = value * RADIX + digit;
+        }
+        return value;
+    }
+}
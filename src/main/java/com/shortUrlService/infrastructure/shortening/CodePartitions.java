@@ -0,0 +1,28 @@
+package com.shortUrlService.infrastructure.shortening;
+
+/**
+ * Разделы пространства коротких кодов. Раздел записан в первых {@link #PREFIX_LENGTH}
+ * символах кода, поэтому узел-владелец определяется по самому коду, без поиска.
+ * Для кодов без корректного префикса раздел вычисляется по хешу.
+ */
+public final class CodePartitions {
+    public static final int PREFIX_LENGTH = 2;
+    public static final int COUNT = Base62.RADIX * Base62.RADIX;
+
+    private CodePartitions() {
+    }
+
+    public static int of(String shortCode) {
+        if (shortCode.length() > PREFIX_LENGTH) {
+            long partition = Base62.decode(shortCode.subSequence(0, PREFIX_LENGTH));
+            if (partition >= 0) {
+                return (int) partition;
+            }
+        }
+        return Math.floorMod(shortCode.hashCode(), COUNT);
+    }
+
+    public static String prefix(int partition) {
+        return Base62.encode(partition, PREFIX_LENGTH);
+    }
+}
@@ -0,0 +1,204 @@
+package com.shortUrlService.infrastructure.shortening;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Выдает коды без коллизий: каждый код - образ уникального порядкового номера
+ * при секретной перестановке пространства 62^length (сеть Фейстеля с
+ * cycle-walking), поэтому соседние номера дают несвязанные коды.
+ * Номера раздаются блоками по полосам, чтобы потоки не спорили за один счетчик.
+ * <p>
+ * С {@link SequenceMarkStore} граница выданных номеров сохраняется с запасом в
+ * {@value #MARK_STEP} номеров до того, как номер из-за границы будет выдан, так что
+ * после перезапуска счет продолжается выше любого когда-либо выданного номера.
+ */
+public class SequenceCodeAllocator {
+    private static final int ROUNDS = 4;
+    private static final int BLOCK_SIZE = 1024;
+    private static final long MARK_STEP = 1 << 16;
+
+    private final int codeLength;
+    private final long space;
+    private final int halfBits;
+    private final long halfMask;
+    private final long[] roundKeys = new long[ROUNDS];
+    private final AtomicLong nextBlockStart = new AtomicLong();
+    private final Lease[] leases;
+    private final Object markLock = new Object();
+    private volatile SequenceMarkStore markStore = SequenceMarkStore.NONE;
+    private volatile long durableMark;
+
+    public SequenceCodeAllocator(int codeLength, long secret) {
+        this.codeLength = codeLength;
+        this.space = Base62.capacity(codeLength);
+        int bits = 64 - Long.numberOfLeadingZeros(space - 1);
+        this.halfBits = (bits + 1) / 2;
+        this.halfMask = (1L << halfBits) - 1;
+
+        long seed = secret;
+        for (int i = 0; i < ROUNDS; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            roundKeys[i] = mix(seed);
+        }
+
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+        this.leases = new Lease[stripes];
+        for (int i = 0; i < stripes; i++) {
+            leases[i] = new Lease();
+        }
+    }
+
+    /**
+     * Продолжает счет с границы, сохраненной в {@code store}, и дальше сохраняет ее туда.
+     * Если границы еще нет (хранилище новое или записано до ее появления), один раз
+     * выполняет {@code legacyScan} - обход уже выданных кодов через {@link #advancePast(long)} -
+     * и сразу сохраняет найденную границу, чтобы следующие запуски обход не повторяли.
+     */
+    public void restore(SequenceMarkStore store, Runnable legacyScan) {
+        if (store == SequenceMarkStore.NONE) {
+            return;
+        }
+        long mark = store.loadSequenceMark();
+        if (mark > 0) {
+            advancePast(mark - 1);
+        } else {
+            legacyScan.run();
+        }
+        synchronized (markLock) {
+            durableMark = Math.max(durableMark, mark);
+            markStore = store;
+        }
+        // Пустое хранилище тоже получает границу, иначе обход повторялся бы до первой ссылки
+        ensureDurable(Math.max(1, nextBlockStart.get()));
+    }
+
+    public int getCodeLength() {
+        return codeLength;
+    }
+
+    public String nextCode() {
+        char[] code = new char[codeLength];
+        Base62.encode(permute(nextSequence()), code, 0, codeLength);
+        return new String(code);
+    }
+
+    public long nextSequence() {
+        Lease lease = leases[(int) Thread.currentThread().threadId() & (leases.length - 1)];
+        synchronized (lease) {
+            if (lease.next == lease.end) {
+                long start = nextBlockStart.getAndAdd(BLOCK_SIZE);
+                if (start >= space) {
+                    throw new IllegalStateException("Пространство коротких кодов исчерпано");
+                }
+                long end = Math.min(start + BLOCK_SIZE, space);
+                ensureDurable(end);
+                lease.next = start;
+                lease.end = end;
+            }
+            return lease.next++;
+        }
+    }
+
+    /**
+     * Резервирует {@code count} подряд идущих номеров одним атомарным шагом.
+     *
+     * @return первый номер диапазона
+     */
+    public long reserve(int count) {
+        long start = nextBlockStart.getAndAdd(count);
+        if (start + count > space) {
+            throw new IllegalStateException("Пространство коротких кодов исчерпано");
+        }
+        ensureDurable(start + count);
+        return start;
+    }
+
+    /**
+     * Гарантирует, что номера до {@code sequence} включительно больше не будут выданы,
+     * в том числе из уже розданных полосам блоков.
+     */
+    public void advancePast(long sequence) {
+        nextBlockStart.accumulateAndGet(sequence + 1, Math::max);
+        for (Lease lease : leases) {
+            synchronized (lease) {
+                if (lease.next <= sequence) {
+                    lease.next = Math.min(sequence + 1, lease.end);
+                }
+            }
+        }
+    }
+
+    /** Сохраняет границу, если номера до {@code end} за нее выходят. */
+    private void ensureDurable(long end) {
+        if (end <= durableMark || markStore == SequenceMarkStore.NONE) {
+            return;
+        }
+        synchronized (markLock) {
+            if (end > durableMark) {
+                long mark = Math.min(space, end + MARK_STEP);
+                markStore.storeSequenceMark(mark);
+                durableMark = mark;
+            }
+        }
+    }
+
+    public String encode(long sequence) {
+        return Base62.encode(permute(sequence), codeLength);
+    }
+
+    /** @return порядковый номер, из которого получен код, или -1 для чужого кода */
+    public long sequenceOf(String code) {
+        if (code.length() != codeLength) {
+            return -1;
+        }
+        long value = Base62.decode(code);
+        return value < 0 ? -1 : unpermute(value);
+    }
+
+    long permute(long value) {
+        do {
+            value = feistel(value);
+        } while (value >= space);
+        return value;
+    }
+
+    long unpermute(long value) {
+        do {
+            value = inverseFeistel(value);
+        } while (value >= space);
+        return value;
+    }
+
+    private long feistel(long value) {
+        long left = value >>> halfBits;
+        long right = value & halfMask;
+        for (int i = 0; i < ROUNDS; i++) {
+            long next = left ^ (mix(right ^ roundKeys[i]) & halfMask);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+
+    private long inverseFeistel(long value) {
+        long left = value >>> halfBits;
+        long right = value & halfMask;
+        for (int i = ROUNDS - 1; i >= 0; i--) {
+            long previous = right ^ (mix(left ^ roundKeys[i]) & halfMask);
+            right = left;
+            left = previous;
+        }
+        return (left << halfBits) | right;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static final class Lease {
+        long next;
+        long end;
+    }
+}
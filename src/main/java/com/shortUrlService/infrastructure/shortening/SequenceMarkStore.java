@@ -0,0 +1,26 @@
+package com.shortUrlService.infrastructure.shortening;
+
+/**
+ * Место хранения верхней границы выданных номеров {@link SequenceCodeAllocator}.
+ * Граница переживает перезапуск, поэтому коды удаленных и истекших ссылок не выдаются
+ * повторно: короткая ссылка, однажды отданная пользователю, не начнет вести на чужой адрес.
+ */
+public interface SequenceMarkStore {
+    /** Граница не хранится: подходит для хранилищ, которые не переживают перезапуск. */
+    SequenceMarkStore NONE = new SequenceMarkStore() {
+        @Override
+        public long loadSequenceMark() {
+            return 0;
+        }
+
+        @Override
+        public void storeSequenceMark(long mark) {
+        }
+    };
+
+    /** @return сохраненная граница или 0, если ее еще нет */
+    long loadSequenceMark();
+
+    /** Сохраняет границу; к возврату из метода она уже на диске. */
+    void storeSequenceMark(long mark);
+}
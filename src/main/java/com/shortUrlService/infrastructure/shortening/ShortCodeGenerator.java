@@ -2,29 +2,191 @@ package com.shortUrlService.infrastructure.shortening;
 
 import com.shortUrlService.config.AppConfig;
 
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class ShortCodeGenerator {
-    private static final String ALPHABET =
-            "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    public enum Mode {
+        /** Исходный алгоритм: SHA-256 от URL, пользователя и времени. */
+        SHA256,
+        /** Случайный base62-код без хеширования и промежуточных строк. */
+        RANDOM,
+        /** Перестановка порядкового номера: коды уникальны по построению. */
+        SEQUENCE
+    }
 
-    public String generateUniqueCode(String originalUrl, UUID userId) {
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
         try {
-            String input = originalUrl + userId + System.nanoTime();
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(input.getBytes());
-
-            StringBuilder code = new StringBuilder();
-            for (int i = 0; i < AppConfig.getShortCodeLength(); i++) {
-                int index = ((hash[i * 2] & 0xFF) + (hash[i * 2 + 1] & 0xFF))
-                        % ALPHABET.length();
-                code.append(ALPHABET.charAt(index));
-            }
-            return code.toString();
+            return MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException("SHA-256 unavailable", e);
         }
+    });
+
+    private final ThreadLocal<char[]> buffers;
+    private final Mode mode;
+    private final int codeLength;
+    private final long codeSpace;
+    private final SequenceCodeAllocator allocator;
+    private final boolean nodeScoped;
+    private volatile int[] partitions;
+
+    public ShortCodeGenerator() {
+        this(AppConfig.getShortCodeGeneratorMode(), AppConfig.getShortCodeLength(),
+                secretFor(AppConfig.getShortCodeGeneratorMode()));
+    }
+
+    public ShortCodeGenerator(Mode mode, int codeLength) {
+        this(mode, codeLength, ThreadLocalRandom.current().nextLong());
+    }
+
+    public ShortCodeGenerator(Mode mode, int codeLength, long secret) {
+        this(mode, codeLength, secret, false);
+    }
+
+    /**
+     * @param nodeScoped коды начинаются с префикса раздела, принадлежащего узлу
+     *                   (см. {@link #assignPartitions(int[])}); остаток кода выдается как обычно
+     */
+    public ShortCodeGenerator(Mode mode, int codeLength, long secret, boolean nodeScoped) {
+        int bodyLength = nodeScoped ? codeLength - CodePartitions.PREFIX_LENGTH : codeLength;
+        if (bodyLength < 1) {
+            throw new IllegalArgumentException("Длина кода должна быть положительной");
+        }
+        this.mode = mode;
+        this.codeLength = bodyLength;
+        this.codeSpace = bodyLength <= Base62.MAX_LONG_LENGTH ? Base62.capacity(bodyLength) : -1;
+        this.buffers = ThreadLocal.withInitial(() -> new char[bodyLength]);
+        this.allocator = mode == Mode.SEQUENCE ? new SequenceCodeAllocator(bodyLength, secret) : null;
+        this.nodeScoped = nodeScoped;
+    }
+
+    /** Ключ нужен только режиму SEQUENCE; остальные режимы работают и без него. */
+    public static long secretFor(Mode mode) {
+        return mode == Mode.SEQUENCE ? AppConfig.getShortCodeSecret() : 0;
+    }
+
+    /** Разделы, в которых узел выдает новые коды; меняются при перебалансировке. */
+    public void assignPartitions(int[] partitions) {
+        if (!nodeScoped) {
+            throw new IllegalStateException("Генератор не привязан к узлу");
+        }
+        this.partitions = partitions.clone();
+    }
+
+    public String generateUniqueCode(String originalUrl, UUID userId) {
+        if (mode == Mode.SEQUENCE) {
+            long sequence = allocator.nextSequence();
+            return scoped(sequence, allocator.encode(sequence));
+        }
+        String code = mode == Mode.SHA256 ? hashedCode(originalUrl, userId) : randomCode();
+        return scoped(ThreadLocalRandom.current().nextLong(Long.MAX_VALUE), code);
+    }
+
+    /**
+     * Коды для пакета URL одного пользователя. В режиме SEQUENCE весь пакет получает
+     * один непрерывный диапазон номеров за одну атомарную операцию.
+     */
+    public String[] generateCodes(List<String> originalUrls, UUID userId) {
+        String[] codes = new String[originalUrls.size()];
+        if (mode == Mode.SEQUENCE) {
+            long start = allocator.reserve(codes.length);
+            for (int i = 0; i < codes.length; i++) {
+                codes[i] = scoped(start + i, allocator.encode(start + i));
+            }
+            return codes;
+        }
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = generateUniqueCode(originalUrls.get(i), userId);
+        }
+        return codes;
+    }
+
+    /** Коды режима SEQUENCE не повторяются, остальные режимы могут давать коллизии. */
+    public boolean isCollisionFree() {
+        return mode == Mode.SEQUENCE;
+    }
+
+    /** Учитывает уже выданный код (например, восстановленный с диска), чтобы не выдать его снова. */
+    public void markUsed(String shortCode) {
+        if (allocator != null) {
+            String body = nodeScoped && shortCode.length() > CodePartitions.PREFIX_LENGTH
+                    ? shortCode.substring(CodePartitions.PREFIX_LENGTH)
+                    : shortCode;
+            long sequence = allocator.sequenceOf(body);
+            if (sequence >= 0) {
+                allocator.advancePast(sequence);
+            }
+        }
+    }
+
+    /**
+     * Подключает хранение границы выданных номеров (только для режима SEQUENCE).
+     * {@code legacyScan} должен передать все сохраненные коды в {@link #markUsed(String)};
+     * он выполняется, только если граница еще ни разу не сохранялась.
+     */
+    public void restoreSequence(SequenceMarkStore store, Runnable legacyScan) {
+        if (allocator != null) {
+            allocator.restore(store, legacyScan);
+        }
+    }
+
+    public int getCodeLength() {
+        return nodeScoped ? codeLength + CodePartitions.PREFIX_LENGTH : codeLength;
+    }
+
+    /**
+     * Дописывает префикс раздела узла. Тело кода уникально в пределах узла, поэтому код
+     * уникален в кластере, пока раздел принадлежит одному узлу.
+     */
+    private String scoped(long selector, String body) {
+        if (!nodeScoped) {
+            return body;
+        }
+        int[] owned = partitions;
+        if (owned == null || owned.length == 0) {
+            throw new IllegalStateException("Узлу не назначены разделы кодов");
+        }
+        return CodePartitions.prefix(owned[(int) Long.remainderUnsigned(selector, owned.length)]) + body;
+    }
+
+    private String randomCode() {
+        char[] code = buffers.get();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (codeSpace > 0) {
+            Base62.encode(random.nextLong(codeSpace), code, 0, codeLength);
+        } else {
+            for (int i = 0; i < codeLength; i++) {
+                code[i] = Base62.digit(random.nextInt(Base62.RADIX));
+            }
+        }
+        return new String(code, 0, codeLength);
+    }
+
+    private String hashedCode(String originalUrl, UUID userId) {
+        MessageDigest digest = SHA256.get();
+        digest.update(originalUrl.getBytes(StandardCharsets.UTF_8));
+        updateLong(digest, userId.getMostSignificantBits());
+        updateLong(digest, userId.getLeastSignificantBits());
+        updateLong(digest, System.nanoTime());
+        byte[] hash = digest.digest();
+
+        char[] code = buffers.get();
+        for (int i = 0; i < codeLength; i++) {
+            int index = ((hash[(i * 2) % hash.length] & 0xFF) + (hash[(i * 2 + 1) % hash.length] & 0xFF))
+                    % Base62.RADIX;
+            code[i] = Base62.digit(index);
+        }
+        return new String(code, 0, codeLength);
+    }
+
+    private static void updateLong(MessageDigest digest, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            digest.update((byte) (value >>> shift));
+        }
     }
 }
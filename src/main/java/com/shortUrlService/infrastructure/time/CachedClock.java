@@ -0,0 +1,90 @@
+package com.shortUrlService.infrastructure.time;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Грубые часы для горячих путей: текущее время обновляется фоновым потоком
+ * раз в {@code tickMillis}, а чтение сводится к чтению volatile-поля.
+ */
+public class CachedClock extends Clock {
+    private final long tickMillis;
+    private volatile long nowMillis = System.currentTimeMillis();
+
+    public CachedClock(long tickMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Период обновления часов должен быть положительным");
+        }
+        this.tickMillis = tickMillis;
+    }
+
+    public CachedClock start() {
+        Thread ticker = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(tickMillis);
+                    nowMillis = System.currentTimeMillis();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }, "cached-clock");
+        ticker.setDaemon(true);
+        ticker.start();
+        return this;
+    }
+
+    @Override
+    public long millis() {
+        return nowMillis;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(nowMillis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    /** Те же кешированные часы в другом поясе: время по-прежнему читается из поля. */
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return ZoneOffset.UTC.equals(zone) ? this : new Zoned(this, zone);
+    }
+
+    private static final class Zoned extends Clock {
+        private final CachedClock source;
+        private final ZoneId zone;
+
+        Zoned(CachedClock source, ZoneId zone) {
+            this.source = source;
+            this.zone = zone;
+        }
+
+        @Override
+        public long millis() {
+            return source.nowMillis;
+        }
+
+        @Override
+        public Instant instant() {
+            return source.instant();
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return source.withZone(zone);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.Assert;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.UUID;
 
 class ShortUrlTest {
@@ -11,7 +12,7 @@ class ShortUrlTest {
     @Test
     void builder_CreatesValidShortUrl() {
         UUID userId = UUID.randomUUID();
-        LocalDateTime expiresAt = LocalDateTime.now().plusDays(1);
+        LocalDateTime expiresAt = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.MILLIS);
 
         ShortUrl url = ShortUrl.builder()
                 .userId(userId)
@@ -28,7 +29,7 @@ class ShortUrlTest {
         Assert.assertEquals(0, url.getClickCount());
         Assert.assertEquals(10, url.getMaxClicks());
         Assert.assertEquals(expiresAt, url.getExpiresAt());
-        Assert.assertTrue(url.isActive());
+        Assert.assertTrue(url.isActive(System.currentTimeMillis()));
     }
 
     @Test
@@ -42,10 +43,26 @@ class ShortUrlTest {
                 .build();
 
         Assert.assertEquals(0, url.getClickCount());
-        url.incrementClick();
+        url.incrementClick(System.currentTimeMillis());
         Assert.assertEquals(1, url.getClickCount());
     }
 
+    @Test
+    void tryClaimClick_AtLimit_RejectsWithoutIncrement() {
+        ShortUrl url = ShortUrl.builder()
+                .userId(UUID.randomUUID())
+                .originalUrl("https://example.com")
+                .shortCode("abc123")
+                .maxClicks(2)
+                .expiresAt(LocalDateTime.now().plusDays(1))
+                .build();
+
+        Assert.assertEquals(1, url.tryClaimClick());
+        Assert.assertEquals(2, url.tryClaimClick());
+        Assert.assertEquals(-1, url.tryClaimClick());
+        Assert.assertEquals(2, url.getClickCount());
+    }
+
     @Test
     void isActive_WhenExpiredByTime_ReturnsFalse() {
         ShortUrl url = ShortUrl.builder()
@@ -56,7 +73,7 @@ class ShortUrlTest {
                 .expiresAt(LocalDateTime.now().minusSeconds(1)) // Уже истекло
                 .build();
 
-        Assert.assertFalse(url.isActive());
+        Assert.assertFalse(url.isActive(System.currentTimeMillis()));
     }
 
     @Test
@@ -70,7 +87,7 @@ class ShortUrlTest {
                 .clickCount(3) // Уже достигнут лимит
                 .build();
 
-        Assert.assertFalse(url.isActive());
+        Assert.assertFalse(url.isActive(System.currentTimeMillis()));
     }
 
     @Test
@@ -84,7 +101,22 @@ class ShortUrlTest {
                 .clickCount(5)
                 .build();
 
-        Assert.assertTrue(url.isActive());
+        Assert.assertTrue(url.isActive(System.currentTimeMillis()));
+    }
+
+    @Test
+    void isActive_AtGivenTime_ComparesAgainstEpochMillis() {
+        ShortUrl url = ShortUrl.builder()
+                .userId(UUID.randomUUID())
+                .originalUrl("https://example.com")
+                .shortCode("abc123")
+                .maxClicks(10)
+                .expiresAtMillis(1_000_000L)
+                .build();
+
+        Assert.assertTrue(url.isActive(999_999L));
+        Assert.assertFalse(url.isActive(1_000_000L));
+        Assert.assertTrue(url.isExpiredByTime(1_000_001L));
     }
 
     @Test
@@ -163,4 +195,40 @@ class ShortUrlTest {
 
         Assert.assertNotEquals(url1, url2);
     }
-}
\ No newline at end of file
+
+    @Test
+    void changeMaxClicks_OnExhaustedUrl_KeepsClicksAndReactivates() {
+        ShortUrl url = ShortUrl.builder()
+                .userId(UUID.randomUUID())
+                .originalUrl("https://example.com")
+                .shortCode("abc123")
+                .maxClicks(1)
+                .expiresAt(LocalDateTime.now().plusDays(1))
+                .build();
+        url.tryClaimClick();
+        url.markNotified(ShortUrl.EVENT_LIMIT_REACHED);
+
+        url.changeMaxClicks(3);
+
+        Assert.assertEquals(1, url.getClickCount());
+        Assert.assertEquals(3, url.getMaxClicks());
+        Assert.assertEquals(2, url.tryClaimClick());
+        Assert.assertTrue(url.markNotified(ShortUrl.EVENT_LIMIT_REACHED));
+    }
+
+    @Test
+    void extendExpiry_MovesDeadlineInPlace() {
+        ShortUrl url = ShortUrl.builder()
+                .userId(UUID.randomUUID())
+                .originalUrl("https://example.com")
+                .shortCode("abc123")
+                .maxClicks(10)
+                .expiresAtMillis(1_000)
+                .build();
+
+        url.extendExpiry(500);
+
+        Assert.assertEquals(1_500, url.getExpiresAtMillis());
+        Assert.assertTrue(url.isActive(1_200));
+    }
+}
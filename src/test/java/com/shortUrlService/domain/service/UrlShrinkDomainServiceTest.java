@@ -1,5 +1,6 @@
 package com.shortUrlService.domain.service;
 
+import com.shortUrlService.infrastructure.analytics.TimeBucketedClickAnalytics;
 import com.shortUrlService.infrastructure.persistence.InMemoryUrlRepository;
 import com.shortUrlService.infrastructure.shortening.ShortCodeGenerator;
 import org.junit.jupiter.api.BeforeEach;
@@ -8,10 +9,24 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import com.shortUrlService.domain.model.ShortenResult;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,7 +44,7 @@ class UrlShrinkDomainServiceTest {
     @BeforeEach
     void setUp() {
         repository = new InMemoryUrlRepository();
-        generator = new ShortCodeGenerator();
+        generator = new ShortCodeGenerator(ShortCodeGenerator.Mode.SEQUENCE, 6, 42L);
         service = new UrlShrinkDomainService(repository, generator, notificationService);
         testUserId = UUID.randomUUID();
     }
@@ -78,6 +93,74 @@ class UrlShrinkDomainServiceTest {
         assertEquals("Ссылка не найдена", result);
     }
 
+    @Test
+    void resolveUrl_ConcurrentRedirects_NeverExceedLimit() throws Exception {
+        int maxClicks = 1000;
+        int threads = 8;
+        int attemptsPerThread = 500;
+
+        String shortUrl = service.createShortUrl(testUserId, "https://example.com", maxClicks);
+        String code = shortUrl.substring(shortUrl.lastIndexOf("/") + 1);
+
+        AtomicInteger admitted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    if ("https://example.com".equals(service.resolveUrl(code))) {
+                        admitted.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(maxClicks, admitted.get());
+        assertEquals(maxClicks, repository.findByShortCode(code).orElseThrow().getClickCount());
+        verify(notificationService, atLeastOnce()).notifyLimitReached(eq(testUserId), any());
+    }
+
+    @Test
+    void resolveUrl_AfterTtlOnInjectedClock_ReturnsUnavailable() {
+        Instant created = Instant.parse("2024-01-01T00:00:00Z");
+        UrlShrinkDomainService creating = new UrlShrinkDomainService(repository, generator,
+                notificationService, Clock.fixed(created, ZoneOffset.UTC));
+        String shortUrl = creating.createShortUrl(testUserId, "https://example.com", 10);
+        String code = shortUrl.substring(shortUrl.lastIndexOf("/") + 1);
+
+        UrlShrinkDomainService later = new UrlShrinkDomainService(repository, generator,
+                notificationService, Clock.fixed(created.plus(Duration.ofDays(2)), ZoneOffset.UTC));
+
+        assertEquals("https://example.com", creating.resolveUrl(code));
+        assertNotEquals("https://example.com", later.resolveUrl(code));
+        verify(notificationService).notifyLinkExpired(eq(testUserId), any());
+    }
+
+    @Test
+    void getClicksPerHour_CountsRedirectsForOwnerOnly() throws Exception {
+        try (TimeBucketedClickAnalytics analytics = new TimeBucketedClickAnalytics(
+                Clock.systemUTC(), 24, 16, 1024, 1)) {
+            UrlShrinkDomainService tracked = new UrlShrinkDomainService(repository, generator,
+                    notificationService, analytics, Clock.systemUTC());
+            String shortUrl = tracked.createShortUrl(testUserId, "https://example.com", 10);
+            String code = shortUrl.substring(shortUrl.lastIndexOf("/") + 1);
+
+            tracked.resolveUrl(code);
+            tracked.resolveUrl(code);
+            analytics.drain();
+
+            long[] perHour = tracked.getClicksPerHour(testUserId, code, 1).orElseThrow();
+            assertArrayEquals(new long[]{2}, perHour);
+            assertTrue(tracked.getClicksPerHour(UUID.randomUUID(), code, 1).isEmpty());
+            assertEquals(code, tracked.getTopLinks(1, 1).get(0).shortCode());
+        }
+    }
+
     @Test
     void updateUrlMaxClicks_ValidRequest_ReturnsTrue() {
         String shortUrl = service.createShortUrl(testUserId, "https://example.com", 10);
@@ -88,6 +171,40 @@ class UrlShrinkDomainServiceTest {
         assertTrue(result);
     }
 
+    @Test
+    void createShortUrls_MixedBatch_ReturnsResultPerUrlInOrder() {
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            urls.add(i % 100 == 0 ? "not-a-url-" + i : "https://example.com/" + i);
+        }
+
+        List<ShortenResult> results = service.createShortUrls(testUserId, urls, 5);
+
+        assertEquals(2500, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            ShortenResult result = results.get(i);
+            assertEquals(i, result.index());
+            assertEquals(i % 100 != 0, result.isSuccess());
+        }
+        String code = results.get(1).shortUrl().substring(results.get(1).shortUrl().lastIndexOf('/') + 1);
+        assertEquals("https://example.com/1", service.resolveUrl(code));
+        assertEquals(2475, repository.findByUserId(testUserId).size());
+    }
+
+    @Test
+    void updateUrlMaxClicks_KeepsIdentityAndClicks() {
+        String shortUrl = service.createShortUrl(testUserId, "https://example.com", 1);
+        String code = shortUrl.substring(shortUrl.lastIndexOf("/") + 1);
+        var original = repository.findByShortCode(code).orElseThrow();
+        service.resolveUrl(code);
+
+        assertTrue(service.updateUrlMaxClicks(testUserId, code, 2));
+
+        assertSame(original, repository.findByShortCode(code).orElseThrow());
+        assertEquals(1, original.getClickCount());
+        assertEquals("https://example.com", service.resolveUrl(code));
+    }
+
     @Test
     void updateUrlMaxClicks_InvalidNewLimit_ThrowsException() {
         String shortUrl = service.createShortUrl(testUserId, "https://example.com", 10);
@@ -0,0 +1,27 @@
+package com.shortUrlService.infrastructure.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingTest {
+
+    @Test
+    void heavyHittersSurviveALongTailOfRareKeys() {
+        SpaceSaving sketch = new SpaceSaving(8);
+        for (int i = 0; i < 10_000; i++) {
+            sketch.offer("rare" + i);
+            if (i % 4 == 0) {
+                sketch.offer("heavy");
+            }
+        }
+
+        Map<String, Integer> counts = new HashMap<>();
+        sketch.forEach(counts::put);
+        assertEquals(8, counts.size());
+        assertTrue(counts.get("heavy") >= 2_500);
+    }
+}
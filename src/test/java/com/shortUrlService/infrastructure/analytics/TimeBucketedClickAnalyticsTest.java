@@ -0,0 +1,79 @@
+package com.shortUrlService.infrastructure.analytics;
+
+import com.shortUrlService.domain.model.LinkClicks;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeBucketedClickAnalyticsTest {
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long NOW = 1_000 * HOUR + 30 * 60_000;
+
+    private final TimeBucketedClickAnalytics analytics = new TimeBucketedClickAnalytics(
+            Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC), 6, 16, 1024, 1);
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        analytics.close();
+    }
+
+    @Test
+    void clicksPerHourAndMinute_LandInTheirBuckets() {
+        analytics.recordClick("abc", NOW);
+        analytics.recordClick("abc", NOW - 60_000);
+        analytics.recordClick("abc", NOW - 2 * HOUR);
+        analytics.recordClick("abc", NOW - 10 * HOUR);
+        analytics.drain();
+
+        assertArrayEquals(new long[]{1, 0, 2}, analytics.getClicksPerHour("abc", 3));
+        assertArrayEquals(new long[]{1, 1}, analytics.getClicksPerMinute("abc", 2));
+        assertArrayEquals(new long[]{0, 0}, analytics.getClicksPerHour("missing", 2));
+    }
+
+    @Test
+    void topLinks_OrdersByClicksInWindow() {
+        for (int i = 0; i < 5; i++) {
+            analytics.recordClick("hot", NOW);
+        }
+        for (int i = 0; i < 3; i++) {
+            analytics.recordClick("warm", NOW - HOUR);
+        }
+        for (int i = 0; i < 50; i++) {
+            analytics.recordClick("old", NOW - 5 * HOUR);
+            analytics.recordClick("cold" + i, NOW);
+        }
+        analytics.drain();
+
+        assertEquals(List.of(new LinkClicks("hot", 5), new LinkClicks("warm", 3)),
+                analytics.getTopLinks(2, 2));
+        assertEquals(new LinkClicks("old", 50), analytics.getTopLinks(6, 1).get(0));
+    }
+
+    @Test
+    void concurrentRecording_LosesNothingWithinCapacity() throws InterruptedException {
+        int threads = 8;
+        int clicksPerThread = 500;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < clicksPerThread; i++) {
+                    analytics.recordClick("shared", NOW);
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        analytics.drain();
+
+        long recorded = analytics.getClicksPerHour("shared", 1)[0];
+        assertEquals(threads * clicksPerThread, recorded + analytics.getDroppedCount());
+    }
+}
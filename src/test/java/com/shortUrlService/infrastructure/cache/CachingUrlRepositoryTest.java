@@ -0,0 +1,80 @@
+package com.shortUrlService.infrastructure.cache;
+
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.infrastructure.persistence.InMemoryUrlRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingUrlRepositoryTest {
+
+    private InMemoryUrlRepository store;
+    private CachingUrlRepository repository;
+    private final UUID userId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryUrlRepository();
+        repository = new CachingUrlRepository(store, new HotLinkCache(100), Clock.systemUTC());
+    }
+
+    @Test
+    void findByShortCode_SecondLookup_IsServedFromCache() {
+        ShortUrl url = link("abc123", 5);
+        repository.save(url);
+
+        assertSame(url, repository.findByShortCode("abc123").orElseThrow());
+        assertSame(url, repository.findByShortCode("abc123").orElseThrow());
+
+        assertEquals(1, repository.getCache().getHitCount());
+    }
+
+    @Test
+    void save_ReplacingLink_InvalidatesCachedVersion() {
+        repository.save(link("abc123", 5));
+        repository.findByShortCode("abc123");
+
+        ShortUrl updated = link("abc123", 50);
+        repository.save(updated);
+
+        assertSame(updated, repository.findByShortCode("abc123").orElseThrow());
+    }
+
+    @Test
+    void removeByShortCode_InvalidatesCachedLink() {
+        repository.save(link("abc123", 5));
+        repository.findByShortCode("abc123");
+
+        assertTrue(repository.removeByShortCode("abc123"));
+
+        assertTrue(repository.findByShortCode("abc123").isEmpty());
+    }
+
+    @Test
+    void findByShortCode_ReclaimedInactiveLink_NotServedFromCache() {
+        ShortUrl url = link("abc123", 1);
+        repository.save(url);
+        repository.findByShortCode("abc123");
+        url.tryClaimClick();
+        repository.markInactive(url);
+
+        repository.deleteExpired();
+
+        assertTrue(repository.findByShortCode("abc123").isEmpty());
+        assertEquals(0, repository.getCache().size());
+    }
+
+    private ShortUrl link(String code, int maxClicks) {
+        return ShortUrl.builder()
+                .userId(userId)
+                .originalUrl("https://example.com/" + code)
+                .shortCode(code)
+                .maxClicks(maxClicks)
+                .expiresAtMillis(System.currentTimeMillis() + 60_000)
+                .build();
+    }
+}
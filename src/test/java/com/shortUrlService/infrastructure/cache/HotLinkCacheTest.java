@@ -0,0 +1,140 @@
+package com.shortUrlService.infrastructure.cache;
+
+import com.shortUrlService.domain.model.ShortUrl;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotLinkCacheTest {
+
+    @Test
+    void zipfianTraffic_SmallCacheAbsorbsMostLookups() {
+        int keys = 10_000;
+        HotLinkCache cache = new HotLinkCache(500);
+        double[] cdf = zipfCdf(keys);
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            String code = "k" + sample(cdf, random.nextDouble());
+            if (cache.get(code) == null) {
+                cache.putIfNotInvalidated(code, link(code), cache.stamp());
+            }
+        }
+
+        double hitRatio = (double) cache.getHitCount() / (cache.getHitCount() + cache.getMissCount());
+        assertTrue(hitRatio > 0.5, "hit ratio " + hitRatio);
+        assertTrue(cache.size() <= 500);
+    }
+
+    @Test
+    void scan_DoesNotEvictHotLinks() {
+        HotLinkCache cache = new HotLinkCache(100);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 50; i++) {
+                String code = "hot" + i;
+                if (cache.get(code) == null) {
+                    cache.putIfNotInvalidated(code, link(code), cache.stamp());
+                }
+            }
+        }
+
+        // Обход редких ссылок на фоне продолжающегося горячего трафика
+        for (int i = 0; i < 10_000; i++) {
+            String code = "scan" + i;
+            cache.get(code);
+            cache.putIfNotInvalidated(code, link(code), cache.stamp());
+            String hot = "hot" + (i % 50);
+            if (cache.get(hot) == null) {
+                cache.putIfNotInvalidated(hot, link(hot), cache.stamp());
+            }
+        }
+
+        int hot = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.get("hot" + i) != null) {
+                hot++;
+            }
+        }
+        assertTrue(hot >= 45, "hot links left: " + hot);
+    }
+
+    @Test
+    void putIfNotInvalidated_AfterInvalidation_IsIgnored() {
+        HotLinkCache cache = new HotLinkCache(10);
+        long stamp = cache.stamp();
+        cache.invalidate("abc123");
+
+        cache.putIfNotInvalidated("abc123", link("abc123"), stamp);
+
+        assertNull(cache.get("abc123"));
+    }
+
+    @Test
+    void frequencySketch_ConcurrentIncrements_SaturateWithoutCarry() throws Exception {
+        FrequencySketch sketch = new FrequencySketch(1 << 16);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    sketch.increment("hot");
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(15, sketch.frequency("hot"));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, sketch.frequency("cold" + i), "насыщенный счетчик не переносится в соседние");
+        }
+    }
+
+    @Test
+    void invalidate_RemovesFromWindowAndMain() {
+        HotLinkCache cache = new HotLinkCache(10);
+        for (int i = 0; i < 10; i++) {
+            cache.putIfNotInvalidated("c" + i, link("c" + i), cache.stamp());
+        }
+
+        for (int i = 0; i < 10; i++) {
+            cache.invalidate("c" + i);
+        }
+
+        assertEquals(0, cache.size());
+        cache.putIfNotInvalidated("c0", link("c0"), cache.stamp());
+        assertNotNull(cache.get("c0"));
+    }
+
+    private static double[] zipfCdf(int keys) {
+        double[] cdf = new double[keys];
+        double sum = 0;
+        for (int i = 0; i < keys; i++) {
+            sum += 1.0 / (i + 1);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < keys; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+
+    private static int sample(double[] cdf, double value) {
+        int index = java.util.Arrays.binarySearch(cdf, value);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private static ShortUrl link(String code) {
+        return ShortUrl.builder()
+                .userId(UUID.randomUUID())
+                .originalUrl("https://example.com/" + code)
+                .shortCode(code)
+                .maxClicks(10)
+                .expiresAtMillis(System.currentTimeMillis() + 60_000)
+                .build();
+    }
+}
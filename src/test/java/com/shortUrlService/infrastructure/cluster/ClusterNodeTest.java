@@ -0,0 +1,408 @@
+package com.shortUrlService.infrastructure.cluster;
+
+import com.shortUrlService.application.LocalLinkNode;
+import com.shortUrlService.application.UrlShrinkApplicationService;
+import com.shortUrlService.domain.model.ResolveResult;
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.domain.model.UserStats;
+import com.shortUrlService.domain.service.NotificationService;
+import com.shortUrlService.domain.service.UrlShrinkDomainService;
+import com.shortUrlService.infrastructure.http.HttpLinkNode;
+import com.shortUrlService.infrastructure.http.UrlShrinkHttpServer;
+import com.shortUrlService.infrastructure.persistence.ShardedUrlRepository;
+import com.shortUrlService.infrastructure.shortening.ShortCodeGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusterNodeTest {
+    private static final NotificationService SILENT = new NotificationService() {
+        @Override
+        public void notifyLinkExpired(UUID userId, ShortUrl url) {
+        }
+
+        @Override
+        public void notifyLimitReached(UUID userId, ShortUrl url) {
+        }
+    };
+
+    private static final String SECRET = "cluster-test-secret";
+
+    private final UUID userId = UUID.randomUUID();
+
+    private record Node(ClusterNode cluster, UrlShrinkApplicationService app, ShardedUrlRepository store,
+                        UrlShrinkDomainService domain) {
+    }
+
+    @Test
+    void inProcessCluster_RoutesInOneHopAndRebalancesOnlyMovedPartitions() {
+        HashRing ring = new HashRing(List.of(member("a"), member("b"), member("c")));
+        Map<String, Node> nodes = new LinkedHashMap<>();
+        for (String id : List.of("a", "b", "c", "d")) {
+            nodes.put(id, node(id, ring));
+        }
+        connectAll(nodes);
+
+        List<String> codes = new ArrayList<>();
+        for (String id : List.of("a", "b", "c")) {
+            for (int i = 0; i < 200; i++) {
+                String code = shorten(nodes.get(id).app(), "https://example.com/" + id + i);
+                assertEquals(id, ring.ownerOfCode(code));
+                codes.add(code);
+            }
+        }
+        for (String code : codes) {
+            assertTrue(nodes.get("c").app().resolveShortUrl(code).isRedirect(), code);
+        }
+
+        HashRing grown = ring.with(member("d"));
+        int moved = nodes.get("d").cluster().rebalance(grown).moved();
+        assertThrows(IllegalStateException.class, () -> shorten(nodes.get("d").app(), "https://example.com/early"),
+                "разделы d еще у прежних владельцев");
+        for (String code : codes) {
+            assertTrue(nodes.get("d").app().peekShortUrl(code).isRedirect(), "до передачи d пересылает " + code);
+        }
+        for (String id : List.of("a", "b", "c")) {
+            moved += nodes.get(id).cluster().rebalance(grown).moved();
+        }
+
+        long expectedMoves = codes.stream().filter(code -> grown.ownerOfCode(code).equals("d")).count();
+        assertEquals(expectedMoves, moved);
+        assertEquals(expectedMoves, count(nodes.get("d").store()));
+        for (String code : codes) {
+            ResolveResult result = nodes.get("a").app().resolveShortUrl(code);
+            assertTrue(result.isRedirect(), code);
+            assertEquals(2, nodes.get(grown.ownerOfCode(code)).store().findByShortCode(code)
+                    .orElseThrow().getClickCount());
+        }
+        assertEquals("d", grown.ownerOfCode(shorten(nodes.get("d").app(), "https://example.com/new")));
+    }
+
+    @Test
+    void rebalance_FencesMovingPartitionUntilHandedOff() {
+        HashRing ring = new HashRing(List.of(member("a")));
+        HashRing grown = ring.with(member("d"));
+        Node a = node("a", ring);
+        Node d = node("d", ring);
+        d.cluster().connect("a", a.cluster().asPeer());
+        String moving = null;
+        for (int i = 0; moving == null; i++) {
+            String code = shorten(a.app(), "https://example.com/" + i);
+            if (grown.ownerOfCode(code).equals("d")) {
+                moving = code;
+            }
+        }
+        String code = moving;
+        assertThrows(IllegalStateException.class, () -> a.cluster().rebalance(grown), "с d еще нет связи");
+        d.cluster().rebalance(grown);
+
+        int[] fencedChecks = new int[1];
+        a.cluster().connect("d", new LocalLinkNode(d.domain()) {
+            @Override
+            public List<String> importLinks(Collection<ShortUrl> links) {
+                List<String> rejected = super.importLinks(links);
+                if (links.stream().anyMatch(link -> link.getShortCode().equals(code))) {
+                    assertThrows(IllegalStateException.class, () -> a.app().resolveShortUrl(code));
+                    assertThrows(IllegalStateException.class, () -> a.app().updateUrlMaxClicks(userId, code, 5));
+                    assertThrows(IllegalStateException.class, () -> d.app().resolveShortUrl(code),
+                            "d еще не обслуживает раздел сам");
+                    fencedChecks[0]++;
+                }
+                return rejected;
+            }
+
+            @Override
+            public void acceptPartitions(int[] partitions) {
+                d.cluster().acceptPartitions(partitions);
+            }
+        });
+        a.cluster().rebalance(grown);
+
+        assertEquals(1, fencedChecks[0]);
+        assertTrue(a.store().findByShortCode(code).isEmpty());
+        assertTrue(a.app().resolveShortUrl(code).isRedirect());
+        assertEquals(1, d.store().findByShortCode(code).orElseThrow().getClickCount());
+        assertTrue(d.app().resolveShortUrl(code).isRedirect());
+        assertEquals(2, d.store().findByShortCode(code).orElseThrow().getClickCount());
+    }
+
+    @Test
+    void rebalance_GainedPartitionsIssueCodesOnlyAfterHandoffInAnyOrder() {
+        for (boolean gainerFirst : new boolean[]{true, false}) {
+            HashRing ring = new HashRing(List.of(member("a"), member("b")));
+            HashRing shrunk = ring.without("b");
+            Node a = node("a", ring);
+            Node b = node("b", ring);
+            a.cluster().connect("b", b.cluster().asPeer());
+            b.cluster().connect("a", a.cluster().asPeer());
+            String leaving = shorten(b.app(), "https://example.com/b");
+
+            if (gainerFirst) {
+                a.cluster().rebalance(shrunk);
+                for (int i = 0; i < 200; i++) {
+                    assertEquals("a", ring.ownerOfCode(shorten(a.app(), "https://example.com/" + i)),
+                            "разделы b еще не переданы: коды в них выдает только b");
+                }
+                assertTrue(a.app().resolveShortUrl(leaving).isRedirect());
+                assertTrue(a.store().findByShortCode(leaving).isEmpty());
+                b.cluster().rebalance(shrunk);
+            } else {
+                b.cluster().rebalance(shrunk);
+                a.cluster().rebalance(shrunk);
+            }
+
+            assertTrue(b.store().findByShortCode(leaving).isEmpty());
+            assertTrue(a.app().resolveShortUrl(leaving).isRedirect());
+            assertEquals(gainerFirst ? 2 : 1, a.store().findByShortCode(leaving).orElseThrow().getClickCount());
+            boolean issuedInGained = false;
+            for (int i = 0; i < 200 && !issuedInGained; i++) {
+                issuedInGained = ring.ownerOfCode(shorten(a.app(), "https://example.com/after" + i)).equals("b");
+            }
+            assertTrue(issuedInGained, "после передачи a выдает коды и в разделах b");
+        }
+    }
+
+    @Test
+    void rebalance_KeepsLinksWhoseCodeIsTakenByNewOwner() {
+        HashRing ring = new HashRing(List.of(member("a")));
+        HashRing grown = ring.with(member("d"));
+        Node a = node("a", ring);
+        Node d = node("d", grown);
+        a.cluster().connect("d", d.cluster().asPeer());
+        List<String> moving = new ArrayList<>();
+        for (int i = 0; moving.size() < 2; i++) {
+            String code = shorten(a.app(), "https://example.com/" + i);
+            if (grown.ownerOfCode(code).equals("d")) {
+                moving.add(code);
+            }
+        }
+        String taken = moving.get(0);
+        ShortUrl occupant = ShortUrl.builder().shortCode(taken).userId(UUID.randomUUID())
+                .originalUrl("https://other.example").maxClicks(1)
+                .expiresAtMillis(System.currentTimeMillis() + 60_000).build();
+        d.store().save(occupant);
+
+        ClusterNode.Rebalance result = a.cluster().rebalance(grown);
+
+        assertEquals(List.of(taken), result.conflicts());
+        assertEquals(1, result.moved());
+        assertTrue(a.store().findByShortCode(taken).isPresent(),
+                "отклоненная ссылка остается у прежнего владельца");
+        assertSame(occupant, d.store().findByShortCode(taken).orElseThrow());
+        assertTrue(a.store().findByShortCode(moving.get(1)).isEmpty());
+        assertTrue(d.store().findByShortCode(moving.get(1)).isPresent());
+        assertEquals(List.of(), a.cluster().route(moving.get(1)).importLinks(
+                List.of(d.store().findByShortCode(moving.get(1)).orElseThrow())), "повтор передачи принимается");
+    }
+
+    @Test
+    void localhostCluster_ForwardsRedirectsAndEditsOverHttp() throws Exception {
+        List<UrlShrinkHttpServer> servers = new ArrayList<>();
+        try {
+            HashRing ring = new HashRing(List.of(member("a"), member("b")));
+            Node a = node("a", ring);
+            Node b = node("b", ring);
+            servers.add(server(a));
+            servers.add(server(b));
+            a.cluster().connect("b", new HttpLinkNode(uri(servers.get(1)), "a", SECRET));
+            b.cluster().connect("a", new HttpLinkNode(uri(servers.get(0)), "b", SECRET));
+
+            String code = shorten(b.app(), "https://example.com/remote");
+
+            ResolveResult result = a.app().resolveShortUrl(code);
+            assertEquals(ResolveResult.Status.REDIRECT, result.status());
+            assertEquals("https://example.com/remote", result.targetUrl());
+            assertTrue(a.app().updateUrlMaxClicks(userId, code, 1));
+            assertEquals(ResolveResult.Status.EXPIRED, a.app().resolveShortUrl(code).status());
+            assertFalse(a.app().deleteUrl(UUID.randomUUID(), code));
+            assertTrue(a.app().deleteUrl(userId, code));
+            assertEquals(ResolveResult.Status.NOT_FOUND, a.app().resolveShortUrl(code).status());
+        } finally {
+            servers.forEach(UrlShrinkHttpServer::close);
+        }
+    }
+
+    @Test
+    void userQueries_AggregateLinksOfAllNodesOverHttp() throws Exception {
+        List<UrlShrinkHttpServer> servers = new ArrayList<>();
+        try {
+            HashRing ring = new HashRing(List.of(member("a"), member("b")));
+            Node a = node("a", ring);
+            Node b = node("b", ring);
+            servers.add(server(a));
+            servers.add(server(b));
+            a.cluster().connect("b", new HttpLinkNode(uri(servers.get(1)), "a", SECRET));
+            b.cluster().connect("a", new HttpLinkNode(uri(servers.get(0)), "b", SECRET));
+
+            String localCode = shorten(a.app(), "https://example.com/local");
+            String remoteCode = shorten(b.app(), "https://example.com/remote");
+            a.app().resolveShortUrl(remoteCode);
+
+            List<String> codes = new ArrayList<>();
+            a.app().forEachUserUrl(userId, url -> codes.add(url.getShortCode()));
+            assertEquals(List.of(localCode, remoteCode), codes);
+            UserStats stats = a.app().getUserStats(userId);
+            assertEquals(2, stats.links());
+            assertEquals(1, stats.totalClicks());
+            assertEquals(0, a.app().getUserStats(UUID.randomUUID()).links());
+
+            assertEquals(3, a.app().getClicksPerHour(userId, remoteCode, 3).orElseThrow().length);
+            assertTrue(a.app().getClicksPerHour(UUID.randomUUID(), remoteCode, 3).isEmpty());
+            assertThrows(IllegalArgumentException.class, () -> a.app().getClicksPerHour(userId, remoteCode, 0));
+            assertTrue(a.app().getTopLinks(1, 10).isEmpty());
+        } finally {
+            servers.forEach(UrlShrinkHttpServer::close);
+        }
+    }
+
+    @Test
+    void linksApi_PeerFailure_CutsStreamedExportAndAnswers503() throws Exception {
+        HashRing ring = new HashRing(List.of(member("a"), member("b")));
+        Node a = node("a", ring);
+        Node b = node("b", ring);
+        a.cluster().connect("b", new LocalLinkNode(b.domain()) {
+            @Override
+            public void forEachUserLink(UUID userId, Consumer<ShortUrl> action) {
+                super.forEachUserLink(userId, action);
+                throw new UncheckedIOException(new IOException("узел b упал"));
+            }
+
+            @Override
+            public boolean updateMaxClicks(UUID userId, String shortCode, int maxClicks) {
+                throw new UncheckedIOException(new IOException("узел b упал"));
+            }
+        });
+        shorten(a.app(), "https://example.com/local");
+        String remote = shorten(b.app(), "https://example.com/remote");
+
+        try (UrlShrinkHttpServer server = server(a)) {
+            HttpClient client = HttpClient.newHttpClient();
+            HttpRequest export = HttpRequest.newBuilder(uri(server).resolve("/api/links?format=csv"))
+                    .header("X-User-Id", userId.toString()).GET().build();
+            assertThrows(IOException.class, () -> client.send(export, HttpResponse.BodyHandlers.ofString()),
+                    "неполная выгрузка не должна выглядеть успешной");
+
+            HttpResponse<Void> patch = client.send(HttpRequest.newBuilder(
+                            uri(server).resolve("/api/links/" + remote + "?maxClicks=3"))
+                    .header("X-User-Id", userId.toString())
+                    .method("PATCH", HttpRequest.BodyPublishers.noBody()).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            assertEquals(503, patch.statusCode(), "недоступный владелец - временный сбой, а не ошибка клиента");
+        }
+    }
+
+    @Test
+    void internalRequests_TrustedOnlyWithClusterSecret() throws Exception {
+        List<UrlShrinkHttpServer> servers = new ArrayList<>();
+        try {
+            HashRing ring = new HashRing(List.of(member("a"), member("b")));
+            Node a = node("a", ring);
+            Node b = node("b", ring);
+            servers.add(server(a));
+            servers.add(server(b));
+            a.cluster().connect("b", new HttpLinkNode(uri(servers.get(1)), "a", SECRET));
+            String code = shorten(b.app(), "https://example.com/remote");
+            HttpClient client = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NEVER).build();
+
+            // Поддельный заголовок пересылки не отключает маршрутизацию
+            HttpResponse<Void> redirect = client.send(HttpRequest.newBuilder(uri(servers.get(0)).resolve("/" + code))
+                    .header("X-Forwarded-By-Node", "b").build(), HttpResponse.BodyHandlers.discarding());
+            assertEquals(302, redirect.statusCode());
+
+            URI internal = uri(servers.get(0)).resolve("/internal/links");
+            byte[] oversized = ByteBuffer.allocate(4).putInt(Integer.MAX_VALUE).array();
+            assertEquals(403, client.send(HttpRequest.newBuilder(internal)
+                    .header("X-Forwarded-By-Node", "b")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(oversized)).build(),
+                    HttpResponse.BodyHandlers.discarding()).statusCode());
+            assertEquals(400, client.send(HttpRequest.newBuilder(internal)
+                    .header("X-Cluster-Secret", SECRET)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(oversized)).build(),
+                    HttpResponse.BodyHandlers.discarding()).statusCode());
+
+            URI ringPath = uri(servers.get(0)).resolve("/internal/ring");
+            String members = "a=" + uri(servers.get(0)) + "\nb=" + uri(servers.get(1));
+            assertEquals(403, client.send(HttpRequest.newBuilder(ringPath)
+                    .PUT(HttpRequest.BodyPublishers.ofString(members)).build(),
+                    HttpResponse.BodyHandlers.discarding()).statusCode());
+            HttpResponse<String> rebalanced = client.send(HttpRequest.newBuilder(ringPath)
+                    .header("X-Cluster-Secret", SECRET)
+                    .PUT(HttpRequest.BodyPublishers.ofString(members)).build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, rebalanced.statusCode());
+            assertEquals("0", rebalanced.body(), "состав не изменился - передавать нечего");
+            URI partitions = uri(servers.get(0)).resolve("/internal/partitions");
+            assertEquals(400, client.send(HttpRequest.newBuilder(partitions)
+                    .header("X-Cluster-Secret", SECRET)
+                    .POST(HttpRequest.BodyPublishers.ofString("99999")).build(),
+                    HttpResponse.BodyHandlers.discarding()).statusCode());
+            new HttpLinkNode(uri(servers.get(0)), "b", SECRET).acceptPartitions(a.cluster().getRing().partitionsOf("a"));
+            assertTrue(a.app().resolveShortUrl(code).isRedirect(), "повторное сообщение о передаче ничего не ломает");
+
+            ShortUrl existing = b.store().findByShortCode(code).orElseThrow();
+            assertEquals(List.of(code), a.cluster().route(code).importLinks(List.of(ShortUrl.builder()
+                    .shortCode(code).userId(UUID.randomUUID()).originalUrl("https://evil.example")
+                    .maxClicks(1).expiresAtMillis(System.currentTimeMillis() + 60_000).build())));
+            assertEquals(List.of(), a.cluster().route(code).importLinks(List.of(existing)), "повтор передачи принимается");
+            assertSame(existing, b.store().findByShortCode(code).orElseThrow(), "прием не перезаписывает ссылки");
+        } finally {
+            servers.forEach(UrlShrinkHttpServer::close);
+        }
+    }
+
+    private Node node(String id, HashRing ring) {
+        ShardedUrlRepository store = ClusterNode.newStore(Clock.systemUTC());
+        ShortCodeGenerator generator = new ShortCodeGenerator(ShortCodeGenerator.Mode.SEQUENCE, 6, 42, true);
+        UrlShrinkDomainService domain = new UrlShrinkDomainService(store, generator, SILENT);
+        ClusterNode cluster = new ClusterNode(id, ring, new LocalLinkNode(domain), generator, store, store);
+        return new Node(cluster, new UrlShrinkApplicationService(domain, cluster), store, domain);
+    }
+
+    private static void connectAll(Map<String, Node> nodes) {
+        nodes.forEach((id, node) -> nodes.forEach((peerId, peer) -> {
+            if (!peerId.equals(id)) {
+                node.cluster().connect(peerId, peer.cluster().asPeer());
+            }
+        }));
+    }
+
+    private String shorten(UrlShrinkApplicationService app, String url) {
+        String shortUrl = app.shortenUrl(userId, url, 10);
+        return shortUrl.substring(shortUrl.lastIndexOf('/') + 1);
+    }
+
+    private static long count(ShardedUrlRepository store) {
+        long[] count = new long[1];
+        store.forEach(url -> count[0]++);
+        return count[0];
+    }
+
+    private static UrlShrinkHttpServer server(Node node) throws IOException {
+        return new UrlShrinkHttpServer(node.app(), new InetSocketAddress("127.0.0.1", 0), 100,
+                null, null, node.cluster(), SECRET).start();
+    }
+
+    private static URI uri(UrlShrinkHttpServer server) {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    private static ClusterMember member(String id) {
+        return new ClusterMember(id, null);
+    }
+}
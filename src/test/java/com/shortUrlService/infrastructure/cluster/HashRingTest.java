@@ -0,0 +1,44 @@
+package com.shortUrlService.infrastructure.cluster;
+
+import com.shortUrlService.infrastructure.shortening.CodePartitions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashRingTest {
+
+    @Test
+    void addingNode_MovesOnlyPartitionsToTheNewNode() {
+        HashRing ring = new HashRing(List.of(member("a"), member("b"), member("c")));
+        HashRing grown = ring.with(member("d"));
+
+        int moved = 0;
+        for (int p = 0; p < CodePartitions.COUNT; p++) {
+            if (!ring.ownerOf(p).equals(grown.ownerOf(p))) {
+                assertEquals("d", grown.ownerOf(p));
+                moved++;
+            }
+        }
+        assertEquals(moved, grown.partitionsOf("d").length);
+        // Около четверти разделов с разбросом виртуальных узлов
+        assertTrue(moved > CodePartitions.COUNT / 8 && moved < CodePartitions.COUNT / 2, "moved " + moved);
+    }
+
+    @Test
+    void partitionsOf_CoverEveryPartitionExactlyOnce() {
+        HashRing ring = new HashRing(List.of(member("a"), member("b"), member("c")));
+
+        int total = 0;
+        for (ClusterMember member : ring.getMembers()) {
+            total += ring.partitionsOf(member.id()).length;
+        }
+        assertEquals(CodePartitions.COUNT, total);
+        assertEquals(ring.ownerOf(CodePartitions.of("ab1234")), ring.ownerOfCode("ab1234"));
+    }
+
+    private static ClusterMember member(String id) {
+        return new ClusterMember(id, null);
+    }
+}
@@ -0,0 +1,56 @@
+package com.shortUrlService.infrastructure.export;
+
+import com.shortUrlService.domain.model.ShortUrl;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinkExporterTest {
+
+    @Test
+    void csv_QuotesFieldsWithSeparators() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LinkExporter exporter = new LinkExporter(LinkExporter.Format.CSV, "http://s/",
+                Channels.newChannel(out), 1_000);
+
+        exporter.accept(link("abc123", "https://example.com/?a=1,b=\"2\""));
+        exporter.flush();
+
+        assertEquals("short_url,original_url,clicks,max_clicks,expires_at_millis,active\n"
+                        + "http://s/abc123,\"https://example.com/?a=1,b=\"\"2\"\"\",0,10,2000,true\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void jsonl_EscapesAndEncodesUtf8AcrossBufferBoundaries() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LinkExporter exporter = new LinkExporter(LinkExporter.Format.JSONL, "http://s/",
+                Channels.newChannel(out), 5_000);
+
+        for (int i = 0; i < 5_000; i++) {
+            exporter.accept(link("c" + i, "https://пример.рф/\"q\"\\😀"));
+        }
+        exporter.flush();
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(5_000, lines.length);
+        assertEquals(5_000, exporter.getWrittenCount());
+        assertEquals("{\"shortUrl\":\"http://s/c4999\",\"originalUrl\":\"https://пример.рф/\\\"q\\\"\\\\😀\","
+                + "\"clicks\":0,\"maxClicks\":10,\"expiresAt\":2000,\"active\":false}", lines[4_999]);
+    }
+
+    private static ShortUrl link(String code, String target) {
+        return ShortUrl.builder()
+                .userId(UUID.randomUUID())
+                .originalUrl(target)
+                .shortCode(code)
+                .maxClicks(10)
+                .expiresAtMillis(2_000)
+                .build();
+    }
+}
@@ -0,0 +1,97 @@
+package com.shortUrlService.infrastructure.http;
+
+import com.shortUrlService.application.UrlShrinkApplicationService;
+import com.shortUrlService.domain.service.NotificationService;
+import com.shortUrlService.domain.service.UrlShrinkDomainService;
+import com.shortUrlService.infrastructure.persistence.InMemoryUrlRepository;
+import com.shortUrlService.infrastructure.shortening.ShortCodeGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class RedirectEventLoopServerTest {
+    private RedirectEventLoopServer server;
+    private UrlShrinkApplicationService appService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        appService = new UrlShrinkApplicationService(new UrlShrinkDomainService(
+                new InMemoryUrlRepository(), new ShortCodeGenerator(ShortCodeGenerator.Mode.SEQUENCE, 6, 42L), mock(NotificationService.class)));
+        server = new RedirectEventLoopServer(appService, null, new InetSocketAddress("127.0.0.1", 0), 2).start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void keepAlive_DeepPipelineOnSeveralConnections_AnsweredInOrder() throws Exception {
+        String shortUrl = appService.shortenUrl(UUID.randomUUID(), "https://example.com/deep", 1000);
+        String code = shortUrl.substring(shortUrl.lastIndexOf('/') + 1);
+        String found = "HTTP/1.1 302 Found\r\nLocation: https://example.com/deep\r\nContent-Length: 0\r\n\r\n";
+        String notFound = "HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\n\r\n";
+
+        for (int connection = 0; connection < 3; connection++) {
+            try (Socket socket = connect()) {
+                // Больше одной пачки: ответы идут несколькими сборными записями
+                StringBuilder requests = new StringBuilder();
+                for (int i = 0; i < 40; i++) {
+                    requests.append("GET /").append(i % 2 == 0 ? code : "nope42").append(" HTTP/1.1\r\nHost: x\r\n\r\n");
+                }
+                send(socket, requests.toString());
+
+                for (int i = 0; i < 40; i++) {
+                    assertEquals(i % 2 == 0 ? found : notFound, readResponse(socket));
+                }
+                send(socket, "GET /" + code + " HTTP/1.1\r\nConnection: close\r\n\r\n");
+                assertTrue(readResponse(socket).endsWith("Connection: close\r\n\r\n"));
+                assertEquals(-1, socket.getInputStream().read());
+            }
+        }
+    }
+
+    @Test
+    void badRequest_AnsweredAndClosed() throws Exception {
+        try (Socket socket = connect()) {
+            send(socket, "GET /abc SPDY/3\r\n\r\nGET /abc HTTP/1.1\r\n\r\n");
+
+            assertEquals("HTTP/1.1 400 Bad Request\r\nContent-Length: 0\r\nConnection: close\r\n\r\n",
+                    readResponse(socket));
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    private Socket connect() throws Exception {
+        Socket socket = new Socket("127.0.0.1", server.getAddress().getPort());
+        socket.setSoTimeout(5_000);
+        return socket;
+    }
+
+    private static void send(Socket socket, String request) throws Exception {
+        socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+        socket.getOutputStream().flush();
+    }
+
+    private static String readResponse(Socket socket) throws Exception {
+        InputStream in = socket.getInputStream();
+        StringBuilder response = new StringBuilder();
+        while (!response.toString().endsWith("\r\n\r\n")) {
+            int b = in.read();
+            if (b < 0) {
+                throw new AssertionError("Соединение закрыто: " + response);
+            }
+            response.append((char) b);
+        }
+        return response.toString();
+    }
+}
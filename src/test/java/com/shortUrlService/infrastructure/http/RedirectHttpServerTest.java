@@ -0,0 +1,146 @@
+package com.shortUrlService.infrastructure.http;
+
+import com.shortUrlService.application.UrlShrinkApplicationService;
+import com.shortUrlService.domain.service.NotificationService;
+import com.shortUrlService.domain.service.UrlShrinkDomainService;
+import com.shortUrlService.infrastructure.persistence.InMemoryUrlRepository;
+import com.shortUrlService.infrastructure.persistence.MappedRedirectIndex;
+import com.shortUrlService.infrastructure.persistence.RedirectIndexingUrlRepository;
+import com.shortUrlService.infrastructure.shortening.ShortCodeGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class RedirectHttpServerTest {
+    @TempDir
+    Path dir;
+
+    private RedirectHttpServer server;
+    private MappedRedirectIndex index;
+    private UrlShrinkApplicationService appService;
+    private final UUID userId = UUID.randomUUID();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (server != null) {
+            server.close();
+        }
+        if (index != null) {
+            index.close();
+        }
+    }
+
+    @Test
+    void keepAlive_PipelinedRequestsAnsweredInOrderOnOneConnection() throws Exception {
+        start(false);
+        String code = shorten("https://example.com/a", 1);
+
+        try (Socket socket = connect()) {
+            send(socket, "HEAD /" + code + " HTTP/1.1\r\nHost: x\r\n\r\n"
+                    + "GET /" + code + " HTTP/1.1\r\nHost: x\r\n\r\n"
+                    + "HEAD /" + code + "?utm=1 HTTP/1.1\r\nHost: x\r\n\r\n"
+                    + "GET /nope42 HTTP/1.1\r\nHost: x\r\n\r\n"
+                    + "POST /" + code + " HTTP/1.1\r\nContent-Length: 0\r\n\r\n");
+
+            // HEAD не расходует единственный клик
+            assertEquals("HTTP/1.1 302 Found\r\nLocation: https://example.com/a\r\nContent-Length: 0\r\n\r\n",
+                    readResponse(socket));
+            assertEquals("HTTP/1.1 302 Found\r\nLocation: https://example.com/a\r\nContent-Length: 0\r\n\r\n",
+                    readResponse(socket));
+            assertEquals("HTTP/1.1 410 Gone\r\nContent-Length: 0\r\n\r\n", readResponse(socket));
+            assertEquals("HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\n\r\n", readResponse(socket));
+            assertTrue(readResponse(socket).startsWith("HTTP/1.1 405 Method Not Allowed\r\n"));
+        }
+    }
+
+    @Test
+    void requestSplitAcrossReads_WithConnectionClose_ClosesAfterResponse() throws Exception {
+        start(true);
+        String code = shorten("https://пример.рф/путь", 10);
+
+        try (Socket socket = connect()) {
+            byte[] request = ("GET /" + code + " HTTP/1.1\r\nHost: x\r\nConnection: Close\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            OutputStream out = socket.getOutputStream();
+            for (byte b : request) {
+                out.write(b);
+                out.flush();
+            }
+
+            assertEquals("HTTP/1.1 302 Found\r\nLocation: https://%D0%BF%D1%80%D0%B8%D0%BC%D0%B5%D1%80"
+                            + ".%D1%80%D1%84/%D0%BF%D1%83%D1%82%D1%8C\r\nContent-Length: 0\r\n"
+                            + "Connection: close\r\n\r\n",
+                    readResponse(socket));
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    @Test
+    void parser_RejectsBodiesAndOversizedHeads() {
+        RedirectRequestParser parser = new RedirectRequestParser();
+        ByteBuffer body = ByteBuffer.wrap("GET /abc HTTP/1.1\r\nContent-Length: 5\r\n\r\nhello"
+                .getBytes(StandardCharsets.US_ASCII));
+        assertEquals(RedirectRequestParser.Result.BAD_REQUEST, parser.parse(body));
+
+        ByteBuffer huge = ByteBuffer.allocate(RedirectRequestParser.MAX_HEAD_BYTES);
+        huge.put("GET /abc HTTP/1.1\r\nX: ".getBytes(StandardCharsets.US_ASCII));
+        while (huge.hasRemaining()) {
+            huge.put((byte) 'a');
+        }
+        assertEquals(RedirectRequestParser.Result.BAD_REQUEST, new RedirectRequestParser().parse(huge.flip()));
+    }
+
+    private void start(boolean withIndex) throws Exception {
+        var repository = new InMemoryUrlRepository();
+        var store = withIndex
+                ? new RedirectIndexingUrlRepository(repository,
+                        index = MappedRedirectIndex.open(dir.resolve("redirect.idx"), Clock.systemUTC()))
+                : repository;
+        appService = new UrlShrinkApplicationService(new UrlShrinkDomainService(
+                store, new ShortCodeGenerator(ShortCodeGenerator.Mode.SEQUENCE, 6, 42L), mock(NotificationService.class)));
+        server = new RedirectHttpServer(appService, index, new InetSocketAddress("127.0.0.1", 0)).start();
+    }
+
+    private String shorten(String url, int maxClicks) {
+        String shortUrl = appService.shortenUrl(userId, url, maxClicks);
+        return shortUrl.substring(shortUrl.lastIndexOf('/') + 1);
+    }
+
+    private Socket connect() throws Exception {
+        Socket socket = new Socket("127.0.0.1", server.getAddress().getPort());
+        socket.setSoTimeout(5_000);
+        return socket;
+    }
+
+    private static void send(Socket socket, String request) throws Exception {
+        socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+        socket.getOutputStream().flush();
+    }
+
+    /** Читает один ответ без тела - до пустой строки. */
+    private static String readResponse(Socket socket) throws Exception {
+        InputStream in = socket.getInputStream();
+        StringBuilder response = new StringBuilder();
+        while (!response.toString().endsWith("\r\n\r\n")) {
+            int b = in.read();
+            if (b < 0) {
+                throw new AssertionError("Соединение закрыто: " + response);
+            }
+            response.append((char) b);
+        }
+        return response.toString();
+    }
+}
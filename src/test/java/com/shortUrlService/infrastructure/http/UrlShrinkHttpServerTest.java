@@ -0,0 +1,224 @@
+package com.shortUrlService.infrastructure.http;
+
+import com.shortUrlService.application.UrlShrinkApplicationService;
+import com.shortUrlService.domain.service.NotificationService;
+import com.shortUrlService.domain.service.UrlShrinkDomainService;
+import com.shortUrlService.infrastructure.persistence.InMemoryUrlRepository;
+import com.shortUrlService.infrastructure.ratelimit.RateLimiter;
+import com.shortUrlService.infrastructure.shortening.ShortCodeGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Clock;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class UrlShrinkHttpServerTest {
+
+    @Mock
+    private NotificationService notificationService;
+
+    private UrlShrinkHttpServer server;
+    private HttpClient client;
+    private String baseUri;
+    private UUID userId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        UrlShrinkDomainService domainService = new UrlShrinkDomainService(
+                new InMemoryUrlRepository(), new ShortCodeGenerator(ShortCodeGenerator.Mode.SEQUENCE, 6, 42L), notificationService);
+        server = new UrlShrinkHttpServer(new UrlShrinkApplicationService(domainService),
+                new InetSocketAddress("127.0.0.1", 0), 100).start();
+        client = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NEVER).build();
+        baseUri = "http://127.0.0.1:" + server.getAddress().getPort();
+        userId = UUID.randomUUID();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void shortenThenGet_ReturnsRedirectToOriginalUrl() throws Exception {
+        String code = shorten("https://example.com", 1);
+
+        // HEAD проверяет ссылку, не расходуя клики
+        assertEquals(302, send("HEAD", "/" + code).statusCode());
+        assertEquals(302, send("HEAD", "/" + code).statusCode());
+        HttpResponse<Void> redirect = get(code);
+        assertEquals(302, redirect.statusCode());
+        assertEquals("https://example.com", redirect.headers().firstValue("Location").orElseThrow());
+
+        assertEquals(410, get(code).statusCode());
+        assertEquals(404, get("NOPE42").statusCode());
+    }
+
+    @Test
+    void patchAndDelete_OwnLink_Succeed() throws Exception {
+        String code = shorten("https://example.com", 1);
+
+        // Ошибка во втором параметре не оставляет примененным первый
+        assertEquals(400, send("PATCH", "/api/links/" + code + "?maxClicks=5&extendDays=x").statusCode());
+        assertEquals(400, send("PATCH", "/api/links/" + code + "?maxClicks=5&extendDays=0").statusCode());
+        String spent = shorten("https://example.com/spent", 1);
+        assertEquals(400, send("PATCH", "/api/links/" + spent + "?maxClicks=5&extendDays=x").statusCode());
+        assertEquals(302, get(spent).statusCode());
+        assertEquals(410, get(spent).statusCode(), "лимит остался прежним");
+
+        assertEquals(204, send("PATCH", "/api/links/" + code + "?maxClicks=5&extendDays=2").statusCode());
+        assertEquals(404, send("PATCH", "/api/links/unknown?maxClicks=5").statusCode());
+        assertEquals(400, send("PATCH", "/api/links/" + code + "?maxClicks=zero").statusCode());
+        assertEquals(400, send("PATCH", "/api/links/" + code).statusCode());
+        assertEquals(204, send("DELETE", "/api/links/" + code).statusCode());
+        assertEquals(404, get(code).statusCode());
+    }
+
+    @Test
+    void batch_StreamsResultPerLine() throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                        .uri(URI.create(baseUri + "/api/links/batch?maxClicks=3"))
+                        .header("X-User-Id", userId.toString())
+                        .POST(HttpRequest.BodyPublishers.ofString("https://a.example\n\nbroken\nhttps://b.example\n"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        String[] lines = response.body().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[1].startsWith("ERROR "));
+        String code = lines[2].substring(lines[2].lastIndexOf('/') + 1);
+        assertEquals("https://b.example", get(code).headers().firstValue("Location").orElseThrow());
+    }
+
+    @Test
+    void export_StreamsUserLinksAsJsonLines() throws Exception {
+        String code = shorten("https://example.com", 2);
+
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                        .uri(URI.create(baseUri + "/api/links?format=jsonl"))
+                        .header("X-User-Id", userId.toString())
+                        .GET()
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains(code + "\",\"originalUrl\":\"https://example.com\""));
+    }
+
+    @Test
+    void rateLimiter_OverLimitRequestsGet429() throws Exception {
+        server.close();
+        UrlShrinkDomainService domainService = new UrlShrinkDomainService(
+                new InMemoryUrlRepository(), new ShortCodeGenerator(ShortCodeGenerator.Mode.SEQUENCE, 6, 42L), notificationService);
+        server = new UrlShrinkHttpServer(new UrlShrinkApplicationService(domainService),
+                new InetSocketAddress("127.0.0.1", 0), 100, null,
+                new RateLimiter(new RateLimiter.Settings(1024, 0.001, 1, 0.001, 1), Clock.systemUTC())).start();
+        baseUri = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        String code = shorten("https://example.com", 5);
+        HttpResponse<Void> limited = send("POST", "/api/links");
+        assertEquals(429, limited.statusCode());
+        assertEquals("1", limited.headers().firstValue("Retry-After").orElseThrow());
+
+        assertEquals(302, get(code).statusCode());
+        assertEquals(429, get(code).statusCode());
+    }
+
+    @Test
+    void rateLimiter_BatchChargedPerUrlAndPeersExempt() throws Exception {
+        server.close();
+        UrlShrinkDomainService domainService = new UrlShrinkDomainService(
+                new InMemoryUrlRepository(), new ShortCodeGenerator(ShortCodeGenerator.Mode.SEQUENCE, 6, 42L), notificationService);
+        server = new UrlShrinkHttpServer(new UrlShrinkApplicationService(domainService),
+                new InetSocketAddress("127.0.0.1", 0), 100, null,
+                new RateLimiter(new RateLimiter.Settings(1024, 0.001, 2, 0.001, 1), Clock.systemUTC()),
+                null, "peer-secret").start();
+        baseUri = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        HttpResponse<String> batch = batch("https://a.example\nhttps://b.example\nhttps://c.example\n");
+        assertEquals(200, batch.statusCode());
+        String[] lines = batch.body().split("\n");
+        assertEquals(3, lines.length);
+        assertFalse(lines[1].startsWith("ERROR "));
+        assertEquals("ERROR Превышен лимит запросов", lines[2]);
+        assertEquals(429, batch("https://d.example\n").statusCode());
+
+        String code = lines[0].substring(lines[0].lastIndexOf('/') + 1);
+        assertEquals(302, get(code).statusCode());
+        assertEquals(429, get(code).statusCode());
+        HttpResponse<Void> fromPeer = client.send(HttpRequest.newBuilder()
+                        .uri(URI.create(baseUri + "/" + code))
+                        .header("X-Cluster-Secret", "peer-secret")
+                        .GET()
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+        assertEquals(302, fromPeer.statusCode(), "переход, пересланный узлом, не расходует лимит клиента");
+    }
+
+    @Test
+    void shorten_CodeSpaceExhausted_Returns503() throws Exception {
+        server.close();
+        UrlShrinkDomainService domainService = new UrlShrinkDomainService(new InMemoryUrlRepository(),
+                new ShortCodeGenerator(ShortCodeGenerator.Mode.SEQUENCE, 1, 1L), notificationService);
+        server = new UrlShrinkHttpServer(new UrlShrinkApplicationService(domainService),
+                new InetSocketAddress("127.0.0.1", 0), 100).start();
+        baseUri = "http://127.0.0.1:" + server.getAddress().getPort();
+        for (int i = 0; i < 62; i++) {
+            shorten("https://example.com/" + i, 1);
+        }
+
+        HttpResponse<String> exhausted = client.send(HttpRequest.newBuilder()
+                        .uri(URI.create(baseUri + "/api/links"))
+                        .header("X-User-Id", userId.toString())
+                        .POST(HttpRequest.BodyPublishers.ofString("https://example.com/more"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(503, exhausted.statusCode());
+    }
+
+    private String shorten(String url, int maxClicks) throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                        .uri(URI.create(baseUri + "/api/links?maxClicks=" + maxClicks))
+                        .header("X-User-Id", userId.toString())
+                        .POST(HttpRequest.BodyPublishers.ofString(url))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(201, response.statusCode());
+        return response.body().substring(response.body().lastIndexOf('/') + 1);
+    }
+
+    private HttpResponse<String> batch(String body) throws Exception {
+        return client.send(HttpRequest.newBuilder()
+                        .uri(URI.create(baseUri + "/api/links/batch?maxClicks=3"))
+                        .header("X-User-Id", userId.toString())
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<Void> get(String code) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(baseUri + "/" + code)).GET().build(),
+                HttpResponse.BodyHandlers.discarding());
+    }
+
+    private HttpResponse<Void> send(String method, String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(baseUri + path))
+                        .header("X-User-Id", userId.toString())
+                        .method(method, HttpRequest.BodyPublishers.noBody())
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+    }
+}
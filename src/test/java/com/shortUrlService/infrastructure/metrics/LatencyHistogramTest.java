@@ -0,0 +1,51 @@
+package com.shortUrlService.infrastructure.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void valueAtQuantile_StaysWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1_000);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10_000, snapshot.getCount());
+        assertEquals(50_005_000_000L, snapshot.getSumNanos());
+        assertEquals(5_000_000, snapshot.valueAtQuantile(0.5), 5_000_000 / 32.0);
+        assertEquals(9_900_000, snapshot.valueAtQuantile(0.99), 9_900_000 / 32.0);
+        assertEquals(1_000, snapshot.valueAtQuantile(0.0), 1_000 / 32.0);
+    }
+
+    @Test
+    void minus_LeavesOnlyRecordsOfTheInterval() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 1_000; i++) {
+            histogram.record(100);
+        }
+        LatencyHistogram.Snapshot before = histogram.snapshot();
+        for (int i = 0; i < 10; i++) {
+            histogram.record(1_000_000);
+        }
+
+        LatencyHistogram.Snapshot interval = histogram.snapshot().minus(before);
+        assertEquals(10, interval.getCount());
+        assertEquals(10_000_000, interval.getSumNanos());
+        assertEquals(1_000_000, interval.valueAtQuantile(0.5), 1_000_000 / 32.0);
+    }
+
+    @Test
+    void bucketOf_IsMonotonicAndClampsHugeValues() {
+        int previous = -1;
+        for (long value = 0; value < 1L << 20; value += 7) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(bucket >= previous);
+            previous = bucket;
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+    }
+}
@@ -0,0 +1,59 @@
+package com.shortUrlService.infrastructure.metrics;
+
+import com.shortUrlService.domain.model.ResolveResult;
+import com.shortUrlService.domain.service.ClickAnalytics;
+import com.shortUrlService.domain.service.NotificationService;
+import com.shortUrlService.domain.service.UrlShrinkDomainService;
+import com.shortUrlService.infrastructure.persistence.InMemoryUrlRepository;
+import com.shortUrlService.infrastructure.shortening.ShortCodeGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class MetricsRegistryTest {
+
+    @Test
+    void domainService_RecordsOutcomesAndLatencies() {
+        MetricsRegistry metrics = new MetricsRegistry(0);
+        UrlShrinkDomainService service = new UrlShrinkDomainService(new InMemoryUrlRepository(),
+                new ShortCodeGenerator(ShortCodeGenerator.Mode.SEQUENCE, 6, 42L), mock(NotificationService.class), ClickAnalytics.NONE,
+                metrics, Clock.systemUTC());
+        UUID user = UUID.randomUUID();
+
+        String shortUrl = service.createShortUrl(user, "https://example.com", 1);
+        String code = shortUrl.substring(shortUrl.lastIndexOf('/') + 1);
+        service.resolve(code);
+        service.resolve(code);
+        service.resolve("nope");
+        service.deleteUrl(user, code);
+        metrics.rotate();
+
+        assertEquals(1, metrics.getResolveCount(ResolveResult.Status.REDIRECT));
+        assertEquals(1, metrics.getResolveCount(ResolveResult.Status.LIMIT_REACHED));
+        assertEquals(1, metrics.getResolveCount(ResolveResult.Status.NOT_FOUND));
+        String text = metrics.scrape();
+        assertTrue(text.contains("shortlink_operation_duration_seconds_count{operation=\"resolve\"} 3\n"), text);
+        assertTrue(text.contains("shortlink_operation_duration_seconds_count{operation=\"create\"} 1\n"), text);
+        assertTrue(text.contains("shortlink_operation_duration_seconds_count{operation=\"delete\"} 1\n"), text);
+        assertTrue(text.contains("shortlink_resolve_total{outcome=\"not_found\"} 1\n"), text);
+    }
+
+    @Test
+    void scrape_QuantilesCoverLastIntervalOnly() {
+        MetricsRegistry metrics = new MetricsRegistry(0);
+        metrics.recordCleanupSweep(1_000_000_000);
+        metrics.rotate();
+        metrics.recordCleanupSweep(1_000);
+        metrics.rotate();
+        metrics.registerGauge("shortlink_test_gauge", "Проверка", () -> 42);
+
+        String text = metrics.scrape();
+        assertTrue(text.contains("shortlink_cleanup_duration_seconds{quantile=\"0.99\"} 1.0E-6\n"), text);
+        assertTrue(text.contains("shortlink_cleanup_duration_seconds_count 2\n"), text);
+        assertTrue(text.contains("# TYPE shortlink_test_gauge gauge\nshortlink_test_gauge 42\n"), text);
+    }
+}
@@ -0,0 +1,63 @@
+package com.shortUrlService.infrastructure.notification;
+
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.domain.service.NotificationService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncNotificationServiceTest {
+
+    @Mock
+    private NotificationService delegate;
+
+    @Test
+    void notifyLimitReached_RepeatedForSameLink_DeliveredOnce() throws Exception {
+        UUID userId = UUID.randomUUID();
+        ShortUrl url = createTestShortUrl(userId);
+
+        try (AsyncNotificationService service = new AsyncNotificationService(
+                delegate, 16, 4, 1, AsyncNotificationService.OverflowPolicy.DROP_NEWEST)) {
+            for (int i = 0; i < 10; i++) {
+                service.notifyLimitReached(userId, url);
+            }
+            service.notifyLinkExpired(userId, url);
+        }
+
+        verify(delegate, times(1)).notifyLimitReached(userId, url);
+        verify(delegate, times(1)).notifyLinkExpired(userId, url);
+    }
+
+    @Test
+    void notify_QueueFullWithCallerRuns_DeliversSynchronously() throws Exception {
+        UUID userId = UUID.randomUUID();
+
+        try (AsyncNotificationService service = new AsyncNotificationService(
+                delegate, 1, 1, 1_000, AsyncNotificationService.OverflowPolicy.CALLER_RUNS)) {
+            for (int i = 0; i < 50; i++) {
+                service.notifyLimitReached(userId, createTestShortUrl(userId));
+            }
+        }
+
+        verify(delegate, times(50)).notifyLimitReached(eq(userId), any());
+    }
+
+    private ShortUrl createTestShortUrl(UUID userId) {
+        return ShortUrl.builder()
+                .userId(userId)
+                .originalUrl("https://example.com")
+                .shortCode("abc123")
+                .maxClicks(1)
+                .expiresAt(LocalDateTime.now().plusDays(1))
+                .build();
+    }
+}
@@ -0,0 +1,162 @@
+package com.shortUrlService.infrastructure.persistence;
+
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.domain.model.UserStats;
+import com.shortUrlService.infrastructure.shortening.Base62;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactUrlRepositoryTest {
+    private static final long NOW = 1_700_000_000_000L;
+
+    private CompactUrlRepository repository;
+    private UUID userId;
+
+    @BeforeEach
+    void setUp() {
+        repository = new CompactUrlRepository(6, Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC));
+        userId = UUID.randomUUID();
+    }
+
+    @Test
+    void saveIfAbsent_ThenFind_RestoresAllFieldsAndKeepsOneInstance() {
+        ShortUrl url = link("abc123", "https://example.com/path?q=1", 10, NOW + 60_000);
+
+        assertTrue(repository.saveIfAbsent(url));
+        assertFalse(repository.saveIfAbsent(url));
+
+        ShortUrl found = repository.findByShortCode("abc123").orElseThrow();
+        assertEquals(userId, found.getUserId());
+        assertEquals("https://example.com/path?q=1", found.getOriginalUrl());
+        assertEquals(10, found.getMaxClicks());
+        assertEquals(url.getExpiresAtMillis(), found.getExpiresAtMillis());
+        assertEquals(url.getCreatedAtMillis(), found.getCreatedAtMillis());
+        assertSame(found, repository.findByShortCode("abc123").orElseThrow(), "пока экземпляр держат, он один");
+        assertTrue(repository.findByShortCode("abc12").isEmpty());
+        assertTrue(repository.findByShortCode("zzz999").isEmpty());
+    }
+
+    @Test
+    void concurrentClicks_ClaimedOnSharedInstanceAndWrittenBack() throws Exception {
+        repository.save(link("abc123", "https://example.com", 1000, NOW + 60_000));
+        AtomicInteger claimed = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                tasks.add(pool.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        ShortUrl url = repository.findByShortCode("abc123").orElseThrow();
+                        if (url.tryClaimClick() > 0) {
+                            repository.recordClick(url);
+                            claimed.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1000, claimed.get(), "лимит не превышен и ни один клик не потерян");
+        UserStats stats = repository.getUserStats(userId);
+        assertEquals(1000, stats.totalClicks(), "состояние экземпляра записано в строку");
+        assertEquals(1, stats.inactive());
+    }
+
+    @Test
+    void update_AcceptsOnlyCurrentInstance() {
+        repository.save(link("abc123", "https://example.com", 1, NOW + 60_000));
+        ShortUrl detached = repository.findByUserId(userId).iterator().next();
+        ShortUrl current = repository.findByShortCode("abc123").orElseThrow();
+        assertSame(current, repository.findByUserId(userId).iterator().next());
+
+        current.changeMaxClicks(5);
+        assertTrue(repository.update(current));
+        assertFalse(repository.update(detached), "копия из снимка не текущий экземпляр");
+        assertFalse(repository.update(link("abc123", "https://example.com", 1, NOW + 60_000)));
+        assertEquals(0, repository.getUserStats(userId).inactive(), "новый лимит записан в строку");
+
+        repository.save(link("abc123", "https://example.com/new", 1, NOW + 60_000));
+        assertFalse(repository.update(current), "ссылку заменили");
+        assertEquals("https://example.com/new", repository.findByShortCode("abc123").orElseThrow().getOriginalUrl());
+    }
+
+    @Test
+    void deleteExpired_ReclaimsOnlyDueRowsAndFreesDictionaries() {
+        repository.save(link("aaaaaa", "https://expired.example/a", 10, NOW - 1));
+        repository.save(link("bbbbbb", "https://expired.example/b", 10, NOW - 1));
+        repository.save(link("cccccc", "https://alive.example/c", 10, NOW + 60_000));
+        ShortUrl exhausted = repository.findByShortCode("cccccc").orElseThrow();
+        exhausted.changeMaxClicks(0);
+        repository.markInactive(exhausted);
+        UUID otherUser = UUID.randomUUID();
+        repository.save(ShortUrl.builder().userId(otherUser).originalUrl("https://alive.example/d")
+                .shortCode("dddddd").maxClicks(10).expiresAtMillis(NOW + 60_000).build());
+
+        List<String> reclaimed = new ArrayList<>();
+        repository.deleteExpired(url -> reclaimed.add(url.getShortCode()));
+
+        assertEquals(3, reclaimed.size());
+        assertEquals(1, repository.size());
+        assertEquals(1, repository.userDictionarySize(), "пользователь без ссылок освобожден");
+        assertEquals(1, repository.prefixDictionarySize(), "префикс без ссылок освобожден");
+        assertFalse(repository.update(exhausted), "удаленную ссылку не поправить");
+
+        reclaimed.clear();
+        repository.deleteExpired(url -> reclaimed.add(url.getShortCode()));
+        assertTrue(reclaimed.isEmpty(), "живые ссылки в корзинах не наступивших сроков");
+    }
+
+    @Test
+    void remove_ReusesRowsAndKeepsOtherUserLinks() {
+        for (int i = 0; i < 5000; i++) {
+            repository.save(link(Base62.encode(i, 6), "https://example.com/" + i, 10, NOW + 60_000));
+        }
+        for (int i = 0; i < 5000; i += 2) {
+            assertTrue(repository.removeByShortCode(Base62.encode(i, 6)));
+        }
+        for (int i = 5000; i < 7500; i++) {
+            repository.save(link(Base62.encode(i, 6), "https://example.com/" + i, 10, NOW + 60_000));
+        }
+
+        assertEquals(5000, repository.size());
+        assertEquals(5000, repository.findByUserId(userId).size());
+        assertTrue(repository.findByShortCode(Base62.encode(0, 6)).isEmpty());
+        assertEquals("https://example.com/7499",
+                repository.findByShortCode(Base62.encode(7499, 6)).orElseThrow().getOriginalUrl());
+        long[] visited = new long[1];
+        repository.forEach(url -> visited[0]++);
+        assertEquals(5000, visited[0]);
+        assertThrows(IllegalArgumentException.class,
+                () -> repository.save(link("toolong1", "https://example.com", 1, NOW)));
+    }
+
+    private ShortUrl link(String code, String originalUrl, int maxClicks, long expiresAtMillis) {
+        return ShortUrl.builder()
+                .userId(userId)
+                .originalUrl(originalUrl)
+                .shortCode(code)
+                .maxClicks(maxClicks)
+                .createdAtMillis(NOW - 1000)
+                .expiresAtMillis(expiresAtMillis)
+                .build();
+    }
+}
@@ -0,0 +1,128 @@
+package com.shortUrlService.infrastructure.persistence;
+
+import com.shortUrlService.domain.model.ShortUrl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DurableUrlRepositoryTest {
+    private static final DurableUrlRepository.Settings SETTINGS =
+            new DurableUrlRepository.Settings(1 << 16, 0, false, 0, 0, 4);
+
+    @TempDir
+    Path dir;
+
+    private final UUID userId = UUID.randomUUID();
+
+    @Test
+    void update_AfterDelete_IsRejectedAndDoesNotResurrectLink() throws Exception {
+        try (DurableUrlRepository repository = DurableUrlRepository.open(dir, Clock.systemUTC(), SETTINGS)) {
+            ShortUrl url = link("gggggg");
+            repository.save(url);
+            assertTrue(repository.removeByShortCode("gggggg"));
+
+            url.changeMaxClicks(50);
+            assertFalse(repository.update(url));
+        }
+
+        try (DurableUrlRepository restored = DurableUrlRepository.open(dir, Clock.systemUTC(), SETTINGS)) {
+            assertTrue(restored.findByShortCode("gggggg").isEmpty());
+        }
+    }
+
+    @Test
+    void reopen_RestoresLinksClicksAndDeletes() throws Exception {
+        try (DurableUrlRepository repository = DurableUrlRepository.open(dir, Clock.systemUTC(), SETTINGS)) {
+            ShortUrl kept = link("aaaaaa");
+            assertTrue(repository.saveIfAbsent(kept));
+            repository.save(link("bbbbbb"));
+            kept.tryClaimClick();
+            repository.recordClick(kept);
+            kept.tryClaimClick();
+            repository.recordClick(kept);
+            assertTrue(repository.removeByShortCode("bbbbbb"));
+        }
+
+        try (DurableUrlRepository restored = DurableUrlRepository.open(dir, Clock.systemUTC(), SETTINGS)) {
+            ShortUrl url = restored.findByShortCode("aaaaaa").orElseThrow();
+            assertEquals("https://example.com/aaaaaa", url.getOriginalUrl());
+            assertEquals(userId, url.getUserId());
+            assertEquals(2, url.getClickCount());
+            assertTrue(restored.findByShortCode("bbbbbb").isEmpty());
+            assertEquals(1, restored.findByUserId(userId).size());
+        }
+    }
+
+    @Test
+    void reopen_AfterSnapshot_ReplaysOnlyNewerSegments() throws Exception {
+        try (DurableUrlRepository repository = DurableUrlRepository.open(dir, Clock.systemUTC(), SETTINGS)) {
+            for (int i = 0; i < 500; i++) {
+                repository.save(link(String.format("c%05d", i)));
+            }
+            repository.snapshot();
+            repository.removeByShortCode("c00000");
+            repository.save(link("dddddd"));
+        }
+        assertEquals(1, WriteAheadLog.segments(dir).size());
+
+        try (DurableUrlRepository restored = DurableUrlRepository.open(dir, Clock.systemUTC(), SETTINGS)) {
+            assertTrue(restored.findByShortCode("c00000").isEmpty());
+            assertTrue(restored.findByShortCode("c00499").isPresent());
+            assertTrue(restored.findByShortCode("dddddd").isPresent());
+            assertEquals(500, restored.findByUserId(userId).size());
+        }
+    }
+
+    @Test
+    void open_LoadsSnapshotChunksInParallelAndReportsStartup() throws Exception {
+        try (DurableUrlRepository repository = DurableUrlRepository.open(dir, Clock.systemUTC(), SETTINGS)) {
+            for (int i = 0; i < 10_000; i++) {
+                repository.save(link(String.format("e%05d", i)));
+            }
+            repository.snapshot();
+        }
+
+        try (DurableUrlRepository restored = DurableUrlRepository.open(dir, Clock.systemUTC(), SETTINGS)) {
+            assertTrue(restored.findByShortCode("e09999").isPresent());
+            DurableUrlRepository.StartupMetrics metrics = restored.getStartupMetrics();
+            assertEquals(10_000, metrics.snapshotLinks());
+            assertEquals(3, metrics.snapshotChunks());
+
+            DurableUrlRepository.StartupMetrics indexed = restored.whenFullyIndexed().toCompletableFuture().join();
+            assertTrue(indexed.fullyIndexedMillis() >= indexed.primaryReadyMillis());
+            assertEquals(10_000, restored.findByUserId(userId).size());
+        }
+    }
+
+    @Test
+    void sequenceMark_SurvivesRestartAndSnapshot() throws Exception {
+        try (DurableUrlRepository repository = DurableUrlRepository.open(dir, Clock.systemUTC(), SETTINGS)) {
+            assertEquals(0, repository.loadSequenceMark());
+            repository.storeSequenceMark(70_000);
+            repository.storeSequenceMark(10);
+        }
+        try (DurableUrlRepository repository = DurableUrlRepository.open(dir, Clock.systemUTC(), SETTINGS)) {
+            assertEquals(70_000, repository.loadSequenceMark());
+            repository.snapshot();
+        }
+
+        try (DurableUrlRepository restored = DurableUrlRepository.open(dir, Clock.systemUTC(), SETTINGS)) {
+            assertEquals(70_000, restored.loadSequenceMark());
+        }
+    }
+
+    private ShortUrl link(String shortCode) {
+        return ShortUrl.builder()
+                .userId(userId)
+                .originalUrl("https://example.com/" + shortCode)
+                .shortCode(shortCode)
+                .maxClicks(10)
+                .expiresAtMillis(System.currentTimeMillis() + 86_400_000L)
+                .build();
+    }
+}
@@ -1,10 +1,12 @@
 package com.shortUrlService.infrastructure.persistence;
 
 import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.domain.model.UserStats;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -84,18 +86,57 @@ class InMemoryUrlRepositoryTest {
         repository.save(url1);
         repository.save(url2);
 
-        List<ShortUrl> userUrls = repository.findByUserId(userId);
+        Collection<ShortUrl> userUrls = repository.findByUserId(userId);
 
         assertEquals(2, userUrls.size());
         assertTrue(userUrls.contains(url1));
         assertTrue(userUrls.contains(url2));
     }
 
+    @Test
+    void save_UpdateExisting_KeepsSingleEntryPerCode() {
+        repository.save(createTestShortUrl("abc123"));
+        repository.save(createTestShortUrl("def456"));
+        repository.save(createTestShortUrl("abc123"));
+
+        assertEquals(2, repository.findByUserId(userId).size());
+    }
+
+    @Test
+    void saveIfAbsent_TakenCode_ReturnsFalseAndKeepsOriginal() {
+        ShortUrl original = createTestShortUrl("abc123");
+        assertTrue(repository.saveIfAbsent(original));
+
+        ShortUrl duplicate = ShortUrl.builder()
+                .userId(UUID.randomUUID())
+                .originalUrl("https://other.com")
+                .shortCode("abc123")
+                .maxClicks(10)
+                .expiresAt(LocalDateTime.now().plusDays(1))
+                .build();
+
+        assertFalse(repository.saveIfAbsent(duplicate));
+        assertEquals("https://example.com", repository.findByShortCode("abc123").orElseThrow().getOriginalUrl());
+        assertTrue(repository.findByUserId(duplicate.getUserId()).isEmpty());
+    }
+
+    @Test
+    void saveAllIfAbsent_SkipsTakenCodesAndIndexesTheRest() {
+        repository.save(createTestShortUrl("abc123"));
+
+        boolean[] saved = repository.saveAllIfAbsent(List.of(
+                createTestShortUrl("aaa111"), createTestShortUrl("abc123"), createTestShortUrl("bbb222")));
+
+        assertArrayEquals(new boolean[]{true, false, true}, saved);
+        assertEquals(3, repository.findByUserId(userId).size());
+        assertTrue(repository.findByShortCode("bbb222").isPresent());
+    }
+
     @Test
     void findByUserId_UserWithoutUrls_ReturnsEmptyList() {
         UUID otherUserId = UUID.randomUUID();
 
-        List<ShortUrl> userUrls = repository.findByUserId(otherUserId);
+        Collection<ShortUrl> userUrls = repository.findByUserId(otherUserId);
 
         assertTrue(userUrls.isEmpty());
     }
@@ -138,6 +179,50 @@ class InMemoryUrlRepositoryTest {
         assertFalse(repository.findByShortCode("expiredClicks").isPresent());
     }
 
+    @Test
+    void deleteExpired_DeadlineMovedForward_KeepsUrl() {
+        ShortUrl expired = ShortUrl.builder()
+                .userId(userId)
+                .originalUrl("https://example.com")
+                .shortCode("moved")
+                .maxClicks(10)
+                .expiresAt(LocalDateTime.now().minusSeconds(1))
+                .build();
+        repository.save(expired);
+
+        ShortUrl extended = ShortUrl.builder()
+                .userId(userId)
+                .originalUrl("https://example.com")
+                .shortCode("moved")
+                .maxClicks(10)
+                .expiresAt(LocalDateTime.now().plusDays(1))
+                .build();
+        repository.save(extended);
+
+        repository.deleteExpired();
+
+        assertTrue(repository.findByShortCode("moved").isPresent());
+    }
+
+    @Test
+    void deleteExpired_LimitReachedAfterSave_RemovesUrl() {
+        ShortUrl url = ShortUrl.builder()
+                .userId(userId)
+                .originalUrl("https://example.com")
+                .shortCode("limited")
+                .maxClicks(1)
+                .expiresAt(LocalDateTime.now().plusDays(1))
+                .build();
+        repository.save(url);
+
+        url.tryClaimClick();
+        repository.markInactive(url);
+        repository.deleteExpired();
+
+        assertFalse(repository.findByShortCode("limited").isPresent());
+        assertTrue(repository.findByUserId(userId).isEmpty());
+    }
+
     @Test
     void removeByShortCode_ExistingCode_RemovesUrl() {
         ShortUrl url = createTestShortUrl("abc123");
@@ -148,10 +233,45 @@ class InMemoryUrlRepositoryTest {
         assertTrue(removed);
         assertFalse(repository.findByShortCode("abc123").isPresent());
 
-        List<ShortUrl> userUrls = repository.findByUserId(userId);
+        Collection<ShortUrl> userUrls = repository.findByUserId(userId);
         assertTrue(userUrls.isEmpty());
     }
 
+    @Test
+    void getUserStats_FollowsClicksLimitChangesAndRemovals() {
+        ShortUrl first = createTestShortUrl("first");
+        ShortUrl second = ShortUrl.builder()
+                .userId(userId)
+                .originalUrl("https://example.com")
+                .shortCode("second")
+                .maxClicks(1)
+                .expiresAt(LocalDateTime.now().plusDays(1))
+                .build();
+        repository.save(first);
+        repository.save(second);
+
+        for (int i = 0; i < 3; i++) {
+            first.tryClaimClick();
+            repository.recordClick(first);
+        }
+        second.tryClaimClick();
+        repository.recordClick(second);
+        repository.markInactive(second);
+
+        assertEquals(new UserStats(2, 1, 1, 4), repository.getUserStats(userId));
+        assertEquals(2.0, repository.getUserStats(userId).averageClicks());
+
+        second.changeMaxClicks(5);
+        repository.update(second);
+        assertEquals(new UserStats(2, 2, 0, 4), repository.getUserStats(userId));
+
+        repository.removeByShortCode("first");
+        assertEquals(new UserStats(1, 1, 0, 1), repository.getUserStats(userId));
+
+        repository.removeByShortCode("second");
+        assertEquals(UserStats.EMPTY, repository.getUserStats(userId));
+    }
+
     @Test
     void removeByShortCode_NonExistentCode_ReturnsFalse() {
         boolean removed = repository.removeByShortCode("nonexistent");
@@ -0,0 +1,135 @@
+package com.shortUrlService.infrastructure.persistence;
+
+import com.shortUrlService.domain.model.ResolveResult;
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.infrastructure.shortening.Base62;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedRedirectIndexTest {
+    private static final long NOW = 1_000_000;
+    private static final Clock CLOCK = Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void find_ReturnsPercentEncodedTargetAndRedirectState() throws Exception {
+        try (MappedRedirectIndex index = MappedRedirectIndex.open(dir.resolve("redirect.idx"), CLOCK)) {
+            ShortUrl url = link("abc123", "https://пример.рф/a b", NOW + 1_000, 2);
+            index.put(url);
+            index.put(link("aabc123", "https://other.example/", NOW + 1_000, 2));
+            MappedRedirectIndex.Entry entry = new MappedRedirectIndex.Entry();
+
+            assertTrue(index.find("abc123", entry));
+            assertEquals("https://%D0%BF%D1%80%D0%B8%D0%BC%D0%B5%D1%80.%D1%80%D1%84/a%20b", entry.target());
+            ByteBuffer direct = ByteBuffer.allocateDirect(128).put((byte) '>');
+            entry.copyTarget(direct);
+            assertEquals(1 + entry.targetLength(), direct.position());
+            assertEquals(ResolveResult.Status.REDIRECT, entry.status(NOW));
+            assertEquals(ResolveResult.Status.EXPIRED, entry.status(NOW + 1_000));
+
+            index.observeClicks("abc123", 2);
+            assertTrue(index.find("abc123", entry));
+            assertEquals(ResolveResult.Status.LIMIT_REACHED, entry.status(NOW));
+            assertFalse(index.find("zzz999", entry));
+            assertFalse(index.find("not-base62!", entry));
+
+            assertTrue(index.remove("abc123"));
+            assertFalse(index.find("abc123", entry));
+            assertTrue(index.find("aabc123", entry));
+        }
+    }
+
+    @Test
+    void reopen_AfterCloseKeepsEntriesAndAfterCrashAsksForRefill() throws Exception {
+        Path file = dir.resolve("redirect.idx");
+        try (MappedRedirectIndex index = MappedRedirectIndex.open(file, CLOCK)) {
+            assertFalse(index.wasCleanlyClosed());
+            index.put(link("keep01", "https://example.com/keep", NOW + 1_000, 5));
+        }
+
+        MappedRedirectIndex reopened = MappedRedirectIndex.open(file, CLOCK);
+        assertTrue(reopened.wasCleanlyClosed());
+        MappedRedirectIndex.Entry entry = new MappedRedirectIndex.Entry();
+        assertTrue(reopened.find("keep01", entry));
+        assertEquals("https://example.com/keep", entry.target());
+        assertEquals(1, reopened.size());
+
+        // Без close: следующий запуск не может доверять файлу
+        try (MappedRedirectIndex afterCrash = MappedRedirectIndex.open(file, CLOCK)) {
+            assertFalse(afterCrash.wasCleanlyClosed());
+        }
+    }
+
+    @Test
+    void put_BeyondCapacity_RebuildsWithoutDeadEntries() throws Exception {
+        try (MappedRedirectIndex index = MappedRedirectIndex.open(dir.resolve("redirect.idx"), CLOCK)) {
+            for (int i = 0; i < 5_000; i++) {
+                long expiresAt = i % 2 == 0 ? NOW + 1_000 : NOW - 1;
+                index.put(link(Base62.encode(i, 6), "https://example.com/" + i, expiresAt, 10));
+            }
+
+            MappedRedirectIndex.Entry entry = new MappedRedirectIndex.Entry();
+            for (int i = 0; i < 5_000; i += 2) {
+                assertTrue(index.find(Base62.encode(i, 6), entry), "код " + i);
+                assertEquals("https://example.com/" + i, entry.target());
+            }
+            assertTrue(index.size() < 5_000);
+        }
+    }
+
+    @Test
+    void repository_MirrorsWritesIntoIndex() throws Exception {
+        try (MappedRedirectIndex index = MappedRedirectIndex.open(dir.resolve("redirect.idx"), CLOCK)) {
+            RedirectIndexingUrlRepository repository =
+                    new RedirectIndexingUrlRepository(new InMemoryUrlRepository(CLOCK), index).syncIfStale();
+            ShortUrl url = link("mirror", "https://example.com/m", NOW + 1_000, 1);
+            assertTrue(repository.saveIfAbsent(url));
+            MappedRedirectIndex.Entry entry = new MappedRedirectIndex.Entry();
+            assertTrue(index.find("mirror", entry));
+
+            url.tryClaimClick();
+            repository.recordClick(url);
+            assertTrue(index.find("mirror", entry));
+            assertEquals(ResolveResult.Status.LIMIT_REACHED, entry.status(NOW));
+
+            url.changeMaxClicks(3);
+            repository.update(url);
+            assertTrue(index.find("mirror", entry));
+            assertEquals(ResolveResult.Status.REDIRECT, entry.status(NOW));
+
+            assertTrue(repository.removeByShortCode("mirror"));
+            assertFalse(index.find("mirror", entry));
+
+            // Исчерпанную ссылку убирает фоновая очистка - вместе с записью индекса
+            ShortUrl exhausted = link("spent1", "https://example.com/s", NOW + 1_000, 1);
+            assertTrue(repository.saveIfAbsent(exhausted));
+            exhausted.tryClaimClick();
+            repository.markInactive(exhausted);
+            repository.deleteExpired();
+            assertTrue(repository.findByShortCode("spent1").isEmpty());
+            assertFalse(index.find("spent1", entry));
+        }
+    }
+
+    private static ShortUrl link(String code, String target, long expiresAt, int maxClicks) {
+        return ShortUrl.builder()
+                .userId(UUID.randomUUID())
+                .originalUrl(target)
+                .shortCode(code)
+                .maxClicks(maxClicks)
+                .expiresAtMillis(expiresAt)
+                .build();
+    }
+}
@@ -0,0 +1,77 @@
+package com.shortUrlService.infrastructure.persistence;
+
+import com.shortUrlService.domain.model.ShortUrl;
+import com.shortUrlService.domain.model.UserStats;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedUrlRepositoryTest {
+    private final ShardedUrlRepository repository = new ShardedUrlRepository(6, Clock.systemUTC());
+    private final UUID userId = UUID.randomUUID();
+
+    @Test
+    void shardCount_RoundsUpToPowerOfTwo() {
+        assertEquals(8, repository.getShardCount());
+        assertEquals(1, new ShardedUrlRepository(1, Clock.systemUTC()).getShardCount());
+        assertEquals(2, new ShardedUrlRepository(2, Clock.systemUTC()).getShardCount());
+        assertEquals(16, new ShardedUrlRepository(16, Clock.systemUTC()).getShardCount());
+        assertEquals(32, new ShardedUrlRepository(17, Clock.systemUTC()).getShardCount());
+    }
+
+    @Test
+    void saveAllIfAbsent_KeepsInputOrderAcrossShards() {
+        repository.save(link("code7", 1));
+        List<ShortUrl> batch = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            batch.add(link("code" + i, 10));
+        }
+
+        boolean[] saved = repository.saveAllIfAbsent(batch);
+
+        for (int i = 0; i < saved.length; i++) {
+            assertEquals(i != 7, saved[i], "code" + i);
+        }
+        Set<String> codes = new HashSet<>();
+        repository.findByUserId(userId).forEach(url -> codes.add(url.getShortCode()));
+        assertEquals(64, codes.size());
+        assertEquals(64, repository.findByUserId(userId).size());
+    }
+
+    @Test
+    void userStatsAndCleanup_CoverAllShards() {
+        for (int i = 0; i < 32; i++) {
+            repository.save(link("code" + i, 1));
+        }
+        ShortUrl exhausted = repository.findByShortCode("code3").orElseThrow();
+        exhausted.tryClaimClick();
+        repository.recordClick(exhausted);
+        repository.markInactive(exhausted);
+
+        assertEquals(new UserStats(32, 31, 1, 1), repository.getUserStats(userId));
+
+        repository.deleteExpired();
+
+        assertFalse(repository.findByShortCode("code3").isPresent());
+        assertEquals(31, repository.findByUserId(userId).size());
+        assertEquals(new UserStats(31, 31, 0, 0), repository.getUserStats(userId));
+    }
+
+    private ShortUrl link(String code, int maxClicks) {
+        return ShortUrl.builder()
+                .userId(userId)
+                .originalUrl("https://example.com/" + code)
+                .shortCode(code)
+                .maxClicks(maxClicks)
+                .expiresAt(LocalDateTime.now().plusDays(1))
+                .build();
+    }
+}
@@ -0,0 +1,119 @@
+package com.shortUrlService.infrastructure.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTableTest {
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    void tryAcquire_BurstThenRefillAtRate() {
+        TokenBucketTable table = new TokenBucketTable(1024, 10, 3, NOW);
+
+        assertTrue(table.tryAcquire(42, NOW));
+        assertTrue(table.tryAcquire(42, NOW));
+        assertTrue(table.tryAcquire(42, NOW));
+        assertFalse(table.tryAcquire(42, NOW));
+        assertTrue(table.tryAcquire(7, NOW), "у другого ключа своя корзина");
+
+        // 10 в секунду: токен через 100 мс, не раньше
+        assertFalse(table.tryAcquire(42, NOW + 90));
+        assertTrue(table.tryAcquire(42, NOW + 100));
+        assertFalse(table.tryAcquire(42, NOW + 100));
+        // Долгий простой не копит больше запаса
+        for (int i = 0; i < 3; i++) {
+            assertTrue(table.tryAcquire(42, NOW + 60_000));
+        }
+        assertFalse(table.tryAcquire(42, NOW + 60_000));
+    }
+
+    @Test
+    void manyKeys_MemoryBoundedAndBusyEntriesNotEvicted() {
+        TokenBucketTable table = new TokenBucketTable(1000, 1, 1, NOW);
+        assertEquals(1024, table.capacity());
+
+        int granted = 0;
+        for (long key = 1; key <= 100_000; key++) {
+            if (table.tryAcquire(key, NOW)) {
+                granted++;
+            }
+        }
+        int size = table.size();
+        assertTrue(size <= table.capacity());
+        assertEquals(size + 1, granted, "ключи без слота делят одну корзину переполнения");
+
+        // Наплыв новых ключей не вернул занятым корзинам полный запас
+        for (long key = 1; key <= 100_000; key++) {
+            assertFalse(table.tryAcquire(key, NOW));
+        }
+        assertEquals(0, table.evictIdle(NOW));
+
+        // Простаивающая корзина уступает слот новому ключу
+        assertTrue(table.tryAcquire(200_000, NOW + 1_000));
+        assertFalse(table.tryAcquire(200_000, NOW + 1_000));
+        table.evictIdle(NOW + 1_000);
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void rateLimiter_ShortenLimitedByUserAndByClient() throws Exception {
+        RateLimiter limiter = new RateLimiter(new RateLimiter.Settings(1024, 1, 2, 1, 1),
+                Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC));
+        InetAddress first = InetAddress.getByName("192.0.2.1");
+        InetAddress second = InetAddress.getByName("2001:db8::1");
+        UUID user = UUID.randomUUID();
+
+        assertTrue(limiter.tryShorten(user, first));
+        assertTrue(limiter.tryShorten(user, second));
+        assertFalse(limiter.tryShorten(user, second), "лимит пользователя исчерпан с любого адреса");
+        assertTrue(limiter.tryShorten(UUID.randomUUID(), second));
+        assertFalse(limiter.tryShorten(UUID.randomUUID(), second), "лимит адреса исчерпан для любого пользователя");
+
+        // Исчерпавший лимит адрес не расходует токены чужого пользователя
+        UUID victim = UUID.randomUUID();
+        for (int i = 0; i < 5; i++) {
+            assertFalse(limiter.tryShorten(victim, second));
+        }
+        InetAddress third = InetAddress.getByName("192.0.2.3");
+        assertTrue(limiter.tryShorten(victim, third));
+        assertTrue(limiter.tryShorten(victim, third));
+        // Отказ по пользователю возвращает токен адреса
+        InetAddress fourth = InetAddress.getByName("192.0.2.4");
+        assertFalse(limiter.tryShorten(victim, fourth));
+        assertTrue(limiter.tryShorten(UUID.randomUUID(), fourth));
+        assertTrue(limiter.tryShorten(UUID.randomUUID(), fourth));
+
+        assertTrue(limiter.tryRedirect(first));
+        assertFalse(limiter.tryRedirect(first));
+        assertEquals(9, limiter.getRejectedCount());
+    }
+
+    @Test
+    void concurrentAcquire_NeverExceedsBurst() throws Exception {
+        TokenBucketTable table = new TokenBucketTable(1024, 1, 1000, NOW);
+        AtomicInteger granted = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    if (table.tryAcquire(99, NOW)) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1000, granted.get());
+    }
+}
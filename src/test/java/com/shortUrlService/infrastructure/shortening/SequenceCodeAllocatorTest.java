@@ -0,0 +1,112 @@
+package com.shortUrlService.infrastructure.shortening;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SequenceCodeAllocatorTest {
+
+    @Test
+    void nextCode_WholeSpace_AllCodesDistinctThenExhausted() {
+        SequenceCodeAllocator allocator = new SequenceCodeAllocator(3, 42L);
+        long space = Base62.capacity(3);
+        Set<String> codes = new HashSet<>();
+
+        for (long i = 0; i < space; i++) {
+            String code = allocator.nextCode();
+            assertEquals(3, code.length());
+            assertTrue(codes.add(code), "Повтор кода " + code);
+        }
+
+        assertThrows(IllegalStateException.class, allocator::nextCode);
+    }
+
+    @Test
+    void secretFor_OtherModes_DoNotReadSecret() {
+        // В тестах ключ не задан: режимам без перестановки он и не нужен
+        assertEquals(0, ShortCodeGenerator.secretFor(ShortCodeGenerator.Mode.RANDOM));
+        assertEquals(0, ShortCodeGenerator.secretFor(ShortCodeGenerator.Mode.SHA256));
+    }
+
+    @Test
+    void sequenceOf_EncodedSequence_ReturnsOriginalNumber() {
+        SequenceCodeAllocator allocator = new SequenceCodeAllocator(6, 7L);
+
+        for (long sequence = 0; sequence < 10_000; sequence += 37) {
+            assertEquals(sequence, allocator.sequenceOf(allocator.encode(sequence)));
+        }
+        assertEquals(-1, allocator.sequenceOf("abc"));
+    }
+
+    @Test
+    void encode_ConsecutiveSequences_AreNotConsecutiveCodes() {
+        SequenceCodeAllocator allocator = new SequenceCodeAllocator(6, 7L);
+
+        long first = Base62.decode(allocator.encode(1000));
+        long second = Base62.decode(allocator.encode(1001));
+
+        assertNotEquals(1, Math.abs(second - first));
+    }
+
+    @Test
+    void advancePast_DiscardsAlreadyLeasedNumbers() {
+        SequenceCodeAllocator allocator = new SequenceCodeAllocator(6, 7L);
+        assertEquals(0, allocator.nextSequence());
+
+        allocator.advancePast(500);
+
+        assertEquals(501, allocator.nextSequence());
+    }
+
+    @Test
+    void restore_ContinuesAboveStoredMarkAndStoresBeforeIssuing() {
+        long[] stored = {5000};
+        SequenceMarkStore store = new SequenceMarkStore() {
+            @Override
+            public long loadSequenceMark() {
+                return stored[0];
+            }
+
+            @Override
+            public void storeSequenceMark(long mark) {
+                stored[0] = mark;
+            }
+        };
+        SequenceCodeAllocator allocator = new SequenceCodeAllocator(6, 7L);
+
+        allocator.restore(store, () -> fail("граница есть, обход не нужен"));
+        long sequence = allocator.nextSequence();
+
+        assertEquals(5000, sequence);
+        assertTrue(stored[0] > sequence, "граница сохранена до выдачи номера");
+        long reserved = allocator.reserve(100_000);
+        assertTrue(stored[0] >= reserved + 100_000);
+    }
+
+    @Test
+    void restore_WithoutMark_ScansOnceAndStoresMarkImmediately() {
+        long[] stored = {0};
+        SequenceMarkStore store = new SequenceMarkStore() {
+            @Override
+            public long loadSequenceMark() {
+                return stored[0];
+            }
+
+            @Override
+            public void storeSequenceMark(long mark) {
+                stored[0] = mark;
+            }
+        };
+        SequenceCodeAllocator allocator = new SequenceCodeAllocator(6, 7L);
+
+        allocator.restore(store, () -> allocator.advancePast(41));
+
+        assertTrue(stored[0] > 41, "граница сохранена сразу после обхода, до первой выдачи");
+        SequenceCodeAllocator restarted = new SequenceCodeAllocator(6, 7L);
+        restarted.restore(store, () -> fail("повторный запуск не должен обходить коды"));
+        assertTrue(restarted.nextSequence() > 41);
+    }
+}
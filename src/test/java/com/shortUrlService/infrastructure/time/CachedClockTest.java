@@ -0,0 +1,24 @@
+package com.shortUrlService.infrastructure.time;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachedClockTest {
+
+    @Test
+    void withZone_KeepsCachedTime() throws Exception {
+        CachedClock clock = new CachedClock(60_000);
+        Thread.sleep(5);
+
+        Clock zoned = clock.withZone(ZoneId.of("Europe/Moscow"));
+
+        assertEquals(ZoneId.of("Europe/Moscow"), zoned.getZone());
+        assertEquals(clock.millis(), zoned.millis(), "время не тикает мимо кеша");
+        assertTrue(zoned.millis() < System.currentTimeMillis());
+        assertSame(clock, zoned.withZone(clock.getZone()));
+    }
+}